@@ -42,6 +42,59 @@ public class CommandLine {
       usage = "set the port for this server")
   public Integer port = 9000;
 
+  @Option(name = "--workload",
+      metaVar = "<file>",
+      usage = "run the workload in this JSON file, print its report and exit")
+  public String workload = null;
+
+  @Option(name = "--provider",
+      metaVar = "<url>",
+      usage = "the base URL of the provider to run the workload against, if not the workload's, "
+          + "or to replay a request log against")
+  public String provider = null;
+
+  @Option(name = "--replay",
+      metaVar = "<file>",
+      usage = "replay a local server's request log against --provider, print a report and exit")
+  public String replay = null;
+
+  @Option(name = "--candidate",
+      metaVar = "<url>",
+      usage = "also replay the request log against this provider and compare each request's "
+          + "latency")
+  public String candidate = null;
+
+  @Option(name = "--speed",
+      metaVar = "<factor>",
+      usage = "replay the request log this many times faster than it was recorded")
+  public Double speed = 1.0;
+
+  @Option(name = "--concurrency",
+      metaVar = "<connections>",
+      usage = "the most requests to have in flight at once while replaying")
+  public Integer concurrency = 64;
+
+  @Option(name = "--results",
+      metaVar = "<dir>",
+      usage = "save each workload run in this directory, to compare runs later")
+  public String results = "results";
+
+  @Option(name = "--label",
+      metaVar = "<label>",
+      usage = "add this label, such as the build being measured, to the saved run's ID")
+  public String label = null;
+
+  @Option(name = "--baseline",
+      metaVar = "<run>",
+      usage = "compare the workload run with this saved run, and exit with status 1 if any "
+          + "latency percentile regressed")
+  public String baseline = null;
+
+  @Option(name = "--threshold",
+      metaVar = "<fraction>",
+      usage = "the smallest relative change in latency to flag as a regression or improvement")
+  public Double threshold = Comparison.DEFAULT_THRESHOLD;
+
   public CommandLine(String[] args) throws CmdLineException {
     parser = new CmdLineParser(this);
     parser.parseArgument(args);
@@ -0,0 +1,315 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Compares a candidate run with a baseline run. Latency percentiles come with a bootstrap
+ * confidence interval for the change, and are flagged as a regression or an improvement when the
+ * interval excludes zero and the change is larger than {@code threshold}. Throughput, bytes per
+ * response and server metrics per request are single values per run, so they are shown but not
+ * flagged.
+ */
+public final class Comparison {
+
+  public static final double DEFAULT_THRESHOLD = 0.05;
+
+  private static final double CONFIDENCE = 0.95;
+  private static final double NANOS_PER_MILLI = 1e6;
+  private static final double[] PERCENTILES = { 50, 99, 99.9 };
+  private static final String[] PERCENTILE_NAMES = { "p50 ms", "p99 ms", "p99.9 ms" };
+  private static final int RESAMPLES = 2000;
+
+  public enum Verdict { IMPROVEMENT, NONE, REGRESSION }
+
+  /**
+   * One measure in both runs. {@code lower} and {@code upper} bound the change from baseline to
+   * candidate, where there is a confidence interval.
+   */
+  public static final class Metric {
+
+    private final double baseline;
+    private final double candidate;
+    private final Double lower;
+    private final String name;
+    private final Double upper;
+    private final Verdict verdict;
+
+    private Metric(String name, double baseline, double candidate, Double lower, Double upper,
+        Verdict verdict) {
+      this.name = name;
+      this.baseline = baseline;
+      this.candidate = candidate;
+      this.lower = lower;
+      this.upper = upper;
+      this.verdict = verdict;
+    }
+
+    public double getBaseline() {
+      return baseline;
+    }
+
+    public double getCandidate() {
+      return candidate;
+    }
+
+    public Double getLower() {
+      return lower;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the change from baseline to candidate as a fraction of the baseline, or null if the
+     * baseline is zero.
+     */
+    public Double getRelativeChange() {
+      return 0 == baseline ? null : (candidate - baseline) / baseline;
+    }
+
+    public Double getUpper() {
+      return upper;
+    }
+
+    public Verdict getVerdict() {
+      return verdict;
+    }
+  }
+
+  public static Comparison create(Run baseline, Run candidate, double threshold) {
+    Random random = new Random(0);
+    Map<String, List<Metric>> operations = new LinkedHashMap<>();
+    for (Map.Entry<String, Report.OperationReport> entry
+        : baseline.getReport().getOperations().entrySet()) {
+      Report.OperationReport other = candidate.getReport().getOperations().get(entry.getKey());
+      if (null != other) {
+        operations.put(entry.getKey(), compare(entry.getValue(), other, threshold, random));
+      }
+    }
+    operations.put("total", compare(baseline.getReport().getTotal(),
+        candidate.getReport().getTotal(), threshold, random));
+    List<Metric> serverMetrics = new ArrayList<>();
+    TreeSet<String> names = new TreeSet<>(baseline.getServerMetrics().keySet());
+    names.addAll(candidate.getServerMetrics().keySet());
+    for (String name : names) {
+      serverMetrics.add(new Metric(name,
+          perRequest(baseline, baseline.getServerMetrics().get(name)),
+          perRequest(candidate, candidate.getServerMetrics().get(name)),
+          null, null, Verdict.NONE));
+    }
+    return new Comparison(baseline.getId(), candidate.getId(), threshold, operations,
+        serverMetrics);
+  }
+
+  private static List<Metric> compare(Report.OperationReport baseline,
+      Report.OperationReport candidate, double threshold, Random random) {
+    List<Metric> metrics = new ArrayList<>();
+    for (int i = 0; i < PERCENTILES.length; ++i) {
+      metrics.add(latency(PERCENTILE_NAMES[i], baseline, candidate, PERCENTILES[i], threshold,
+          random));
+    }
+    metrics.add(new Metric("req/s", baseline.getRequestsPerSecond(),
+        candidate.getRequestsPerSecond(), null, null, Verdict.NONE));
+    metrics.add(new Metric("bytes/response", bytesPerResponse(baseline),
+        bytesPerResponse(candidate), null, null, Verdict.NONE));
+    return metrics;
+  }
+
+  private static Metric latency(String name, Report.OperationReport baseline,
+      Report.OperationReport candidate, double percentile, double threshold, Random random) {
+    Histogram baselineHistogram = histogram(baseline);
+    Histogram candidateHistogram = histogram(candidate);
+    if (null == baselineHistogram || null == candidateHistogram) {
+      double baselineValue = null == baselineHistogram
+          ? 0 : baselineHistogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+      double candidateValue = null == candidateHistogram
+          ? 0 : candidateHistogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+      return new Metric(name, baselineValue, candidateValue, null, null, Verdict.NONE);
+    }
+    double[] baselineSamples = bootstrap(baselineHistogram, percentile, random);
+    double[] candidateSamples = bootstrap(candidateHistogram, percentile, random);
+    double[] differences = new double[RESAMPLES];
+    for (int i = 0; i < RESAMPLES; ++i) {
+      differences[i] = candidateSamples[i] - baselineSamples[i];
+    }
+    Arrays.sort(differences);
+    double lower = differences[(int) ((1 - CONFIDENCE) / 2 * RESAMPLES)];
+    double upper = differences[(int) Math.ceil((1 + CONFIDENCE) / 2 * RESAMPLES) - 1];
+    double baselineValue = baselineHistogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    double candidateValue = candidateHistogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    double change = 0 == baselineValue ? 0 : (candidateValue - baselineValue) / baselineValue;
+    Verdict verdict = 0 < lower && threshold < change
+        ? Verdict.REGRESSION
+        : upper < 0 && change < -threshold ? Verdict.IMPROVEMENT : Verdict.NONE;
+    return new Metric(name, baselineValue, candidateValue, lower, upper, verdict);
+  }
+
+  private static Histogram histogram(Report.OperationReport report) {
+    if (null == report.getHistogram()) {
+      return null;
+    }
+    Histogram histogram = report.getLatencyHistogram();
+    return 0 == histogram.getTotalCount() ? null : histogram;
+  }
+
+  /**
+   * Returns the percentile in {@code RESAMPLES} bootstrap resamples of the histogram. The k-th
+   * smallest of n values drawn from the histogram is its inverse CDF at the k-th smallest of n
+   * uniform values, which is Beta(k, n - k + 1) distributed, so each resample takes one draw
+   * rather than n.
+   */
+  private static double[] bootstrap(Histogram histogram, double percentile, Random random) {
+    long count = histogram.getTotalCount();
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    double[] samples = new double[RESAMPLES];
+    for (int i = 0; i < RESAMPLES; ++i) {
+      double quantile = beta(rank, count - rank + 1, random);
+      samples[i] = histogram.getValueAtPercentile(100 * quantile) / NANOS_PER_MILLI;
+    }
+    return samples;
+  }
+
+  private static double beta(double alpha, double beta, Random random) {
+    double x = gamma(alpha, random);
+    return x / (x + gamma(beta, random));
+  }
+
+  /**
+   * Draws from Gamma(shape, 1) for {@code shape >= 1}, by Marsaglia and Tsang's method.
+   */
+  private static double gamma(double shape, Random random) {
+    double d = shape - 1.0 / 3;
+    double c = 1 / Math.sqrt(9 * d);
+    while (true) {
+      double x;
+      double v;
+      do {
+        x = random.nextGaussian();
+        v = 1 + c * x;
+      } while (v <= 0);
+      v = v * v * v;
+      double u = random.nextDouble();
+      if (u < 1 - 0.0331 * x * x * x * x
+          || Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v))) {
+        return d * v;
+      }
+    }
+  }
+
+  private static double bytesPerResponse(Report.OperationReport report) {
+    return 0 == report.getRequests() ? 0 : report.getBytes() / (double) report.getRequests();
+  }
+
+  private static double perRequest(Run run, Double value) {
+    long requests = run.getReport().getTotal().getRequests();
+    return null == value || 0 == requests ? 0 : value / requests;
+  }
+
+  private final String baseline;
+  private final String candidate;
+  private final Map<String, List<Metric>> operations;
+  private final List<Metric> serverMetrics;
+  private final double threshold;
+
+  private Comparison(String baseline, String candidate, double threshold,
+      Map<String, List<Metric>> operations, List<Metric> serverMetrics) {
+    this.baseline = baseline;
+    this.candidate = candidate;
+    this.threshold = threshold;
+    this.operations = operations;
+    this.serverMetrics = serverMetrics;
+  }
+
+  public String getBaseline() {
+    return baseline;
+  }
+
+  public String getCandidate() {
+    return candidate;
+  }
+
+  /**
+   * Returns, for each operation both runs have and for the total, its metrics in both runs.
+   */
+  public Map<String, List<Metric>> getOperations() {
+    return operations;
+  }
+
+  /**
+   * Returns each server metric that grew in either run, divided by the run's requests.
+   */
+  public List<Metric> getServerMetrics() {
+    return serverMetrics;
+  }
+
+  public double getThreshold() {
+    return threshold;
+  }
+
+  public boolean isRegression() {
+    for (List<Metric> metrics : operations.values()) {
+      for (Metric metric : metrics) {
+        if (Verdict.REGRESSION == metric.getVerdict()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  public void print(PrintStream out) {
+    out.printf("baseline  %s%ncandidate %s%n", baseline, candidate);
+    out.printf("%-24s %-16s %12s %12s %9s %24s  %s%n", "operation", "metric", "baseline",
+        "candidate", "change", "95% interval", "verdict");
+    for (Map.Entry<String, List<Metric>> entry : operations.entrySet()) {
+      for (Metric metric : entry.getValue()) {
+        print(out, entry.getKey(), metric);
+      }
+    }
+    if (!serverMetrics.isEmpty()) {
+      out.printf("%12s %12s %9s  %s%n", "baseline", "candidate", "change",
+          "server metric per request");
+      for (Metric metric : serverMetrics) {
+        out.printf("%12.4g %12.4g %9s  %s%n", metric.getBaseline(), metric.getCandidate(),
+            format(metric.getRelativeChange()), metric.getName());
+      }
+    }
+  }
+
+  private static void print(PrintStream out, String operation, Metric metric) {
+    out.printf("%-24s %-16s %12.2f %12.2f %9s %24s  %s%n", operation, metric.getName(),
+        metric.getBaseline(), metric.getCandidate(), format(metric.getRelativeChange()),
+        null == metric.getLower() ? "-"
+            : String.format("[%+.2f, %+.2f]", metric.getLower(), metric.getUpper()),
+        Verdict.NONE == metric.getVerdict() ? "" : metric.getVerdict());
+  }
+
+  private static String format(Double change) {
+    return null == change ? "-" : String.format("%+.1f%%", 100 * change);
+  }
+}
@@ -0,0 +1,194 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a provider with a {@link Workload}, open loop: operations are scheduled at the target
+ * rate whether or not earlier ones have finished, and queue for one of {@code concurrency}
+ * connections. Latency is measured from each operation's scheduled start, which corrects for
+ * coordinated omission; later pages of an operation can only be sent once the previous page
+ * arrives, so they are measured from when they are sent.
+ */
+public final class LoadGenerator {
+
+  private static final class Stats {
+
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final Histogram latency = new ConcurrentHistogram(3);
+    private final Histogram operationLatency = new ConcurrentHistogram(3);
+    private final Histogram serviceTime = new ConcurrentHistogram(3);
+
+    Report.OperationReport report(double durationSeconds) {
+      long requests = latency.getTotalCount();
+      return new Report.OperationReport(requests, errors.get(), bytes.get(),
+          requests / durationSeconds, Report.Latency.create(latency),
+          Report.Latency.create(serviceTime), Report.Latency.create(operationLatency),
+          Report.OperationReport.encode(latency));
+    }
+  }
+
+  private final class Call implements Runnable {
+
+    private final ObjectNode body;
+    private final long intendedStart;
+    private final boolean measured;
+    private final Workload.Operation operation;
+
+    Call(Workload.Operation operation, ObjectNode body, long intendedStart, boolean measured) {
+      this.operation = operation;
+      this.body = body;
+      this.intendedStart = intendedStart;
+      this.measured = measured;
+    }
+
+    @Override public void run() {
+      Stats stats = LoadGenerator.this.stats.get(operation.getName());
+      long end = 0;
+      for (int page = 0; 0 == operation.getPages() || page < operation.getPages(); ++page) {
+        long start = System.nanoTime();
+        String nextPageToken;
+        boolean failed = false;
+        try {
+          nextPageToken = post(operation.getEndpoint(), body, stats,
+              0 == operation.getPages() || page + 1 < operation.getPages());
+        } catch (IOException e) {
+          nextPageToken = null;
+          failed = true;
+        }
+        end = System.nanoTime();
+        if (measured) {
+          for (long last = lastCompletion.get();
+              last < end && !lastCompletion.compareAndSet(last, end);
+              last = lastCompletion.get()) {}
+          if (failed) {
+            stats.errors.incrementAndGet();
+            total.errors.incrementAndGet();
+          } else {
+            long latency = end - (0 == page ? intendedStart : start);
+            stats.latency.recordValue(latency);
+            stats.serviceTime.recordValue(end - start);
+            total.latency.recordValue(latency);
+            total.serviceTime.recordValue(end - start);
+          }
+        }
+        if (failed) {
+          return;
+        }
+        if (null == nextPageToken) {
+          break;
+        }
+        body.put("pageToken", nextPageToken);
+      }
+      if (measured) {
+        stats.operationLatency.recordValue(end - intendedStart);
+        total.operationLatency.recordValue(end - intendedStart);
+      }
+    }
+  }
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  public static Report run(Workload workload) throws InterruptedException {
+    return new LoadGenerator(workload).run();
+  }
+
+  private final AtomicLong lastCompletion = new AtomicLong();
+  private final Provider provider;
+  private final Map<String, Stats> stats = new LinkedHashMap<>();
+  private final Stats total = new Stats();
+  private final Workload workload;
+
+  private LoadGenerator(Workload workload) {
+    this.workload = workload;
+    this.provider = new Provider(workload.getProvider());
+    for (Workload.Operation operation : workload.getOperations()) {
+      if (!stats.containsKey(operation.getName())) {
+        stats.put(operation.getName(), new Stats());
+      }
+    }
+  }
+
+  /**
+   * Posts a request and returns the response's {@code nextPageToken} if {@code nextPage} is set
+   * and there is one. Failed requests throw {@link IOException}.
+   */
+  private String post(String endpoint, ObjectNode body, Stats stats, boolean nextPage)
+      throws IOException {
+    Provider.Response response =
+        provider.send("POST", endpoint, MAPPER.writeValueAsBytes(body));
+    if (!response.isSuccessful()) {
+      throw new IOException(String.format("%s returned %d", endpoint, response.getStatus()));
+    }
+    stats.bytes.addAndGet(response.getBody().length);
+    total.bytes.addAndGet(response.getBody().length);
+    return nextPage ? response.getNextPageToken() : null;
+  }
+
+  private Report run() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(workload.getConcurrency());
+    Random random = new Random(workload.getSeed());
+    double interval = TimeUnit.SECONDS.toNanos(1) / workload.getTargetRps();
+    long start = System.nanoTime();
+    long measureStart = start + TimeUnit.SECONDS.toNanos(workload.getWarmupSeconds());
+    long measureEnd = measureStart + TimeUnit.SECONDS.toNanos(workload.getDurationSeconds());
+    long startTime = System.currentTimeMillis()
+        + TimeUnit.SECONDS.toMillis(workload.getWarmupSeconds());
+    try {
+      double offset = 0;
+      for (long intendedStart = start; intendedStart < measureEnd;
+          intendedStart = start + (long) offset) {
+        long delay;
+        while (0 < (delay = intendedStart - System.nanoTime())) {
+          LockSupport.parkNanos(delay);
+        }
+        Workload.Operation operation = workload.chooseOperation(random);
+        executor.execute(new Call(operation, operation.createBody(random), intendedStart,
+            measureStart <= intendedStart));
+        offset += Workload.Arrivals.POISSON == workload.getArrivals()
+            ? -Math.log(1 - random.nextDouble()) * interval
+            : interval;
+      }
+    } finally {
+      executor.shutdown();
+    }
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    double durationSeconds =
+        Math.max(lastCompletion.get() - measureStart, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+    Map<String, Report.OperationReport> operations = new TreeMap<>();
+    for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+      operations.put(entry.getKey(), entry.getValue().report(durationSeconds));
+    }
+    return Report.create(workload.getProvider(), startTime, durationSeconds,
+        workload.getTargetRps(), operations, total.report(durationSeconds));
+  }
+}
@@ -0,0 +1,156 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A Genomics API provider, reached over HTTP at a base URL such as
+ * {@code http://localhost:5000/}.
+ */
+final class Provider {
+
+  static final class Response {
+
+    private final byte[] body;
+    private final String encoding;
+    private final int status;
+
+    Response(int status, String encoding, byte[] body) {
+      this.status = status;
+      this.encoding = encoding;
+      this.body = body;
+    }
+
+    /**
+     * Returns the body as it was sent, still in its content coding.
+     */
+    byte[] getBody() {
+      return body;
+    }
+
+    /**
+     * Returns the body's {@code nextPageToken}, decoding a gzip or zstd body first, or null if
+     * there is none.
+     */
+    String getNextPageToken() throws IOException {
+      InputStream in = new ByteArrayInputStream(body);
+      if ("gzip".equals(encoding)) {
+        in = new GZIPInputStream(in);
+      } else if ("zstd".equals(encoding)) {
+        in = new ZstdInputStream(in);
+      } else if (null != encoding && !"identity".equals(encoding)) {
+        throw new IOException("Unsupported content coding " + encoding);
+      }
+      try (JsonParser parser = MAPPER.getJsonFactory().createJsonParser(in)) {
+        if (JsonToken.START_OBJECT == parser.nextToken()) {
+          while (JsonToken.FIELD_NAME == parser.nextToken()) {
+            String field = parser.getCurrentName();
+            if (JsonToken.VALUE_STRING == parser.nextToken() && "nextPageToken".equals(field)) {
+              return parser.getText();
+            }
+            parser.skipChildren();
+          }
+        }
+      }
+      return null;
+    }
+
+    int getStatus() {
+      return status;
+    }
+
+    boolean isSuccessful() {
+      return status / 100 == 2;
+    }
+  }
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  static {
+    // HttpURLConnection only keeps this many idle connections per host alive, 5 by default.
+    if (null == System.getProperty("http.maxConnections")) {
+      System.setProperty("http.maxConnections", "1024");
+    }
+  }
+
+  private static byte[] read(InputStream in) throws IOException {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int count; -1 != (count = in.read(buffer));) {
+        out.write(buffer, 0, count);
+      }
+      return out.toByteArray();
+    } finally {
+      in.close();
+    }
+  }
+
+  private final String baseUrl;
+
+  Provider(String baseUrl) {
+    this.baseUrl = baseUrl;
+  }
+
+  String getBaseUrl() {
+    return baseUrl;
+  }
+
+  Response send(String method, String path, byte[] body) throws IOException {
+    return send(method, path, Collections.<String, String>emptyMap(), body);
+  }
+
+  /**
+   * Sends a request with the given headers and a JSON body, or none if {@code body} is null, and
+   * reads the whole response.
+   */
+  Response send(String method, String path, Map<String, String> headers, byte[] body)
+      throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    connection.setRequestMethod(method);
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      connection.setRequestProperty(header.getKey(), header.getValue());
+    }
+    if (null != body) {
+      connection.setRequestProperty("Content-Type", "application/json");
+      connection.setDoOutput(true);
+      connection.setFixedLengthStreamingMode(body.length);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(body);
+      }
+    }
+    int status = connection.getResponseCode();
+    InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+    return new Response(status, connection.getContentEncoding(),
+        null == in ? new byte[0] : read(in));
+  }
+}
@@ -0,0 +1,135 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A request from a local server's request log, written with {@code --request-log}.
+ */
+public final class RecordedRequest {
+
+  private static final Comparator<RecordedRequest> BY_TIME = new Comparator<RecordedRequest>() {
+    @Override public int compare(RecordedRequest lhs, RecordedRequest rhs) {
+      return Long.compare(lhs.time, rhs.time);
+    }
+  };
+
+  @JsonCreator public static RecordedRequest create(
+      @JsonProperty("time") long time,
+      @JsonProperty("method") String method,
+      @JsonProperty("endpoint") String endpoint,
+      @JsonProperty("path") String path,
+      @JsonProperty("headers") Map<String, String> headers,
+      @JsonProperty("body") String body) {
+    return new RecordedRequest(time, method, null == endpoint ? path : endpoint, path,
+        null == headers
+            ? Collections.<String, String>emptyMap()
+            : Collections.unmodifiableMap(new LinkedHashMap<>(headers)),
+        body);
+  }
+
+  /**
+   * Reads a request log, gunzipping it if its name ends in {@code .gz}, and returns its requests
+   * in the order they arrived.
+   */
+  public static List<RecordedRequest> read(Path log) throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    List<RecordedRequest> requests = new ArrayList<>();
+    InputStream in = Files.newInputStream(log);
+    if (log.getFileName().toString().endsWith(".gz")) {
+      in = new GZIPInputStream(in);
+    }
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      for (String line = reader.readLine(); null != line; line = reader.readLine()) {
+        if (!line.isEmpty()) {
+          requests.add(mapper.readValue(line, RecordedRequest.class));
+        }
+      }
+    }
+    Collections.sort(requests, BY_TIME);
+    return requests;
+  }
+
+  private final String body;
+  private final String endpoint;
+  private final Map<String, String> headers;
+  private final String method;
+  private final String path;
+  private final long time;
+
+  private RecordedRequest(long time, String method, String endpoint, String path,
+      Map<String, String> headers, String body) {
+    this.time = time;
+    this.method = method;
+    this.endpoint = endpoint;
+    this.path = path;
+    this.headers = headers;
+    this.body = body;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  /**
+   * Returns the resource path template that handled the request, such as
+   * {@code /readsets/{readsetId}}.
+   */
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  /**
+   * Returns the recorded headers, such as {@code Accept-Encoding}, that the request sent.
+   */
+  public Map<String, String> getHeaders() {
+    return headers;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Returns when the request arrived, in microseconds since the epoch.
+   */
+  public long getTime() {
+    return time;
+  }
+}
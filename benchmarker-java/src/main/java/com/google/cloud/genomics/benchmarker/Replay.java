@@ -0,0 +1,270 @@
+package com.google.cloud.genomics.benchmarker;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replays a request log against a provider, sending each request at its original offset from
+ * the first, divided by {@code speed}, with the headers it was recorded with. A request that
+ * carries a page token continues a chain: it is sent once the request it follows has been
+ * answered, with the {@code nextPageToken} of that live response in place of the recorded one,
+ * since a provider's tokens are its own. Like {@link LoadGenerator}, latency runs from when each
+ * request should have been sent, or for a later page, from when the page before it arrived.
+ */
+public final class Replay {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final String PAGE_TOKEN = "pageToken";
+  private static final Pattern PAGE_TOKEN_PARAMETER =
+      Pattern.compile("([?&]" + PAGE_TOKEN + "=)([^&]*)");
+
+  /**
+   * Per-request results, indexed like the replayed requests. Requests that failed to get a
+   * response, or weren't sent because the chain they continue ended sooner on this provider,
+   * have a latency and status of -1.
+   */
+  static final class Result {
+
+    private final long[] bytes;
+    private final long[] latencies;
+    private final long maxLag;
+    private final String provider;
+    private final int[] statuses;
+
+    private Result(String provider, long[] latencies, int[] statuses, long[] bytes,
+        long maxLag) {
+      this.provider = provider;
+      this.latencies = latencies;
+      this.statuses = statuses;
+      this.bytes = bytes;
+      this.maxLag = maxLag;
+    }
+
+    long[] getBytes() {
+      return bytes;
+    }
+
+    long[] getLatencies() {
+      return latencies;
+    }
+
+    /**
+     * Returns, in nanoseconds, the furthest behind schedule that a request was handed to a
+     * connection; a large lag means the replay didn't keep the log's timing.
+     */
+    long getMaxLag() {
+      return maxLag;
+    }
+
+    String getProvider() {
+      return provider;
+    }
+
+    int[] getStatuses() {
+      return statuses;
+    }
+  }
+
+  /**
+   * Returns, for each request, the index of the request whose response its page token came from,
+   * or -1 if it has no page token or starts the log mid-chain. A request continues the latest
+   * earlier request with the same method, path and body apart from the page token.
+   */
+  static int[] chains(List<RecordedRequest> requests) {
+    int[] previous = new int[requests.size()];
+    Map<String, Integer> latest = new HashMap<>();
+    for (int i = 0; i < requests.size(); ++i) {
+      RecordedRequest request = requests.get(i);
+      String key = request.getMethod() + " " + withoutPathPageToken(request.getPath()) + " "
+          + withPageToken(request.getBody(), null);
+      Integer last = latest.put(key, i);
+      previous[i] = null == last || null == pageToken(request) ? -1 : last;
+    }
+    return previous;
+  }
+
+  /**
+   * Returns the request's page token, from its body or else its query, or null if it has none.
+   */
+  static String pageToken(RecordedRequest request) {
+    JsonNode body = parseBody(request.getBody());
+    if (null != body && body.has(PAGE_TOKEN) && !body.get(PAGE_TOKEN).isNull()) {
+      return body.get(PAGE_TOKEN).getTextValue();
+    }
+    Matcher matcher = PAGE_TOKEN_PARAMETER.matcher(request.getPath());
+    if (matcher.find() && !matcher.group(2).isEmpty()) {
+      try {
+        return URLDecoder.decode(matcher.group(2), StandardCharsets.UTF_8.name());
+      } catch (UnsupportedEncodingException e) {
+        throw new AssertionError(e);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a JSON object body with its page token, if it has one, replaced by
+   * {@code pageToken}, or removed if that is null. Other bodies are returned as they are.
+   */
+  static String withPageToken(String body, String pageToken) {
+    JsonNode node = parseBody(body);
+    if (!(node instanceof ObjectNode) || !node.has(PAGE_TOKEN)) {
+      return body;
+    }
+    ObjectNode object = (ObjectNode) node;
+    if (null == pageToken) {
+      object.remove(PAGE_TOKEN);
+    } else {
+      object.put(PAGE_TOKEN, pageToken);
+    }
+    return object.toString();
+  }
+
+  /**
+   * Returns a path with the value of its {@code pageToken} query parameter, if it has one,
+   * replaced by {@code pageToken}.
+   */
+  static String withPathPageToken(String path, String pageToken) {
+    Matcher matcher = PAGE_TOKEN_PARAMETER.matcher(path);
+    if (!matcher.find()) {
+      return path;
+    }
+    try {
+      return path.substring(0, matcher.end(1))
+          + URLEncoder.encode(pageToken, StandardCharsets.UTF_8.name())
+          + path.substring(matcher.end(2));
+    } catch (UnsupportedEncodingException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static String withoutPathPageToken(String path) {
+    Matcher matcher = PAGE_TOKEN_PARAMETER.matcher(path);
+    if (!matcher.find()) {
+      return path;
+    }
+    String rest = path.substring(matcher.end(2));
+    boolean first = '?' == path.charAt(matcher.start(1));
+    return path.substring(0, matcher.start(1))
+        + (first && !rest.isEmpty() ? "?" + rest.substring(1) : rest);
+  }
+
+  private static JsonNode parseBody(String body) {
+    if (null == body) {
+      return null;
+    }
+    try {
+      return MAPPER.readTree(body);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  static Result run(final Provider provider, final List<RecordedRequest> requests, double speed,
+      int concurrency) throws InterruptedException {
+    final long[] latencies = new long[requests.size()];
+    final int[] statuses = new int[requests.size()];
+    final long[] bytes = new long[requests.size()];
+    final int[] previous = chains(requests);
+    final CountDownLatch[] answered = new CountDownLatch[requests.size()];
+    final long[] answerTimes = new long[requests.size()];
+    final String[] nextPageTokens = new String[requests.size()];
+    Arrays.fill(latencies, -1);
+    Arrays.fill(statuses, -1);
+    for (int i : previous) {
+      if (-1 != i && null == answered[i]) {
+        answered[i] = new CountDownLatch(1);
+      }
+    }
+    long maxLag = 0;
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+    try {
+      long start = System.nanoTime();
+      long firstTime = requests.isEmpty() ? 0 : requests.get(0).getTime();
+      for (int i = 0; i < requests.size(); ++i) {
+        final int index = i;
+        final RecordedRequest request = requests.get(i);
+        final long intendedStart = start
+            + (long) (TimeUnit.MICROSECONDS.toNanos(request.getTime() - firstTime) / speed);
+        long delay;
+        while (0 < (delay = intendedStart - System.nanoTime())) {
+          LockSupport.parkNanos(delay);
+        }
+        maxLag = Math.max(maxLag, -delay);
+        // The request a later page follows was handed to the executor first, so waiting for
+        // its answer here can't deadlock.
+        executor.execute(new Runnable() {
+          @Override public void run() {
+            try {
+              send();
+            } finally {
+              if (null != answered[index]) {
+                answered[index].countDown();
+              }
+            }
+          }
+
+          private void send() {
+            String path = request.getPath();
+            String body = request.getBody();
+            long sendStart = intendedStart;
+            int last = previous[index];
+            if (-1 != last) {
+              try {
+                answered[last].await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+              }
+              String pageToken = nextPageTokens[last];
+              if (null == pageToken) {
+                return;
+              }
+              path = withPathPageToken(path, pageToken);
+              body = withPageToken(body, pageToken);
+              sendStart = Math.max(intendedStart, answerTimes[last]);
+            }
+            try {
+              Provider.Response response = provider.send(request.getMethod(), path,
+                  request.getHeaders(),
+                  null == body ? null : body.getBytes(StandardCharsets.UTF_8));
+              answerTimes[index] = System.nanoTime();
+              latencies[index] = answerTimes[index] - sendStart;
+              statuses[index] = response.getStatus();
+              bytes[index] = response.getBody().length;
+              if (null != answered[index] && response.isSuccessful()) {
+                nextPageTokens[index] = response.getNextPageToken();
+              }
+            } catch (IOException e) {
+              // Leave the request marked as failed.
+            }
+          }
+        });
+      }
+    } finally {
+      executor.shutdown();
+    }
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    return new Result(provider.getBaseUrl(), latencies, statuses, bytes, maxLag);
+  }
+
+  private Replay() {}
+}
@@ -0,0 +1,386 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The results of replaying a request log against a baseline provider and, optionally, a
+ * candidate. With a candidate, each request's latency is compared with its own latency on the
+ * baseline, so the report shows how much slower or faster the same requests got.
+ */
+public final class ReplayReport {
+
+  private static final double NANOS_PER_MILLI = 1e6;
+  private static final int REGRESSIONS = 10;
+
+  /**
+   * Percentiles of the per-request change in latency from baseline to candidate, in
+   * milliseconds. Positive is slower.
+   */
+  public static final class Delta {
+
+    static Delta create(long[] deltas) {
+      Arrays.sort(deltas);
+      double sum = 0;
+      for (long delta : deltas) {
+        sum += delta;
+      }
+      return new Delta(deltas.length, sum / deltas.length / NANOS_PER_MILLI,
+          percentile(deltas, 50), percentile(deltas, 90), percentile(deltas, 99),
+          deltas[deltas.length - 1] / NANOS_PER_MILLI);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+      int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+      return sorted[Math.max(0, index)] / NANOS_PER_MILLI;
+    }
+
+    private final long count;
+    private final double max;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+
+    private Delta(long count, double mean, double p50, double p90, double p99, double max) {
+      this.count = count;
+      this.mean = mean;
+      this.p50 = p50;
+      this.p90 = p90;
+      this.p99 = p99;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public double getMax() {
+      return max;
+    }
+
+    public double getMean() {
+      return mean;
+    }
+
+    public double getP50() {
+      return p50;
+    }
+
+    public double getP90() {
+      return p90;
+    }
+
+    public double getP99() {
+      return p99;
+    }
+  }
+
+  public static final class EndpointReport {
+
+    private final Report.Latency baseline;
+    private final long baselineErrors;
+    private final Report.Latency candidate;
+    private final long candidateErrors;
+    private final Delta delta;
+    private final long requests;
+
+    private EndpointReport(long requests, Report.Latency baseline, long baselineErrors,
+        Report.Latency candidate, long candidateErrors, Delta delta) {
+      this.requests = requests;
+      this.baseline = baseline;
+      this.baselineErrors = baselineErrors;
+      this.candidate = candidate;
+      this.candidateErrors = candidateErrors;
+      this.delta = delta;
+    }
+
+    public Report.Latency getBaseline() {
+      return baseline;
+    }
+
+    public long getBaselineErrors() {
+      return baselineErrors;
+    }
+
+    public Report.Latency getCandidate() {
+      return candidate;
+    }
+
+    public long getCandidateErrors() {
+      return candidateErrors;
+    }
+
+    public Delta getDelta() {
+      return delta;
+    }
+
+    public long getRequests() {
+      return requests;
+    }
+  }
+
+  /**
+   * One of the requests that slowed down the most on the candidate.
+   */
+  public static final class Regression {
+
+    private final double baseline;
+    private final double candidate;
+    private final int index;
+    private final String method;
+    private final String path;
+
+    private Regression(int index, String method, String path, double baseline,
+        double candidate) {
+      this.index = index;
+      this.method = method;
+      this.path = path;
+      this.baseline = baseline;
+      this.candidate = candidate;
+    }
+
+    public double getBaseline() {
+      return baseline;
+    }
+
+    public double getCandidate() {
+      return candidate;
+    }
+
+    /**
+     * Returns the request's position in the log.
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    public String getPath() {
+      return path;
+    }
+  }
+
+  static ReplayReport create(List<RecordedRequest> requests, double speed,
+      Replay.Result baseline, Replay.Result candidate) {
+    Map<String, List<Integer>> byEndpoint = new TreeMap<>();
+    for (int i = 0; i < requests.size(); ++i) {
+      RecordedRequest request = requests.get(i);
+      String endpoint = request.getMethod() + " " + request.getEndpoint();
+      List<Integer> indices = byEndpoint.get(endpoint);
+      if (null == indices) {
+        byEndpoint.put(endpoint, indices = new ArrayList<>());
+      }
+      indices.add(i);
+    }
+    Map<String, EndpointReport> endpoints = new TreeMap<>();
+    for (Map.Entry<String, List<Integer>> entry : byEndpoint.entrySet()) {
+      endpoints.put(entry.getKey(), endpointReport(entry.getValue(), baseline, candidate));
+    }
+    List<Integer> all = new ArrayList<>();
+    for (int i = 0; i < requests.size(); ++i) {
+      all.add(i);
+    }
+    long mismatches = 0;
+    List<Regression> regressions = new ArrayList<>();
+    if (null != candidate) {
+      final long[] baselineLatencies = baseline.getLatencies();
+      final long[] candidateLatencies = candidate.getLatencies();
+      List<Integer> slowest = new ArrayList<>();
+      for (int i = 0; i < requests.size(); ++i) {
+        if (baseline.getStatuses()[i] != candidate.getStatuses()[i]
+            || baseline.getBytes()[i] != candidate.getBytes()[i]) {
+          ++mismatches;
+        }
+        if (0 <= baselineLatencies[i] && 0 <= candidateLatencies[i]) {
+          slowest.add(i);
+        }
+      }
+      Collections.sort(slowest, new Comparator<Integer>() {
+        @Override public int compare(Integer lhs, Integer rhs) {
+          return Long.compare(candidateLatencies[rhs] - baselineLatencies[rhs],
+              candidateLatencies[lhs] - baselineLatencies[lhs]);
+        }
+      });
+      for (int i : slowest.subList(0, Math.min(REGRESSIONS, slowest.size()))) {
+        if (baselineLatencies[i] < candidateLatencies[i]) {
+          regressions.add(new Regression(i, requests.get(i).getMethod(),
+              requests.get(i).getPath(), baselineLatencies[i] / NANOS_PER_MILLI,
+              candidateLatencies[i] / NANOS_PER_MILLI));
+        }
+      }
+    }
+    return new ReplayReport(requests.size(), speed, baseline.getProvider(),
+        baseline.getMaxLag() / NANOS_PER_MILLI,
+        null == candidate ? null : candidate.getProvider(),
+        null == candidate ? 0 : candidate.getMaxLag() / NANOS_PER_MILLI,
+        endpoints, endpointReport(all, baseline, candidate), mismatches, regressions);
+  }
+
+  private static EndpointReport endpointReport(List<Integer> indices, Replay.Result baseline,
+      Replay.Result candidate) {
+    Histogram baselineHistogram = new Histogram(3);
+    Histogram candidateHistogram = new Histogram(3);
+    long[] deltas = new long[indices.size()];
+    int count = 0;
+    for (int i : indices) {
+      long baselineLatency = baseline.getLatencies()[i];
+      if (0 <= baselineLatency) {
+        baselineHistogram.recordValue(baselineLatency);
+      }
+      if (null != candidate) {
+        long candidateLatency = candidate.getLatencies()[i];
+        if (0 <= candidateLatency) {
+          candidateHistogram.recordValue(candidateLatency);
+          if (0 <= baselineLatency) {
+            deltas[count++] = candidateLatency - baselineLatency;
+          }
+        }
+      }
+    }
+    return new EndpointReport(indices.size(),
+        Report.Latency.create(baselineHistogram),
+        indices.size() - baselineHistogram.getTotalCount(),
+        null == candidate ? null : Report.Latency.create(candidateHistogram),
+        null == candidate ? 0 : indices.size() - candidateHistogram.getTotalCount(),
+        0 == count ? null : Delta.create(Arrays.copyOf(deltas, count)));
+  }
+
+  private final String baseline;
+  private final double baselineMaxLag;
+  private final String candidate;
+  private final double candidateMaxLag;
+  private final Map<String, EndpointReport> endpoints;
+  private final long mismatches;
+  private final List<Regression> regressions;
+  private final long requests;
+  private final double speed;
+  private final EndpointReport total;
+
+  private ReplayReport(long requests, double speed, String baseline, double baselineMaxLag,
+      String candidate, double candidateMaxLag, Map<String, EndpointReport> endpoints,
+      EndpointReport total, long mismatches, List<Regression> regressions) {
+    this.requests = requests;
+    this.speed = speed;
+    this.baseline = baseline;
+    this.baselineMaxLag = baselineMaxLag;
+    this.candidate = candidate;
+    this.candidateMaxLag = candidateMaxLag;
+    this.endpoints = endpoints;
+    this.total = total;
+    this.mismatches = mismatches;
+    this.regressions = regressions;
+  }
+
+  public String getBaseline() {
+    return baseline;
+  }
+
+  /**
+   * Returns, in milliseconds, the furthest behind schedule the baseline replay sent a request.
+   */
+  public double getBaselineMaxLag() {
+    return baselineMaxLag;
+  }
+
+  public String getCandidate() {
+    return candidate;
+  }
+
+  public double getCandidateMaxLag() {
+    return candidateMaxLag;
+  }
+
+  public Map<String, EndpointReport> getEndpoints() {
+    return endpoints;
+  }
+
+  /**
+   * Returns how many requests got a different status or response size from the candidate.
+   */
+  public long getMismatches() {
+    return mismatches;
+  }
+
+  public List<Regression> getRegressions() {
+    return regressions;
+  }
+
+  public long getRequests() {
+    return requests;
+  }
+
+  public double getSpeed() {
+    return speed;
+  }
+
+  public EndpointReport getTotal() {
+    return total;
+  }
+
+  public void print(PrintStream out) {
+    out.printf("Replayed %d requests at %.2fx speed%n", requests, speed);
+    out.printf("baseline  %s, at most %.2f ms behind schedule%n", baseline, baselineMaxLag);
+    if (null != candidate) {
+      out.printf("candidate %s, at most %.2f ms behind schedule%n", candidate, candidateMaxLag);
+    }
+    out.printf("%-36s %8s %8s %10s %10s %10s %10s %10s %10s%n", "endpoint", "requests",
+        "errors", "base p50", "base p99", "cand p50", "cand p99", "delta p50", "delta p99");
+    for (Map.Entry<String, EndpointReport> entry : endpoints.entrySet()) {
+      print(out, entry.getKey(), entry.getValue());
+    }
+    print(out, "total", total);
+    if (null != candidate) {
+      out.printf("%d requests got a different status or response size%n", mismatches);
+      if (!regressions.isEmpty()) {
+        out.println("Slowest requests on the candidate relative to the baseline:");
+        for (Regression regression : regressions) {
+          out.printf("  #%-8d %10.2f ms -> %10.2f ms  %s %s%n", regression.getIndex(),
+              regression.getBaseline(), regression.getCandidate(), regression.getMethod(),
+              regression.getPath());
+        }
+      }
+    }
+  }
+
+  private static void print(PrintStream out, String name, EndpointReport report) {
+    Report.Latency candidate = report.getCandidate();
+    Delta delta = report.getDelta();
+    out.printf("%-36s %8d %8d %10.2f %10.2f %10s %10s %10s %10s%n", name, report.getRequests(),
+        report.getBaselineErrors() + report.getCandidateErrors(), report.getBaseline().getP50(),
+        report.getBaseline().getP99(), format(null == candidate ? null : candidate.getP50()),
+        format(null == candidate ? null : candidate.getP99()),
+        format(null == delta ? null : delta.getP50()),
+        format(null == delta ? null : delta.getP99()));
+  }
+
+  private static String format(Double value) {
+    return null == value ? "-" : String.format("%.2f", value);
+  }
+}
@@ -0,0 +1,284 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import org.HdrHistogram.Histogram;
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * The results of running a {@link Workload}: throughput, and latency percentiles in milliseconds
+ * for each operation and for all operations together.
+ */
+public final class Report {
+
+  /**
+   * A latency distribution, summarized from an HDR histogram of nanoseconds.
+   */
+  public static final class Latency {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    static Latency create(Histogram histogram) {
+      return new Latency(
+          histogram.getTotalCount(),
+          histogram.getMean() / NANOS_PER_MILLI,
+          histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+          histogram.getValueAtPercentile(90) / NANOS_PER_MILLI,
+          histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+          histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+          histogram.getValueAtPercentile(99.99) / NANOS_PER_MILLI,
+          histogram.getMaxValue() / NANOS_PER_MILLI);
+    }
+
+    private final long count;
+    private final double max;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double p9999;
+
+    @JsonCreator public static Latency create(
+        @JsonProperty("count") long count,
+        @JsonProperty("mean") double mean,
+        @JsonProperty("p50") double p50,
+        @JsonProperty("p90") double p90,
+        @JsonProperty("p99") double p99,
+        @JsonProperty("p999") double p999,
+        @JsonProperty("p9999") double p9999,
+        @JsonProperty("max") double max) {
+      return new Latency(count, mean, p50, p90, p99, p999, p9999, max);
+    }
+
+    private Latency(long count, double mean, double p50, double p90, double p99, double p999,
+        double p9999, double max) {
+      this.count = count;
+      this.mean = mean;
+      this.p50 = p50;
+      this.p90 = p90;
+      this.p99 = p99;
+      this.p999 = p999;
+      this.p9999 = p9999;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public double getMax() {
+      return max;
+    }
+
+    public double getMean() {
+      return mean;
+    }
+
+    public double getP50() {
+      return p50;
+    }
+
+    public double getP90() {
+      return p90;
+    }
+
+    public double getP99() {
+      return p99;
+    }
+
+    public double getP999() {
+      return p999;
+    }
+
+    public double getP9999() {
+      return p9999;
+    }
+  }
+
+  /**
+   * Results for one operation of the mix. {@code latency} runs from when each request should
+   * have been sent, so it includes time spent queued behind slow requests; {@code serviceTime}
+   * runs from when it was actually sent. {@code operationLatency} covers every page of an
+   * operation. {@code histogram} holds every latency, as a compressed, base64-encoded HDR
+   * histogram of nanoseconds, for comparing runs.
+   */
+  public static final class OperationReport {
+
+    @JsonCreator public static OperationReport create(
+        @JsonProperty("requests") long requests,
+        @JsonProperty("errors") long errors,
+        @JsonProperty("bytes") long bytes,
+        @JsonProperty("requestsPerSecond") double requestsPerSecond,
+        @JsonProperty("latency") Latency latency,
+        @JsonProperty("serviceTime") Latency serviceTime,
+        @JsonProperty("operationLatency") Latency operationLatency,
+        @JsonProperty("histogram") String histogram) {
+      return new OperationReport(requests, errors, bytes, requestsPerSecond, latency,
+          serviceTime, operationLatency, histogram);
+    }
+
+    static String encode(Histogram histogram) {
+      ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+      histogram.encodeIntoCompressedByteBuffer(buffer);
+      return DatatypeConverter.printBase64Binary(
+          Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    private final long bytes;
+    private final long errors;
+    private final String histogram;
+    private final Latency latency;
+    private final Latency operationLatency;
+    private final long requests;
+    private final double requestsPerSecond;
+    private final Latency serviceTime;
+
+    OperationReport(long requests, long errors, long bytes, double requestsPerSecond,
+        Latency latency, Latency serviceTime, Latency operationLatency, String histogram) {
+      this.requests = requests;
+      this.errors = errors;
+      this.bytes = bytes;
+      this.requestsPerSecond = requestsPerSecond;
+      this.latency = latency;
+      this.serviceTime = serviceTime;
+      this.operationLatency = operationLatency;
+      this.histogram = histogram;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+
+    public String getHistogram() {
+      return histogram;
+    }
+
+    Histogram getLatencyHistogram() {
+      try {
+        return Histogram.decodeFromCompressedByteBuffer(
+            ByteBuffer.wrap(DatatypeConverter.parseBase64Binary(histogram)), 0);
+      } catch (DataFormatException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    public Latency getLatency() {
+      return latency;
+    }
+
+    public Latency getOperationLatency() {
+      return operationLatency;
+    }
+
+    public long getRequests() {
+      return requests;
+    }
+
+    public double getRequestsPerSecond() {
+      return requestsPerSecond;
+    }
+
+    public Latency getServiceTime() {
+      return serviceTime;
+    }
+  }
+
+  private final double durationSeconds;
+  private final Map<String, OperationReport> operations;
+  private final String provider;
+  private final long startTime;
+  private final double targetRps;
+  private final OperationReport total;
+
+  @JsonCreator public static Report create(
+      @JsonProperty("provider") String provider,
+      @JsonProperty("startTime") long startTime,
+      @JsonProperty("durationSeconds") double durationSeconds,
+      @JsonProperty("targetRps") double targetRps,
+      @JsonProperty("operations") Map<String, OperationReport> operations,
+      @JsonProperty("total") OperationReport total) {
+    return new Report(provider, startTime, durationSeconds, targetRps, operations, total);
+  }
+
+  private Report(String provider, long startTime, double durationSeconds, double targetRps,
+      Map<String, OperationReport> operations, OperationReport total) {
+    this.provider = provider;
+    this.startTime = startTime;
+    this.durationSeconds = durationSeconds;
+    this.targetRps = targetRps;
+    this.operations = operations;
+    this.total = total;
+  }
+
+  public double getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  public Map<String, OperationReport> getOperations() {
+    return operations;
+  }
+
+  public String getProvider() {
+    return provider;
+  }
+
+  /**
+   * Returns when the measured part of the run started, in milliseconds since the epoch.
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public double getTargetRps() {
+    return targetRps;
+  }
+
+  public OperationReport getTotal() {
+    return total;
+  }
+
+  public void print(PrintStream out) {
+    out.printf("%s for %.1fs at a target of %.1f requests/s%n", provider, durationSeconds,
+        targetRps);
+    out.printf("%-24s %10s %8s %10s %10s %10s %10s %10s %10s%n", "operation", "requests",
+        "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+    for (Map.Entry<String, OperationReport> entry : operations.entrySet()) {
+      print(out, entry.getKey(), entry.getValue());
+    }
+    print(out, "total", total);
+  }
+
+  private static void print(PrintStream out, String name, OperationReport report) {
+    Latency latency = report.getLatency();
+    out.printf("%-24s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n", name,
+        report.getRequests(), report.getErrors(), report.getRequestsPerSecond(), latency.getP50(),
+        latency.getP90(), latency.getP99(), latency.getP999(), latency.getMax());
+  }
+}
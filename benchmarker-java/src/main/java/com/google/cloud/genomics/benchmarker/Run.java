@@ -0,0 +1,74 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A saved workload run: the workload, its report, and how much each of the provider's server
+ * metrics grew while it ran.
+ */
+public final class Run {
+
+  @JsonCreator public static Run create(
+      @JsonProperty("id") String id,
+      @JsonProperty("label") String label,
+      @JsonProperty("workload") Workload workload,
+      @JsonProperty("report") Report report,
+      @JsonProperty("serverMetrics") Map<String, Double> serverMetrics) {
+    return new Run(id, label, workload, report,
+        null == serverMetrics ? Collections.<String, Double>emptyMap() : serverMetrics);
+  }
+
+  private final String id;
+  private final String label;
+  private final Report report;
+  private final Map<String, Double> serverMetrics;
+  private final Workload workload;
+
+  private Run(String id, String label, Workload workload, Report report,
+      Map<String, Double> serverMetrics) {
+    this.id = id;
+    this.label = label;
+    this.workload = workload;
+    this.report = report;
+    this.serverMetrics = serverMetrics;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public Report getReport() {
+    return report;
+  }
+
+  public Map<String, Double> getServerMetrics() {
+    return serverMetrics;
+  }
+
+  public Workload getWorkload() {
+    return workload;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+/**
+ * Saves runs in a directory, one JSON file per run. A run's ID is the UTC time it was saved,
+ * followed by its label if it has one, so listing the IDs in order lists the runs in order.
+ */
+public final class RunStore {
+
+  private static final String EXTENSION = ".json";
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Pattern UNSAFE = Pattern.compile("[^A-Za-z0-9._-]+");
+
+  private final Path directory;
+
+  public RunStore(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the saved run with this ID, or null if there isn't one.
+   */
+  public Run get(String id) throws IOException {
+    if (UNSAFE.matcher(id).find()) {
+      return null;
+    }
+    try (InputStream in = Files.newInputStream(directory.resolve(id + EXTENSION))) {
+      return MAPPER.readValue(in, Run.class);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  public List<String> list() throws IOException {
+    List<String> ids = new ArrayList<>();
+    if (Files.isDirectory(directory)) {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+        for (Path file : files) {
+          String name = file.getFileName().toString();
+          ids.add(name.substring(0, name.length() - EXTENSION.length()));
+        }
+      }
+    }
+    Collections.sort(ids);
+    return ids;
+  }
+
+  /**
+   * Runs a workload, scraping the provider's server metrics before and after, and saves the run.
+   */
+  public Run record(Workload workload, String label) throws InterruptedException, IOException {
+    Provider provider = new Provider(workload.getProvider());
+    Map<String, Double> before = ServerMetrics.scrape(provider);
+    Report report = LoadGenerator.run(workload);
+    Map<String, Double> after = ServerMetrics.scrape(provider);
+    return save(label, workload, report, ServerMetrics.difference(before, after));
+  }
+
+  private Run save(String label, Workload workload, Report report,
+      Map<String, Double> serverMetrics) throws IOException {
+    Files.createDirectories(directory);
+    SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    String prefix = format.format(new Date(report.getStartTime()));
+    if (null != label && !label.isEmpty()) {
+      prefix += "-" + UNSAFE.matcher(label).replaceAll("_");
+    }
+    for (int attempt = 1;; ++attempt) {
+      String id = 1 == attempt ? prefix : prefix + "-" + attempt;
+      Run run = Run.create(id, label, workload, report, serverMetrics);
+      try (OutputStream out = Files.newOutputStream(
+          directory.resolve(id + EXTENSION), StandardOpenOption.CREATE_NEW)) {
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(out, run);
+        return run;
+      } catch (FileAlreadyExistsException e) {
+        // Another run started in the same second; try the next suffix.
+      }
+    }
+  }
+}
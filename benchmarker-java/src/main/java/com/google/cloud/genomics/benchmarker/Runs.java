@@ -0,0 +1,79 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/runs")
+public class Runs {
+
+  private final RunStore runStore;
+
+  @Inject
+  public Runs(RunStore runStore) {
+    this.runStore = runStore;
+  }
+
+  /**
+   * Lists the IDs of the saved runs, oldest first.
+   */
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  public List<String> list() throws IOException {
+    return runStore.list();
+  }
+
+  @GET
+  @Path("/{id}")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Run get(@PathParam("id") String id) throws IOException {
+    return get(id, Response.Status.NOT_FOUND);
+  }
+
+  @GET
+  @Path("/compare")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Comparison compare(
+      @QueryParam("baseline") String baseline,
+      @QueryParam("candidate") String candidate,
+      @QueryParam("threshold") @DefaultValue("0.05") double threshold) throws IOException {
+    if (null == baseline || null == candidate) {
+      throw new WebApplicationException(Response.Status.BAD_REQUEST);
+    }
+    return Comparison.create(get(baseline, Response.Status.BAD_REQUEST),
+        get(candidate, Response.Status.BAD_REQUEST), threshold);
+  }
+
+  private Run get(String id, Response.Status missing) throws IOException {
+    Run run = runStore.get(id);
+    if (null == run) {
+      throw new WebApplicationException(missing);
+    }
+    return run;
+  }
+}
@@ -16,14 +16,20 @@ limitations under the License.
 package com.google.cloud.genomics.benchmarker;
 
 import org.codehaus.jackson.jaxrs.JacksonJaxbJsonProvider;
+import org.codehaus.jackson.jaxrs.JsonMappingExceptionMapper;
+import org.codehaus.jackson.jaxrs.JsonParseExceptionMapper;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.glassfish.grizzly.http.server.HttpServer;
 import org.glassfish.grizzly.http.server.StaticHttpHandler;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Paths;
+import java.util.List;
 
 public final class Server {
   public static void main(String[] args) throws Exception {
@@ -33,16 +39,67 @@ public final class Server {
       cmdLine.printHelp(System.err);
       return;
     }
-    new Server(cmdLine.port).start();
+    if (null != cmdLine.replay) {
+      if (null == cmdLine.provider) {
+        System.err.println("--replay needs --provider");
+        System.exit(1);
+      }
+      List<RecordedRequest> requests = RecordedRequest.read(Paths.get(cmdLine.replay));
+      Replay.Result baseline = Replay.run(
+          new Provider(cmdLine.provider), requests, cmdLine.speed, cmdLine.concurrency);
+      Replay.Result candidate = null == cmdLine.candidate ? null : Replay.run(
+          new Provider(cmdLine.candidate), requests, cmdLine.speed, cmdLine.concurrency);
+      ReplayReport.create(requests, cmdLine.speed, baseline, candidate).print(System.out);
+      return;
+    }
+    RunStore runStore = new RunStore(Paths.get(cmdLine.results));
+    if (null != cmdLine.workload) {
+      Workload workload =
+          new ObjectMapper().readValue(new File(cmdLine.workload), Workload.class);
+      if (null != cmdLine.provider) {
+        workload = workload.withProvider(cmdLine.provider);
+      }
+      if (null == workload.getProvider()) {
+        System.err.println("No provider given in the workload or with --provider");
+        System.exit(1);
+      }
+      Run baseline = null;
+      if (null != cmdLine.baseline && null == (baseline = runStore.get(cmdLine.baseline))) {
+        System.err.println("No saved run " + cmdLine.baseline);
+        System.exit(1);
+      }
+      Run run = runStore.record(workload, cmdLine.label);
+      run.getReport().print(System.out);
+      System.out.printf("Saved run %s in %s%n", run.getId(), cmdLine.results);
+      if (null != baseline) {
+        Comparison comparison = Comparison.create(baseline, run, cmdLine.threshold);
+        comparison.print(System.out);
+        if (comparison.isRegression()) {
+          System.exit(1);
+        }
+      }
+      return;
+    }
+    new Server(cmdLine.port, runStore).start();
     Thread.currentThread().join();
   }
 
   private final HttpServer server;
 
-  private Server(int port) {
+  private Server(int port, final RunStore runStore) {
     server = GrizzlyHttpServerFactory.createHttpServer(
         URI.create(String.format("http://localhost:%d", port)),
-        new ResourceConfig(),
+        new ResourceConfig()
+            .register(JacksonJaxbJsonProvider.class)
+            .register(JsonMappingExceptionMapper.class)
+            .register(JsonParseExceptionMapper.class)
+            .register(Workloads.class)
+            .register(Runs.class)
+            .register(new AbstractBinder() {
+              @Override protected void configure() {
+                bind(runStore).to(RunStore.class);
+              }
+            }),
         false);
 
     server.getServerConfiguration().addHttpHandler(
@@ -0,0 +1,75 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the counters a provider exposes at {@code metrics} in the Prometheus text format, as the
+ * local server does. Histogram buckets are skipped; their {@code _sum} and {@code _count} are
+ * kept. Providers without metrics give an empty map.
+ */
+final class ServerMetrics {
+
+  static Map<String, Double> scrape(Provider provider) {
+    Map<String, Double> samples = new TreeMap<>();
+    Provider.Response response;
+    try {
+      response = provider.send("GET", "metrics", null);
+    } catch (IOException e) {
+      return samples;
+    }
+    if (!response.isSuccessful()) {
+      return samples;
+    }
+    for (String line : new String(response.getBody(), StandardCharsets.UTF_8).split("\n")) {
+      int space = line.lastIndexOf(' ');
+      if (line.startsWith("#") || -1 == space) {
+        continue;
+      }
+      String name = line.substring(0, space);
+      if (name.contains("_bucket{") || name.endsWith("_bucket")) {
+        continue;
+      }
+      try {
+        samples.put(name, Double.parseDouble(line.substring(space + 1)));
+      } catch (NumberFormatException e) {
+        // Not a sample, or not a finite one.
+      }
+    }
+    return samples;
+  }
+
+  /**
+   * Returns how much each sample grew between two scrapes, leaving out those that didn't change.
+   */
+  static Map<String, Double> difference(Map<String, Double> before, Map<String, Double> after) {
+    Map<String, Double> difference = new TreeMap<>();
+    for (Map.Entry<String, Double> entry : after.entrySet()) {
+      Double previous = before.get(entry.getKey());
+      double delta = entry.getValue() - (null == previous ? 0 : previous);
+      if (0 != delta) {
+        difference.put(entry.getKey(), delta);
+      }
+    }
+    return difference;
+  }
+
+  private ServerMetrics() {}
+}
@@ -0,0 +1,325 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.node.JsonNodeFactory;
+import org.codehaus.jackson.node.ObjectNode;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A load test: which provider to drive, how hard, for how long, and with what mix of operations.
+ * Workloads are read from JSON, with defaults for everything but the provider and operations.
+ */
+public final class Workload {
+
+  public enum Arrivals { POISSON, UNIFORM }
+
+  public enum Distribution { UNIFORM, ZIPF }
+
+  /**
+   * A region of a reference sequence that {@code reads/search} windows are drawn from.
+   */
+  public static final class Region {
+
+    @JsonCreator public static Region create(
+        @JsonProperty("sequenceName") String sequenceName,
+        @JsonProperty("start") long start,
+        @JsonProperty("end") long end) {
+      if (end < start) {
+        throw new IllegalArgumentException(
+            String.format("Region %s:%d-%d ends before it starts", sequenceName, start, end));
+      }
+      return new Region(sequenceName, start, end);
+    }
+
+    private final long end;
+    private final String sequenceName;
+    private final long start;
+
+    private Region(String sequenceName, long start, long end) {
+      this.sequenceName = sequenceName;
+      this.start = start;
+      this.end = end;
+    }
+
+    public long getEnd() {
+      return end;
+    }
+
+    public String getSequenceName() {
+      return sequenceName;
+    }
+
+    public long getStart() {
+      return start;
+    }
+  }
+
+  /**
+   * One kind of request in the mix. Each operation posts {@code body} to {@code endpoint}, then
+   * follows {@code nextPageToken} for up to {@code pages} pages in total, or until the last page
+   * if {@code pages} is zero. If {@code regions} are given, each operation searches a random
+   * window of {@code regionLength} bases within them.
+   */
+  public static final class Operation {
+
+    @JsonCreator public static Operation create(
+        @JsonProperty("name") String name,
+        @JsonProperty("endpoint") String endpoint,
+        @JsonProperty("weight") Double weight,
+        @JsonProperty("pages") Integer pages,
+        @JsonProperty("body") ObjectNode body,
+        @JsonProperty("regions") List<Region> regions,
+        @JsonProperty("regionLength") Long regionLength,
+        @JsonProperty("distribution") Distribution distribution,
+        @JsonProperty("zipfExponent") Double zipfExponent) {
+      if (null == endpoint) {
+        throw new IllegalArgumentException("Operation has no endpoint");
+      }
+      return new Operation(
+          null == name ? endpoint : name,
+          endpoint,
+          null == weight ? 1 : weight,
+          null == pages ? 1 : pages,
+          null == body ? JsonNodeFactory.instance.objectNode() : body,
+          null == regions ? Collections.<Region>emptyList() : regions,
+          null == regionLength ? 10000 : regionLength,
+          null == distribution ? Distribution.UNIFORM : distribution,
+          null == zipfExponent ? 1.1 : zipfExponent);
+    }
+
+    private final ObjectNode body;
+    private final Distribution distribution;
+    private final String endpoint;
+    private final String name;
+    private final int pages;
+    private final long regionLength;
+    private final List<Region> regions;
+    private final double weight;
+    private final long stride;
+    private final long windows;
+    private final double zipfExponent;
+
+    private Operation(String name, String endpoint, double weight, int pages, ObjectNode body,
+        List<Region> regions, long regionLength, Distribution distribution,
+        double zipfExponent) {
+      this.name = name;
+      this.endpoint = endpoint;
+      this.weight = weight;
+      this.pages = pages;
+      this.body = body;
+      this.regions = regions;
+      this.regionLength = regionLength;
+      this.distribution = distribution;
+      this.zipfExponent = zipfExponent;
+      long windows = 0;
+      for (Region region : regions) {
+        windows += windows(region);
+      }
+      this.windows = windows;
+      // Ranks are scattered by a stride near windows / phi that is coprime with windows, so that
+      // every window has exactly one rank.
+      long stride = Math.max(1, (long) (windows * 0.6180339887498949));
+      while (1 < windows && !BigInteger.valueOf(stride).gcd(BigInteger.valueOf(windows))
+          .equals(BigInteger.ONE)) {
+        ++stride;
+      }
+      this.stride = stride;
+    }
+
+    /**
+     * Returns the first page's request body, with a window drawn from {@code regions} if there
+     * are any. Under {@link Distribution#ZIPF}, window popularity follows a power law; the
+     * popular windows are scattered across the regions rather than bunched at the start.
+     */
+    ObjectNode createBody(Random random) {
+      ObjectNode body = JsonNodeFactory.instance.objectNode();
+      body.putAll(this.body);
+      if (0 < windows) {
+        long window;
+        if (Distribution.ZIPF == distribution && 1 < windows) {
+          // Inverts the CDF of a continuous power law on [1, windows + 1), so that the floor,
+          // less one, is a rank in [0, windows).
+          double exponent = 1 - zipfExponent;
+          long rank = Math.min(windows - 1, (long) (0 == exponent
+              ? Math.pow(windows + 1, random.nextDouble())
+              : Math.pow((Math.pow(windows + 1, exponent) - 1) * random.nextDouble() + 1,
+                  1 / exponent)) - 1);
+          window = BigInteger.valueOf(rank).multiply(BigInteger.valueOf(stride))
+              .mod(BigInteger.valueOf(windows)).longValue();
+        } else {
+          window = (long) (random.nextDouble() * windows);
+        }
+        for (Region region : regions) {
+          long count = windows(region);
+          if (window < count) {
+            long start = region.getStart() + window * regionLength;
+            body.put("sequenceName", region.getSequenceName());
+            body.put("sequenceStart", start);
+            body.put("sequenceEnd", Math.min(region.getEnd(), start + regionLength - 1));
+            break;
+          }
+          window -= count;
+        }
+      }
+      return body;
+    }
+
+    public ObjectNode getBody() {
+      return body;
+    }
+
+    public Distribution getDistribution() {
+      return distribution;
+    }
+
+    public String getEndpoint() {
+      return endpoint;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getPages() {
+      return pages;
+    }
+
+    public long getRegionLength() {
+      return regionLength;
+    }
+
+    public List<Region> getRegions() {
+      return regions;
+    }
+
+    public double getWeight() {
+      return weight;
+    }
+
+    public double getZipfExponent() {
+      return zipfExponent;
+    }
+
+    private long windows(Region region) {
+      return (region.getEnd() - region.getStart()) / regionLength + 1;
+    }
+  }
+
+  @JsonCreator public static Workload create(
+      @JsonProperty("provider") String provider,
+      @JsonProperty("operations") List<Operation> operations,
+      @JsonProperty("targetRps") Double targetRps,
+      @JsonProperty("arrivals") Arrivals arrivals,
+      @JsonProperty("concurrency") Integer concurrency,
+      @JsonProperty("warmupSeconds") Integer warmupSeconds,
+      @JsonProperty("durationSeconds") Integer durationSeconds,
+      @JsonProperty("seed") Long seed) {
+    if (null == operations || operations.isEmpty()) {
+      throw new IllegalArgumentException("Workload has no operations");
+    }
+    return new Workload(
+        provider,
+        operations,
+        null == targetRps ? 10 : targetRps,
+        null == arrivals ? Arrivals.UNIFORM : arrivals,
+        null == concurrency ? 16 : concurrency,
+        null == warmupSeconds ? 10 : warmupSeconds,
+        null == durationSeconds ? 60 : durationSeconds,
+        null == seed ? 0 : seed);
+  }
+
+  private final Arrivals arrivals;
+  private final int concurrency;
+  private final int durationSeconds;
+  private final List<Operation> operations;
+  private final String provider;
+  private final long seed;
+  private final double targetRps;
+  private final double totalWeight;
+  private final int warmupSeconds;
+
+  private Workload(String provider, List<Operation> operations, double targetRps,
+      Arrivals arrivals, int concurrency, int warmupSeconds, int durationSeconds, long seed) {
+    this.provider = provider;
+    this.operations = operations;
+    this.targetRps = targetRps;
+    this.arrivals = arrivals;
+    this.concurrency = concurrency;
+    this.warmupSeconds = warmupSeconds;
+    this.durationSeconds = durationSeconds;
+    this.seed = seed;
+    double totalWeight = 0;
+    for (Operation operation : operations) {
+      totalWeight += operation.getWeight();
+    }
+    this.totalWeight = totalWeight;
+  }
+
+  Operation chooseOperation(Random random) {
+    double choice = random.nextDouble() * totalWeight;
+    for (Operation operation : operations) {
+      choice -= operation.getWeight();
+      if (choice < 0) {
+        return operation;
+      }
+    }
+    return operations.get(operations.size() - 1);
+  }
+
+  public Arrivals getArrivals() {
+    return arrivals;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public int getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  public List<Operation> getOperations() {
+    return operations;
+  }
+
+  public String getProvider() {
+    return provider;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public double getTargetRps() {
+    return targetRps;
+  }
+
+  public int getWarmupSeconds() {
+    return warmupSeconds;
+  }
+
+  Workload withProvider(String provider) {
+    return new Workload(provider, operations, targetRps, arrivals, concurrency, warmupSeconds,
+        durationSeconds, seed);
+  }
+}
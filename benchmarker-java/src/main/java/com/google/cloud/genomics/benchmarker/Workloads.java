@@ -0,0 +1,54 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/workloads")
+public class Workloads {
+
+  private final RunStore runStore;
+
+  @Inject
+  public Workloads(RunStore runStore) {
+    this.runStore = runStore;
+  }
+
+  /**
+   * Runs a workload to completion, saves the run and returns it.
+   */
+  @POST
+  @Path("/run")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Run run(Workload workload, @QueryParam("label") String label)
+      throws InterruptedException, IOException {
+    if (null == workload.getProvider()) {
+      throw new WebApplicationException(Response.Status.BAD_REQUEST);
+    }
+    return runStore.record(workload, label);
+  }
+}
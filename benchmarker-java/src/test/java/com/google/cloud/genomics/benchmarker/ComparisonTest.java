@@ -0,0 +1,98 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class ComparisonTest {
+
+  private static final int REQUESTS = 10000;
+
+  /**
+   * Returns a run whose latencies are normally distributed around {@code meanMillis}, with a
+   * standard deviation of a tenth of that.
+   */
+  private static Run run(String id, double meanMillis, long seed) {
+    Random random = new Random(seed);
+    Histogram histogram = new Histogram(3);
+    for (int i = 0; i < REQUESTS; ++i) {
+      histogram.recordValue(
+          Math.max(1, (long) (meanMillis * (1 + 0.1 * random.nextGaussian()) * 1e6)));
+    }
+    Report.Latency latency = Report.Latency.create(histogram);
+    Report.OperationReport operation = Report.OperationReport.create(REQUESTS, 0,
+        1000L * REQUESTS, REQUESTS / 60.0, latency, latency, latency,
+        Report.OperationReport.encode(histogram));
+    return Run.create(id, null, null, Report.create("http://localhost:5000/", 0, 60,
+        REQUESTS / 60.0, Collections.singletonMap("search", operation), operation), null);
+  }
+
+  private static void assertVerdicts(Comparison.Verdict verdict, Comparison comparison) {
+    for (List<Comparison.Metric> metrics : comparison.getOperations().values()) {
+      for (Comparison.Metric metric : metrics) {
+        if (metric.getName().endsWith(" ms")) {
+          assertNotNull(metric.getName(), metric.getLower());
+          assertTrue(metric.getName(), metric.getLower() <= metric.getUpper());
+          assertEquals(metric.getName(), verdict, metric.getVerdict());
+        } else {
+          assertEquals(metric.getName(), Comparison.Verdict.NONE, metric.getVerdict());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIdenticalRuns() {
+    Run run = run("baseline", 10, 1);
+    assertVerdicts(Comparison.Verdict.NONE,
+        Comparison.create(run, run, Comparison.DEFAULT_THRESHOLD));
+  }
+
+  @Test
+  public void testSameDistribution() {
+    assertVerdicts(Comparison.Verdict.NONE, Comparison.create(run("baseline", 10, 1),
+        run("candidate", 10, 2), Comparison.DEFAULT_THRESHOLD));
+  }
+
+  @Test
+  public void testShiftedRuns() {
+    Run baseline = run("baseline", 10, 1);
+    Run slower = run("slower", 15, 2);
+    Comparison comparison = Comparison.create(baseline, slower, Comparison.DEFAULT_THRESHOLD);
+    assertVerdicts(Comparison.Verdict.REGRESSION, comparison);
+    for (Comparison.Metric metric : comparison.getOperations().get("total")) {
+      if (metric.getName().endsWith(" ms")) {
+        assertTrue(metric.getName(), 0 < metric.getLower());
+        double change = metric.getCandidate() - metric.getBaseline();
+        assertTrue(metric.getName(), metric.getLower() <= change && change <= metric.getUpper());
+      }
+    }
+    assertVerdicts(Comparison.Verdict.IMPROVEMENT,
+        Comparison.create(slower, baseline, Comparison.DEFAULT_THRESHOLD));
+  }
+}
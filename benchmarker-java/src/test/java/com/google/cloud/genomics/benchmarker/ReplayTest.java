@@ -0,0 +1,122 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class ReplayTest {
+
+  private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+
+  private static RecordedRequest search(long time, String pageToken) {
+    return RecordedRequest.create(time, "POST", "/reads/search", "reads/search",
+        Collections.singletonMap("Accept-Encoding", "identity"),
+        String.format("{\"readsetIds\":[\"1\"],\"pageToken\":%s}",
+            null == pageToken ? "null" : "\"" + pageToken + "\""));
+  }
+
+  @Test
+  public void testChains() {
+    List<RecordedRequest> requests = Arrays.asList(
+        search(0, null),
+        RecordedRequest.create(1, "GET", "/readsets/{readsetId}", "readsets/1", NO_HEADERS, null),
+        search(2, "recorded1"),
+        search(3, "recorded2"),
+        RecordedRequest.create(4, "GET", "/datasets", "datasets?projectId=0", NO_HEADERS, null),
+        RecordedRequest.create(5, "GET", "/datasets", "datasets?projectId=0&pageToken=abc",
+            NO_HEADERS, null),
+        search(6, null));
+    assertArrayEquals(new int[] { -1, -1, 0, 2, -1, 4, -1 }, Replay.chains(requests));
+  }
+
+  @Test
+  public void testPageTokens() {
+    assertEquals("recorded1", Replay.pageToken(search(0, "recorded1")));
+    assertNull(Replay.pageToken(search(0, null)));
+    RecordedRequest list = RecordedRequest.create(0, "GET", "/datasets",
+        "datasets?pageToken=a%2Bb&projectId=0", NO_HEADERS, null);
+    assertEquals("a+b", Replay.pageToken(list));
+    assertEquals("datasets?pageToken=c%2Fd&projectId=0",
+        Replay.withPathPageToken(list.getPath(), "c/d"));
+    assertEquals("{\"readsetIds\":[\"1\"],\"pageToken\":\"live\"}",
+        Replay.withPageToken(search(0, "recorded").getBody(), "live"));
+  }
+
+  /**
+   * Replays a chain of four pages against a server whose chain is three pages long: each page
+   * after the first must carry the token the server handed out, and the fourth isn't sent.
+   */
+  @Test
+  public void testRunFollowsLivePageTokens() throws Exception {
+    final ObjectMapper mapper = new ObjectMapper();
+    final List<String> pageTokens = Collections.synchronizedList(new ArrayList<String>());
+    final List<String> acceptEncodings = Collections.synchronizedList(new ArrayList<String>());
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/reads/search", new HttpHandler() {
+      @Override public void handle(HttpExchange exchange) throws IOException {
+        JsonNode pageToken = mapper.readTree(exchange.getRequestBody()).get("pageToken");
+        String token = pageToken.isNull() ? null : pageToken.getTextValue();
+        pageTokens.add(token);
+        acceptEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        String next = null == token ? "live1" : "live1".equals(token) ? "live2" : null;
+        byte[] body = (null == next ? "{\"reads\":[]}"
+            : String.format("{\"reads\":[],\"nextPageToken\":\"%s\"}", next))
+            .getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      }
+    });
+    server.start();
+    try {
+      Replay.Result result = Replay.run(
+          new Provider(String.format("http://localhost:%d/", server.getAddress().getPort())),
+          Arrays.asList(search(0, null), search(1, "recorded1"), search(2, "recorded2"),
+              search(3, "recorded3")),
+          1000, 4);
+      assertEquals(Arrays.asList(null, "live1", "live2"), pageTokens);
+      assertEquals(Arrays.asList("identity", "identity", "identity"), acceptEncodings);
+      assertArrayEquals(new int[] { 200, 200, 200, -1 }, result.getStatuses());
+      assertEquals(-1, result.getLatencies()[3]);
+    } finally {
+      server.stop(0);
+    }
+  }
+}
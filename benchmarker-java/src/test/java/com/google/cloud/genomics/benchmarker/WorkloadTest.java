@@ -0,0 +1,133 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.benchmarker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.codehaus.jackson.map.JsonMappingException;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+@RunWith(JUnit4.class)
+public class WorkloadTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private static Workload parse(String json) throws IOException {
+    return MAPPER.readValue(json.replace('\'', '"'), Workload.class);
+  }
+
+  @Test
+  public void testParse() throws IOException {
+    Workload workload = parse("{'provider': 'http://localhost:5000/',"
+        + " 'targetRps': 50, 'arrivals': 'POISSON', 'seed': 7,"
+        + " 'operations': ["
+        + "   {'endpoint': 'reads/search', 'weight': 3, 'pages': 0,"
+        + "    'body': {'readsetIds': ['1']},"
+        + "    'regions': [{'sequenceName': 'chr1', 'start': 1, 'end': 100000}],"
+        + "    'regionLength': 5000, 'distribution': 'ZIPF', 'zipfExponent': 1.5},"
+        + "   {'name': 'readsets', 'endpoint': 'readsets/search'}]}");
+    assertEquals("http://localhost:5000/", workload.getProvider());
+    assertEquals(50, workload.getTargetRps(), 0);
+    assertEquals(Workload.Arrivals.POISSON, workload.getArrivals());
+    assertEquals(7, workload.getSeed());
+    assertEquals(16, workload.getConcurrency());
+    assertEquals(10, workload.getWarmupSeconds());
+    assertEquals(60, workload.getDurationSeconds());
+    assertEquals(2, workload.getOperations().size());
+    Workload.Operation reads = workload.getOperations().get(0);
+    assertEquals("reads/search", reads.getName());
+    assertEquals(3, reads.getWeight(), 0);
+    assertEquals(0, reads.getPages());
+    assertEquals("1", reads.getBody().get("readsetIds").get(0).getTextValue());
+    assertEquals(1, reads.getRegions().size());
+    assertEquals("chr1", reads.getRegions().get(0).getSequenceName());
+    assertEquals(5000, reads.getRegionLength());
+    assertEquals(Workload.Distribution.ZIPF, reads.getDistribution());
+    assertEquals(1.5, reads.getZipfExponent(), 0);
+    Workload.Operation readsets = workload.getOperations().get(1);
+    assertEquals("readsets", readsets.getName());
+    assertEquals(1, readsets.getWeight(), 0);
+    assertEquals(1, readsets.getPages());
+    assertEquals(0, readsets.getBody().size());
+    assertTrue(readsets.getRegions().isEmpty());
+    assertEquals(Workload.Distribution.UNIFORM, readsets.getDistribution());
+  }
+
+  @Test
+  public void testParseInvalid() throws IOException {
+    for (String json : new String[] {
+        "{'provider': 'http://localhost:5000/'}",
+        "{'operations': [{'name': 'no endpoint'}]}",
+        "{'operations': [{'endpoint': 'reads/search',"
+            + " 'regions': [{'sequenceName': 'chr1', 'start': 10, 'end': 1}]}]}" }) {
+      try {
+        parse(json);
+        fail(json);
+      } catch (JsonMappingException e) {
+        assertTrue(json, e.getCause() instanceof IllegalArgumentException);
+      }
+    }
+  }
+
+  /**
+   * Checks that every window lies within a region, starts on a multiple of
+   * {@code regionLength} from the region's start, and that every window is drawn.
+   */
+  @Test
+  public void testCreateBodyWindows() throws IOException {
+    for (String distribution : new String[] { "UNIFORM", "ZIPF" }) {
+      Workload.Operation operation = parse("{'operations': [{'endpoint': 'reads/search',"
+          + " 'body': {'readsetIds': ['1']}, 'distribution': '" + distribution + "',"
+          + " 'regions': [{'sequenceName': 'chr1', 'start': 1000, 'end': 5000},"
+          + "   {'sequenceName': 'chr2', 'start': 0, 'end': 0}],"
+          + " 'regionLength': 1000}]}").getOperations().get(0);
+      Random random = new Random(0);
+      Set<String> windows = new HashSet<>();
+      for (int i = 0; i < 10000; ++i) {
+        ObjectNode body = operation.createBody(random);
+        assertEquals("1", body.get("readsetIds").get(0).getTextValue());
+        String sequenceName = body.get("sequenceName").getTextValue();
+        long start = body.get("sequenceStart").getLongValue();
+        long end = body.get("sequenceEnd").getLongValue();
+        assertTrue(start <= end);
+        if ("chr1".equals(sequenceName)) {
+          assertTrue(1000 <= start && end <= 5000);
+          assertEquals(0, (start - 1000) % 1000);
+          assertEquals(Math.min(5000, start + 999), end);
+        } else {
+          assertEquals("chr2", sequenceName);
+          assertEquals(0, start);
+          assertEquals(0, end);
+        }
+        windows.add(sequenceName + ":" + start);
+      }
+      assertEquals(distribution, 6, windows.size());
+      assertFalse(operation.getBody().has("sequenceName"));
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.genomics.Genomics;
+import com.google.api.services.genomics.model.Call;
+import com.google.api.services.genomics.model.Callset;
+import com.google.api.services.genomics.model.SearchCallsetsRequest;
+import com.google.api.services.genomics.model.SearchCallsetsResponse;
+import com.google.api.services.genomics.model.SearchVariantsRequest;
+import com.google.api.services.genomics.model.SearchVariantsResponse;
+import com.google.api.services.genomics.model.Variant;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads the variants of a dataset in {@code [start, end)} on one contig from any server that
+ * implements the Genomics API, such as the local readstore. Callsets are keyed by ID, as in
+ * {@link MainServlet}. Each shard is a range of positions, and a variant belongs to the shard its
+ * position falls in, so that variants overlapping two ranges are counted once. Ranges are planned
+ * to hold about the same number of variants, and are split again while they are read if threads
+ * go idle.
+ */
+public final class GenomicsApiVariantSource implements VariantSource {
+
+  private static final long MIN_SPLIT_LENGTH = 10000;
+  private static final int PROBE_THREADS = 8;
+
+  private final String apiKey;
+  private final String contig;
+  private final String datasetId;
+  private final long end;
+  private final Genomics genomics;
+  private final long start;
+
+  private List<String> callsets;
+  private Map<String, Integer> ordinals;
+
+  public GenomicsApiVariantSource(String rootUrl, String apiKey, String datasetId, String contig,
+      long start, long end) {
+    this.genomics = new Genomics.Builder(new NetHttpTransport(), new JacksonFactory(), null)
+        .setRootUrl(rootUrl)
+        .setApplicationName("mapreduce-java")
+        .build();
+    this.apiKey = apiKey;
+    this.datasetId = datasetId;
+    this.contig = contig;
+    this.start = start;
+    this.end = end;
+  }
+
+  @Override public synchronized List<String> getCallsets() throws IOException {
+    if (null == callsets) {
+      List<String> ids = Lists.newArrayList();
+      Map<String, Integer> indexes = Maps.newHashMap();
+      String pageToken = null;
+      do {
+        Genomics.Callsets.Search search = genomics.callsets().search(new SearchCallsetsRequest()
+            .setDatasetIds(ImmutableList.of(datasetId))
+            .setPageToken(pageToken));
+        SearchCallsetsResponse response = (null == apiKey ? search : search.setKey(apiKey))
+            .execute();
+        if (null != response.getCallsets()) {
+          for (Callset callset : response.getCallsets()) {
+            if (!indexes.containsKey(callset.getId())) {
+              indexes.put(callset.getId(), ids.size());
+              ids.add(callset.getId());
+            }
+          }
+        }
+        pageToken = response.getNextPageToken();
+      } while (null != pageToken);
+      callsets = Collections.unmodifiableList(ids);
+      ordinals = indexes;
+    }
+    return callsets;
+  }
+
+  /**
+   * Splits the region into ranges with about the same number of variants, as planned by
+   * {@link ShardPlanner}.
+   */
+  @Override public List<Shard> split(int shards) throws IOException {
+    getCallsets();
+    ExecutorService executor = Executors.newFixedThreadPool(PROBE_THREADS);
+    List<Range<Long>> ranges;
+    try {
+      ranges = ShardPlanner.plan(
+          ShardPlanner.genomicsApiProbe(genomics, apiKey, datasetId, contig),
+          start, end, shards, executor);
+    } finally {
+      executor.shutdown();
+    }
+    List<Shard> list = Lists.newArrayList();
+    for (Range<Long> range : ranges) {
+      list.add(new RangeShard(range.lowerEndpoint(), range.upperEndpoint()));
+    }
+    return list;
+  }
+
+  private final class RangeShard implements Shard {
+
+    private long rangeEnd;
+    private final long rangeStart;
+
+    RangeShard(long rangeStart, long rangeEnd) {
+      this.rangeStart = rangeStart;
+      this.rangeEnd = rangeEnd;
+    }
+
+    /**
+     * Reads the range a page at a time. The server returns variants in order of position, so
+     * after each page, if the splitter is hungry, the rest of the range can be halved: this shard
+     * keeps paging through the original query until it passes the new end, and the second half
+     * is read by another.
+     */
+    @Override public void read(CarrierVisitor visitor, Splitter splitter) throws IOException {
+      int[] carriers = new int[callsets.size()];
+      String pageToken = null;
+      long next = rangeStart;
+      long queryEnd = rangeEnd;
+      do {
+        Genomics.Variants.Search search = genomics.variants().search(new SearchVariantsRequest()
+            .setDatasetId(datasetId)
+            .setContig(contig)
+            .setStartPosition(rangeStart)
+            .setEndPosition(queryEnd)
+            .setPageToken(pageToken));
+        SearchVariantsResponse response = (null == apiKey ? search : search.setKey(apiKey))
+            .execute();
+        boolean past = false;
+        if (null != response.getVariants()) {
+          for (Variant variant : response.getVariants()) {
+            long position = variant.getPosition();
+            if (rangeEnd <= position) {
+              past = true;
+            }
+            if (position < rangeStart || rangeEnd <= position || null == variant.getCalls()) {
+              continue;
+            }
+            next = position + 1;
+            int count = 0;
+            for (Call call : variant.getCalls()) {
+              Integer ordinal = ordinals.get(call.getCallsetId());
+              if (null != ordinal && Genotypes.hasAlternate(call)) {
+                carriers[count++] = ordinal;
+              }
+            }
+            visitor.visit(carriers, count);
+          }
+        }
+        pageToken = response.getNextPageToken();
+        if (null != pageToken && !past && MIN_SPLIT_LENGTH <= rangeEnd - next
+            && splitter.isHungry()) {
+          long middle = next + (rangeEnd - next) / 2;
+          splitter.fork(new RangeShard(middle, rangeEnd));
+          rangeEnd = middle;
+        }
+      } while (null != pageToken && !past);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import com.google.api.services.genomics.model.Call;
+
+import java.util.List;
+
+/**
+ * Decides whether a call carries a non-reference allele.
+ */
+final class Genotypes {
+
+  /**
+   * Returns true if the call's genotype has an allele other than the reference. The
+   * {@code genotype} field is used if it is set, and the {@code GT} info field otherwise.
+   */
+  static boolean hasAlternate(Call call) {
+    List<Long> genotype = call.getGenotype();
+    if (null != genotype) {
+      for (Long allele : genotype) {
+        if (null != allele && 0 < allele) {
+          return true;
+        }
+      }
+      return false;
+    }
+    List<String> gt = null == call.getInfo() ? null : call.getInfo().get("GT");
+    if (null == gt || gt.isEmpty()) {
+      return false;
+    }
+    String value = gt.get(0);
+    return hasAlternate(value, 0, value.length());
+  }
+
+  /**
+   * Returns true if the VCF genotype in {@code text[from, to)}, such as {@code 0/1} or
+   * {@code 1|0:35}, has an allele index above zero. Missing alleles count as reference.
+   */
+  static boolean hasAlternate(CharSequence text, int from, int to) {
+    int allele = -1;
+    for (int i = from; i < to; ++i) {
+      char c = text.charAt(i);
+      if ('0' <= c && c <= '9') {
+        allele = (allele < 0 ? 0 : 10 * allele) + c - '0';
+      } else if (0 < allele) {
+        return true;
+      } else if (':' == c) {
+        return false;
+      } else {
+        allele = -1;
+      }
+    }
+    return 0 < allele;
+  }
+
+  private Genotypes() {}
+}
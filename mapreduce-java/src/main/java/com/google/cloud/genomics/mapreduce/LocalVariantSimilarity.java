@@ -0,0 +1,232 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Logger;
+
+/**
+ * Computes the same variant similarity matrix as the MapReduce job in {@link MainServlet}, on one
+ * machine instead of App Engine. The source is split into shards, which a fork/join pool reads in
+ * parallel, and a shard still being read when a thread goes idle forks off half of what it has
+ * left; each worker thread counts into its own {@link SimilarityMatrix} through a
+ * {@link SimilarityKernel}, and the matrices are summed once every shard is done, so the counting
+ * itself never contends. With {@code --validate=true}, the source is read a second time and the
+ * kernel's counts are checked against counting each pair of carriers, as the mapper does.
+ *
+ * <pre>
+ * java ... LocalVariantSimilarity --datasetId=ID [--rootUrl=URL] [--apiKey=KEY]
+ *     --contig=CONTIG --start=START --end=END [--shards=N] [--threads=N] [--output=FILE]
+ *     [--validate=true]
+ * java ... LocalVariantSimilarity --vcf=FILE [--contig=CONTIG --start=START --end=END]
+ *     [--shards=N] [--threads=N] [--output=FILE] [--validate=true]
+ * </pre>
+ */
+public final class LocalVariantSimilarity {
+
+  private static final Logger LOG = Logger.getLogger(LocalVariantSimilarity.class.getName());
+
+  private static final class ShardTask extends RecursiveAction {
+
+    private final int from;
+    private final List<VariantSource.Shard> shards;
+    private final int to;
+    private final ThreadLocal<VariantSource.CarrierVisitor> visitors;
+
+    ShardTask(List<VariantSource.Shard> shards, int from, int to,
+        ThreadLocal<VariantSource.CarrierVisitor> visitors) {
+      this.shards = shards;
+      this.from = from;
+      this.to = to;
+      this.visitors = visitors;
+    }
+
+    @Override protected void compute() {
+      if (1 == to - from) {
+        final List<ShardTask> forked = Lists.newArrayList();
+        try {
+          shards.get(from).read(visitors.get(), new VariantSource.Splitter() {
+            @Override public boolean isHungry() {
+              ForkJoinPool pool = getPool();
+              return 0 == pool.getQueuedTaskCount() && 0 == pool.getQueuedSubmissionCount()
+                  && pool.getActiveThreadCount() < pool.getParallelism();
+            }
+
+            @Override public void fork(VariantSource.Shard shard) {
+              ShardTask task =
+                  new ShardTask(Collections.singletonList(shard), 0, 1, visitors);
+              task.fork();
+              forked.add(task);
+            }
+          });
+        } catch (IOException e) {
+          throw Throwables.propagate(e);
+        }
+        for (ShardTask task : forked) {
+          task.join();
+        }
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new ShardTask(shards, from, middle, visitors),
+            new ShardTask(shards, middle, to, visitors));
+      }
+    }
+  }
+
+  public static SimilarityMatrix compute(VariantSource source, int shards, ForkJoinPool pool)
+      throws IOException {
+    return compute(source, shards, pool, false);
+  }
+
+  /**
+   * Computes the matrix by counting each pair of carriers of each variant, as the mapper does,
+   * rather than with {@link SimilarityKernel}. This is only useful to check the kernel.
+   */
+  public static SimilarityMatrix computePairwise(VariantSource source, int shards,
+      ForkJoinPool pool) throws IOException {
+    return compute(source, shards, pool, true);
+  }
+
+  private static SimilarityMatrix compute(VariantSource source, int shards,
+      final ForkJoinPool pool, final boolean pairwise) throws IOException {
+    final List<String> callsets = source.getCallsets();
+    List<VariantSource.Shard> list = source.split(shards);
+    long start = System.nanoTime();
+    SimilarityMatrix result = new SimilarityMatrix(callsets);
+    int threads = 1;
+    if (1 == list.size() && !pairwise) {
+      // A source that can't be split is read on this thread, and each batch is counted on all of
+      // the pool's threads instead. Nothing here is hungry, but a shard that forks anyway is
+      // queued and read after it on the same thread.
+      SimilarityKernel kernel = new SimilarityKernel(result, pool);
+      final Queue<VariantSource.Shard> pending = new ArrayDeque<>(list);
+      VariantSource.Splitter splitter = new VariantSource.Splitter() {
+        @Override public boolean isHungry() {
+          return false;
+        }
+
+        @Override public void fork(VariantSource.Shard shard) {
+          pending.add(shard);
+        }
+      };
+      while (!pending.isEmpty()) {
+        pending.poll().read(kernel, splitter);
+      }
+      kernel.flush();
+    } else if (!list.isEmpty()) {
+      final List<SimilarityMatrix> partials =
+          Collections.synchronizedList(Lists.<SimilarityMatrix>newArrayList());
+      final List<SimilarityKernel> kernels =
+          Collections.synchronizedList(Lists.<SimilarityKernel>newArrayList());
+      ThreadLocal<VariantSource.CarrierVisitor> visitors =
+          new ThreadLocal<VariantSource.CarrierVisitor>() {
+            @Override protected VariantSource.CarrierVisitor initialValue() {
+              SimilarityMatrix matrix = new SimilarityMatrix(callsets);
+              partials.add(matrix);
+              if (pairwise) {
+                return matrix;
+              }
+              SimilarityKernel kernel = new SimilarityKernel(matrix, pool);
+              kernels.add(kernel);
+              return kernel;
+            }
+          };
+      try {
+        pool.invoke(new ShardTask(list, 0, list.size(), visitors));
+      } catch (RuntimeException e) {
+        Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+        throw e;
+      }
+      for (SimilarityKernel kernel : kernels) {
+        kernel.flush();
+      }
+      for (SimilarityMatrix partial : partials) {
+        result.merge(partial);
+      }
+      threads = partials.size();
+    }
+    LOG.info(String.format("Read %d shards for %d callsets on %d threads in %.1f s", list.size(),
+        callsets.size(), threads, (System.nanoTime() - start) / 1e9));
+    return result;
+  }
+
+  public static void main(String[] args) throws IOException {
+    Map<String, String> flags = Maps.newHashMap();
+    for (String arg : args) {
+      int equals = arg.indexOf('=');
+      if (!arg.startsWith("--") || -1 == equals) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      flags.put(arg.substring(2, equals), arg.substring(equals + 1));
+    }
+    String contig = flags.get("contig");
+    long start = flags.containsKey("start") ? Long.parseLong(flags.get("start")) : 0;
+    long end = flags.containsKey("end") ? Long.parseLong(flags.get("end")) : Long.MAX_VALUE;
+    int threads = flags.containsKey("threads")
+        ? Integer.parseInt(flags.get("threads")) : Runtime.getRuntime().availableProcessors();
+    int shards = flags.containsKey("shards")
+        ? Integer.parseInt(flags.get("shards")) : 4 * threads;
+    VariantSource source;
+    if (flags.containsKey("vcf")) {
+      source = new VcfVariantSource(new File(flags.get("vcf")), contig, start, end);
+    } else if (flags.containsKey("datasetId") && null != contig && flags.containsKey("end")) {
+      String rootUrl = flags.containsKey("rootUrl")
+          ? flags.get("rootUrl") : "https://www.googleapis.com/";
+      String apiKey = flags.containsKey("apiKey") ? flags.get("apiKey") : MainServlet.API_KEY;
+      source = new GenomicsApiVariantSource(rootUrl, apiKey, flags.get("datasetId"), contig,
+          start, end);
+    } else {
+      throw new IllegalArgumentException(
+          "Either --vcf, or --datasetId with --contig, --start and --end, is required");
+    }
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    SimilarityMatrix matrix;
+    try {
+      matrix = compute(source, shards, pool);
+      if (Boolean.parseBoolean(flags.get("validate"))
+          && !matrix.equals(computePairwise(source, shards, pool))) {
+        throw new IllegalStateException("Kernel and pairwise counts differ");
+      }
+    } finally {
+      pool.shutdown();
+    }
+    String output =
+        flags.containsKey("output") ? flags.get("output") : MainServlet.OUTPUT_FILE_NAME;
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(output), StandardCharsets.UTF_8))) {
+      matrix.write(out);
+    }
+  }
+
+  private LocalVariantSimilarity() {}
+}
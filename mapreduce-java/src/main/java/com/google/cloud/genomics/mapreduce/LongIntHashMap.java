@@ -0,0 +1,102 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import java.util.Arrays;
+
+/**
+ * Sums positive ints by long key, in open-addressed arrays rather than boxed map entries. A slot
+ * with a zero value is empty, so only positive amounts can be added.
+ */
+final class LongIntHashMap {
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private long[] keys = new long[INITIAL_CAPACITY];
+  private int size;
+  private int[] values = new int[INITIAL_CAPACITY];
+
+  void add(long key, int amount) {
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (0 != values[slot] && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    if (0 == values[slot]) {
+      keys[slot] = key;
+      if (keys.length < 2 * ++size) {
+        values[slot] = amount;
+        grow();
+        return;
+      }
+    }
+    values[slot] += amount;
+  }
+
+  void clear() {
+    Arrays.fill(values, 0);
+    size = 0;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[2 * oldKeys.length];
+    values = new int[2 * oldValues.length];
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (0 != oldValues[i]) {
+        int slot = hash(oldKeys[i]) & mask;
+        while (0 != values[slot]) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private static int hash(long key) {
+    key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+    key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return (int) (key ^ (key >>> 33));
+  }
+
+  long keyAt(int slot) {
+    return keys[slot];
+  }
+
+  /**
+   * Returns the first occupied slot after {@code slot}, or -1 if there is none. Iteration starts
+   * from slot -1.
+   */
+  int nextSlot(int slot) {
+    for (++slot; slot < values.length; ++slot) {
+      if (0 != values[slot]) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int valueAt(int slot) {
+    return values[slot];
+  }
+}
@@ -20,20 +20,34 @@ import com.google.api.client.googleapis.extensions.appengine.auth.oauth2.AppIden
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.genomics.Genomics;
 import com.google.api.services.genomics.model.Call;
+import com.google.api.services.genomics.model.Callset;
+import com.google.api.services.genomics.model.SearchCallsetsRequest;
+import com.google.api.services.genomics.model.SearchCallsetsResponse;
 import com.google.api.services.genomics.model.SearchVariantsRequest;
 import com.google.api.services.genomics.model.SearchVariantsResponse;
 import com.google.api.services.genomics.model.Variant;
+import com.google.appengine.api.ThreadManager;
 import com.google.appengine.tools.mapreduce.*;
 import com.google.appengine.tools.mapreduce.outputs.GoogleCloudStorageFileOutput;
 import com.google.appengine.tools.mapreduce.outputs.MarshallingOutput;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
 
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
 public class MainServlet extends HttpServlet {
@@ -52,6 +66,7 @@ public class MainServlet extends HttpServlet {
     Integer end = Integer.valueOf(req.getParameter("end"));
 
     Integer shards = end - start < 1000 ? 1 : SHARDS;
+    List<String> callsetIds = getCallsetIds(datasetId);
 
     Output<String, GoogleCloudStorageFileSet> output = new MarshallingOutput<String, GoogleCloudStorageFileSet>(
         new GoogleCloudStorageFileOutput(BUCKET_NAME, OUTPUT_FILE_NAME, "text/plain",
@@ -60,10 +75,10 @@ public class MainServlet extends HttpServlet {
 
     MapReduceSpecification spec = MapReduceSpecification.of("VariantSimilarityMapreduce",
         new GenomicsApiInput(datasetId, contig, start, end, shards),
-        new VariantSimilarityMapper(),
-        Marshallers.getStringMarshaller(),
+        new VariantSimilarityMapper(callsetIds),
+        Marshallers.getLongMarshaller(),
         Marshallers.getIntegerMarshaller(),
-        new SummingReducer(),
+        new SummingReducer(callsetIds),
         output);
 
     String jobId = MapReduceJob.start(spec, new MapReduceSettings().setBucketName(BUCKET_NAME));
@@ -71,6 +86,39 @@ public class MainServlet extends HttpServlet {
     resp.sendRedirect("/_ah/pipeline/status.html?root=" + jobId);
   }
 
+  private static Genomics getService() {
+    // TODO: This auth doesn't work when running locally
+    final AppIdentityCredential credential =
+        new AppIdentityCredential(Lists.newArrayList("https://www.googleapis.com/auth/genomics"));
+
+    return new Genomics.Builder(new UrlFetchTransport(), new JacksonFactory(), credential)
+        .setRootUrl("https://www.googleapis.com/")
+        .setApplicationName("mapreduce-java")
+        .build();
+  }
+
+  /**
+   * Returns the IDs of the dataset's callsets. A callset's index in this list is its ordinal in
+   * the keys the mapper emits.
+   */
+  private static List<String> getCallsetIds(String datasetId) throws IOException {
+    Genomics genomics = getService();
+    List<String> callsetIds = Lists.newArrayList();
+    String pageToken = null;
+    do {
+      SearchCallsetsResponse response = genomics.callsets().search(new SearchCallsetsRequest()
+          .setDatasetIds(ImmutableList.of(datasetId))
+          .setPageToken(pageToken)).setKey(API_KEY).execute();
+      if (response.getCallsets() != null) {
+        for (Callset callset : response.getCallsets()) {
+          callsetIds.add(callset.getId());
+        }
+      }
+      pageToken = response.getNextPageToken();
+    } while (pageToken != null);
+    return callsetIds;
+  }
+
   private static class VariantSimilarityInput {
     public final Integer sequenceStart;
     public final Integer sequenceEnd;
@@ -85,6 +133,7 @@ public class MainServlet extends HttpServlet {
 
   private static class GenomicsApiInput extends Input<VariantSimilarityInput> {
     private static final Logger LOG = Logger.getLogger(GenomicsApiInput.class.getName());
+    private static final int PROBE_THREADS = 8;
 
     private final String datasetId;
     private final String contig;
@@ -100,14 +149,28 @@ public class MainServlet extends HttpServlet {
       this.shards = shards;
     }
 
+    /**
+     * Creates readers for ranges with about the same number of variants, by probing the variant
+     * density along the region. Readers can't be split once the job has started, so this is the
+     * only chance to balance them.
+     */
     @Override
     public List<GenomicsApiInputReader> createReaders() throws IOException {
-      int rangeLength = (end - start) / shards;
+      ExecutorService executor = Executors.newFixedThreadPool(PROBE_THREADS,
+          ThreadManager.currentRequestThreadFactory());
+      List<Range<Long>> ranges;
+      try {
+        ranges = ShardPlanner.plan(
+            ShardPlanner.genomicsApiProbe(getService(), API_KEY, datasetId, contig),
+            start, end, shards, executor);
+      } finally {
+        executor.shutdown();
+      }
 
       List<GenomicsApiInputReader> readers = Lists.newArrayList();
-      for (int i = 0; i < shards; i++) {
-        int rangeStart = start + (rangeLength * i);
-        int rangeEnd = Math.max(end, rangeStart + rangeLength);
+      for (Range<Long> range : ranges) {
+        int rangeStart = range.lowerEndpoint().intValue();
+        int rangeEnd = range.upperEndpoint().intValue();
         readers.add(new GenomicsApiInputReader(datasetId, contig, rangeStart, rangeEnd));
         LOG.info("Adding reader " + rangeStart + ":" + rangeEnd);
       }
@@ -116,8 +179,24 @@ public class MainServlet extends HttpServlet {
     }
   }
 
+  /**
+   * Reads the variants in a range a page at a time. Pages are fetched ahead, by one thread per
+   * slice with one client, while the mapper works on the current page, so the shard isn't waiting
+   * on a round trip per page. At most {@code LOOKAHEAD} pages are held.
+   */
   private static class GenomicsApiInputReader extends InputReader<VariantSimilarityInput> {
     private static final Logger LOG = Logger.getLogger(GenomicsApiInputReader.class.getName());
+    private static final int LOOKAHEAD = 2;
+
+    private static class Page {
+      public final SearchVariantsResponse response;
+      public final IOException error;
+
+      public Page(SearchVariantsResponse response, IOException error) {
+        this.response = response;
+        this.error = error;
+      }
+    }
 
     private final String datasetId;
     private final String contig;
@@ -127,6 +206,11 @@ public class MainServlet extends HttpServlet {
     private boolean firstTime = true;
     private String nextPageToken;
 
+    // These can't be serialized, so they are made again for each slice. Pages fetched ahead but
+    // not returned by the end of a slice are fetched again from nextPageToken.
+    private transient ExecutorService fetcher;
+    private transient BlockingQueue<Page> pages;
+
     public GenomicsApiInputReader(String datasetId, String contig, int start, int end) {
       this.datasetId = datasetId;
       this.contig = contig;
@@ -134,15 +218,60 @@ public class MainServlet extends HttpServlet {
       this.end = end;
     }
 
-    private static Genomics getService() {
-      // TODO: This auth doesn't work when running locally
-      final AppIdentityCredential credential =
-          new AppIdentityCredential(Lists.newArrayList("https://www.googleapis.com/auth/genomics"));
+    @Override
+    public void beginSlice() {
+      pages = new ArrayBlockingQueue<Page>(LOOKAHEAD);
+      if (!firstTime && nextPageToken == null) {
+        return;
+      }
+      final Genomics genomics = getService();
+      final BlockingQueue<Page> queue = pages;
+      final String pageToken = nextPageToken;
+      fetcher = Executors.newSingleThreadExecutor(ThreadManager.currentRequestThreadFactory());
+      fetcher.execute(new Runnable() {
+        @Override
+        public void run() {
+          fetch(genomics, queue, pageToken);
+        }
+      });
+    }
+
+    private void fetch(Genomics genomics, BlockingQueue<Page> queue, String pageToken) {
+      try {
+        do {
+          SearchVariantsRequest request = new SearchVariantsRequest()
+              .setDatasetId(datasetId)
+              .setContig(contig)
+              .setStartPosition((long) start)
+              .setEndPosition((long) end)
+              .setPageToken(pageToken);
+
+          Page page;
+          try {
+            SearchVariantsResponse response =
+                genomics.variants().search(request).setKey(API_KEY).execute();
+            page = new Page(response, null);
+            pageToken = response.getNextPageToken();
+          } catch (IOException e) {
+            page = new Page(null, e);
+            pageToken = null;
+          } catch (RuntimeException e) {
+            page = new Page(null, new IOException(e));
+            pageToken = null;
+          }
+          queue.put(page);
+        } while (pageToken != null);
+      } catch (InterruptedException e) {
+        // The slice has ended
+      }
+    }
 
-      return new Genomics.Builder(new UrlFetchTransport(), new JacksonFactory(), credential)
-          .setRootUrl("https://www.googleapis.com/")
-          .setApplicationName("mapreduce-java")
-          .build();
+    @Override
+    public void endSlice() {
+      if (fetcher != null) {
+        fetcher.shutdownNow();
+        fetcher = null;
+      }
     }
 
     @Override
@@ -150,66 +279,134 @@ public class MainServlet extends HttpServlet {
       if (!firstTime && nextPageToken == null) {
         throw new NoSuchElementException();
       }
-      firstTime = false;
-
-      SearchVariantsRequest request = new SearchVariantsRequest()
-          .setDatasetId(datasetId)
-          .setContig(contig)
-          .setStartPosition((long) start)
-          .setEndPosition((long) end);
-
-      if (nextPageToken != null) {
-        request.setPageToken(nextPageToken);
-      }
 
+      Page page;
       try {
-        SearchVariantsResponse response = getService().variants().search(request).setKey(API_KEY).execute();
-        nextPageToken = response.getNextPageToken();
-        LOG.info("Got " + response.getVariants().size() + " variants");
-        return new VariantSimilarityInput(start, end, response.getVariants());
-
-      } catch (Exception e) {
+        page = pages.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
         throw new IOException(e);
       }
+      if (page.error != null) {
+        throw page.error;
+      }
+      firstTime = false;
+      nextPageToken = page.response.getNextPageToken();
+
+      List<Variant> variants = page.response.getVariants() == null
+          ? Collections.<Variant>emptyList() : page.response.getVariants();
+      LOG.info("Got " + variants.size() + " variants");
+      return new VariantSimilarityInput(start, end, variants);
     }
   }
 
-  private static class VariantSimilarityMapper extends Mapper<VariantSimilarityInput, String, Integer> {
+  /**
+   * Packs a pair of callset ordinals {@code i <= j} into one key.
+   */
+  private static long pairKey(int i, int j) {
+    return ((long) i << 32) | j;
+  }
+
+  /**
+   * Counts, for each pair of callsets, the variants they both carry. Each pair is counted once,
+   * under the key with the smaller ordinal first, and the counts are summed in the mapper and
+   * emitted at the end of each slice, or whenever there are more than {@code MAX_PAIRS} of them,
+   * rather than emitting a 1 for every pair of every variant.
+   */
+  private static class VariantSimilarityMapper extends Mapper<VariantSimilarityInput, Long, Integer> {
     private static final Logger LOG = Logger.getLogger(VariantSimilarityMapper.class.getName());
+    // The map keeps at least twice as many slots as pairs, at 12 bytes a slot, so this bounds it
+    // to about 12 MB, well within a mapper instance's heap.
+    private static final int MAX_PAIRS = 1 << 18;
+
+    private final List<String> callsetIds;
+
+    // Emitted before the mapper is serialized at the end of each slice, so they needn't be kept.
+    private transient int[] carriers;
+    private transient LongIntHashMap counts;
+    private transient Map<String, Integer> ordinals;
+
+    public VariantSimilarityMapper(List<String> callsetIds) {
+      this.callsetIds = callsetIds;
+    }
+
+    @Override
+    public void beginSlice() {
+      ordinals = Maps.newHashMap();
+      for (int i = 0; i < callsetIds.size(); i++) {
+        ordinals.put(callsetIds.get(i), i);
+      }
+      carriers = new int[callsetIds.size()];
+      counts = new LongIntHashMap();
+    }
 
     @Override
     public void map(VariantSimilarityInput input) {
       for (Variant variant : input.variants) {
-        List<String> samplesWithVariant = Lists.newArrayList();
+        // Variants overlapping the start of the range belong to the previous shard
+        if (variant.getPosition() < input.sequenceStart
+            || variant.getPosition() >= input.sequenceEnd) {
+          continue;
+        }
+        int count = 0;
         for (Call call : variant.getCalls()) {
-          String genotype = call.getInfo().get("GT").get(0); // TODO: Change to use real genotype field
-          genotype = genotype.replaceAll("[\\\\|0]", "");
-          if (!genotype.isEmpty()) {
-            samplesWithVariant.add(call.getCallsetId()); // TODO: Change to callsetName once available
+          // TODO: Change to callsetName once available
+          Integer ordinal = ordinals.get(call.getCallsetId());
+          if (ordinal != null && Genotypes.hasAlternate(call)) {
+            carriers[count++] = ordinal;
           }
         }
-        LOG.info("Variant " + variant.getId() + " has " + samplesWithVariant.size() + " actual calls");
+        LOG.fine("Variant " + variant.getId() + " has " + count + " actual calls");
 
-        for (String s1 : samplesWithVariant) {
-          for (String s2 : samplesWithVariant) {
-            // TODO: Output can be reduced by half if we only output when s1 < s2
-            emit(s1 + "-" + s2, 1);
+        Arrays.sort(carriers, 0, count);
+        for (int a = 0; a < count; a++) {
+          for (int b = a; b < count; b++) {
+            counts.add(pairKey(carriers[a], carriers[b]), 1);
           }
         }
+        if (counts.size() > MAX_PAIRS) {
+          flush();
+        }
+      }
+    }
+
+    @Override
+    public void endSlice() {
+      flush();
+    }
+
+    private void flush() {
+      for (int slot = counts.nextSlot(-1); slot != -1; slot = counts.nextSlot(slot)) {
+        emit(counts.keyAt(slot), counts.valueAt(slot));
       }
+      counts.clear();
     }
   }
 
-  private static class SummingReducer extends Reducer<String, Integer, String> {
+  /**
+   * Sums the counts for a pair of callsets, and writes them for both orders of the pair, in the
+   * format {@link PcaServlet} reads.
+   */
+  private static class SummingReducer extends Reducer<Long, Integer, String> {
+    private final List<String> callsetIds;
+
+    public SummingReducer(List<String> callsetIds) {
+      this.callsetIds = callsetIds;
+    }
+
     @Override
-    public void reduce(String key, ReducerInput<Integer> values) {
+    public void reduce(Long key, ReducerInput<Integer> values) {
       Integer sum = 0;
       while (values.hasNext()) {
         sum += values.next();
       }
 
-      String output = key + "-" + sum + ":";
-      emit(output);
+      String s1 = callsetIds.get((int) (key >>> 32));
+      String s2 = callsetIds.get((int) (key & 0xffffffffL));
+      emit(s1 + "-" + s2 + "-" + sum + ":");
+      if (!s1.equals(s2)) {
+        emit(s2 + "-" + s1 + "-" + sum + ":");
+      }
     }
   }
 }
\ No newline at end of file
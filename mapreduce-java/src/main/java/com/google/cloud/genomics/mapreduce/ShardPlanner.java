@@ -0,0 +1,167 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import com.google.api.services.genomics.Genomics;
+import com.google.api.services.genomics.model.SearchVariantsRequest;
+import com.google.api.services.genomics.model.SearchVariantsResponse;
+import com.google.api.services.genomics.model.Variant;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Splits a region into shards with about the same number of variants, rather than the same
+ * length, since variant density varies by orders of magnitude along a genome. The region is cut
+ * into windows, the density of each window is probed, and the shard boundaries are placed where
+ * the running total of expected variants crosses each shard's share, assuming variants are spread
+ * evenly within a window.
+ */
+public final class ShardPlanner {
+
+  private static final Logger LOG = Logger.getLogger(ShardPlanner.class.getName());
+
+  /**
+   * The number of windows probed per shard, up to {@code MAX_PROBES}.
+   */
+  private static final int PROBES_PER_SHARD = 4;
+  private static final int MAX_PROBES = 256;
+  private static final int PROBE_PAGE_SIZE = 64;
+
+  public interface Probe {
+
+    /**
+     * Returns about how many variants have a position in {@code [start, end)}.
+     */
+    double count(long start, long end) throws IOException;
+  }
+
+  /**
+   * Returns a probe that asks a Genomics API server for one page of {@code PROBE_PAGE_SIZE}
+   * variants. If the page is the last, its variants are counted; otherwise the density up to the
+   * last variant in the page is taken for the whole window.
+   */
+  public static Probe genomicsApiProbe(final Genomics genomics, final String apiKey,
+      final String datasetId, final String contig) {
+    return new Probe() {
+      @Override public double count(long start, long end) throws IOException {
+        Genomics.Variants.Search search = genomics.variants().search(new SearchVariantsRequest()
+            .setDatasetId(datasetId)
+            .setContig(contig)
+            .setStartPosition(start)
+            .setEndPosition(end)
+            .setMaxResults(BigInteger.valueOf(PROBE_PAGE_SIZE)));
+        SearchVariantsResponse response = (null == apiKey ? search : search.setKey(apiKey))
+            .execute();
+        if (null == response.getVariants()) {
+          return 0;
+        }
+        int count = 0;
+        long last = start;
+        for (Variant variant : response.getVariants()) {
+          long position = variant.getPosition();
+          if (start <= position && position < end) {
+            ++count;
+            last = Math.max(last, position);
+          }
+        }
+        return null == response.getNextPageToken()
+            ? count : count * (double) (end - start) / (last - start + 1);
+      }
+    };
+  }
+
+  /**
+   * Returns up to {@code shards} ranges covering {@code [start, end)}, probing the windows on
+   * {@code executor}. If nothing is found, the ranges are of equal length.
+   */
+  public static List<Range<Long>> plan(final Probe probe, long start, long end, int shards,
+      ExecutorService executor) throws IOException {
+    List<Range<Long>> ranges = Lists.newArrayList();
+    if (end <= start) {
+      return ranges;
+    }
+    long length = end - start;
+    int windows = (int) Math.min(length, Math.min(MAX_PROBES, PROBES_PER_SHARD * shards));
+    long[] bounds = new long[windows + 1];
+    for (int i = 0; i <= windows; ++i) {
+      bounds[i] = start + length * i / windows;
+    }
+    List<Future<Double>> futures = Lists.newArrayList();
+    for (int i = 0; i < windows; ++i) {
+      final long windowStart = bounds[i];
+      final long windowEnd = bounds[i + 1];
+      futures.add(executor.submit(new Callable<Double>() {
+        @Override public Double call() throws IOException {
+          return probe.count(windowStart, windowEnd);
+        }
+      }));
+    }
+    double[] counts = new double[windows];
+    double total = 0;
+    try {
+      for (int i = 0; i < windows; ++i) {
+        total += counts[i] = futures.get(i).get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+    LOG.info(String.format("Expecting %.0f variants in [%d, %d) from %d probes", total, start,
+        end, windows));
+    if (0 == total) {
+      for (int i = 0; i < windows; ++i) {
+        counts[i] = 1;
+      }
+      total = windows;
+    }
+    long rangeStart = start;
+    double cumulative = 0;
+    int window = 0;
+    for (int shard = 1; shard < shards; ++shard) {
+      double target = total * shard / shards;
+      while (window < windows && cumulative + counts[window] < target) {
+        cumulative += counts[window++];
+      }
+      if (window == windows) {
+        break;
+      }
+      // An empty window can only be reached when the target falls exactly at its start.
+      double fraction = 0 == counts[window] ? 0 : (target - cumulative) / counts[window];
+      long cut = bounds[window] + (long) ((bounds[window + 1] - bounds[window]) * fraction);
+      if (rangeStart < cut && cut < end) {
+        ranges.add(Range.closedOpen(rangeStart, cut));
+        rangeStart = cut;
+      }
+    }
+    ranges.add(Range.closedOpen(rangeStart, end));
+    return ranges;
+  }
+
+  private ShardPlanner() {}
+}
@@ -0,0 +1,154 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Counts shared variants into a {@link SimilarityMatrix} a batch at a time. Each callset's
+ * carriers in a batch of {@code BATCH_VARIANTS} variants are packed into a row of bits, so the
+ * count for a pair of callsets is the popcount of the AND of their rows, rather than one increment
+ * per pair per variant.
+ *
+ * <p>Only callsets carrying something in the batch take part; their rows are copied next to each
+ * other and compared a tile of {@code TILE_ROWS} rows against another, so both tiles stay in the
+ * L1 cache. Tiles of rows are counted in parallel on the pool, unless the kernel is flushed on one
+ * of the pool's own threads, where the caller is already parallel.
+ */
+public final class SimilarityKernel implements VariantSource.CarrierVisitor {
+
+  static final int BATCH_VARIANTS = 4096;
+
+  private static final int TILE_ROWS = 32;
+  private static final int WORDS = BATCH_VARIANTS / Long.SIZE;
+
+  private final class RowTiles extends RecursiveAction {
+
+    private final int from;
+    private final int to;
+
+    RowTiles(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override protected void compute() {
+      if (to - from <= TILE_ROWS) {
+        countTile(from, to);
+      } else {
+        int tiles = (to - from + TILE_ROWS - 1) / TILE_ROWS;
+        int middle = from + tiles / 2 * TILE_ROWS;
+        invokeAll(new RowTiles(from, middle), new RowTiles(middle, to));
+      }
+    }
+  }
+
+  private int active;
+  private final int[] activeCallsets;
+  private final long[] bits;
+  private final boolean[] isActive;
+  private final SimilarityMatrix matrix;
+  private long[] packed = new long[0];
+  private final ForkJoinPool pool;
+  private int variants;
+  private int words;
+
+  public SimilarityKernel(SimilarityMatrix matrix, ForkJoinPool pool) {
+    int callsets = matrix.getCallsets().size();
+    this.matrix = matrix;
+    this.pool = pool;
+    this.bits = new long[callsets * WORDS];
+    this.activeCallsets = new int[callsets];
+    this.isActive = new boolean[callsets];
+  }
+
+  @Override public void visit(int[] ordinals, int count) {
+    if (1 == count) {
+      matrix.increment(ordinals[0], ordinals[0], 1);
+      return;
+    }
+    if (0 == count) {
+      return;
+    }
+    int word = variants >>> 6;
+    long bit = 1L << variants;
+    for (int i = 0; i < count; ++i) {
+      int ordinal = ordinals[i];
+      if (!isActive[ordinal]) {
+        isActive[ordinal] = true;
+        activeCallsets[active++] = ordinal;
+      }
+      bits[ordinal * WORDS + word] |= bit;
+    }
+    if (BATCH_VARIANTS == ++variants) {
+      flush();
+    }
+  }
+
+  /**
+   * Counts the variants visited since the last flush.
+   */
+  public void flush() {
+    if (0 == variants) {
+      return;
+    }
+    words = (variants + Long.SIZE - 1) / Long.SIZE;
+    Arrays.sort(activeCallsets, 0, active);
+    if (packed.length < active * words) {
+      packed = new long[Math.max(active * words, 2 * packed.length)];
+    }
+    for (int i = 0; i < active; ++i) {
+      int row = activeCallsets[i] * WORDS;
+      System.arraycopy(bits, row, packed, i * words, words);
+      Arrays.fill(bits, row, row + words, 0);
+      isActive[activeCallsets[i]] = false;
+    }
+    if (null == pool || active <= TILE_ROWS || ForkJoinTask.inForkJoinPool()) {
+      countTile(0, active);
+    } else {
+      pool.invoke(new RowTiles(0, active));
+    }
+    active = 0;
+    variants = 0;
+  }
+
+  /**
+   * Counts the pairs of active callsets whose first callset is in {@code [from, to)}. The second
+   * callsets are taken a tile at a time, and every first callset is compared against the tile
+   * while it is in cache.
+   */
+  private void countTile(int from, int to) {
+    for (int tile = from; tile < active; tile += TILE_ROWS) {
+      int tileEnd = Math.min(active, tile + TILE_ROWS);
+      for (int i = from; i < to; ++i) {
+        int rowI = i * words;
+        for (int j = Math.max(i, tile); j < tileEnd; ++j) {
+          int rowJ = j * words;
+          int count = 0;
+          for (int w = 0; w < words; ++w) {
+            count += Long.bitCount(packed[rowI + w] & packed[rowJ + w]);
+          }
+          if (0 != count) {
+            matrix.increment(activeCallsets[i], activeCallsets[j], count);
+          }
+        }
+      }
+    }
+  }
+}
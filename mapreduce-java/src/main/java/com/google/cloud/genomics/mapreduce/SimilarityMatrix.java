@@ -0,0 +1,109 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts, for each pair of callsets, the variants they both carry. The matrix is symmetric, so
+ * only the upper triangle, diagonal included, is stored, row by row.
+ */
+public final class SimilarityMatrix implements VariantSource.CarrierVisitor {
+
+  private final List<String> callsets;
+  private final int[] counts;
+  private final int size;
+
+  public SimilarityMatrix(List<String> callsets) {
+    this.callsets = callsets;
+    this.size = callsets.size();
+    long triangle = (long) size * (size + 1) / 2;
+    if (Integer.MAX_VALUE < triangle) {
+      throw new IllegalArgumentException(
+          String.format("%d callsets are too many for one similarity matrix", size));
+    }
+    this.counts = new int[(int) triangle];
+  }
+
+  private int index(int i, int j) {
+    return (int) ((long) i * size - (long) i * (i - 1) / 2 + j - i);
+  }
+
+  public List<String> getCallsets() {
+    return callsets;
+  }
+
+  public int getCount(int i, int j) {
+    return i <= j ? counts[index(i, j)] : counts[index(j, i)];
+  }
+
+  /**
+   * Adds {@code count} to the pair {@code i <= j}.
+   */
+  void increment(int i, int j, int count) {
+    counts[index(i, j)] += count;
+  }
+
+  public void merge(SimilarityMatrix other) {
+    for (int i = 0; i < counts.length; ++i) {
+      counts[i] += other.counts[i];
+    }
+  }
+
+  @Override public boolean equals(Object obj) {
+    if (!(obj instanceof SimilarityMatrix)) {
+      return false;
+    }
+    SimilarityMatrix other = (SimilarityMatrix) obj;
+    return callsets.equals(other.callsets) && Arrays.equals(counts, other.counts);
+  }
+
+  @Override public int hashCode() {
+    return 31 * callsets.hashCode() + Arrays.hashCode(counts);
+  }
+
+  /**
+   * Counts each pair of carriers of one variant, as the MapReduce job's mapper does. This is
+   * quadratic in the number of carriers; {@link SimilarityKernel} counts the same in batches.
+   */
+  @Override public void visit(int[] ordinals, int count) {
+    Arrays.sort(ordinals, 0, count);
+    for (int a = 0; a < count; ++a) {
+      int row = index(ordinals[a], 0);
+      for (int b = a; b < count; ++b) {
+        ++counts[row + ordinals[b]];
+      }
+    }
+  }
+
+  /**
+   * Writes the matrix in the same format as the MapReduce job's reducer, {@code s1-s2-count:}
+   * for each ordered pair with a nonzero count, so that {@link PcaServlet} can read either.
+   */
+  public void write(Appendable out) throws IOException {
+    for (int i = 0; i < size; ++i) {
+      for (int j = 0; j < size; ++j) {
+        int count = getCount(i, j);
+        if (0 != count) {
+          out.append(callsets.get(i)).append('-').append(callsets.get(j)).append('-')
+              .append(Integer.toString(count)).append(':');
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Variants that can be read in independent shards, each variant given as the ordinals of the
+ * callsets that carry a non-reference allele.
+ */
+public interface VariantSource {
+
+  interface CarrierVisitor {
+
+    /**
+     * Visits one variant. {@code ordinals[0, count)} are its carriers' callset ordinals; the
+     * array is reused for the next variant.
+     */
+    void visit(int[] ordinals, int count);
+  }
+
+  interface Shard {
+
+    /**
+     * Reads the shard. While reading, a shard that still has much to read should ask the
+     * splitter whether threads are idle, and if they are, fork off the second half of what is
+     * left, so that one dense shard doesn't keep the others waiting.
+     */
+    void read(CarrierVisitor visitor, Splitter splitter) throws IOException;
+  }
+
+  interface Splitter {
+
+    /**
+     * Returns true if there are threads that could read a shard split off now.
+     */
+    boolean isHungry();
+
+    /**
+     * Schedules a shard split off from the one being read.
+     */
+    void fork(Shard shard);
+  }
+
+  /**
+   * Returns the callset keys, indexed by ordinal.
+   */
+  List<String> getCallsets() throws IOException;
+
+  /**
+   * Splits the variants into about {@code shards} shards, so that each variant is in exactly one.
+   */
+  List<Shard> split(int shards) throws IOException;
+}
@@ -0,0 +1,252 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import com.google.common.collect.Lists;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the variants of a local VCF file, optionally only those on one contig with a position in
+ * {@code [start, end)}. Callsets are keyed by sample name. An uncompressed file is split into byte
+ * ranges, each shard reading the lines that start in its range, and a shard halves what it has left
+ * to read when threads go idle; a gzipped one can only be read from the start, so it is a single
+ * shard.
+ */
+public final class VcfVariantSource implements VariantSource {
+
+  private static final int FIRST_SAMPLE_COLUMN = 9;
+  private static final int FORMAT_COLUMN = 8;
+  private static final long MIN_SPLIT_BYTES = 1 << 20;
+  private static final int SPLIT_CHECK_LINES = 256;
+
+  /**
+   * Reads lines of ASCII text from a stream, keeping track of the offset of each line.
+   */
+  private static final class LineReader {
+
+    private final byte[] buffer = new byte[1 << 16];
+    private final InputStream in;
+    private byte[] line = new byte[1024];
+    private int length;
+    private int limit;
+    private long offset;
+    private int position;
+
+    LineReader(InputStream in, long offset) {
+      this.in = in;
+      this.offset = offset;
+    }
+
+    /**
+     * Reads the next line without its terminator, and returns its offset, or -1 at the end of
+     * the stream.
+     */
+    long next() throws IOException {
+      long lineOffset = offset;
+      length = 0;
+      while (true) {
+        if (position == limit) {
+          limit = in.read(buffer);
+          position = 0;
+          if (-1 == limit) {
+            limit = 0;
+            return 0 == length ? -1 : lineOffset;
+          }
+        }
+        int newline = position;
+        while (newline < limit && '\n' != buffer[newline]) {
+          ++newline;
+        }
+        int count = newline - position;
+        if (line.length < length + count) {
+          line = Arrays.copyOf(line, Math.max(2 * line.length, length + count));
+        }
+        System.arraycopy(buffer, position, line, length, count);
+        length += count;
+        offset += count;
+        position = newline;
+        if (newline < limit) {
+          ++position;
+          ++offset;
+          return lineOffset;
+        }
+      }
+    }
+
+    String text() {
+      int end = 0 < length && '\r' == line[length - 1] ? length - 1 : length;
+      return new String(line, 0, end, StandardCharsets.ISO_8859_1);
+    }
+  }
+
+  private final List<String> callsets;
+  private final String contig;
+  private final long dataOffset;
+  private final long end;
+  private final File file;
+  private final boolean gzipped;
+  private final long start;
+
+  public VcfVariantSource(File file, String contig, long start, long end) throws IOException {
+    this.file = file;
+    this.contig = contig;
+    this.start = start;
+    this.end = end;
+    this.gzipped = file.getName().endsWith(".gz");
+    List<String> samples = Collections.emptyList();
+    long offset;
+    try (InputStream in = open(0)) {
+      LineReader reader = new LineReader(in, 0);
+      while (-1 != (offset = reader.next())) {
+        String line = reader.text();
+        if (!line.startsWith("#")) {
+          break;
+        }
+        if (line.startsWith("#CHROM")) {
+          String[] columns = line.split("\t");
+          samples = FIRST_SAMPLE_COLUMN < columns.length
+              ? Arrays.asList(columns).subList(FIRST_SAMPLE_COLUMN, columns.length)
+              : Collections.<String>emptyList();
+        }
+      }
+    }
+    this.dataOffset = -1 == offset ? file.length() : offset;
+    this.callsets = Collections.unmodifiableList(Lists.newArrayList(samples));
+  }
+
+  private InputStream open(long offset) throws IOException {
+    FileInputStream in = new FileInputStream(file);
+    try {
+      if (gzipped) {
+        return new GZIPInputStream(in, 1 << 16);
+      }
+      in.getChannel().position(offset);
+      return in;
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  @Override public List<String> getCallsets() {
+    return callsets;
+  }
+
+  @Override public List<Shard> split(int shards) {
+    List<Shard> list = Lists.newArrayList();
+    if (gzipped) {
+      list.add(new RangeShard(0, Long.MAX_VALUE));
+      return list;
+    }
+    long length = file.length() - dataOffset;
+    for (int i = 0; i < shards; ++i) {
+      long rangeStart = dataOffset + length * i / shards;
+      long rangeEnd = dataOffset + length * (i + 1) / shards;
+      if (rangeStart < rangeEnd) {
+        list.add(new RangeShard(rangeStart, rangeEnd));
+      }
+    }
+    return list;
+  }
+
+  private final class RangeShard implements Shard {
+
+    private long rangeEnd;
+    private final long rangeStart;
+
+    RangeShard(long rangeStart, long rangeEnd) {
+      this.rangeStart = rangeStart;
+      this.rangeEnd = rangeEnd;
+    }
+
+    @Override public void read(CarrierVisitor visitor, Splitter splitter) throws IOException {
+      int[] carriers = new int[callsets.size()];
+      // A line starts in the range if the byte before it, a newline, is at rangeStart - 1 or
+      // later, so start there and skip the line that rangeStart - 1 is part of.
+      boolean skip = !gzipped && 0 < rangeStart;
+      long from = skip ? rangeStart - 1 : 0;
+      try (InputStream in = open(from)) {
+        LineReader reader = new LineReader(in, from);
+        if (skip) {
+          reader.next();
+        }
+        int lines = 0;
+        for (long offset; -1 != (offset = reader.next()) && offset < rangeEnd;) {
+          if (!gzipped && 0 == ++lines % SPLIT_CHECK_LINES
+              && MIN_SPLIT_BYTES <= rangeEnd - offset && splitter.isHungry()) {
+            // Lines starting from the middle on are the new shard's.
+            long middle = offset + (rangeEnd - offset) / 2;
+            splitter.fork(new RangeShard(middle, rangeEnd));
+            rangeEnd = middle;
+          }
+          String line = reader.text();
+          if (!line.isEmpty() && '#' != line.charAt(0)) {
+            visitor.visit(carriers, parse(line, carriers));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Puts the ordinals of the samples carrying the record's alternate alleles in
+   * {@code carriers}, and returns how many there are, which is zero for records outside the
+   * region or without genotypes.
+   */
+  private int parse(String line, int[] carriers) {
+    int column = 0;
+    int columnStart = 0;
+    int count = 0;
+    for (int i = 0; i <= line.length(); ++i) {
+      if (i < line.length() && '\t' != line.charAt(i)) {
+        continue;
+      }
+      if (0 == column) {
+        if (null != contig && !contig.equals(line.substring(columnStart, i))) {
+          return 0;
+        }
+      } else if (1 == column) {
+        long position = Long.parseLong(line.substring(columnStart, i));
+        if (position < start || end <= position) {
+          return 0;
+        }
+      } else if (FORMAT_COLUMN == column) {
+        if (!line.startsWith("GT", columnStart)
+            || columnStart + 2 < i && ':' != line.charAt(columnStart + 2)) {
+          return 0;
+        }
+      } else if (FIRST_SAMPLE_COLUMN <= column
+          && Genotypes.hasAlternate(line, columnStart, i)) {
+        int ordinal = column - FIRST_SAMPLE_COLUMN;
+        if (ordinal < carriers.length) {
+          carriers[count++] = ordinal;
+        }
+      }
+      ++column;
+      columnStart = i + 1;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.api.services.genomics.model.Call;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class GenotypesTest {
+
+  private static boolean hasAlternate(String genotype) {
+    String line = "\t" + genotype + "\t";
+    return Genotypes.hasAlternate(line, 1, line.length() - 1);
+  }
+
+  @Test
+  public void testHasAlternateText() {
+    for (String genotype : Arrays.asList("0/1", "1/0", "1|1", "0|2", "1", "10/0", "0/1:35",
+        "./1", "0/0/1")) {
+      assertTrue(genotype, hasAlternate(genotype));
+    }
+    for (String genotype : Arrays.asList("0/0", "0|0", "0", "./.", ".", "", "0/0:35:1",
+        "0/.", "00/0")) {
+      assertFalse(genotype, hasAlternate(genotype));
+    }
+  }
+
+  @Test
+  public void testHasAlternateCall() {
+    assertTrue(Genotypes.hasAlternate(new Call().setGenotype(Arrays.asList(0L, 1L))));
+    assertFalse(Genotypes.hasAlternate(new Call().setGenotype(Arrays.asList(0L, 0L))));
+    assertFalse(Genotypes.hasAlternate(new Call().setGenotype(Arrays.asList(-1L, -1L))));
+    assertFalse(Genotypes.hasAlternate(new Call().setGenotype(Arrays.<Long>asList(null, 0L))));
+    // The genotype field wins over the GT info field.
+    assertFalse(Genotypes.hasAlternate(new Call()
+        .setGenotype(Arrays.asList(0L, 0L))
+        .setInfo(ImmutableMap.<String, List<String>>of("GT", ImmutableList.of("0/1")))));
+    assertTrue(Genotypes.hasAlternate(new Call()
+        .setInfo(ImmutableMap.<String, List<String>>of("GT", ImmutableList.of("0|1")))));
+    assertFalse(Genotypes.hasAlternate(new Call()
+        .setInfo(ImmutableMap.<String, List<String>>of("GT", ImmutableList.of("0|0")))));
+    assertFalse(Genotypes.hasAlternate(new Call()
+        .setInfo(ImmutableMap.<String, List<String>>of("DP", ImmutableList.of("12")))));
+    assertFalse(Genotypes.hasAlternate(new Call()));
+  }
+}
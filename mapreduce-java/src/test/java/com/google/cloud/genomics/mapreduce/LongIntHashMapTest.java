@@ -0,0 +1,94 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.Maps;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class LongIntHashMapTest {
+
+  private static Map<Long, Integer> toMap(LongIntHashMap map) {
+    Map<Long, Integer> entries = Maps.newHashMap();
+    for (int slot = map.nextSlot(-1); -1 != slot; slot = map.nextSlot(slot)) {
+      Integer previous = entries.put(map.keyAt(slot), map.valueAt(slot));
+      assertEquals(null, previous);
+    }
+    assertEquals(map.size(), entries.size());
+    return entries;
+  }
+
+  /**
+   * Adds random amounts to keys drawn from {@code keys} distinct values, which always include 0
+   * and the extremes, checking the sums against a {@link java.util.HashMap}.
+   */
+  private static void assertSums(LongIntHashMap map, int keys, int adds, Random random) {
+    long[] pool = new long[keys];
+    pool[0] = 0;
+    pool[1] = Long.MIN_VALUE;
+    pool[2] = Long.MAX_VALUE;
+    for (int i = 3; i < keys; ++i) {
+      pool[i] = random.nextLong();
+    }
+    Map<Long, Integer> expected = Maps.newHashMap();
+    for (int i = 0; i < adds; ++i) {
+      long key = pool[random.nextInt(keys)];
+      int amount = 1 + random.nextInt(100);
+      map.add(key, amount);
+      Integer sum = expected.get(key);
+      expected.put(key, null == sum ? amount : sum + amount);
+    }
+    assertEquals(expected, toMap(map));
+  }
+
+  @Test
+  public void testAddGrowsPastInitialCapacity() {
+    Random random = new Random(1);
+    assertSums(new LongIntHashMap(), 100000, 300000, random);
+  }
+
+  @Test
+  public void testKeyZero() {
+    LongIntHashMap map = new LongIntHashMap();
+    map.add(0, 3);
+    map.add(0, 4);
+    map.add(1, 1);
+    assertEquals(2, map.size());
+    assertEquals(Integer.valueOf(7), toMap(map).get(0L));
+  }
+
+  @Test
+  public void testClearReuse() {
+    Random random = new Random(2);
+    LongIntHashMap map = new LongIntHashMap();
+    assertSums(map, 5000, 20000, random);
+    map.clear();
+    assertEquals(0, map.size());
+    assertEquals(-1, map.nextSlot(-1));
+    for (int i = 0; i < 3; ++i) {
+      assertSums(map, 3 + random.nextInt(3000), 10000, random);
+      map.clear();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class ShardPlannerTest {
+
+  /**
+   * Counts exactly the variants in a window, given a density of {@code dense} variants per base
+   * in {@code [denseStart, denseEnd)} and {@code sparse} elsewhere, and counts its calls.
+   */
+  private static final class FakeProbe implements ShardPlanner.Probe {
+
+    final AtomicInteger calls = new AtomicInteger();
+    private final long denseStart;
+    private final long denseEnd;
+    private final double dense;
+    private final double sparse;
+
+    FakeProbe(long denseStart, long denseEnd, double dense, double sparse) {
+      this.denseStart = denseStart;
+      this.denseEnd = denseEnd;
+      this.dense = dense;
+      this.sparse = sparse;
+    }
+
+    double expected(long start, long end) {
+      long overlap = Math.max(0, Math.min(end, denseEnd) - Math.max(start, denseStart));
+      return dense * overlap + sparse * (end - start - overlap);
+    }
+
+    @Override public double count(long start, long end) {
+      calls.incrementAndGet();
+      return expected(start, end);
+    }
+  }
+
+  private static List<Range<Long>> plan(ShardPlanner.Probe probe, long start, long end,
+      int shards) throws IOException {
+    return ShardPlanner.plan(probe, start, end, shards, MoreExecutors.sameThreadExecutor());
+  }
+
+  /**
+   * Checks that the ranges are non-empty, contiguous and cover {@code [start, end)} exactly.
+   */
+  private static void assertCovers(List<Range<Long>> ranges, long start, long end) {
+    long next = start;
+    for (Range<Long> range : ranges) {
+      assertEquals(next, (long) range.lowerEndpoint());
+      assertTrue(range.lowerEndpoint() < range.upperEndpoint());
+      next = range.upperEndpoint();
+    }
+    assertEquals(end, next);
+  }
+
+  @Test
+  public void testBalancedByDensity() throws IOException {
+    FakeProbe probe = new FakeProbe(0, 1600, 10, 1);
+    List<Range<Long>> ranges = plan(probe, 0, 10000, 4);
+    assertCovers(ranges, 0, 10000);
+    assertEquals(4, ranges.size());
+    assertEquals(16, probe.calls.get());
+    double share = probe.expected(0, 10000) / 4;
+    for (Range<Long> range : ranges) {
+      assertEquals(share, probe.expected(range.lowerEndpoint(), range.upperEndpoint()), 1);
+    }
+  }
+
+  @Test
+  public void testEmptyWindows() throws IOException {
+    FakeProbe probe = new FakeProbe(0, 5000, 0, 1);
+    List<Range<Long>> ranges = plan(probe, 0, 10000, 4);
+    assertCovers(ranges, 0, 10000);
+    assertEquals(4, ranges.size());
+    assertEquals(6250, (long) ranges.get(0).upperEndpoint());
+    assertEquals(7500, (long) ranges.get(1).upperEndpoint());
+    assertEquals(8750, (long) ranges.get(2).upperEndpoint());
+  }
+
+  @Test
+  public void testNothingFound() throws IOException {
+    List<Range<Long>> ranges = plan(new FakeProbe(0, 0, 0, 0), 0, 10000, 4);
+    assertCovers(ranges, 0, 10000);
+    assertEquals(4, ranges.size());
+    for (Range<Long> range : ranges) {
+      assertEquals(2500, range.upperEndpoint() - range.lowerEndpoint());
+    }
+  }
+
+  @Test
+  public void testProbesCapped() throws IOException {
+    FakeProbe probe = new FakeProbe(0, 0, 0, 1);
+    List<Range<Long>> ranges = plan(probe, 1000, 1001000, 1000);
+    assertEquals(256, probe.calls.get());
+    assertCovers(ranges, 1000, 1001000);
+    assertEquals(1000, ranges.size());
+  }
+
+  @Test
+  public void testRangeShorterThanWindows() throws IOException {
+    FakeProbe probe = new FakeProbe(0, 0, 0, 1);
+    List<Range<Long>> ranges = plan(probe, 100, 105, 4);
+    assertEquals(5, probe.calls.get());
+    assertCovers(ranges, 100, 105);
+    assertTrue(ranges.size() <= 4);
+  }
+
+  @Test
+  public void testEmptyRange() throws IOException {
+    FakeProbe probe = new FakeProbe(0, 0, 0, 1);
+    assertTrue(plan(probe, 100, 100, 4).isEmpty());
+    assertEquals(0, probe.calls.get());
+  }
+}
@@ -0,0 +1,107 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.mapreduce;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+@RunWith(JUnit4.class)
+public class SimilarityKernelTest {
+
+  private static List<String> callsets(int count) {
+    List<String> callsets = Lists.newArrayList();
+    for (int i = 0; i < count; ++i) {
+      callsets.add("callset" + i);
+    }
+    return callsets;
+  }
+
+  /**
+   * Visits random variants with both the kernel and {@link SimilarityMatrix#visit}, and checks
+   * that they count the same. Some variants have no carriers or one, and the rest a random
+   * subset, of at most {@code maxCarriers} callsets, in random order.
+   */
+  private static void assertKernelCounts(int size, int maxCarriers, int variants,
+      ForkJoinPool pool, long seed) {
+    Random random = new Random(seed);
+    SimilarityMatrix expected = new SimilarityMatrix(callsets(size));
+    SimilarityMatrix actual = new SimilarityMatrix(callsets(size));
+    SimilarityKernel kernel = new SimilarityKernel(actual, pool);
+    int[] ordinals = new int[size];
+    for (int i = 0; i < size; ++i) {
+      ordinals[i] = i;
+    }
+    for (int variant = 0; variant < variants; ++variant) {
+      int count = random.nextInt(4) == 0 ? random.nextInt(2) : random.nextInt(maxCarriers + 1);
+      for (int i = 0; i < count; ++i) {
+        int j = i + random.nextInt(size - i);
+        int ordinal = ordinals[i];
+        ordinals[i] = ordinals[j];
+        ordinals[j] = ordinal;
+      }
+      expected.visit(ordinals.clone(), count);
+      kernel.visit(ordinals, count);
+    }
+    kernel.flush();
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testSerial() {
+    assertKernelCounts(10, 10, 100, null, 1);
+    assertKernelCounts(100, 20, 3 * SimilarityKernel.BATCH_VARIANTS + 17, null, 2);
+  }
+
+  @Test
+  public void testPooled() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertKernelCounts(200, 200, SimilarityKernel.BATCH_VARIANTS + 1, pool, 3);
+      assertKernelCounts(200, 5, 2 * SimilarityKernel.BATCH_VARIANTS, pool, 4);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testFlushWithoutVariants() {
+    SimilarityMatrix matrix = new SimilarityMatrix(callsets(3));
+    SimilarityKernel kernel = new SimilarityKernel(matrix, null);
+    kernel.flush();
+    kernel.visit(new int[] { 2, 0 }, 2);
+    kernel.flush();
+    kernel.flush();
+    assertEquals(1, matrix.getCount(0, 2));
+    assertEquals(1, matrix.getCount(2, 0));
+    assertEquals(1, matrix.getCount(2, 2));
+    assertEquals(0, matrix.getCount(1, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMatrixTooLarge() {
+    new SimilarityMatrix(Collections.nCopies(1 << 16, "callset"));
+  }
+}
@@ -0,0 +1,121 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.cloud.genomics.localrepo.dto.Read;
+import com.google.cloud.genomics.localrepo.dto.Readset;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
+import com.google.common.collect.ImmutableMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataTransferObjectBenchmark {
+
+  private static Read createRead() {
+    return Read.create("read1", "read1", "readset1", 99, "chr1", 10000, 60, "100M", "chr1", 10200,
+        300, "ACGT", null, "IIII", ImmutableMap.of("RG", "readgroup1", "NM", "0"));
+  }
+
+  private static Readset createReadset() {
+    return Readset.create("readset1", "sample1", "dataset1", 0L, Collections.singletonList(
+        Readset.FileData.create(
+            "file:///data/sample1.bam",
+            Collections.singletonList(Readset.FileData.Header.create("1.0", "coordinate")),
+            Arrays.asList(
+                Readset.FileData.RefSequence.create("chr1", 249250621, null, null, null, null),
+                Readset.FileData.RefSequence.create("chr2", 243199373, null, null, null, null)),
+            Collections.singletonList(Readset.FileData.ReadGroup.create(
+                "readgroup1", null, null, null, null, null, null, null, null, null, null,
+                "sample1")),
+            Collections.<Readset.FileData.Program>emptyList(),
+            Collections.<String>emptyList())));
+  }
+
+  private static SearchReadsRequest createSearchReadsRequest() {
+    return SearchReadsRequest.create(Collections.<String>emptyList(), Arrays.asList("readset1"),
+        "chr1", 10000L, 20000L, null, 0.5, null, true);
+  }
+
+  @Param({ "read", "readset", "searchReadsRequest" })
+  public String dto;
+
+  private Object lhs;
+  private ReflectiveHashCodeAndEquals<Object> reflective;
+  private Object rhs;
+
+  @SuppressWarnings("unchecked")
+  @Setup
+  public void setUp() {
+    Supplier<?> create;
+    switch (dto) {
+      case "read":
+        create = DataTransferObjectBenchmark::createRead;
+        break;
+      case "readset":
+        create = DataTransferObjectBenchmark::createReadset;
+        break;
+      case "searchReadsRequest":
+        create = DataTransferObjectBenchmark::createSearchReadsRequest;
+        break;
+      default:
+        throw new IllegalArgumentException(dto);
+    }
+    lhs = create.get();
+    rhs = create.get();
+    reflective = ReflectiveHashCodeAndEquals.create((Class<Object>) lhs.getClass());
+  }
+
+  @Benchmark
+  public boolean equals() {
+    return lhs.equals(rhs);
+  }
+
+  @Benchmark
+  public int hashCode() {
+    return lhs.hashCode();
+  }
+
+  @Benchmark
+  public boolean reflectiveEquals() {
+    return reflective.equals(lhs, rhs);
+  }
+
+  @Benchmark
+  public int reflectiveHashCode() {
+    return reflective.hashCode(lhs);
+  }
+}
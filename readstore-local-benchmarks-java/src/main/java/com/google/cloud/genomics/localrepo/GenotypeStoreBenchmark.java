@@ -0,0 +1,142 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import net.sf.samtools.util.BlockCompressedOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Scans every genotype of a {@link GenotypeStore} transcoded from a random VCF file, reading
+ * packed words straight from the memory-mapped chunks or copying them into the byte rows that
+ * {@code /genotypes/search} returns. Scores are genotypes per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GenotypeStoreBenchmark {
+
+  private static final String[] GENOTYPES = { "0/0", "0/1", "1/1", "./." };
+  private static final long LOW_BITS = 0x5555555555555555L;
+  private static final int SAMPLES = 1024;
+  private static final int VARIANTS = 1 << 14;
+
+  private Path directory;
+  private byte[] row;
+  private GenotypeStore store;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("GenotypeStoreBenchmark");
+    File vcfFile = directory.resolve("genotypes.vcf.gz").toFile();
+    SplittableRandom random = new SplittableRandom(0);
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(
+        new BlockCompressedOutputStream(vcfFile), StandardCharsets.UTF_8))) {
+      out.write("##fileformat=VCFv4.1\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT");
+      for (int sample = 0; sample < SAMPLES; ++sample) {
+        out.write("\tsample" + sample);
+      }
+      out.write("\n");
+      for (int variant = 0; variant < VARIANTS; ++variant) {
+        out.write(String.format("chr1\t%d\t.\tA\tG\t.\t.\t.\tGT", 10 * variant + 1));
+        for (int sample = 0; sample < SAMPLES; ++sample) {
+          out.write('\t');
+          out.write(GENOTYPES[random.nextInt(GENOTYPES.length)]);
+        }
+        out.write('\n');
+      }
+    }
+    store = GenotypeStore.open(vcfFile);
+    row = new byte[(VARIANTS + 3) / 4];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Counts alternate alleles over all calls, skipping missing ones, 32 genotypes at a time.
+   */
+  @Benchmark
+  @OperationsPerInvocation(SAMPLES * VARIANTS)
+  public long countAlternateAlleles() {
+    long alternates = 0;
+    for (int sample = 0; sample < SAMPLES; ++sample) {
+      for (int variant = 0; variant < VARIANTS; variant += 32) {
+        long word = store.getGenotypes(sample, variant);
+        long low = word & LOW_BITS;
+        long high = word >>> 1 & LOW_BITS;
+        long present = ~(low & high);
+        alternates += Long.bitCount(low & present) + 2 * Long.bitCount(high & present);
+      }
+    }
+    return alternates;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SAMPLES * VARIANTS)
+  public byte[] packRows() {
+    for (int sample = 0; sample < SAMPLES; ++sample) {
+      store.getGenotypes(sample, 0, VARIANTS, row, 0);
+    }
+    return row;
+  }
+
+  /**
+   * Copies rows starting at an unaligned variant, so that every word is stitched from two.
+   */
+  @Benchmark
+  @OperationsPerInvocation(SAMPLES * (VARIANTS - 1))
+  public byte[] packUnalignedRows() {
+    for (int sample = 0; sample < SAMPLES; ++sample) {
+      store.getGenotypes(sample, 1, VARIANTS - 1, row, 0);
+    }
+    return row;
+  }
+}
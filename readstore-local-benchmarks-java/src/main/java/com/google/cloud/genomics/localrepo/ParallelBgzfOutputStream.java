@@ -0,0 +1,166 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.common.base.Throwables;
+
+import net.sf.samtools.util.BlockCompressedStreamConstants;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A BGZF stream that deflates its blocks on an {@link ExecutorService} and writes them out in
+ * order, with at most {@code maxPendingBlocks} blocks in flight.
+ */
+final class ParallelBgzfOutputStream extends OutputStream {
+
+  private static final int BLOCK_SIZE =
+      BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE;
+
+  private static final int MAX_COMPRESSED_SIZE =
+      BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE
+      - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH
+      - BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+
+  private static final ThreadLocal<Deflater> DEFLATER =
+      ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+  private static byte[] compress(byte[] uncompressed, int length, int level) {
+    byte[] compressed = new byte[MAX_COMPRESSED_SIZE];
+    int compressedLength = deflate(uncompressed, length, level, compressed);
+    if (compressedLength < 0) {
+      compressedLength = deflate(uncompressed, length, Deflater.NO_COMPRESSION, compressed);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(uncompressed, 0, length);
+    int blockSize = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + compressedLength
+        + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+    return ByteBuffer.allocate(blockSize)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .put(BlockCompressedStreamConstants.GZIP_ID1)
+        .put((byte) BlockCompressedStreamConstants.GZIP_ID2)
+        .put(BlockCompressedStreamConstants.GZIP_CM_DEFLATE)
+        .put((byte) BlockCompressedStreamConstants.GZIP_FLG)
+        .putInt(0)
+        .put((byte) BlockCompressedStreamConstants.GZIP_XFL)
+        .put((byte) BlockCompressedStreamConstants.GZIP_OS_UNKNOWN)
+        .putShort(BlockCompressedStreamConstants.GZIP_XLEN)
+        .put(BlockCompressedStreamConstants.BGZF_ID1)
+        .put(BlockCompressedStreamConstants.BGZF_ID2)
+        .putShort(BlockCompressedStreamConstants.BGZF_LEN)
+        .putShort((short) (blockSize - 1))
+        .put(compressed, 0, compressedLength)
+        .putInt((int) crc.getValue())
+        .putInt(length)
+        .array();
+  }
+
+  /**
+   * Returns the length of the deflated block, or -1 if it doesn't fit in {@code compressed}.
+   */
+  private static int deflate(byte[] uncompressed, int length, int level, byte[] compressed) {
+    Deflater deflater = DEFLATER.get();
+    deflater.reset();
+    deflater.setLevel(level);
+    deflater.setInput(uncompressed, 0, length);
+    deflater.finish();
+    int compressedLength = 0;
+    while (!deflater.finished() && compressedLength < compressed.length) {
+      compressedLength +=
+          deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+    }
+    return deflater.finished() ? compressedLength : -1;
+  }
+
+  private byte[] buffer = new byte[BLOCK_SIZE];
+  private final ExecutorService executor;
+  private final int level;
+  private final int maxPendingBlocks;
+  private final OutputStream out;
+  private final Queue<Future<byte[]>> pending = new ArrayDeque<>();
+  private int position = 0;
+
+  ParallelBgzfOutputStream(
+      OutputStream out, ExecutorService executor, int level, int maxPendingBlocks) {
+    this.out = out;
+    this.executor = executor;
+    this.level = level;
+    this.maxPendingBlocks = maxPendingBlocks;
+  }
+
+  @Override public void close() throws IOException {
+    try {
+      submitBlock();
+      while (!pending.isEmpty()) {
+        writeBlock();
+      }
+      out.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+    } finally {
+      out.close();
+    }
+  }
+
+  private void submitBlock() throws IOException {
+    if (0 < position) {
+      byte[] block = buffer;
+      int length = position;
+      pending.add(executor.submit(() -> compress(block, length, level)));
+      buffer = new byte[BLOCK_SIZE];
+      position = 0;
+      while (maxPendingBlocks < pending.size()) {
+        writeBlock();
+      }
+    }
+  }
+
+  @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+    while (0 < length) {
+      int count = Math.min(length, BLOCK_SIZE - position);
+      System.arraycopy(bytes, offset, buffer, position, count);
+      position += count;
+      offset += count;
+      length -= count;
+      if (BLOCK_SIZE == position) {
+        submitBlock();
+      }
+    }
+  }
+
+  @Override public void write(int b) throws IOException {
+    write(new byte[] { (byte) b }, 0, 1);
+  }
+
+  private void writeBlock() throws IOException {
+    try {
+      out.write(pending.remove().get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+}
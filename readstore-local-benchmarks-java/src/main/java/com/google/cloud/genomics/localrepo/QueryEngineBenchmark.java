@@ -0,0 +1,144 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.cloud.genomics.localrepo.dto.SearchReadsBatchResponse;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsResponse;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+
+import net.sf.samtools.SAMSequenceRecord;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks a page of {@code /reads/search} over a {@link SyntheticDataset}, phase by phase: merging
+ * records into DTOs or a columnar batch, streaming them as JSON, serializing the DTOs, and
+ * round-tripping the page token.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryEngineBenchmark {
+
+  private static final int PAGE_SIZE = 256;
+  private static final int READ_LENGTH = 100;
+  private static final String SEQUENCE_NAME = "chr1";
+  private static final int SEQUENCE_LENGTH = 1 << 20;
+
+  @Param({ "10", "50" })
+  public int depth;
+
+  @Param({ "1", "4" })
+  public int files;
+
+  @Param({ "1", "4" })
+  public int samples;
+
+  private Path directory;
+  private final OutputStream out = ByteStreams.nullOutputStream();
+  private String pageToken;
+  private QueryEngine queryEngine;
+  private SearchReadsRequest request;
+  private SearchReadsResponse response;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("QueryEngineBenchmark");
+    DatasetDirectory dataset = SyntheticDataset.builder()
+        .setReferences(Collections.singletonList(
+            new SAMSequenceRecord(SEQUENCE_NAME, SEQUENCE_LENGTH)))
+        .setCoverage(depth)
+        .setReadLength(READ_LENGTH)
+        .setFiles(files)
+        .setSamples(samples)
+        .setSamplesPerFile(samples)
+        .build()
+        .write(directory)
+        .get(0);
+    queryEngine = QueryEngine.create(ImmutableMap.of(dataset.getDataset().getId(), dataset),
+        dataset.getReadsets(), PAGE_SIZE);
+    request = SearchReadsRequest.create(Collections.<String>emptyList(),
+        Collections.<String>emptyList(), SEQUENCE_NAME, (long) SEQUENCE_LENGTH / 2,
+        (long) SEQUENCE_LENGTH, null);
+    response = queryEngine.searchReads(request);
+    pageToken = response.getNextPageToken();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Benchmark
+  public String pageToken() {
+    return QueryEngine.QueryDescriptor.fromPageToken(pageToken).toString();
+  }
+
+  @Benchmark
+  public SearchReadsResponse searchReads() {
+    return queryEngine.searchReads(request);
+  }
+
+  @Benchmark
+  public SearchReadsBatchResponse searchReadsBatch() {
+    return queryEngine.searchReadsBatch(request);
+  }
+
+  @Benchmark
+  public void serializeSearchReadsResponse() throws IOException {
+    DataTransferObject.OBJECT_MAPPER.writeValue(out, response);
+  }
+
+  @Benchmark
+  public void writeSearchReads() throws IOException {
+    try (JsonGenerator generator = DataTransferObject.OBJECT_MAPPER.getJsonFactory()
+        .createJsonGenerator(out, JsonEncoding.UTF8)) {
+      queryEngine.writeSearchReads(request, generator);
+    }
+  }
+}
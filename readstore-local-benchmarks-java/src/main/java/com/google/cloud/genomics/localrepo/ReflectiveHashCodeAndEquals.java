@@ -0,0 +1,84 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+
+/**
+ * The bean-introspecting equals and hashCode that {@link DataTransferObject} used before it
+ * switched to method handles, kept as the benchmark baseline.
+ */
+final class ReflectiveHashCodeAndEquals<T> {
+
+  static <T> ReflectiveHashCodeAndEquals<T> create(Class<T> clazz) {
+    try {
+      ImmutableList.Builder<Method> accessors = ImmutableList.builder();
+      for (PropertyDescriptor descriptor :
+          Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+        accessors.add(descriptor.getReadMethod());
+      }
+      return new ReflectiveHashCodeAndEquals<>(clazz, accessors.build());
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static Object invoke(Method accessor, Object target) {
+    try {
+      return accessor.invoke(target);
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private final List<Method> accessors;
+  private final Class<T> clazz;
+
+  private ReflectiveHashCodeAndEquals(Class<T> clazz, List<Method> accessors) {
+    this.clazz = clazz;
+    this.accessors = accessors;
+  }
+
+  boolean equals(T lhs, Object rhs) {
+    if (null != rhs && clazz == rhs.getClass()) {
+      for (Method accessor : accessors) {
+        if (!Objects.deepEquals(invoke(accessor, lhs), invoke(accessor, rhs))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  int hashCode(T obj) {
+    Object[] values = new Object[accessors.size()];
+    for (
+        ListIterator<Method> iterator = accessors.listIterator();
+        iterator.hasNext();
+        values[iterator.nextIndex()] = invoke(iterator.next(), obj));
+    return Arrays.deepHashCode(values);
+  }
+}
@@ -0,0 +1,466 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.common.base.Throwables;
+
+import net.sf.samtools.BAMIndexer;
+import net.sf.samtools.BAMRecordCodec;
+import net.sf.samtools.SAMFileHeader;
+import net.sf.samtools.SAMFileReader;
+import net.sf.samtools.SAMReadGroupRecord;
+import net.sf.samtools.SAMRecord;
+import net.sf.samtools.SAMSequenceRecord;
+import net.sf.samtools.SAMTextHeaderCodec;
+import net.sf.samtools.util.BinaryCodec;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Generates dataset directories of coordinate-sorted, indexed BAM files full of random reads, for
+ * testing paging, merging and caching at scale. Files are written concurrently, and each file's
+ * BGZF blocks are deflated in parallel.
+ */
+public final class SyntheticDataset {
+
+  public static final class Builder {
+
+    private double coverage = 30;
+    private int compressionLevel = 5;
+    private int datasets = 1;
+    private double duplicateFraction = 0;
+    private int files = 1;
+    private int filesPerDirectory = 0;
+    private int readGroupsPerSample = 1;
+    private int readLength = 100;
+    private List<SAMSequenceRecord> references =
+        Collections.singletonList(new SAMSequenceRecord("chr1", 10000000));
+    private int samples = 1;
+    private int samplesPerFile = 1;
+    private long seed = 0;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double unmappedFraction = 0;
+
+    private Builder() {}
+
+    public SyntheticDataset build() {
+      if (samples < samplesPerFile) {
+        throw new IllegalArgumentException(String.format(
+            "%d samples per file but only %d samples", samplesPerFile, samples));
+      }
+      return new SyntheticDataset(this);
+    }
+
+    public Builder setCompressionLevel(int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+      return this;
+    }
+
+    /**
+     * Sets the mean depth of each sample in each file.
+     */
+    public Builder setCoverage(double coverage) {
+      this.coverage = coverage;
+      return this;
+    }
+
+    public Builder setDatasets(int datasets) {
+      this.datasets = datasets;
+      return this;
+    }
+
+    public Builder setDuplicateFraction(double duplicateFraction) {
+      this.duplicateFraction = duplicateFraction;
+      return this;
+    }
+
+    public Builder setFiles(int files) {
+      this.files = files;
+      return this;
+    }
+
+    /**
+     * Spreads each dataset's files over subdirectories of this many files, or keeps them in the
+     * dataset directory itself if zero.
+     */
+    public Builder setFilesPerDirectory(int filesPerDirectory) {
+      this.filesPerDirectory = filesPerDirectory;
+      return this;
+    }
+
+    public Builder setReadGroupsPerSample(int readGroupsPerSample) {
+      this.readGroupsPerSample = readGroupsPerSample;
+      return this;
+    }
+
+    public Builder setReadLength(int readLength) {
+      this.readLength = readLength;
+      return this;
+    }
+
+    public Builder setReferences(List<SAMSequenceRecord> references) {
+      this.references = references;
+      return this;
+    }
+
+    public Builder setSamples(int samples) {
+      this.samples = samples;
+      return this;
+    }
+
+    public Builder setSamplesPerFile(int samplesPerFile) {
+      this.samplesPerFile = samplesPerFile;
+      return this;
+    }
+
+    public Builder setSeed(long seed) {
+      this.seed = seed;
+      return this;
+    }
+
+    public Builder setThreads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    public Builder setUnmappedFraction(double unmappedFraction) {
+      this.unmappedFraction = unmappedFraction;
+      return this;
+    }
+  }
+
+  private static final byte[] BAM_MAGIC = { 'B', 'A', 'M', 1 };
+  private static final int MAX_PENDING_BLOCKS_PER_THREAD = 4;
+  private static final int POOL_SIZE = 1 << 20;
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static void main(String[] args) throws Exception {
+    Options options = new Options()
+        .addOption("o", "output", true, "The directory to write datasets to")
+        .addOption("r", "reference", true, "A reference sequence in <name>:<length> form")
+        .addOption("c", "coverage", true, "Mean depth of each sample in each file")
+        .addOption("l", "read-length", true, "Read length")
+        .addOption("s", "samples", true, "Samples per dataset")
+        .addOption(null, "samples-per-file", true, "Samples per BAM file")
+        .addOption(null, "read-groups-per-sample", true, "Read groups per sample in a file")
+        .addOption(null, "duplicate-fraction", true, "Fraction of reads flagged as duplicates")
+        .addOption(null, "unmapped-fraction", true, "Fraction of reads left unmapped")
+        .addOption("f", "files", true, "BAM files per dataset")
+        .addOption(null, "files-per-directory", true, "BAM files per subdirectory, 0 for flat")
+        .addOption("d", "datasets", true, "Number of datasets")
+        .addOption("t", "threads", true, "Threads for writing files and compressing blocks")
+        .addOption(null, "compression-level", true, "Deflate level of BGZF blocks")
+        .addOption(null, "seed", true, "Random seed");
+    CommandLine commandLine;
+    try {
+      commandLine = new GnuParser().parse(options, args);
+      if (!commandLine.hasOption("output")) {
+        throw new ParseException("Missing required option: output");
+      }
+    } catch (ParseException e) {
+      System.err.println(e.getMessage());
+      new HelpFormatter().printHelp("SyntheticDataset", options);
+      System.exit(1);
+      return;
+    }
+    Builder builder = builder();
+    if (commandLine.hasOption("reference")) {
+      builder.setReferences(Arrays.stream(commandLine.getOptionValues("reference"))
+          .map(reference -> {
+            int separator = reference.lastIndexOf(':');
+            return new SAMSequenceRecord(reference.substring(0, separator),
+                Integer.parseInt(reference.substring(separator + 1)));
+          })
+          .collect(Collectors.toList()));
+    }
+    if (commandLine.hasOption("coverage")) {
+      builder.setCoverage(Double.parseDouble(commandLine.getOptionValue("coverage")));
+    }
+    if (commandLine.hasOption("read-length")) {
+      builder.setReadLength(Integer.parseInt(commandLine.getOptionValue("read-length")));
+    }
+    if (commandLine.hasOption("samples-per-file")) {
+      builder.setSamplesPerFile(
+          Integer.parseInt(commandLine.getOptionValue("samples-per-file")));
+    }
+    builder.setSamples(Integer.parseInt(commandLine.getOptionValue(
+        "samples", Integer.toString(builder.samplesPerFile))));
+    if (commandLine.hasOption("read-groups-per-sample")) {
+      builder.setReadGroupsPerSample(
+          Integer.parseInt(commandLine.getOptionValue("read-groups-per-sample")));
+    }
+    if (commandLine.hasOption("duplicate-fraction")) {
+      builder.setDuplicateFraction(
+          Double.parseDouble(commandLine.getOptionValue("duplicate-fraction")));
+    }
+    if (commandLine.hasOption("unmapped-fraction")) {
+      builder.setUnmappedFraction(
+          Double.parseDouble(commandLine.getOptionValue("unmapped-fraction")));
+    }
+    if (commandLine.hasOption("files")) {
+      builder.setFiles(Integer.parseInt(commandLine.getOptionValue("files")));
+    }
+    if (commandLine.hasOption("files-per-directory")) {
+      builder.setFilesPerDirectory(
+          Integer.parseInt(commandLine.getOptionValue("files-per-directory")));
+    }
+    if (commandLine.hasOption("datasets")) {
+      builder.setDatasets(Integer.parseInt(commandLine.getOptionValue("datasets")));
+    }
+    if (commandLine.hasOption("threads")) {
+      builder.setThreads(Integer.parseInt(commandLine.getOptionValue("threads")));
+    }
+    if (commandLine.hasOption("compression-level")) {
+      builder.setCompressionLevel(
+          Integer.parseInt(commandLine.getOptionValue("compression-level")));
+    }
+    if (commandLine.hasOption("seed")) {
+      builder.setSeed(Long.parseLong(commandLine.getOptionValue("seed")));
+    }
+    for (DatasetDirectory dataset : builder.build().write(
+        Paths.get(commandLine.getOptionValue("output")))) {
+      System.out.printf("-d %s:%s%n", dataset.getDataset().getId(), dataset.getDirectory());
+    }
+  }
+
+  private static byte[] randomPool(SplittableRandom random, byte[] alphabet) {
+    byte[] pool = new byte[POOL_SIZE];
+    for (int i = 0; i < POOL_SIZE; ++i) {
+      pool[i] = alphabet[random.nextInt(alphabet.length)];
+    }
+    return pool;
+  }
+
+  private final byte[] bases;
+  private final int compressionLevel;
+  private final double coverage;
+  private final int datasets;
+  private final double duplicateFraction;
+  private final int files;
+  private final int filesPerDirectory;
+  private final byte[] qualities;
+  private final int readGroupsPerSample;
+  private final int readLength;
+  private final List<SAMSequenceRecord> references;
+  private final int samples;
+  private final int samplesPerFile;
+  private final long seed;
+  private final int threads;
+  private final double unmappedFraction;
+
+  private SyntheticDataset(Builder builder) {
+    this.compressionLevel = builder.compressionLevel;
+    this.coverage = builder.coverage;
+    this.datasets = builder.datasets;
+    this.duplicateFraction = builder.duplicateFraction;
+    this.files = builder.files;
+    this.filesPerDirectory = builder.filesPerDirectory;
+    this.readGroupsPerSample = builder.readGroupsPerSample;
+    this.readLength = builder.readLength;
+    this.references = builder.references;
+    this.samples = builder.samples;
+    this.samplesPerFile = builder.samplesPerFile;
+    this.seed = builder.seed;
+    this.threads = builder.threads;
+    this.unmappedFraction = builder.unmappedFraction;
+    SplittableRandom random = new SplittableRandom(seed);
+    byte[] qualityAlphabet = new byte[39];
+    for (int i = 0; i < qualityAlphabet.length; ++i) {
+      qualityAlphabet[i] = (byte) (2 + i);
+    }
+    this.bases = randomPool(random, new byte[] { 'A', 'C', 'G', 'T' });
+    this.qualities = randomPool(random, qualityAlphabet);
+  }
+
+  private SAMFileHeader createHeader(String datasetId, int fileIndex) {
+    SAMFileHeader header = new SAMFileHeader();
+    header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+    for (SAMSequenceRecord reference : references) {
+      header.addSequence(
+          new SAMSequenceRecord(reference.getSequenceName(), reference.getSequenceLength()));
+    }
+    for (int i = 0; i < samplesPerFile; ++i) {
+      int sample = (fileIndex * samplesPerFile + i) % samples;
+      for (int j = 0; j < readGroupsPerSample; ++j) {
+        SAMReadGroupRecord readGroup =
+            new SAMReadGroupRecord(String.format("readgroup%d.%d.%d", fileIndex, sample, j));
+        readGroup.setSample(String.format("%s.sample%d", datasetId, sample));
+        readGroup.setLibrary(String.format("%s.library%d", datasetId, sample));
+        readGroup.setPlatform("ILLUMINA");
+        header.addReadGroup(readGroup);
+      }
+    }
+    return header;
+  }
+
+  private SAMRecord createRecord(SAMFileHeader header, String readName, String readGroup,
+      SplittableRandom random) {
+    SAMRecord record = new SAMRecord(header);
+    int offset = random.nextInt(POOL_SIZE - readLength);
+    record.setReadName(readName);
+    record.setReadBases(Arrays.copyOfRange(bases, offset, offset + readLength));
+    record.setBaseQualities(Arrays.copyOfRange(qualities, offset, offset + readLength));
+    record.setAttribute("RG", readGroup);
+    return record;
+  }
+
+  /**
+   * Writes every dataset under {@code output}, one subdirectory per dataset.
+   */
+  public List<DatasetDirectory> write(Path output) throws IOException {
+    ExecutorService writers = Executors.newFixedThreadPool(threads);
+    ExecutorService compressors = Executors.newFixedThreadPool(threads);
+    try {
+      List<DatasetDirectory> datasetDirectories = new ArrayList<>();
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < datasets; ++i) {
+        String datasetId = String.format("synthetic%d", i);
+        Path directory = output.resolve(datasetId);
+        for (int j = 0; j < files; ++j) {
+          Path file = (0 < filesPerDirectory
+              ? directory.resolve(String.format("batch%03d", j / filesPerDirectory))
+              : directory).resolve(String.format("file%04d.bam", j));
+          int fileIndex = j;
+          long fileSeed = seed + (long) i * files + j;
+          futures.add(writers.submit(() -> {
+            writeBam(file, datasetId, fileIndex, new SplittableRandom(fileSeed), compressors);
+            return null;
+          }));
+        }
+        datasetDirectories.add(DatasetDirectory.create(datasetId, directory.toString()));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      return datasetDirectories;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      writers.shutdownNow();
+      compressors.shutdownNow();
+    }
+  }
+
+  private void writeBam(Path path, String datasetId, int fileIndex, SplittableRandom random,
+      ExecutorService compressors) throws IOException {
+    Files.createDirectories(path.getParent());
+    SAMFileHeader header = createHeader(datasetId, fileIndex);
+    List<String> readGroups = header.getReadGroups()
+        .stream()
+        .map(SAMReadGroupRecord::getId)
+        .collect(Collectors.toList());
+    long totalLength = references.stream().mapToLong(SAMSequenceRecord::getSequenceLength).sum();
+    long reads = (long) (coverage * samplesPerFile * totalLength / readLength);
+    String cigar = String.format("%dM", readLength);
+    String readNamePrefix = String.format("read%d.", fileIndex);
+    long readIndex = 0;
+    File file = path.toFile();
+    try (OutputStream out = new ParallelBgzfOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path)), compressors, compressionLevel,
+        MAX_PENDING_BLOCKS_PER_THREAD * threads)) {
+      BinaryCodec codec = new BinaryCodec(out);
+      StringWriter text = new StringWriter();
+      new SAMTextHeaderCodec().encode(text, header);
+      byte[] textBytes = text.toString().getBytes(StandardCharsets.UTF_8);
+      codec.writeBytes(BAM_MAGIC);
+      codec.writeInt(textBytes.length);
+      codec.writeBytes(textBytes);
+      codec.writeInt(references.size());
+      for (SAMSequenceRecord reference : references) {
+        codec.writeInt(reference.getSequenceName().length() + 1);
+        codec.writeString(reference.getSequenceName(), false, true);
+        codec.writeInt(reference.getSequenceLength());
+      }
+      BAMRecordCodec recordCodec = new BAMRecordCodec(header);
+      recordCodec.setOutputStream(out);
+      for (SAMSequenceRecord reference : references) {
+        int length = reference.getSequenceLength();
+        long mapped = (long) (reads * (1 - unmappedFraction) * length / totalLength);
+        double meanGap = Math.max(0, length - readLength) / (double) Math.max(1, mapped);
+        double position = 1;
+        SAMRecord previous = null;
+        for (long i = 0; i < mapped; ++i) {
+          SAMRecord record;
+          if (null != previous && random.nextDouble() < duplicateFraction) {
+            record = createRecord(header, readNamePrefix + readIndex++,
+                previous.getStringAttribute("RG"), random);
+            record.setReadBases(previous.getReadBases());
+            record.setDuplicateReadFlag(true);
+          } else {
+            record = createRecord(header, readNamePrefix + readIndex++,
+                readGroups.get(random.nextInt(readGroups.size())), random);
+            position += 2 * meanGap * random.nextDouble();
+          }
+          record.setReferenceName(reference.getSequenceName());
+          record.setAlignmentStart(Math.min((int) position, Math.max(1, length - readLength + 1)));
+          record.setMappingQuality(60);
+          record.setCigarString(cigar);
+          recordCodec.encode(record);
+          previous = record;
+        }
+      }
+      for (long i = (long) (reads * (1 - unmappedFraction)); i < reads; ++i) {
+        SAMRecord record = createRecord(header, readNamePrefix + readIndex++,
+            readGroups.get(random.nextInt(readGroups.size())), random);
+        record.setReadUnmappedFlag(true);
+        recordCodec.encode(record);
+      }
+    }
+    SAMFileReader reader = new SAMFileReader(file);
+    try {
+      reader.enableFileSource(true);
+      BAMIndexer indexer =
+          new BAMIndexer(new File(file.getPath() + ".bai"), reader.getFileHeader());
+      for (SAMRecord record : reader) {
+        indexer.processAlignment(record);
+      }
+      indexer.finish();
+    } finally {
+      reader.close();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.google.cloud.genomics.localrepo.dto.Readset;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsResponse;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsetsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsetsResponse;
+
+import net.sf.samtools.SAMSequenceRecord;
+
+import org.glassfish.jersey.jackson.JacksonFeature;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+
+@RunWith(JUnit4.class)
+public class SyntheticDatasetTest {
+
+  private static final String SEQUENCE_NAME = "chr1";
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testServeSeveralDatasets() throws IOException {
+    List<DatasetDirectory> datasets = SyntheticDataset.builder()
+        .setReferences(Collections.singletonList(new SAMSequenceRecord(SEQUENCE_NAME, 10000)))
+        .setDatasets(2)
+        .setFiles(2)
+        .setSamples(2)
+        .setCoverage(1)
+        .setThreads(2)
+        .build()
+        .write(folder.getRoot().toPath());
+    assertEquals(2, datasets.size());
+    Server server = Server.builder().setDatasets(datasets).build().start();
+    try {
+      WebTarget target = ClientBuilder.newBuilder()
+          .register(JacksonFeature.class)
+          .build()
+          .target(server.getURI());
+      List<Readset> readsets = target.path("/readsets/search")
+          .request()
+          .post(
+              Entity.json(SearchReadsetsRequest.create(Arrays.asList("synthetic0", "synthetic1"),
+                  null)),
+              SearchReadsetsResponse.class)
+          .getReadsets();
+      Set<String> names = readsets.stream().map(Readset::getName).collect(Collectors.toSet());
+      assertEquals(4, readsets.size());
+      assertEquals(4, names.size());
+      for (Readset readset : readsets) {
+        assertEquals(readset.getDatasetId(), readset.getName().split("\\.")[0]);
+        assertFalse(target.path("/reads/search")
+            .request()
+            .post(
+                Entity.json(SearchReadsRequest.create(null,
+                    Collections.singletonList(readset.getId()), SEQUENCE_NAME, null, null, null)),
+                SearchReadsResponse.class)
+            .getReads()
+            .isEmpty());
+      }
+    } finally {
+      server.stop();
+    }
+  }
+}
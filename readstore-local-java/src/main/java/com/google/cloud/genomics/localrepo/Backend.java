@@ -15,29 +15,190 @@ limitations under the License.
 */
 package com.google.cloud.genomics.localrepo;
 
+import com.google.cloud.genomics.localrepo.BamFile.IndexedBamFile;
+import com.google.cloud.genomics.localrepo.dto.CacheStats;
+import com.google.cloud.genomics.localrepo.dto.Callset;
 import com.google.cloud.genomics.localrepo.dto.Dataset;
-import com.google.cloud.genomics.localrepo.dto.Readset;
+import com.google.cloud.genomics.localrepo.dto.Read;
+import com.google.cloud.genomics.localrepo.dto.SearchCallsetsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchCallsetsResponse;
+import com.google.cloud.genomics.localrepo.dto.SearchGenotypesRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchGenotypesResponse;
 import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
-import com.google.cloud.genomics.localrepo.dto.SearchReadsResponse;
-import com.google.cloud.genomics.localrepo.util.Predicates;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsetsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchVariantsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchVariantsResponse;
+import com.google.cloud.genomics.localrepo.util.MetricRegistry;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public class Backend {
+import javax.xml.bind.DatatypeConverter;
+
+public class Backend implements AutoCloseable {
+
+  private interface ResponseWriter {
+
+    void write(JsonGenerator generator) throws IOException;
+  }
+
+  private static final class SearchKey {
+
+    private final boolean batch;
+    private final long catalogVersion;
+    private final Long downsampleCount;
+    private final Double downsampleFraction;
+    private final long end;
+    private final boolean includeMates;
+    private final String pageToken;
+    private final Set<String> readsetIds;
+    private final String sequenceName;
+    private final long start;
+
+    SearchKey(SearchReadsRequest request, Set<String> readsetIds, boolean batch,
+        long catalogVersion) {
+      this.readsetIds = readsetIds;
+      this.sequenceName = request.getSequenceName();
+      this.start = Optional.ofNullable(request.getSequenceStart()).orElse(0L);
+      this.end = Optional.ofNullable(request.getSequenceEnd()).orElse(0L);
+      this.downsampleFraction = request.getDownsampleFraction();
+      this.downsampleCount = request.getDownsampleCount();
+      this.includeMates = Boolean.TRUE.equals(request.getIncludeMates());
+      this.pageToken = request.getPageToken();
+      this.batch = batch;
+      this.catalogVersion = catalogVersion;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (null != obj && SearchKey.class == obj.getClass()) {
+        SearchKey rhs = (SearchKey) obj;
+        return Objects.equals(readsetIds, rhs.readsetIds)
+            && Objects.equals(sequenceName, rhs.sequenceName)
+            && start == rhs.start
+            && end == rhs.end
+            && Objects.equals(downsampleFraction, rhs.downsampleFraction)
+            && Objects.equals(downsampleCount, rhs.downsampleCount)
+            && includeMates == rhs.includeMates
+            && Objects.equals(pageToken, rhs.pageToken)
+            && batch == rhs.batch
+            && catalogVersion == rhs.catalogVersion;
+      }
+      return false;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(readsetIds, sequenceName, start, end, downsampleFraction,
+          downsampleCount, includeMates, pageToken, batch, catalogVersion);
+    }
+  }
+
+  private static final class SerializedReadsets {
+
+    final long catalogVersion;
+    final ConcurrentMap<String, SerializedEntity> readsets = new ConcurrentHashMap<>();
+    final ConcurrentMap<String, SerializedEntity> summaries = new ConcurrentHashMap<>();
+
+    SerializedReadsets(long catalogVersion) {
+      this.catalogVersion = catalogVersion;
+    }
+  }
+
+  private static final long CATALOG_REFRESH_SECONDS = 1;
+  private static final int MAX_CALLSETS_PAGE_SIZE = 1024;
+  private static final int MAX_READSETS_PAGE_SIZE = 1024;
+  private static final int SIDECAR_BUILD_THREADS = 2;
+
+  private static final MetricRegistry.Family<MetricRegistry.Counter> CACHE_REQUESTS =
+      MetricRegistry.counter("readstore_search_cache_requests_total",
+          "Read search lookups in the serialized response cache.", "result");
 
   public static Backend create(Collection<DatasetDirectory> datasets,
-      int pageSize) {
+      int pageSize, long cacheSize) {
     return new Backend(datasets.stream().collect(
         Collectors.toMap(((Function<Dataset, String>) Dataset::getId)
             .compose(DatasetDirectory::getDataset), Function.identity())),
-        union(datasets.stream().map(DatasetDirectory::getReadsets)), pageSize);
+        union(datasets.stream().map(DatasetDirectory::getReadsets)), pageSize, cacheSize);
+  }
+
+  /**
+   * Splits a readset or callset page token into the dataset ID and the key within the dataset
+   * that the page starts at.
+   */
+  private static Optional<String[]> parseCatalogPageToken(String pageToken) {
+    if (null == pageToken) {
+      return Optional.of(new String[] { "", "" });
+    }
+    try {
+      String start =
+          new String(DatatypeConverter.parseBase64Binary(pageToken), StandardCharsets.UTF_8);
+      int separator = start.indexOf(':');
+      return 0 < separator
+          ? Optional.of(new String[] { start.substring(0, separator),
+              start.substring(separator + 1) })
+          : Optional.empty();
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static String callsetsPageToken(VcfFilesCallset callset) {
+    return DatatypeConverter.printBase64Binary(
+        String.format("%s:%d", callset.getDatasetId(), callset.getOrdinal())
+            .getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String readsetsPageToken(BamFilesReadset readset) {
+    return DatatypeConverter.printBase64Binary(
+        String.format("%s:%s", readset.getDatasetId(), readset.getReadsetId())
+            .getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] serialize(ResponseWriter writer) {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (JsonGenerator generator = DataTransferObject.OBJECT_MAPPER.getJsonFactory()
+        .createJsonGenerator(buffer, JsonEncoding.UTF8)) {
+      writer.write(generator);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+    return buffer.toByteArray();
   }
 
   private static <X, Y> Map<X, Y> union(Stream<Map<X, Y>> maps) {
@@ -49,43 +210,235 @@ public class Backend {
     return union;
   }
 
+  private final Map<String, VcfFilesCallset> callsets;
+  private final ScheduledExecutorService catalogRefresher;
+  private volatile long catalogVersion;
   private final Map<String, DatasetDirectory> datasets;
+  private final NavigableMap<String, NavigableMap<String, BamFilesReadset>> readsetIndex;
   private final Map<String, BamFilesReadset> readsets;
   private final QueryEngine queryEngine;
+  private final Cache<SearchKey, byte[]> searchResponses;
+  private final AtomicReference<SerializedReadsets> serializedReadsets;
+  private final ExecutorService sidecarBuilder;
+  private final VariantEngine variantEngine;
 
   private Backend(
       final Map<String, DatasetDirectory> datasets,
       Map<String, BamFilesReadset> readsets,
-      int pageSize) {
+      int pageSize,
+      long cacheSize) {
     this.datasets = datasets;
     this.readsets = readsets;
+    this.readsetIndex = new TreeMap<>();
+    for (Map.Entry<String, DatasetDirectory> entry : datasets.entrySet()) {
+      readsetIndex.put(entry.getKey(), new TreeMap<>(entry.getValue().getReadsets()));
+    }
+    this.callsets = union(datasets.values().stream().map(DatasetDirectory::getCallsets));
     this.queryEngine = QueryEngine.create(datasets, readsets, pageSize);
+    this.variantEngine = VariantEngine.create(datasets, pageSize);
+    this.searchResponses = CacheBuilder.newBuilder()
+        .maximumWeight(cacheSize)
+        .weigher((SearchKey key, byte[] value) -> value.length)
+        .recordStats()
+        .build();
+    this.catalogVersion = computeCatalogVersion();
+    this.serializedReadsets = new AtomicReference<>(new SerializedReadsets(catalogVersion));
+    // Statting every BAM file takes a while on a large catalog, so it is done here rather than by
+    // whichever request finds the version out of date.
+    this.catalogRefresher = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("catalog-refresher-%d").build());
+    catalogRefresher.scheduleWithFixedDelay(() -> catalogVersion = computeCatalogVersion(),
+        CATALOG_REFRESH_SECONDS, CATALOG_REFRESH_SECONDS, TimeUnit.SECONDS);
+    // Sidecars are built in the background, so that the server can start before a large catalog
+    // is indexed, and by few threads, since each build reads a whole file.
+    this.sidecarBuilder = Executors.newFixedThreadPool(SIDECAR_BUILD_THREADS,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("sidecar-builder-%d").build());
+    queryEngine.loadReadNameIndexes(sidecarBuilder);
+    variantEngine.loadGenotypeStores(sidecarBuilder);
+  }
+
+  private byte[] cachedSearch(SearchReadsRequest request, boolean batch, ResponseWriter writer) {
+    try {
+      boolean[] miss = { false };
+      byte[] response = searchResponses.get(
+          new SearchKey(request, getReadsetIds(request), batch, catalogVersion),
+          () -> {
+            miss[0] = true;
+            return serialize(writer);
+          });
+      CACHE_REQUESTS.labels(miss[0] ? "miss" : "hit").increment();
+      return response;
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  @Override public void close() {
+    catalogRefresher.shutdownNow();
+    sidecarBuilder.shutdownNow();
+  }
+
+  private long computeCatalogVersion() {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    // Readsets in different datasets may hold their own instance of the same file, and each one
+    // memoizes its header and read name index, so every instance is refreshed.
+    List<IndexedBamFile> bamFiles = readsets.values()
+        .stream()
+        .flatMap(readset -> readset.getBamFiles().stream())
+        .collect(Collectors.toList());
+    bamFiles.forEach(BamFile::refresh);
+    bamFiles.stream()
+        .distinct()
+        .sorted(Comparator.comparing(BamFile::getFile))
+        .forEach(bamFile -> hasher
+            .putString(bamFile.getFile().getPath(), StandardCharsets.UTF_8)
+            .putLong(bamFile.getLastModified())
+            .putLong(bamFile.getLength()));
+    return hasher.hash().asLong();
+  }
+
+  public CacheStats getCacheStats() {
+    com.google.common.cache.CacheStats stats = searchResponses.stats();
+    return CacheStats.create(stats.hitCount(), stats.missCount(), stats.hitRate(),
+        stats.evictionCount(), searchResponses.size());
+  }
+
+  public Optional<Callset> getCallset(String callsetId) {
+    return Optional.ofNullable(callsets.get(callsetId)).map(VcfFilesCallset::getCallset);
   }
 
   public Optional<Dataset> getDataset(String datasetId) {
     return Optional.ofNullable(datasets.get(datasetId)).map(DatasetDirectory::getDataset);
   }
 
-  public Optional<Readset> getReadset(String readsetId) {
-    return Optional.ofNullable(readsets.get(readsetId)).map(BamFilesReadset::getReadset);
+  public Optional<Read> getMate(String readId) {
+    return queryEngine.getMate(readId);
+  }
+
+  public Optional<Read> getRead(String readId) {
+    return queryEngine.getRead(readId);
+  }
+
+  public Optional<SerializedEntity> getReadset(String readsetId) {
+    return Optional.ofNullable(readsets.get(readsetId)).map(serializeReadset(false));
+  }
+
+  private Set<String> getReadsetIds(SearchReadsRequest request) {
+    List<String> datasetIds = request.getDatasetIds();
+    List<String> readsetIds = request.getReadsetIds();
+    return readsetIds.isEmpty()
+        ? (datasetIds.isEmpty() ? datasets.keySet() : datasetIds).stream()
+            .flatMap(datasetId -> Optional.ofNullable(datasets.get(datasetId))
+                .map(dataset -> dataset.getReadsets().keySet().stream())
+                .orElse(Stream.empty()))
+            .collect(Collectors.toCollection(TreeSet::new))
+        : new TreeSet<>(readsetIds);
   }
 
   public Stream<Dataset> listDatasets() {
     return datasets.values().stream().map(DatasetDirectory::getDataset);
   }
 
-  public SearchReadsResponse searchReads(SearchReadsRequest request) {
-    return queryEngine.searchReads(request);
+  public Optional<SearchCallsetsResponse> searchCallsets(SearchCallsetsRequest request) {
+    Optional<String[]> start = parseCatalogPageToken(request.getPageToken());
+    if (!start.isPresent()) {
+      return Optional.empty();
+    }
+    String startDatasetId = start.get()[0];
+    int startOrdinal;
+    try {
+      startOrdinal = start.get()[1].isEmpty() ? 0 : Integer.parseInt(start.get()[1]);
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+    int maxResults = (int) Math.min(MAX_CALLSETS_PAGE_SIZE,
+        Optional.ofNullable(request.getMaxResults()).orElse((long) MAX_CALLSETS_PAGE_SIZE));
+    String name = request.getName();
+    Set<String> callsetNames = new HashSet<>(request.getCallsetNames());
+    List<VcfFilesCallset> page = (request.getDatasetIds().isEmpty()
+        ? new TreeSet<>(datasets.keySet())
+        : new TreeSet<>(request.getDatasetIds()))
+        .tailSet(startDatasetId, true)
+        .stream()
+        .filter(datasets::containsKey)
+        .flatMap(datasetId -> {
+          List<VcfFilesCallset> callsets = datasets.get(datasetId).getCallsetsByOrdinal();
+          return (datasetId.equals(startDatasetId)
+              ? callsets.subList(Math.min(startOrdinal, callsets.size()), callsets.size())
+              : callsets).stream();
+        })
+        .filter(callset -> null == name || callset.getSample().contains(name))
+        .filter(callset -> callsetNames.isEmpty() || callsetNames.contains(callset.getSample()))
+        .limit(maxResults + 1L)
+        .collect(Collectors.toList());
+    return Optional.of(SearchCallsetsResponse.create(
+        page.stream()
+            .limit(maxResults)
+            .map(VcfFilesCallset::getCallset)
+            .collect(Collectors.toList()),
+        maxResults < page.size() ? callsetsPageToken(page.get(maxResults)) : null));
+  }
+
+  public Optional<SearchGenotypesResponse> searchGenotypes(SearchGenotypesRequest request) {
+    return variantEngine.searchGenotypes(request);
+  }
+
+  public byte[] searchReads(SearchReadsRequest request) {
+    return cachedSearch(request, false,
+        generator -> queryEngine.writeSearchReads(request, generator));
   }
 
-  public Stream<Readset> searchReadsets(Collection<String> datasetIds) {
-    return readsets.values()
+  public byte[] searchReadsBatch(SearchReadsRequest request) {
+    return cachedSearch(request, true, generator -> DataTransferObject.OBJECT_MAPPER
+        .writeValue(generator, queryEngine.searchReadsBatch(request)));
+  }
+
+  public Optional<SerializedEntity> searchReadsets(SearchReadsetsRequest request) {
+    Optional<String[]> start = parseCatalogPageToken(request.getPageToken());
+    if (!start.isPresent()) {
+      return Optional.empty();
+    }
+    String startDatasetId = start.get()[0];
+    String startReadsetId = start.get()[1];
+    int maxResults = (int) Math.min(MAX_READSETS_PAGE_SIZE,
+        Optional.ofNullable(request.getMaxResults()).orElse((long) MAX_READSETS_PAGE_SIZE));
+    List<BamFilesReadset> page = (request.getDatasetIds().isEmpty()
+        ? readsetIndex.navigableKeySet()
+        : new TreeSet<>(request.getDatasetIds()))
+        .tailSet(startDatasetId, true)
         .stream()
-        .filter(datasetIds.isEmpty()
-            ? (readset) -> true
-            : Predicates.compose(
-                datasetId -> datasetIds.contains(datasetId),
-                BamFilesReadset::getDatasetId))
-        .map(BamFilesReadset::getReadset);
+        .filter(readsetIndex::containsKey)
+        .flatMap(datasetId -> (datasetId.equals(startDatasetId)
+            ? readsetIndex.get(datasetId).tailMap(startReadsetId, true)
+            : readsetIndex.get(datasetId)).values().stream())
+        .limit(maxResults + 1L)
+        .collect(Collectors.toList());
+    return Optional.of(SerializedEntity.join(
+        "{\"readsets\":[",
+        page.stream()
+            .limit(maxResults)
+            .map(serializeReadset(SearchReadsetsRequest.SUMMARY_VIEW.equals(request.getView())))
+            .collect(Collectors.toList()),
+        maxResults < page.size()
+            ? String.format("],\"nextPageToken\":\"%s\"}", readsetsPageToken(page.get(maxResults)))
+            : "]}"));
+  }
+
+  public Optional<SearchVariantsResponse> searchVariants(SearchVariantsRequest request) {
+    return variantEngine.searchVariants(request);
+  }
+
+  private Function<BamFilesReadset, SerializedEntity> serializeReadset(boolean summary) {
+    long version = catalogVersion;
+    SerializedReadsets current = serializedReadsets.get();
+    if (version != current.catalogVersion) {
+      SerializedReadsets next = new SerializedReadsets(version);
+      current = serializedReadsets.compareAndSet(current, next) ? next : serializedReadsets.get();
+    }
+    ConcurrentMap<String, SerializedEntity> entities =
+        summary ? current.summaries : current.readsets;
+    return readset -> entities.computeIfAbsent(readset.getReadsetId(),
+        readsetId -> SerializedEntity.serialize(
+            summary ? readset.getSummary() : readset.getReadset()));
   }
 }
@@ -16,18 +16,27 @@ limitations under the License.
 package com.google.cloud.genomics.localrepo;
 
 import com.google.cloud.genomics.localrepo.dto.Readset;
+import com.google.cloud.genomics.localrepo.util.MetricRegistry;
 import com.google.cloud.genomics.localrepo.util.Suppliers;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
 
+import net.sf.samtools.BAMIndex;
+import net.sf.samtools.BAMIndexMetaData;
 import net.sf.samtools.SAMFileHeader;
 import net.sf.samtools.SAMFileReader;
 import net.sf.samtools.SAMFileReader.ValidationStringency;
+import net.sf.samtools.SAMRecord;
 import net.sf.samtools.SAMSequenceRecord;
+import net.sf.samtools.seekablestream.SeekableFileStream;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -51,13 +60,103 @@ public class BamFile {
 
     private final File index;
 
+    private final Supplier<Map<String, Integer>> alignedRecordCounts = Suppliers.memoizeByKey(
+        this::getStamp,
+        () -> {
+          try (SAMFileReader reader = open()) {
+            BAMIndex bamIndex = reader.getIndex();
+            return reader.getFileHeader().getSequenceDictionary().getSequences().stream()
+                .collect(Collectors.toMap(SAMSequenceRecord::getSequenceName, record -> {
+                  BAMIndexMetaData metaData = bamIndex.getMetaData(record.getSequenceIndex());
+                  return null == metaData ? 0 : metaData.getAlignedRecordCount();
+                }));
+          }
+        });
+
+    private final Supplier<ReadNameIndex> readNameIndex = Suppliers.memoizeByKey(
+        this::getStamp, () -> ReadNameIndex.open(getFile(), getHeader()));
+
     private IndexedBamFile(File file, File index) {
       super(file);
       this.index = index;
     }
 
-    @Override SAMFileReader createReader() {
-      return new SAMFileReader(file, index);
+    List<SAMRecord> findRecords(String readName) {
+      return readNameIndex.get().find(readName);
+    }
+
+    void loadReadNameIndex() {
+      readNameIndex.get();
+    }
+
+    @Override SAMFileReader createReader() throws IOException {
+      return new SAMFileReader(new CountingSeekableFileStream(file), index, false);
+    }
+
+    double estimateRecordCount(String sequenceName, int start, int end) {
+      SAMSequenceRecord sequence = getHeader().getSequence(sequenceName);
+      if (null == sequence) {
+        return 0;
+      }
+      int length = sequence.getSequenceLength();
+      int windowEnd = 0 == end ? length : Math.min(end, length);
+      int windowStart = Math.max(start, 1);
+      return windowEnd < windowStart || 0 == length
+          ? 0
+          : alignedRecordCounts.get().getOrDefault(sequenceName, 0)
+              * (windowEnd - windowStart + 1) / (double) length;
+    }
+  }
+
+  /**
+   * A file's modification time and length, which together tell whether it has changed since the
+   * values derived from it were computed.
+   */
+  static final class Stamp {
+
+    private final long lastModified;
+    private final long length;
+
+    Stamp(File file) {
+      this.lastModified = file.lastModified();
+      this.length = file.length();
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj instanceof Stamp
+          && lastModified == ((Stamp) obj).lastModified
+          && length == ((Stamp) obj).length;
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash(lastModified, length);
+    }
+  }
+
+  private static final class CountingSeekableFileStream extends SeekableFileStream {
+
+    CountingSeekableFileStream(File file) throws IOException {
+      super(file);
+    }
+
+    @Override public int read() throws IOException {
+      int b = super.read();
+      if (0 <= b) {
+        BYTES_READ.increment();
+      }
+      return b;
+    }
+
+    @Override public int read(byte[] buffer) throws IOException {
+      return read(buffer, 0, buffer.length);
+    }
+
+    @Override public int read(byte[] buffer, int offset, int length) throws IOException {
+      int bytesRead = super.read(buffer, offset, length);
+      if (0 < bytesRead) {
+        BYTES_READ.add(bytesRead);
+      }
+      return bytesRead;
     }
   }
 
@@ -71,13 +170,22 @@ public class BamFile {
 
   private static final Logger LOGGER = Logger.getLogger(BamFile.class.getName());
 
+  private static final MetricRegistry.Counter BYTES_READ = MetricRegistry.counter(
+      "readstore_bam_read_bytes_total", "Compressed bytes read from BAM files.");
+
+  private static final MetricRegistry.Histogram OPEN_DURATION = MetricRegistry.timer(
+      "readstore_bam_open_duration_seconds", "Time taken to open a BAM file reader.");
+
   private static boolean isReadableFile(File file) {
     return file.isFile() && file.canRead();
   }
 
   final File file;
 
-  private final Supplier<SAMFileHeader> header = Suppliers.memoize(
+  private volatile Stamp stamp;
+
+  private final Supplier<SAMFileHeader> header = Suppliers.memoizeByKey(
+      this::getStamp,
       new Supplier<SAMFileHeader>() {
         @Override public SAMFileHeader get() {
           try (SAMFileReader reader = open()) {
@@ -86,7 +194,9 @@ public class BamFile {
         }
       });
 
-  private final Supplier<Readset.FileData> fileData = Suppliers.memoize(Suppliers.compose(
+  private final Supplier<Readset.FileData> fileData = Suppliers.memoizeByKey(
+      this::getStamp,
+      Suppliers.compose(
       new Function<SAMFileHeader, Readset.FileData>() {
         @Override public Readset.FileData apply(SAMFileHeader fileHeader) {
         return Readset.FileData.create(
@@ -128,10 +238,11 @@ public class BamFile {
 
   private BamFile(final File bamFile) {
     file = bamFile;
+    stamp = new Stamp(bamFile);
   }
 
-  SAMFileReader createReader() {
-    return new SAMFileReader(file);
+  SAMFileReader createReader() throws IOException {
+    return new SAMFileReader(new CountingSeekableFileStream(file), (File) null, false);
   }
 
   @Override public final boolean equals(Object obj) {
@@ -152,14 +263,47 @@ public class BamFile {
     return header.get();
   }
 
+  final long getLastModified() {
+    return stamp.lastModified;
+  }
+
+  final long getLength() {
+    return stamp.length;
+  }
+
+  final Stamp getStamp() {
+    return stamp;
+  }
+
   @Override public final int hashCode() {
     return getFile().hashCode();
   }
 
   final SAMFileReader open() {
-    SAMFileReader reader = createReader();
-    reader.setValidationStringency(ValidationStringency.SILENT);
-    return reader;
+    long start = System.nanoTime();
+    QueryEvents.OpenReader event = new QueryEvents.OpenReader();
+    event.begin();
+    try {
+      SAMFileReader reader = createReader();
+      reader.setValidationStringency(ValidationStringency.SILENT);
+      return reader;
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      OPEN_DURATION.recordSince(start);
+      event.commit(file);
+    }
+  }
+
+  /**
+   * Stats the file again, so that its header and the values derived from it are recomputed if it
+   * has changed. Returns whether it has.
+   */
+  final boolean refresh() {
+    Stamp current = new Stamp(file);
+    boolean changed = !current.equals(stamp);
+    stamp = current;
+    return changed;
   }
 
   @Override public final String toString() {
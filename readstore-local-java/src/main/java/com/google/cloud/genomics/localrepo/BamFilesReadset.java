@@ -48,6 +48,7 @@ public class BamFilesReadset {
   private final String readsetId;
   private final String sample;
   private final Supplier<Readset> readset;
+  private final Supplier<Readset> summary;
   private final Supplier<SAMFileHeader> header;
 
   private BamFilesReadset(String readsetId, String sample, String datasetId,
@@ -68,6 +69,8 @@ public class BamFilesReadset {
                 .collect(
                     Collectors.toCollection(() -> new ArrayList<>(new TreeSet<>(Comparator
                         .comparing(Readset.FileData::getFileUri)))))));
+    this.summary = Suppliers.memoize(() -> Readset.create(
+        getReadsetId(), getSample(), getDatasetId(), getReadset().getCreated(), null));
     this.header =
         Suppliers.memoize(() -> new SamFileHeaderMerger(SortOrder.coordinate, bamFiles.stream()
             .map(BamFile::getHeader).collect(Collectors.toList()), true).getMergedHeader());
@@ -104,6 +107,10 @@ public class BamFilesReadset {
     return sample;
   }
 
+  public Readset getSummary() {
+    return summary.get();
+  }
+
   @Override public int hashCode() {
     return Objects.hash(
         getReadsetId(),
@@ -15,10 +15,16 @@ limitations under the License.
 */
 package com.google.cloud.genomics.localrepo;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 class BaseResource {
 
@@ -29,6 +35,37 @@ class BaseResource {
     return optional.isPresent() ? Response.ok(optional.get()).build() : NOT_FOUND;
   }
 
+  /**
+   * Responds 304 Not Modified if {@code If-None-Match} names the entity or any encoding of it.
+   */
+  static Response toResponse(HttpHeaders headers, SerializedEntity entity) {
+    EntityTag entityTag = entity.getEntityTag();
+    String tag = entityTag.toString();
+    String encodedPrefix = String.format("\"%s-", entityTag.getValue());
+    List<String> ifNoneMatch = headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH);
+    Optional<String> match = null == ifNoneMatch ? Optional.empty() : ifNoneMatch.stream()
+        .flatMap(value -> Arrays.stream(value.split(",")))
+        .map(String::trim)
+        .map(value -> value.startsWith("W/") ? value.substring(2) : value)
+        .filter(value -> "*".equals(value) || tag.equals(value) || value.startsWith(encodedPrefix))
+        .findFirst();
+    return (match.isPresent()
+        ? Response.notModified(match.get().startsWith(encodedPrefix)
+            ? new EntityTag(match.get().substring(1, match.get().length() - 1))
+            : entityTag)
+        : Response.ok((StreamingOutput) entity::writeTo, MediaType.APPLICATION_JSON)
+            .tag(entityTag)).build();
+  }
+
+  static Response toResponse(HttpHeaders headers, Optional<SerializedEntity> entity) {
+    return toResponse(headers, entity, NOT_FOUND);
+  }
+
+  static Response toResponse(HttpHeaders headers, Optional<SerializedEntity> entity,
+      Response absent) {
+    return entity.isPresent() ? toResponse(headers, entity.get()) : absent;
+  }
+
   private static Response response(Response.Status status) {
     return Response.status(status).build();
   }
@@ -59,6 +59,22 @@ public class CommandLineArguments {
             default:
               throw new IllegalArgumentException("Flag 'port' can only appear once");
           }
+        }),
+
+    REQUEST_LOG(
+        'l',
+        "request-log",
+        "Log every request to this file for replaying, gzipped if it ends in .gz",
+        "^(.+)$",
+        results -> {
+          switch (results.size()) {
+            case 0:
+              return Optional.empty();
+            case 1:
+              return Optional.of(results.get(0).group(1));
+            default:
+              throw new IllegalArgumentException("Flag 'request-log' can only appear once");
+          }
         });
 
     private static final Supplier<Options> OPTIONS = Suppliers.memoize(() -> {
@@ -122,15 +138,19 @@ public class CommandLineArguments {
     CommandLine commandLine = Flag.parse(args);
     return new CommandLineArguments(
         (Optional<Integer>) Flag.PORT.getValue(commandLine),
-        (Map<String, String>) Flag.DATASET.getValue(commandLine));
+        (Map<String, String>) Flag.DATASET.getValue(commandLine),
+        (Optional<String>) Flag.REQUEST_LOG.getValue(commandLine));
   }
 
   private final Map<String, String> datasets;
   private final Optional<Integer> port;
+  private final Optional<String> requestLog;
 
-  private CommandLineArguments(Optional<Integer> port, Map<String, String> datasets) {
+  private CommandLineArguments(
+      Optional<Integer> port, Map<String, String> datasets, Optional<String> requestLog) {
     this.port = port;
     this.datasets = datasets;
+    this.requestLog = requestLog;
   }
 
   public Map<String, String> getDatasets() {
@@ -140,4 +160,8 @@ public class CommandLineArguments {
   public Optional<Integer> getPort() {
     return port;
   }
+
+  public Optional<String> getRequestLog() {
+    return requestLog;
+  }
 }
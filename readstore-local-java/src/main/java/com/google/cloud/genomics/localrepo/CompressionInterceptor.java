@@ -0,0 +1,173 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Encodes the responses of {@link Compress}-annotated resource methods with the
+ * {@link ResponseEncoder} the client prefers. The first {@link Compress#minSize} bytes are held
+ * back to decide whether encoding is worthwhile; after that the body streams straight through the
+ * encoder on the writing thread. An encoded response's {@code ETag} names its content coding, so
+ * that caches never take one encoding of an entity for another.
+ */
+@Compress
+@Priority(Priorities.ENTITY_CODER)
+final class CompressionInterceptor implements WriterInterceptor {
+
+  private final class EncodingOutputStream extends OutputStream {
+
+    private final WriterInterceptorContext context;
+    private final ResponseEncoder encoder;
+    private final Compress compress;
+    private final OutputStream raw;
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private OutputStream out;
+
+    EncodingOutputStream(
+        WriterInterceptorContext context, ResponseEncoder encoder, Compress compress) {
+      this.context = context;
+      this.encoder = encoder;
+      this.compress = compress;
+      this.raw = context.getOutputStream();
+    }
+
+    @Override public void close() throws IOException {
+      if (null == out) {
+        buffer.writeTo(out = raw);
+        buffer = null;
+      }
+      out.close();
+    }
+
+    @Override public void flush() throws IOException {
+      if (null != out) {
+        out.flush();
+      }
+    }
+
+    @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+      if (null == out) {
+        if (buffer.size() + length < compress.minSize()) {
+          buffer.write(bytes, offset, length);
+          return;
+        }
+        context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, encoder.getEncoding());
+        context.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+        Object entityTag = context.getHeaders().getFirst(HttpHeaders.ETAG);
+        if (entityTag instanceof EntityTag) {
+          context.getHeaders().putSingle(
+              HttpHeaders.ETAG, encodedEntityTag((EntityTag) entityTag, encoder));
+        }
+        buffer.writeTo(out = encoder.encode(raw, compress.level()));
+        buffer = null;
+      }
+      out.write(bytes, offset, length);
+    }
+
+    @Override public void write(int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+  }
+
+  /**
+   * Returns the tag of the representation of an entity encoded with {@code encoder}, which must
+   * differ from the tag of every other encoding of it, and of the identity encoding.
+   */
+  static EntityTag encodedEntityTag(EntityTag entityTag, ResponseEncoder encoder) {
+    return new EntityTag(
+        String.format("%s-%s", entityTag.getValue(), encoder.getEncoding()), entityTag.isWeak());
+  }
+
+  private static double quality(String coding) {
+    for (String parameter : coding.split(";")) {
+      parameter = parameter.trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          return Double.parseDouble(parameter.substring(2));
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  private final List<ResponseEncoder> encoders;
+  @Context private HttpHeaders headers;
+  @Context private ResourceInfo resourceInfo;
+
+  CompressionInterceptor(List<ResponseEncoder> encoders) {
+    this.encoders = encoders;
+  }
+
+  @Override public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+    context.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    Optional<ResponseEncoder> encoder = negotiate();
+    if (encoder.isPresent()) {
+      Compress compress = resourceInfo.getResourceMethod().getAnnotation(Compress.class);
+      context.setOutputStream(new EncodingOutputStream(context, encoder.get(), null == compress
+          ? resourceInfo.getResourceClass().getAnnotation(Compress.class)
+          : compress));
+    }
+    context.proceed();
+  }
+
+  private Optional<ResponseEncoder> negotiate() {
+    List<String> acceptEncoding = headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+    if (null == acceptEncoding) {
+      return Optional.empty();
+    }
+    Map<String, Double> qualities = new HashMap<>();
+    for (String value : acceptEncoding) {
+      for (String coding : value.split(",")) {
+        int separator = coding.indexOf(';');
+        qualities.put(
+            (0 > separator ? coding : coding.substring(0, separator))
+                .trim()
+                .toLowerCase(Locale.ROOT),
+            quality(coding));
+      }
+    }
+    ResponseEncoder preferred = null;
+    double preferredQuality = 0;
+    for (ResponseEncoder encoder : encoders) {
+      double quality = qualities.getOrDefault(
+          encoder.getEncoding(), qualities.getOrDefault("*", 0.0));
+      if (preferredQuality < quality) {
+        preferred = encoder;
+        preferredQuality = quality;
+      }
+    }
+    return Optional.ofNullable(preferred);
+  }
+}
@@ -26,58 +26,148 @@ import org.codehaus.jackson.map.ObjectWriter;
 import org.codehaus.jackson.map.annotate.JsonSerialize.Inclusion;
 import org.codehaus.jackson.map.module.SimpleModule;
 
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.io.IOException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Objects;
 
 public abstract class DataTransferObject {
 
-  protected static class ReflectiveHashCodeAndEquals<T extends DataTransferObject> {
+  protected static class HashCodeAndEquals<T extends DataTransferObject> {
 
-    public static <T extends DataTransferObject> ReflectiveHashCodeAndEquals<T> create(
+    private interface Property {
+
+      boolean equals(Object lhs, Object rhs) throws Throwable;
+
+      int hashCode(Object obj) throws Throwable;
+    }
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    public static <T extends DataTransferObject> HashCodeAndEquals<T> create(
         Class<T> clazz) {
       try {
-        ImmutableList.Builder<Method> accessors = ImmutableList.builder();
-        for (PropertyDescriptor descriptor :
-            Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
-          accessors.add(descriptor.getReadMethod());
+        ImmutableList.Builder<Property> properties = ImmutableList.builder();
+        for (Class<?> c = clazz; DataTransferObject.class != c; c = c.getSuperclass()) {
+          for (Field field : c.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+              field.setAccessible(true);
+              properties.add(property(LOOKUP.unreflectGetter(field)));
+            }
+          }
         }
-        return new ReflectiveHashCodeAndEquals<>(clazz, accessors.build());
+        return new HashCodeAndEquals<>(clazz, properties.build());
       } catch (Exception e) {
         throw Throwables.propagate(e);
       }
     }
 
-    private static Object invoke(Method accessor, Object target) {
-      try {
-        return accessor.invoke(target);
-      } catch (Exception e) {
-        throw Throwables.propagate(e);
+    private static int deepHashCode(Object value) {
+      return null == value
+          ? 0
+          : value.getClass().isArray()
+              ? Arrays.deepHashCode(new Object[] { value })
+              : value.hashCode();
+    }
+
+    private static Property property(MethodHandle getter) {
+      Class<?> type = getter.type().returnType();
+      if (boolean.class == type) {
+        MethodHandle handle = getter.asType(MethodType.methodType(boolean.class, Object.class));
+        return new Property() {
+
+          @Override public boolean equals(Object lhs, Object rhs) throws Throwable {
+            return (boolean) handle.invokeExact(lhs) == (boolean) handle.invokeExact(rhs);
+          }
+
+          @Override public int hashCode(Object obj) throws Throwable {
+            return Boolean.hashCode((boolean) handle.invokeExact(obj));
+          }
+        };
+      }
+      if (long.class == type) {
+        MethodHandle handle = getter.asType(MethodType.methodType(long.class, Object.class));
+        return new Property() {
+
+          @Override public boolean equals(Object lhs, Object rhs) throws Throwable {
+            return (long) handle.invokeExact(lhs) == (long) handle.invokeExact(rhs);
+          }
+
+          @Override public int hashCode(Object obj) throws Throwable {
+            return Long.hashCode((long) handle.invokeExact(obj));
+          }
+        };
       }
+      if (double.class == type || float.class == type) {
+        MethodHandle handle = getter.asType(MethodType.methodType(double.class, Object.class));
+        return new Property() {
+
+          @Override public boolean equals(Object lhs, Object rhs) throws Throwable {
+            return Double.doubleToLongBits((double) handle.invokeExact(lhs))
+                == Double.doubleToLongBits((double) handle.invokeExact(rhs));
+          }
+
+          @Override public int hashCode(Object obj) throws Throwable {
+            return Double.hashCode((double) handle.invokeExact(obj));
+          }
+        };
+      }
+      if (type.isPrimitive()) {
+        MethodHandle handle = getter.asType(MethodType.methodType(int.class, Object.class));
+        return new Property() {
+
+          @Override public boolean equals(Object lhs, Object rhs) throws Throwable {
+            return (int) handle.invokeExact(lhs) == (int) handle.invokeExact(rhs);
+          }
+
+          @Override public int hashCode(Object obj) throws Throwable {
+            return (int) handle.invokeExact(obj);
+          }
+        };
+      }
+      MethodHandle handle = getter.asType(MethodType.methodType(Object.class, Object.class));
+      return new Property() {
+
+        @Override public boolean equals(Object lhs, Object rhs) throws Throwable {
+          return Objects.deepEquals(handle.invokeExact(lhs), handle.invokeExact(rhs));
+        }
+
+        @Override public int hashCode(Object obj) throws Throwable {
+          return deepHashCode(handle.invokeExact(obj));
+        }
+      };
     }
 
-    private final List<Method> accessors;
     private final Class<T> clazz;
+    private final List<Property> properties;
 
-    private ReflectiveHashCodeAndEquals(Class<T> clazz, List<Method> accessors) {
+    private HashCodeAndEquals(Class<T> clazz, List<Property> properties) {
       this.clazz = clazz;
-      this.accessors = accessors;
+      this.properties = properties;
     }
 
     public boolean equals(T lhs, Object rhs) {
+      if (lhs == rhs) {
+        return true;
+      }
       if (null != rhs && clazz == rhs.getClass()) {
-        for (Method accessor : accessors) {
-          if (!Objects.equals(invoke(accessor, lhs), invoke(accessor, rhs))) {
-            return false;
+        try {
+          for (Property property : properties) {
+            if (!property.equals(lhs, rhs)) {
+              return false;
+            }
           }
+        } catch (Throwable e) {
+          throw Throwables.propagate(e);
         }
         return true;
       }
@@ -85,12 +175,15 @@ public abstract class DataTransferObject {
     }
 
     public int hashCode(T obj) {
-      Object[] values = new Object[accessors.size()];
-      for (
-          ListIterator<Method> iterator = accessors.listIterator();
-          iterator.hasNext();
-          values[iterator.nextIndex()] = invoke(iterator.next(), obj));
-      return Objects.hash(values);
+      int hashCode = 1;
+      try {
+        for (Property property : properties) {
+          hashCode = 31 * hashCode + property.hashCode(obj);
+        }
+      } catch (Throwable e) {
+        throw Throwables.propagate(e);
+      }
+      return hashCode;
     }
   }
 
@@ -18,6 +18,7 @@ package com.google.cloud.genomics.localrepo;
 import com.google.cloud.genomics.localrepo.BamFile.IndexedBamFile;
 import com.google.cloud.genomics.localrepo.dto.Dataset;
 import com.google.cloud.genomics.localrepo.dto.Readset;
+import com.google.cloud.genomics.localrepo.util.MetricRegistry;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
@@ -25,6 +26,8 @@ import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 
@@ -35,11 +38,17 @@ import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -89,6 +98,15 @@ public class DatasetDirectory {
 
   private static final FileSystem FILE_SYSTEM = FileSystems.getDefault();
 
+  private static final MetricRegistry.Histogram CATALOG_DURATION = MetricRegistry.timer(
+      "readstore_catalog_build_duration_seconds", "Time taken to scan a dataset directory.");
+
+  private static final MetricRegistry.Counter CATALOG_READSETS = MetricRegistry.counter(
+      "readstore_catalog_readsets_total", "Readsets found by dataset directory scans.");
+
+  private static final MetricRegistry.Counter CATALOG_CALLSETS = MetricRegistry.counter(
+      "readstore_catalog_callsets_total", "Callsets found by dataset directory scans.");
+
   private static final Supplier<String> READSET_ID_GENERATOR =
       new Supplier<String>() {
 
@@ -99,6 +117,16 @@ public class DatasetDirectory {
         }
       };
 
+  private static final Supplier<String> CALLSET_ID_GENERATOR =
+      new Supplier<String>() {
+
+        private final AtomicLong callsetId = new AtomicLong(0);
+
+        @Override public String get() {
+          return Long.toString(callsetId.incrementAndGet());
+        }
+      };
+
   private static <X, Y> Function<X, Iterable<Y>> applyAsSet(
       Function<X, Optional<Y>> function) {
     return input -> function.apply(input).asSet();
@@ -166,20 +194,12 @@ public class DatasetDirectory {
   private final Supplier<Map<String, BamFilesReadset>> readsets = Suppliers.memoize(
       new Supplier<Map<String, BamFilesReadset>>() {
         @Override public Map<String, BamFilesReadset> get() {
-          return FluentIterable
+          long start = System.nanoTime();
+          Map<String, BamFilesReadset> readsets = FluentIterable
               .from(Maps
                   .transformEntries(
                       Maps.transformValues(
-                          FluentIterable.from(Collections.singletonList(getDirectory()))
-                              .transformAndConcat(dfs(path -> {
-                                try {
-                                  return Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) ? Files.newDirectoryStream(path)
-                                      : Collections.<Path>emptyList();
-                                } catch (Exception e) {
-                                  throw Throwables.propagate(e);
-                                }
-                              }))
-                              .transform(path -> path.toFile())
+                          files()
                               .transformAndConcat(CREATE_BAM_FILE)
                               .transformAndConcat(CREATE_INDEXED_BAM_FILE)
                               .transformAndConcat(CREATE_READ_GROUP_INFOS)
@@ -189,6 +209,65 @@ public class DatasetDirectory {
                       createReadset)
                   .values())
               .uniqueIndex(BamFilesReadset::getReadsetId);
+          CATALOG_DURATION.recordSince(start);
+          CATALOG_READSETS.add(readsets.size());
+          return readsets;
+        }
+      });
+
+  private final Supplier<List<VcfFile>> vcfFiles = Suppliers.memoize(
+      new Supplier<List<VcfFile>>() {
+        @Override public List<VcfFile> get() {
+          return files()
+              .transformAndConcat(applyAsSet(VcfFile::create))
+              .toSortedList(Comparator.comparing(VcfFile::getFile));
+        }
+      });
+
+  private final Supplier<Map<String, VcfFilesCallset>> callsets = Suppliers.memoize(
+      new Supplier<Map<String, VcfFilesCallset>>() {
+        @Override public Map<String, VcfFilesCallset> get() {
+          long start = System.nanoTime();
+          SortedMap<String, Set<VcfFile>> samples = new TreeMap<>();
+          for (VcfFile vcfFile : getVcfFiles()) {
+            for (String sample : vcfFile.getSamples()) {
+              samples.computeIfAbsent(sample, key -> new LinkedHashSet<>()).add(vcfFile);
+            }
+          }
+          ImmutableMap.Builder<String, VcfFilesCallset> builder = ImmutableMap.builder();
+          int ordinal = 0;
+          for (Map.Entry<String, Set<VcfFile>> entry : samples.entrySet()) {
+            VcfFilesCallset callset = VcfFilesCallset.create(CALLSET_ID_GENERATOR.get(),
+                ordinal++, entry.getKey(), getDataset().getId(), entry.getValue());
+            builder.put(callset.getCallsetId(), callset);
+          }
+          Map<String, VcfFilesCallset> callsets = builder.build();
+          CATALOG_DURATION.recordSince(start);
+          CATALOG_CALLSETS.add(callsets.size());
+          return callsets;
+        }
+      });
+
+  private final Supplier<List<VcfFilesCallset>> callsetsByOrdinal = Suppliers.memoize(
+      new Supplier<List<VcfFilesCallset>>() {
+        @Override public List<VcfFilesCallset> get() {
+          return ImmutableList.copyOf(getCallsets().values());
+        }
+      });
+
+  private final Supplier<Map<VcfFile, int[]>> columnOrdinals = Suppliers.memoize(
+      new Supplier<Map<VcfFile, int[]>>() {
+        @Override public Map<VcfFile, int[]> get() {
+          Map<String, Integer> ordinals = new HashMap<>();
+          for (VcfFilesCallset callset : getCallsets().values()) {
+            ordinals.put(callset.getSample(), callset.getOrdinal());
+          }
+          Map<VcfFile, int[]> columnOrdinals = new HashMap<>();
+          for (VcfFile vcfFile : getVcfFiles()) {
+            columnOrdinals.put(vcfFile,
+                vcfFile.getSamples().stream().mapToInt(ordinals::get).toArray());
+          }
+          return columnOrdinals;
         }
       });
 
@@ -206,6 +285,40 @@ public class DatasetDirectory {
     return false;
   }
 
+  /**
+   * Returns every regular file under the directory, without following symbolic links.
+   */
+  private FluentIterable<File> files() {
+    return FluentIterable.from(Collections.singletonList(getDirectory()))
+        .transformAndConcat(dfs(path -> {
+          try {
+            return Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) ? Files.newDirectoryStream(path)
+                : Collections.<Path>emptyList();
+          } catch (Exception e) {
+            throw Throwables.propagate(e);
+          }
+        }))
+        .transform(path -> path.toFile());
+  }
+
+  public Map<String, VcfFilesCallset> getCallsets() {
+    return callsets.get();
+  }
+
+  /**
+   * Returns the callsets in ordinal order, so that a callset's ordinal is its index.
+   */
+  public List<VcfFilesCallset> getCallsetsByOrdinal() {
+    return callsetsByOrdinal.get();
+  }
+
+  /**
+   * Returns, for each sample column of a VCF file, the ordinal of its callset.
+   */
+  public int[] getColumnOrdinals(VcfFile vcfFile) {
+    return columnOrdinals.get().get(vcfFile);
+  }
+
   public Dataset getDataset() {
     return dataset;
   }
@@ -218,6 +331,13 @@ public class DatasetDirectory {
     return readsets.get();
   }
 
+  /**
+   * Returns the tabix-indexed VCF files under the directory, ordered by path.
+   */
+  public List<VcfFile> getVcfFiles() {
+    return vcfFiles.get();
+  }
+
   @Override public int hashCode() {
     return Objects.hash(getDataset(), getDirectory());
   }
@@ -0,0 +1,425 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.common.base.Throwables;
+
+import net.sf.samtools.util.BlockCompressedInputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A {@code <vcf>.gts} sidecar holding a VCF file's genotypes in columns, for scans that need
+ * nothing else. Variants are numbered in file order; each contig's variants are a contiguous,
+ * position-sorted range, found by binary search over the positions column. Alleles are kept as
+ * the VCF's REF and ALT text. Genotypes are stored in chunks of {@value #CHUNK_VARIANTS}
+ * variants, each chunk a samples by variants matrix with one row of 64-bit words per sample and
+ * 32 genotypes to a word, low bits first.
+ *
+ * <p>A genotype is packed as its number of alternate alleles: {@code 0} for hom-ref, {@code 1}
+ * for het, {@code 2} for hom-alt, and {@link #MISSING} when an allele is missing, the ploidy is
+ * over two, or the record has no {@code GT}.
+ */
+public class GenotypeStore {
+
+  public static final int MISSING = 3;
+
+  static final int CHUNK_VARIANTS = 4096;
+
+  private static final String EXTENSION = ".gts";
+  private static final int GENOTYPES_PER_WORD = 32;
+  private static final int HEADER_SIZE = 32;
+  private static final Logger LOGGER = Logger.getLogger(GenotypeStore.class.getName());
+  private static final int MAGIC = 0x47545332;
+  private static final int MAX_MAPPING = 1 << 30;
+  private static final int WORDS_PER_ROW = CHUNK_VARIANTS / GENOTYPES_PER_WORD;
+
+  public static GenotypeStore open(File vcfFile) {
+    try {
+      File storeFile = SidecarFiles.locate(vcfFile, EXTENSION);
+      if (SidecarFiles.isStale(storeFile, vcfFile) || !hasCurrentFormat(storeFile)) {
+        LOGGER.info(String.format("Building genotype store \"%s\"", storeFile));
+        write(vcfFile, storeFile);
+      }
+      return new GenotypeStore(storeFile);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static boolean hasCurrentFormat(File storeFile) throws IOException {
+    try (DataInputStream in = new DataInputStream(new FileInputStream(storeFile))) {
+      return storeFile.length() >= HEADER_SIZE && MAGIC == in.readInt();
+    }
+  }
+
+  /**
+   * Returns the packed genotype of a VCF sample column, which starts with its {@code GT}.
+   */
+  static int encode(String sample) {
+    int alternates = 0;
+    int ploidy = 0;
+    for (int i = 0, length = sample.length(); i < length && ':' != sample.charAt(i); ++i) {
+      char c = sample.charAt(i);
+      if ('/' == c || '|' == c) {
+        continue;
+      }
+      if (!Character.isDigit(c)) {
+        return MISSING;
+      }
+      int allele = 0;
+      for (; i < length && Character.isDigit(sample.charAt(i)); ++i) {
+        allele = 10 * allele + sample.charAt(i) - '0';
+      }
+      --i;
+      ++ploidy;
+      if (0 != allele) {
+        ++alternates;
+      }
+    }
+    return 0 == ploidy || 2 < ploidy ? MISSING : alternates;
+  }
+
+  private static DataOutputStream openColumn(File file) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+  }
+
+  /**
+   * Transcodes a VCF file. Each column is streamed to its own temporary file as the VCF is read,
+   * and the columns are then concatenated after the header, so that memory use doesn't grow with
+   * the VCF file.
+   */
+  private static void write(File vcfFile, File storeFile) throws IOException {
+    List<String> contigs = new ArrayList<>();
+    int[] contigStarts = new int[16];
+    int lastPosition = 0;
+    long alleleBytes = 0;
+    int samples = -1;
+    int variants = 0;
+    long[] chunk = null;
+    File positionsFile = new File(storeFile.getPath() + ".positions.tmp");
+    File alleleOffsetsFile = new File(storeFile.getPath() + ".alleleOffsets.tmp");
+    File allelesFile = new File(storeFile.getPath() + ".alleles.tmp");
+    File genotypesFile = new File(storeFile.getPath() + ".genotypes.tmp");
+    try {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+              new BlockCompressedInputStream(vcfFile), StandardCharsets.UTF_8), 1 << 16);
+          DataOutputStream positions = openColumn(positionsFile);
+          DataOutputStream alleleOffsets = openColumn(alleleOffsetsFile);
+          DataOutputStream alleles = openColumn(allelesFile);
+          DataOutputStream genotypes = openColumn(genotypesFile)) {
+        alleleOffsets.writeLong(0);
+        for (String line = reader.readLine(); null != line; line = reader.readLine()) {
+          if (line.startsWith("#")) {
+            if (line.startsWith("#CHROM")) {
+              samples = Math.max(0, line.split("\t").length - VcfFile.FIRST_SAMPLE_COLUMN);
+              chunk = new long[samples * WORDS_PER_ROW];
+            }
+            continue;
+          }
+          if (-1 == samples) {
+            throw new IOException(String.format("\"%s\" has no #CHROM header", vcfFile));
+          }
+          VcfRecord record = new VcfRecord(line);
+          String contig = record.get(VcfRecord.CHROM);
+          if (contigs.isEmpty() || !contig.equals(contigs.get(contigs.size() - 1))) {
+            if (contigs.contains(contig)) {
+              throw new IOException(String.format("\"%s\" is not sorted by contig", vcfFile));
+            }
+            if (contigs.size() == contigStarts.length) {
+              contigStarts = Arrays.copyOf(contigStarts, 2 * contigs.size());
+            }
+            contigStarts[contigs.size()] = variants;
+            contigs.add(contig);
+          } else if (record.getPosition() < lastPosition) {
+            throw new IOException(String.format("\"%s\" is not sorted by position", vcfFile));
+          }
+          if (Integer.MAX_VALUE == variants) {
+            throw new IOException(String.format("\"%s\" has too many variants", vcfFile));
+          }
+          lastPosition = record.getPosition();
+          positions.writeInt(lastPosition);
+          byte[] bytes = (record.get(VcfRecord.REF) + '\t' + record.get(VcfRecord.ALT))
+              .getBytes(StandardCharsets.UTF_8);
+          alleles.write(bytes);
+          alleleBytes += bytes.length;
+          alleleOffsets.writeLong(alleleBytes);
+          String format = record.get(VcfRecord.FORMAT);
+          boolean hasGenotypes = null != format && format.startsWith("GT")
+              && (2 == format.length() || ':' == format.charAt(2));
+          int offset = variants % CHUNK_VARIANTS;
+          int word = offset / GENOTYPES_PER_WORD;
+          int shift = 2 * (offset % GENOTYPES_PER_WORD);
+          for (int sample = 0; sample < samples; ++sample) {
+            String column = hasGenotypes ? record.getSample(sample) : null;
+            long genotype = null == column ? MISSING : encode(column);
+            chunk[sample * WORDS_PER_ROW + word] |= genotype << shift;
+          }
+          if (0 == ++variants % CHUNK_VARIANTS) {
+            writeChunk(genotypes, chunk);
+          }
+        }
+        if (0 != variants % CHUNK_VARIANTS) {
+          writeChunk(genotypes, chunk);
+        }
+      }
+      if (-1 == samples) {
+        throw new IOException(String.format("\"%s\" has no #CHROM header", vcfFile));
+      }
+      contigStarts = Arrays.copyOf(contigStarts, contigs.size() + 1);
+      contigStarts[contigs.size()] = variants;
+      byte[] contigBytes = String.join("\t", contigs).getBytes(StandardCharsets.UTF_8);
+      File temp = new File(storeFile.getPath() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+        out.writeInt(MAGIC);
+        out.writeInt(samples);
+        out.writeInt(variants);
+        out.writeInt(CHUNK_VARIANTS);
+        out.writeInt(contigs.size());
+        out.writeInt(contigBytes.length);
+        out.writeLong(alleleBytes);
+        out.write(contigBytes);
+        for (int contigStart : contigStarts) {
+          out.writeInt(contigStart);
+        }
+        Files.copy(positionsFile.toPath(), out);
+        Files.copy(alleleOffsetsFile.toPath(), out);
+        Files.copy(allelesFile.toPath(), out);
+        long size = HEADER_SIZE + contigBytes.length + 4L * contigStarts.length + 4L * variants
+            + 8L * (variants + 1) + alleleBytes;
+        for (long i = size; 0 != i % Long.BYTES; ++i) {
+          out.writeByte(0);
+        }
+        Files.copy(genotypesFile.toPath(), out);
+      }
+      if (!temp.renameTo(storeFile) && !(storeFile.delete() && temp.renameTo(storeFile))) {
+        throw new IOException(String.format("Failed to write \"%s\"", storeFile));
+      }
+    } finally {
+      positionsFile.delete();
+      alleleOffsetsFile.delete();
+      allelesFile.delete();
+      genotypesFile.delete();
+    }
+  }
+
+  private static void writeChunk(DataOutputStream out, long[] chunk) throws IOException {
+    for (int i = 0; i < chunk.length; ++i) {
+      out.writeLong(chunk[i]);
+    }
+    Arrays.fill(chunk, 0);
+  }
+
+  private final ByteBuffer[] alleles;
+  private final LongBuffer alleleOffsets;
+  private final int chunksPerMapping;
+  private final int[] contigStarts;
+  private final List<String> contigs;
+  private final LongBuffer[] genotypes;
+  private final IntBuffer positions;
+  private final int samples;
+  private final int variants;
+
+  private GenotypeStore(File storeFile) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(storeFile, "r")) {
+      FileChannel channel = file.getChannel();
+      ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (MAGIC != header.getInt()) {
+        throw new IOException(String.format("\"%s\" is not a genotype store", storeFile));
+      }
+      samples = header.getInt();
+      variants = header.getInt();
+      if (CHUNK_VARIANTS != header.getInt()) {
+        throw new IOException(String.format("\"%s\" has an unknown chunk size", storeFile));
+      }
+      int contigCount = header.getInt();
+      int contigBytes = header.getInt();
+      long alleleBytes = header.getLong();
+      long position = HEADER_SIZE;
+      ByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, position, contigBytes);
+      byte[] bytes = new byte[contigBytes];
+      names.get(bytes);
+      contigs = 0 == contigCount
+          ? new ArrayList<>()
+          : Arrays.asList(new String(bytes, StandardCharsets.UTF_8).split("\t", -1));
+      position += contigBytes;
+      contigStarts = new int[contigCount + 1];
+      channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * (contigCount + 1))
+          .asIntBuffer().get(contigStarts);
+      position += 4L * (contigCount + 1);
+      positions =
+          channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * variants).asIntBuffer();
+      position += 4L * variants;
+      alleleOffsets = channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * (variants + 1))
+          .asLongBuffer();
+      position += 8L * (variants + 1);
+      alleles = new ByteBuffer[(int) ((alleleBytes + MAX_MAPPING - 1) / MAX_MAPPING)];
+      for (int i = 0; i < alleles.length; ++i) {
+        alleles[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + (long) i * MAX_MAPPING,
+            Math.min(MAX_MAPPING, alleleBytes - (long) i * MAX_MAPPING));
+      }
+      position += alleleBytes;
+      position += (Long.BYTES - position % Long.BYTES) % Long.BYTES;
+      long chunkBytes = (long) Long.BYTES * samples * WORDS_PER_ROW;
+      int chunks = (variants + CHUNK_VARIANTS - 1) / CHUNK_VARIANTS;
+      chunksPerMapping = (int) Math.max(1, MAX_MAPPING / Math.max(1, chunkBytes));
+      genotypes = new LongBuffer[(chunks + chunksPerMapping - 1) / chunksPerMapping];
+      for (int i = 0; i < genotypes.length; ++i) {
+        long size = chunkBytes * Math.min(chunksPerMapping, chunks - i * chunksPerMapping);
+        genotypes[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+            position + chunkBytes * i * chunksPerMapping, size).asLongBuffer();
+      }
+    }
+  }
+
+  /**
+   * Returns the alternate bases of a variant, comma separated, or the empty string if it has
+   * none.
+   */
+  public String getAlternateBases(int variant) {
+    String alleles = getAlleles(variant);
+    String alternateBases = alleles.substring(alleles.indexOf('\t') + 1);
+    return ".".equals(alternateBases) ? "" : alternateBases;
+  }
+
+  private String getAlleles(int variant) {
+    long start = alleleOffsets.get(variant);
+    byte[] bytes = new byte[(int) (alleleOffsets.get(variant + 1) - start)];
+    for (int copied = 0; copied < bytes.length;) {
+      ByteBuffer buffer = alleles[(int) ((start + copied) / MAX_MAPPING)].duplicate();
+      buffer.position((int) ((start + copied) % MAX_MAPPING));
+      int length = Math.min(bytes.length - copied, buffer.remaining());
+      buffer.get(bytes, copied, length);
+      copied += length;
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public List<String> getContigs() {
+    return contigs;
+  }
+
+  /**
+   * Returns the packed genotypes of 32 consecutive variants of a sample, starting at
+   * {@code variant}. Genotypes past the last variant are zero.
+   */
+  public long getGenotypes(int sample, int variant) {
+    int offset = variant % GENOTYPES_PER_WORD;
+    long word = getWord(sample, variant - offset) >>> 2 * offset;
+    int next = variant - offset + GENOTYPES_PER_WORD;
+    return 0 == offset || variants <= next
+        ? word
+        : word | getWord(sample, next) << 2 * (GENOTYPES_PER_WORD - offset);
+  }
+
+  /**
+   * Packs the genotypes of {@code count} variants of a sample, from {@code variant} on, four to
+   * a byte, low bits first.
+   */
+  public void getGenotypes(int sample, int variant, int count, byte[] out, int offset) {
+    for (int i = 0; i < count; i += GENOTYPES_PER_WORD) {
+      long word = getGenotypes(sample, variant + i);
+      int remaining = count - i;
+      if (remaining < GENOTYPES_PER_WORD) {
+        word &= (1L << 2 * remaining) - 1;
+      }
+      for (int j = 0, bytes = (Math.min(remaining, GENOTYPES_PER_WORD) + 3) / 4; j < bytes;
+          ++j) {
+        out[offset + i / 4 + j] = (byte) (word >>> 8 * j);
+      }
+    }
+  }
+
+  public int getPosition(int variant) {
+    return positions.get(variant);
+  }
+
+  public String getReferenceBases(int variant) {
+    String alleles = getAlleles(variant);
+    return alleles.substring(0, alleles.indexOf('\t'));
+  }
+
+  public int getSamples() {
+    return samples;
+  }
+
+  public int getVariants() {
+    return variants;
+  }
+
+  private long getWord(int sample, int variant) {
+    int chunk = variant / CHUNK_VARIANTS;
+    return genotypes[chunk / chunksPerMapping].get(
+        ((chunk % chunksPerMapping) * samples + sample) * WORDS_PER_ROW
+            + variant % CHUNK_VARIANTS / GENOTYPES_PER_WORD);
+  }
+
+  /**
+   * Returns the first variant of {@code contig} at or after {@code position}, or the end of the
+   * contig's variants if there is none.
+   */
+  public int lowerBound(String contig, int position) {
+    int index = contigs.indexOf(contig);
+    if (-1 == index) {
+      return 0;
+    }
+    int low = contigStarts[index];
+    for (int high = contigStarts[index + 1]; low < high;) {
+      int middle = (low + high) >>> 1;
+      if (positions.get(middle) < position) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the variant after the last variant of {@code contig} at or before
+   * {@code position}.
+   */
+  public int upperBound(String contig, int position) {
+    return position == Integer.MAX_VALUE
+        ? contigEnd(contig)
+        : lowerBound(contig, position + 1);
+  }
+
+  private int contigEnd(String contig) {
+    int index = contigs.indexOf(contig);
+    return -1 == index ? 0 : contigStarts[index + 1];
+  }
+}
@@ -0,0 +1,70 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.cloud.genomics.localrepo.dto.SearchGenotypesRequest;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/genotypes")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@Singleton
+public class Genotypes extends BaseResource {
+
+  private final Backend backend;
+
+  @Inject
+  public Genotypes(Backend backend) {
+    this.backend = backend;
+  }
+
+  private static boolean isValid(SearchGenotypesRequest request) {
+    Long start = request.getStartPosition();
+    Long end = request.getEndPosition();
+    Long maxResults = request.getMaxResults();
+    return null != request.getDatasetId()
+        && null != request.getContig()
+        && (request.getCallsetIds().isEmpty() ? 0 : 1)
+            + (request.getCallsetNames().isEmpty() ? 0 : 1)
+            + (null == request.getCallsetOrdinals() ? 0 : 1) <= 1
+        && (null == start || 0 < start)
+        && (null == start || null == end || start <= end)
+        && (null == maxResults || 0 < maxResults);
+  }
+
+  @POST
+  @Path("/search")
+  @Compress(level = Compress.Level.FASTEST)
+  public Response search(SearchGenotypesRequest request) {
+    if (!isValid(request)) {
+      return BAD_REQUEST;
+    }
+    if (!backend.getDataset(request.getDatasetId()).isPresent()) {
+      return NOT_FOUND;
+    }
+    return backend.searchGenotypes(request)
+        .map(response -> Response.ok(response).build())
+        .orElse(BAD_REQUEST);
+  }
+}
@@ -15,23 +15,32 @@ package com.google.cloud.genomics.localrepo;
 
 import com.google.cloud.genomics.localrepo.BamFile.IndexedBamFile;
 import com.google.cloud.genomics.localrepo.dto.Read;
+import com.google.cloud.genomics.localrepo.dto.ReadBatch;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsBatchResponse;
 import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
 import com.google.cloud.genomics.localrepo.dto.SearchReadsResponse;
 import com.google.cloud.genomics.localrepo.util.Functions;
 import com.google.cloud.genomics.localrepo.util.Maps;
+import com.google.cloud.genomics.localrepo.util.MetricRegistry;
 import com.google.cloud.genomics.localrepo.util.Predicates;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 
+import net.sf.samtools.SAMFileHeader;
 import net.sf.samtools.SAMFileReader;
 import net.sf.samtools.SAMRecord;
 import net.sf.samtools.SAMRecordComparator;
 import net.sf.samtools.SAMRecordCoordinateComparator;
 import net.sf.samtools.SAMRecordIterator;
 
+import org.codehaus.jackson.JsonGenerator;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
@@ -44,12 +53,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.Executor;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -59,7 +71,7 @@ import javax.xml.bind.DatatypeConverter;
 
 public class QueryEngine {
 
-  private static final class QueryDescriptor implements Serializable {
+  static final class QueryDescriptor implements Serializable {
 
     static final class Start implements Serializable {
 
@@ -111,8 +123,9 @@ public class QueryEngine {
       }
     }
 
-    static <M extends Map<File, Start> & Serializable> QueryDescriptor create(M starts, int end) {
-      return new QueryDescriptor(starts, end);
+    static <M extends Map<File, Start> & Serializable> QueryDescriptor create(M starts, int start,
+        int end, double sampleFraction, boolean includeMates) {
+      return new QueryDescriptor(starts, start, end, sampleFraction, includeMates);
     }
 
     static QueryDescriptor fromPageToken(String pageToken) {
@@ -125,11 +138,18 @@ public class QueryEngine {
     }
 
     private final int end;
+    private final boolean includeMates;
+    private final double sampleFraction;
+    private final int start;
     private final Map<File, Start> starts;
 
-    private QueryDescriptor(Map<File, Start> intervals, int end) {
+    private QueryDescriptor(Map<File, Start> intervals, int start, int end, double sampleFraction,
+        boolean includeMates) {
       starts = intervals;
+      this.start = start;
       this.end = end;
+      this.sampleFraction = sampleFraction;
+      this.includeMates = includeMates;
     }
 
     @Override
@@ -137,7 +157,10 @@ public class QueryEngine {
       if (null != obj && QueryDescriptor.class == obj.getClass()) {
         QueryDescriptor rhs = (QueryDescriptor) obj;
         return Objects.equals(getStarts(), rhs.getStarts())
-            && Objects.equals(getEnd(), rhs.getEnd());
+            && Objects.equals(getStart(), rhs.getStart())
+            && Objects.equals(getEnd(), rhs.getEnd())
+            && Objects.equals(getSampleFraction(), rhs.getSampleFraction())
+            && Objects.equals(isIncludeMates(), rhs.isIncludeMates());
       }
       return false;
     }
@@ -146,13 +169,29 @@ public class QueryEngine {
       return end;
     }
 
+    double getSampleFraction() {
+      return sampleFraction;
+    }
+
+    int getStart() {
+      return start;
+    }
+
     Map<File, Start> getStarts() {
       return starts;
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(getStarts(), getEnd());
+      return Objects.hash(getStarts(), getStart(), getEnd(), getSampleFraction(), isIncludeMates());
+    }
+
+    boolean isIncludeMates() {
+      return includeMates;
+    }
+
+    <M extends Map<File, Start> & Serializable> QueryDescriptor next(M starts) {
+      return create(starts, getStart(), getEnd(), getSampleFraction(), isIncludeMates());
     }
 
     @Override
@@ -186,8 +225,50 @@ public class QueryEngine {
     }
   }
 
+  private static final class Page {
+
+    final List<SAMRecord> mates;
+    final String nextPageToken;
+    final List<SAMRecord> records;
+
+    Page(List<SAMRecord> records, String nextPageToken, List<SAMRecord> mates) {
+      this.records = records;
+      this.nextPageToken = nextPageToken;
+      this.mates = mates;
+    }
+
+    int size() {
+      return records.size() + (null == mates ? 0 : mates.size());
+    }
+  }
+
   private static final Logger LOGGER = Logger.getLogger(QueryEngine.class.getName());
 
+  private static final MetricRegistry.Histogram SEARCH_DURATION = MetricRegistry.timer(
+      "readstore_search_reads_duration_seconds", "Time taken to find a page of reads.");
+
+  private static final MetricRegistry.Histogram FILES_PER_SEARCH = MetricRegistry.histogram(
+      "readstore_search_reads_files", "BAM files opened per read search.");
+
+  private static final MetricRegistry.Counter RECORDS_SCANNED = MetricRegistry.counter(
+      "readstore_search_reads_scanned_total", "Records read from BAM files by read searches.");
+
+  private static final MetricRegistry.Counter RECORDS_EMITTED = MetricRegistry.counter(
+      "readstore_search_reads_emitted_total", "Records returned by read searches.");
+
+  private static final HashFunction SAMPLING_HASH = Hashing.murmur3_32();
+
+  private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
+
+  private static final int MATE_COALESCING_DISTANCE = 1 << 14;
+
+  private static final Comparator<SAMRecord> PRIMARY_FIRST =
+      Comparator.<SAMRecord, Boolean>comparing(
+          record -> record.getNotPrimaryAlignmentFlag()
+              || record.getSupplementaryAlignmentFlag())
+          .thenComparing(record -> record.getReadPairedFlag() && record.getSecondOfPairFlag())
+          .thenComparing(new SAMRecordCoordinateComparator()::compare);
+
   public static QueryEngine create(final Map<String, DatasetDirectory> datasets,
       final Map<String, BamFilesReadset> readsets, int pageSize) {
     return new QueryEngine(datasets, readsets, pageSize);
@@ -200,6 +281,11 @@ public class QueryEngine {
         false);
   }
 
+  static boolean isSampled(String readName, double sampleFraction) {
+    return 1 <= sampleFraction || (UNSIGNED_INT_MASK & SAMPLING_HASH.hashUnencodedChars(readName)
+        .asInt()) < (long) (sampleFraction * (UNSIGNED_INT_MASK + 1));
+  }
+
   private static int toInt(Long l) {
     return Optional.ofNullable(l).map(x -> x.intValue()).orElse(0);
   }
@@ -208,7 +294,7 @@ public class QueryEngine {
     return specialValue == value ? null : value;
   }
 
-  private static String toRead(String value) {
+  static String toRead(String value) {
     return "*".equals(value) ? null : value;
   }
 
@@ -246,20 +332,172 @@ public class QueryEngine {
     if (null == pageToken) {
       List<String> datasetIds = request.getDatasetIds();
       final List<String> readsetIds = request.getReadsetIds();
+      Set<File> files = getReadsets(datasetIds, readsetIds)
+          .flatMap(flatMap(BamFilesReadset::getBamFiles))
+          .map(BamFile::getFile)
+          .collect(Collectors.toSet());
       return QueryDescriptor.create(
-          new HashMap<>(getReadsets(datasetIds, readsetIds)
-              .flatMap(flatMap(BamFilesReadset::getBamFiles))
-              .map(BamFile::getFile)
-              .collect(Collectors.toSet())
+          new HashMap<>(files
               .stream()
               .collect(
                   Collectors.toMap(Function.identity(), Functions.constant(QueryDescriptor.Start
                       .create(request.getSequenceName(), toInt(request.getSequenceStart()), 0))))),
-                      toInt(request.getSequenceEnd()));
+                      toInt(request.getSequenceStart()),
+                      toInt(request.getSequenceEnd()),
+                      getSampleFraction(request, files),
+                      Boolean.TRUE.equals(request.getIncludeMates()));
     }
     return QueryDescriptor.fromPageToken(pageToken);
   }
 
+  private double getSampleFraction(SearchReadsRequest request, Set<File> files) {
+    Double downsampleFraction = request.getDownsampleFraction();
+    Long downsampleCount = request.getDownsampleCount();
+    double sampleFraction = null == downsampleFraction ? 1 : downsampleFraction;
+    if (null != downsampleCount) {
+      String sequenceName = request.getSequenceName();
+      int start = toInt(request.getSequenceStart());
+      int end = toInt(request.getSequenceEnd());
+      double estimate = files.stream()
+          .mapToDouble(file -> getBamFile.get(file).estimateRecordCount(sequenceName, start, end))
+          .sum();
+      if (downsampleCount < estimate) {
+        sampleFraction = Math.min(sampleFraction, downsampleCount / estimate);
+      }
+    }
+    return sampleFraction;
+  }
+
+  private List<SAMRecord> findRecords(String readName) {
+    return getBamFile.values()
+        .stream()
+        .flatMap(bamFile -> bamFile.findRecords(readName).stream())
+        .sorted(PRIMARY_FIRST)
+        .collect(Collectors.toList());
+  }
+
+  private List<SAMRecord> getMates(IndexedBamFile bamFile, List<SAMRecord> records) {
+    SAMFileHeader header = bamFile.getHeader();
+    Map<String, List<SAMRecord>> wanted = records.stream()
+        .filter(record -> 0 <= header.getSequenceIndex(record.getMateReferenceName()))
+        .collect(Collectors.groupingBy(SAMRecord::getReadName));
+    List<SAMRecord> targets = wanted.values()
+        .stream()
+        .flatMap(List::stream)
+        .sorted(Comparator
+            .comparing((SAMRecord record) -> header.getSequenceIndex(record.getMateReferenceName()))
+            .thenComparing(SAMRecord::getMateAlignmentStart))
+        .collect(Collectors.toList());
+    List<SAMRecord> mates = new ArrayList<>();
+    if (!targets.isEmpty()) {
+      try (SAMFileReader reader = bamFile.open()) {
+        for (PeekingIterator<SAMRecord> iterator = Iterators.peekingIterator(targets.iterator());
+            iterator.hasNext();) {
+          SAMRecord first = iterator.next();
+          String sequence = first.getMateReferenceName();
+          int start = first.getMateAlignmentStart();
+          int end = start;
+          while (iterator.hasNext()
+              && sequence.equals(iterator.peek().getMateReferenceName())
+              && iterator.peek().getMateAlignmentStart() <= end + MATE_COALESCING_DISTANCE) {
+            end = iterator.next().getMateAlignmentStart();
+          }
+          SAMRecordIterator overlapping = reader.queryOverlapping(sequence, start, end);
+          try {
+            while (overlapping.hasNext()) {
+              SAMRecord candidate = overlapping.next();
+              List<SAMRecord> mateless = wanted.get(candidate.getReadName());
+              if (null != mateless
+                  && start <= candidate.getAlignmentStart()
+                  && !candidate.getNotPrimaryAlignmentFlag()
+                  && !candidate.getSupplementaryAlignmentFlag()
+                  && mateless.removeIf(record -> record.getFirstOfPairFlag()
+                      != candidate.getFirstOfPairFlag()
+                      && record.getMateAlignmentStart() == candidate.getAlignmentStart()
+                      && record.getMateReferenceName().equals(candidate.getReferenceName()))) {
+                mates.add(candidate);
+              }
+            }
+          } finally {
+            overlapping.close();
+          }
+        }
+      }
+    }
+    return mates;
+  }
+
+  private List<SAMRecord> getMates(List<SAMRecord> records, QueryDescriptor descriptor) {
+    QueryEvents.Mates event = new QueryEvents.Mates();
+    event.begin();
+    List<SAMRecord> mates = findMates(records, descriptor);
+    event.commit(records.size(), mates.size());
+    return mates;
+  }
+
+  private List<SAMRecord> findMates(List<SAMRecord> records, QueryDescriptor descriptor) {
+    int start = descriptor.getStart();
+    int end = descriptor.getEnd();
+    Set<String> sequences = descriptor.getStarts()
+        .values()
+        .stream()
+        .map(QueryDescriptor.Start::getSequence)
+        .collect(Collectors.toSet());
+    Map<IndexedBamFile, List<SAMRecord>> mateless = new HashMap<>();
+    for (SAMRecord record : records) {
+      if (record.getReadPairedFlag()
+          && !record.getMateUnmappedFlag()
+          && !record.getNotPrimaryAlignmentFlag()
+          && !record.getSupplementaryAlignmentFlag()
+          && (!sequences.contains(record.getMateReferenceName())
+              || record.getMateAlignmentStart() < start
+              || 0 != end && end < record.getMateAlignmentStart())) {
+        for (IndexedBamFile bamFile : readsets.get(readsetId(record)).getBamFiles()) {
+          mateless.computeIfAbsent(bamFile, key -> new ArrayList<>()).add(record);
+        }
+      }
+    }
+    return mateless.entrySet()
+        .stream()
+        .flatMap(entry -> getMates(entry.getKey(), entry.getValue()).stream())
+        .sorted(new SAMRecordCoordinateComparator()::compare)
+        .collect(Collectors.toList());
+  }
+
+  public Optional<Read> getMate(String readId) {
+    List<SAMRecord> records = findRecords(readId);
+    return records.stream()
+        .findFirst()
+        .filter(SAMRecord::getReadPairedFlag)
+        .flatMap(primary -> records.stream()
+            .filter(record -> record.getReadPairedFlag()
+                && !record.getNotPrimaryAlignmentFlag()
+                && !record.getSupplementaryAlignmentFlag()
+                && record.getFirstOfPairFlag() == primary.getSecondOfPairFlag())
+            .findFirst())
+        .map(this::read);
+  }
+
+  public Optional<Read> getRead(String readId) {
+    return findRecords(readId).stream().findFirst().map(this::read);
+  }
+
+  /**
+   * Opens the read name index of every BAM file on {@code executor}, building those that are
+   * missing or stale. A lookup that needs an index first builds it, or waits for it, itself.
+   */
+  public void loadReadNameIndexes(Executor executor) {
+    for (IndexedBamFile bamFile : getBamFile.values()) {
+      executor.execute(() -> {
+        try {
+          bamFile.loadReadNameIndex();
+        } catch (RuntimeException e) {
+          LOGGER.log(Level.WARNING, String.format("Failed to index \"%s\"", bamFile), e);
+        }
+      });
+    }
+  }
+
   private Stream<BamFilesReadset> getReadsets(List<String> datasetIds, List<String> readsetIds) {
     return (datasetIds.isEmpty() ? datasets.keySet() : datasetIds).stream()
         .flatMap(readsetIds.isEmpty() ? getReadsetIds : input -> readsetIds.stream())
@@ -270,7 +508,7 @@ public class QueryEngine {
     return Read.create(
         toRead(record.getReadName()),
         toRead(record.getReadName()),
-        readsetIdsBySample.get(record.getReadGroup().getSample()),
+        readsetId(record),
         record.getFlags(),
         toRead(record.getReferenceName()),
         toRead(record.getAlignmentStart(), 0),
@@ -290,22 +528,41 @@ public class QueryEngine {
                 attribute -> attribute.value.toString())));
   }
 
-  private SearchReadsResponse searchReads(Map<File, PeekingIterator<SAMRecordWithSkip>> iterators,
-      final int end, Predicate<SAMRecord> readsetFilter) {
-    List<Read> reads = new ArrayList<>();
-    for (Iterator<SAMRecordWithSkip> iterator =
-        Iterators.limit(Iterators.mergeSorted(iterators.values(), Comparator.naturalOrder()),
-            pageSize); iterator.hasNext();) {
+  private ReadBatch readBatch(List<SAMRecord> records) {
+    return ReadBatchEncoder.encode(records, this::readsetId);
+  }
+
+  private List<Read> reads(List<SAMRecord> records) {
+    return records.stream().map(this::read).collect(Collectors.toList());
+  }
+
+  private String readsetId(SAMRecord record) {
+    return readsetIdsBySample.get(record.getReadGroup().getSample());
+  }
+
+  private Page searchReads(Map<File, PeekingIterator<SAMRecordWithSkip>> iterators,
+      QueryDescriptor descriptor, Predicate<SAMRecord> readsetFilter) {
+    QueryEvents.Merge merge = new QueryEvents.Merge();
+    merge.begin();
+    double sampleFraction = descriptor.getSampleFraction();
+    List<SAMRecord> records = new ArrayList<>();
+    Iterator<SAMRecordWithSkip> merged =
+        Iterators.mergeSorted(iterators.values(), Comparator.naturalOrder());
+    for (Iterator<SAMRecordWithSkip> iterator = Iterators.limit(1 <= sampleFraction
+        ? merged
+        : Iterators.filter(merged, peek -> isSampled(peek.record.getReadName(), sampleFraction)),
+        pageSize); iterator.hasNext();) {
       SAMRecord record = iterator.next().record;
       if (readsetFilter.test(record)) {
-        reads.add(read(record));
+        records.add(record);
       }
     }
+    merge.commit(iterators.size(), records.size());
     Map<File, PeekingIterator<SAMRecordWithSkip>> nonEmptyIterators =
         Maps.filterValues(iterators, iterator -> iterator.hasNext());
-    return SearchReadsResponse.create(
-        reads,
-        nonEmptyIterators.isEmpty() ? null : QueryDescriptor.create(
+    return new Page(
+        records,
+        nonEmptyIterators.isEmpty() ? null : descriptor.next(
             new HashMap<>(Maps.transformValues(nonEmptyIterators,
                 new Function<PeekingIterator<SAMRecordWithSkip>, QueryDescriptor.Start>() {
                   @Override
@@ -315,10 +572,11 @@ public class QueryEngine {
                     return QueryDescriptor.Start.create(record.getReferenceName(),
                         record.getAlignmentStart(), peek.skip);
                   }
-                })), end).toString());
+                }))).toString(),
+        descriptor.isIncludeMates() ? getMates(records, descriptor) : null);
   }
 
-  private SearchReadsResponse searchReads(final QueryDescriptor descriptor,
+  private Page searchReads(final QueryDescriptor descriptor,
       final Predicate<SAMRecord> readsetFilter) {
     abstract class RecursiveProcessor<X, Y, Z> {
 
@@ -352,7 +610,7 @@ public class QueryEngine {
 
       abstract Z process(Map<X, Y> map);
     }
-    return new RecursiveProcessor<Map.Entry<File, QueryDescriptor.Start>, SAMFileReader, SearchReadsResponse>() {
+    return new RecursiveProcessor<Map.Entry<File, QueryDescriptor.Start>, SAMFileReader, Page>() {
 
       @Override
       void close(SAMFileReader reader) {
@@ -365,9 +623,9 @@ public class QueryEngine {
       }
 
       @Override
-      SearchReadsResponse process(Map<Map.Entry<File, QueryDescriptor.Start>, SAMFileReader> map) {
+      Page process(Map<Map.Entry<File, QueryDescriptor.Start>, SAMFileReader> map) {
         final int end = descriptor.getEnd();
-        return new RecursiveProcessor<Map.Entry<Map.Entry<File, QueryDescriptor.Start>, SAMFileReader>, SAMRecordIterator, SearchReadsResponse>() {
+        return new RecursiveProcessor<Map.Entry<Map.Entry<File, QueryDescriptor.Start>, SAMFileReader>, SAMRecordIterator, Page>() {
 
           @Override
           void close(SAMRecordIterator iterator) {
@@ -377,12 +635,23 @@ public class QueryEngine {
           @Override
           SAMRecordIterator open(
               Map.Entry<Map.Entry<File, QueryDescriptor.Start>, SAMFileReader> entry) {
+            File file = entry.getKey().getKey();
             QueryDescriptor.Start interval = entry.getKey().getValue();
+            QueryEvents.Seek seek = new QueryEvents.Seek();
+            seek.begin();
             SAMRecordIterator iterator =
                 entry.getValue().queryOverlapping(interval.getSequence(), interval.getStart(), end);
+            seek.commit(file, interval.getSequence(), interval.getStart(), end);
             int skip = interval.getSkip();
-            for (int i = 0; iterator.hasNext() && i < skip; ++i) {
-              iterator.next();
+            if (0 < skip) {
+              QueryEvents.Skip skipEvent = new QueryEvents.Skip();
+              skipEvent.begin();
+              int skipped = 0;
+              for (; iterator.hasNext() && skipped < skip; ++skipped) {
+                iterator.next();
+              }
+              RECORDS_SCANNED.add(skipped);
+              skipEvent.commit(file, skipped);
             }
             return iterator;
           }
@@ -412,7 +681,7 @@ public class QueryEngine {
           }
 
           @Override
-          SearchReadsResponse process(
+          Page process(
               Map<Map.Entry<Map.Entry<File, QueryDescriptor.Start>, SAMFileReader>, SAMRecordIterator> map) {
             Map<File, PeekingIterator<SAMRecordWithSkip>> iterators = new HashMap<>();
             for (Map.Entry<Map.Entry<Map.Entry<File, QueryDescriptor.Start>, SAMFileReader>, SAMRecordIterator> entry : map
@@ -427,24 +696,68 @@ public class QueryEngine {
 
                     @Override
                     public SAMRecordWithSkip apply(SAMRecord record) {
+                      RECORDS_SCANNED.increment();
                       return new SAMRecordWithSkip(record, skip++);
                     }
                   })).flatMap(Function.identity()).iterator()));
             }
-            return searchReads(iterators, end, readsetFilter);
+            return searchReads(iterators, descriptor, readsetFilter);
           }
         }.process(map.entrySet());
       }
     }.process(descriptor.getStarts().entrySet());
   }
 
-  public SearchReadsResponse searchReads(SearchReadsRequest request) {
-    return searchReads(
-        createQueryDescriptor(request),
+  private Page searchPage(SearchReadsRequest request) {
+    long start = System.nanoTime();
+    QueryEvents.Plan plan = new QueryEvents.Plan();
+    plan.begin();
+    QueryDescriptor descriptor = createQueryDescriptor(request);
+    plan.commit(descriptor.getStarts().size());
+    Page page = searchReads(
+        descriptor,
         Predicates.compose(
             Predicates.in(getReadsets(request.getDatasetIds(), request.getReadsetIds()).map(
                 BamFilesReadset::getReadsetId).collect(Collectors.toSet())),
                 Functions.forMap(readsetIdsBySample).compose(
                     record -> record.getReadGroup().getSample())));
+    FILES_PER_SEARCH.record(descriptor.getStarts().size());
+    RECORDS_EMITTED.add(page.records.size());
+    SEARCH_DURATION.recordSince(start);
+    return page;
+  }
+
+  public SearchReadsResponse searchReads(SearchReadsRequest request) {
+    Page page = searchPage(request);
+    QueryEvents.Serialize serialize = new QueryEvents.Serialize();
+    serialize.begin();
+    SearchReadsResponse response = SearchReadsResponse.create(
+        reads(page.records),
+        page.nextPageToken,
+        null == page.mates ? null : reads(page.mates));
+    serialize.commit("dto", page.size());
+    return response;
+  }
+
+  public SearchReadsBatchResponse searchReadsBatch(SearchReadsRequest request) {
+    Page page = searchPage(request);
+    QueryEvents.Serialize serialize = new QueryEvents.Serialize();
+    serialize.begin();
+    SearchReadsBatchResponse response = SearchReadsBatchResponse.create(
+        readBatch(page.records),
+        page.nextPageToken,
+        null == page.mates ? null : readBatch(page.mates));
+    serialize.commit("batch", page.size());
+    return response;
+  }
+
+  public void writeSearchReads(SearchReadsRequest request, JsonGenerator generator)
+      throws IOException {
+    Page page = searchPage(request);
+    QueryEvents.Serialize serialize = new QueryEvents.Serialize();
+    serialize.begin();
+    new ReadJsonWriter(this::readsetId)
+        .writeSearchReadsResponse(generator, page.records, page.nextPageToken, page.mates);
+    serialize.commit("json", page.size());
   }
 }
@@ -0,0 +1,165 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder events for the phases of a read search. Each event is begun before its phase
+ * and ended after it; fields are only filled in when the event is enabled and over threshold, so
+ * a disabled event costs little more than the allocation.
+ */
+final class QueryEvents {
+
+  private static final String PREFIX = "com.google.cloud.genomics.localrepo.";
+
+  @Category({ "Readstore", "Query" })
+  abstract static class QueryEvent extends Event {}
+
+  @Name(PREFIX + "Plan")
+  @Label("Plan")
+  @Description("Resolving readsets, BAM files and the sample fraction of a read search")
+  static final class Plan extends QueryEvent {
+
+    @Label("Files") int files;
+
+    void commit(int files) {
+      end();
+      if (shouldCommit()) {
+        this.files = files;
+        commit();
+      }
+    }
+  }
+
+  @Name(PREFIX + "Seek")
+  @Label("Index Lookup and Seek")
+  @Description("Looking up a region in a BAM index and positioning a reader at it")
+  static final class Seek extends QueryEvent {
+
+    @Label("End") int end;
+    @Label("File") String file;
+    @Label("Sequence") String sequence;
+    @Label("Start") int start;
+
+    void commit(File file, String sequence, int start, int end) {
+      end();
+      if (shouldCommit()) {
+        this.file = file.getPath();
+        this.sequence = sequence;
+        this.start = start;
+        this.end = end;
+        commit();
+      }
+    }
+  }
+
+  @Name(PREFIX + "Skip")
+  @Label("Skip")
+  @Description("Skipping records already returned by earlier pages at a page token's position")
+  static final class Skip extends QueryEvent {
+
+    @Label("File") String file;
+    @Label("Records") int records;
+
+    void commit(File file, int records) {
+      end();
+      if (shouldCommit()) {
+        this.file = file.getPath();
+        this.records = records;
+        commit();
+      }
+    }
+  }
+
+  @Name(PREFIX + "Merge")
+  @Label("Merge")
+  @Description("Decoding and merging records from every BAM file into a page")
+  static final class Merge extends QueryEvent {
+
+    @Label("Emitted") int emitted;
+    @Label("Files") int files;
+
+    void commit(int files, int emitted) {
+      end();
+      if (shouldCommit()) {
+        this.files = files;
+        this.emitted = emitted;
+        commit();
+      }
+    }
+  }
+
+  @Name(PREFIX + "Mates")
+  @Label("Mates")
+  @Description("Fetching mates that fall outside the requested window")
+  static final class Mates extends QueryEvent {
+
+    @Label("Mates") int mates;
+    @Label("Records") int records;
+
+    void commit(int records, int mates) {
+      end();
+      if (shouldCommit()) {
+        this.records = records;
+        this.mates = mates;
+        commit();
+      }
+    }
+  }
+
+  @Name(PREFIX + "Serialize")
+  @Label("Serialize")
+  @Description("Converting a page of records to its response format")
+  static final class Serialize extends QueryEvent {
+
+    @Label("Format") String format;
+    @Label("Records") int records;
+
+    void commit(String format, int records) {
+      end();
+      if (shouldCommit()) {
+        this.format = format;
+        this.records = records;
+        commit();
+      }
+    }
+  }
+
+  @Name(PREFIX + "OpenReader")
+  @Label("Open BAM Reader")
+  @Description("Opening a BAM file and reading its header")
+  static final class OpenReader extends QueryEvent {
+
+    @Label("File") String file;
+
+    void commit(File file) {
+      end();
+      if (shouldCommit()) {
+        this.file = file.getPath();
+        commit();
+      }
+    }
+  }
+
+  private QueryEvents() {}
+}
@@ -0,0 +1,159 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.cloud.genomics.localrepo.dto.ReadBatch;
+
+import net.sf.samtools.SAMRecord;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+final class ReadBatchEncoder {
+
+  private static final class Dictionary {
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int indexOf(String value) {
+      return null == value ? -1 : indexes.computeIfAbsent(value, key -> {
+        values.add(key);
+        return values.size() - 1;
+      });
+    }
+
+    List<String> values() {
+      return values;
+    }
+  }
+
+  private static final byte[] BASE_CODES = new byte[128];
+
+  static {
+    Arrays.fill(BASE_CODES, (byte) -1);
+    BASE_CODES['A'] = BASE_CODES['a'] = 0;
+    BASE_CODES['C'] = BASE_CODES['c'] = 1;
+    BASE_CODES['G'] = BASE_CODES['g'] = 2;
+    BASE_CODES['T'] = BASE_CODES['t'] = 3;
+  }
+
+  private static final byte NO_QUALITY = (byte) 0xFF;
+
+  static ReadBatch encode(List<SAMRecord> records, Function<SAMRecord, String> getReadsetId) {
+    int size = records.size();
+    List<String> names = new ArrayList<>(size);
+    Dictionary readsetIds = new Dictionary();
+    int[] readsetIndexes = new int[size];
+    Dictionary referenceSequenceNames = new Dictionary();
+    int[] referenceSequenceIndexes = new int[size];
+    int[] positions = new int[size];
+    short[] flags = new short[size];
+    short[] mappingQualities = new short[size];
+    List<String> cigars = new ArrayList<>(size);
+    int[] mateReferenceSequenceIndexes = new int[size];
+    int[] matePositions = new int[size];
+    int[] templateLengths = new int[size];
+    int[] lengths = new int[size];
+    int totalLength = 0;
+    for (SAMRecord record : records) {
+      totalLength += record.getReadLength();
+    }
+    byte[] bases = new byte[(totalLength + 3) / 4];
+    ByteArrayOutputStream baseQualities = new ByteArrayOutputStream(totalLength);
+    List<Integer> ambiguousBaseOffsets = new ArrayList<>();
+    StringBuilder ambiguousBases = new StringBuilder();
+    Map<String, Dictionary> tagValues = new TreeMap<>();
+    Map<String, int[]> tagIndexes = new HashMap<>();
+    int offset = 0;
+    for (int i = 0; i < size; ++i) {
+      SAMRecord record = records.get(i);
+      names.add(QueryEngine.toRead(record.getReadName()));
+      readsetIndexes[i] = readsetIds.indexOf(getReadsetId.apply(record));
+      referenceSequenceIndexes[i] =
+          referenceSequenceNames.indexOf(QueryEngine.toRead(record.getReferenceName()));
+      positions[i] = record.getAlignmentStart();
+      flags[i] = (short) record.getFlags();
+      mappingQualities[i] = (short) record.getMappingQuality();
+      cigars.add(QueryEngine.toRead(record.getCigarString()));
+      mateReferenceSequenceIndexes[i] =
+          referenceSequenceNames.indexOf(QueryEngine.toRead(record.getMateReferenceName()));
+      matePositions[i] = record.getMateAlignmentStart();
+      templateLengths[i] = record.getInferredInsertSize();
+      byte[] readBases = record.getReadBases();
+      lengths[i] = readBases.length;
+      for (byte base : readBases) {
+        byte code = 0 <= base ? BASE_CODES[base] : -1;
+        if (code < 0) {
+          ambiguousBaseOffsets.add(offset);
+          ambiguousBases.append((char) base);
+          code = 0;
+        }
+        bases[offset >>> 2] |= code << ((offset & 3) << 1);
+        ++offset;
+      }
+      byte[] qualities = record.getBaseQualities();
+      if (qualities.length == readBases.length) {
+        baseQualities.write(qualities, 0, qualities.length);
+      } else {
+        for (int j = 0; j < readBases.length; ++j) {
+          baseQualities.write(NO_QUALITY);
+        }
+      }
+      for (SAMRecord.SAMTagAndValue attribute : record.getAttributes()) {
+        tagValues.computeIfAbsent(attribute.tag, key -> new Dictionary());
+        int[] indexes = tagIndexes.computeIfAbsent(attribute.tag, key -> {
+          int[] column = new int[size];
+          Arrays.fill(column, -1);
+          return column;
+        });
+        indexes[i] = tagValues.get(attribute.tag).indexOf(attribute.value.toString());
+      }
+    }
+    List<ReadBatch.TagColumn> tags = new ArrayList<>(tagValues.size());
+    for (Map.Entry<String, Dictionary> entry : tagValues.entrySet()) {
+      String tag = entry.getKey();
+      tags.add(ReadBatch.TagColumn.create(tag, entry.getValue().values(), tagIndexes.get(tag)));
+    }
+    return ReadBatch.create(
+        names,
+        readsetIds.values(),
+        readsetIndexes,
+        referenceSequenceNames.values(),
+        referenceSequenceIndexes,
+        positions,
+        flags,
+        mappingQualities,
+        cigars,
+        mateReferenceSequenceIndexes,
+        matePositions,
+        templateLengths,
+        lengths,
+        bases,
+        ambiguousBaseOffsets.stream().mapToInt(Integer::intValue).toArray(),
+        ambiguousBases.toString(),
+        baseQualities.toByteArray(),
+        tags);
+  }
+
+  private ReadBatchEncoder() {}
+}
@@ -0,0 +1,115 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import net.sf.samtools.SAMRecord;
+
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes {@link SAMRecord}s as the JSON of {@link com.google.cloud.genomics.localrepo.dto.Read}
+ * and {@link com.google.cloud.genomics.localrepo.dto.SearchReadsResponse} without building the
+ * DTOs. The generator must write UTF-8 to a byte stream, since bases and qualities are written as
+ * raw bytes.
+ */
+final class ReadJsonWriter {
+
+  private static final int QUALITY_OFFSET = 33;
+
+  private static void writeNumberField(JsonGenerator generator, String name, int value,
+      int specialValue) throws IOException {
+    if (specialValue != value) {
+      generator.writeNumberField(name, value);
+    }
+  }
+
+  private static void writeStringField(JsonGenerator generator, String name, String value)
+      throws IOException {
+    if (null != value && !"*".equals(value)) {
+      generator.writeStringField(name, value);
+    }
+  }
+
+  private final Function<SAMRecord, String> getReadsetId;
+  private byte[] qualities = new byte[256];
+
+  ReadJsonWriter(Function<SAMRecord, String> getReadsetId) {
+    this.getReadsetId = getReadsetId;
+  }
+
+  private void writeRead(JsonGenerator generator, SAMRecord record) throws IOException {
+    generator.writeStartObject();
+    writeStringField(generator, "id", record.getReadName());
+    writeStringField(generator, "name", record.getReadName());
+    writeStringField(generator, "readsetId", getReadsetId.apply(record));
+    generator.writeNumberField("flags", record.getFlags());
+    writeStringField(generator, "referenceSequenceName", record.getReferenceName());
+    writeNumberField(generator, "position", record.getAlignmentStart(), 0);
+    writeNumberField(generator, "mappingQuality", record.getMappingQuality(), 255);
+    writeStringField(generator, "cigar", record.getCigarString());
+    writeStringField(generator, "mateReferenceSequenceName", record.getMateReferenceName());
+    writeNumberField(generator, "matePosition", record.getMateAlignmentStart(), 0);
+    writeNumberField(generator, "templateLength", record.getInferredInsertSize(), 0);
+    byte[] bases = record.getReadBases();
+    if (0 < bases.length) {
+      generator.writeFieldName("originalBases");
+      generator.writeUTF8String(bases, 0, bases.length);
+    }
+    byte[] baseQualities = record.getBaseQualities();
+    if (0 < baseQualities.length) {
+      if (qualities.length < baseQualities.length) {
+        qualities = new byte[baseQualities.length];
+      }
+      for (int i = 0; i < baseQualities.length; ++i) {
+        qualities[i] = (byte) (baseQualities[i] + QUALITY_OFFSET);
+      }
+      generator.writeFieldName("baseQuality");
+      generator.writeUTF8String(qualities, 0, baseQualities.length);
+    }
+    generator.writeObjectFieldStart("tags");
+    for (SAMRecord.SAMTagAndValue attribute : record.getAttributes()) {
+      generator.writeStringField(attribute.tag, attribute.value.toString());
+    }
+    generator.writeEndObject();
+    generator.writeEndObject();
+  }
+
+  private void writeReads(JsonGenerator generator, String name, List<SAMRecord> records)
+      throws IOException {
+    generator.writeArrayFieldStart(name);
+    for (SAMRecord record : records) {
+      writeRead(generator, record);
+    }
+    generator.writeEndArray();
+  }
+
+  void writeSearchReadsResponse(JsonGenerator generator, List<SAMRecord> records,
+      String nextPageToken, List<SAMRecord> mates) throws IOException {
+    generator.writeStartObject();
+    writeReads(generator, "reads", records);
+    if (null != nextPageToken) {
+      generator.writeStringField("nextPageToken", nextPageToken);
+    }
+    if (null != mates) {
+      writeReads(generator, "mates", mates);
+    }
+    generator.writeEndObject();
+  }
+}
@@ -0,0 +1,388 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.common.base.Throwables;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import net.sf.samtools.BAMRecordCodec;
+import net.sf.samtools.SAMFileHeader;
+import net.sf.samtools.SAMRecord;
+import net.sf.samtools.util.BinaryCodec;
+import net.sf.samtools.util.BlockCompressedInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.logging.Logger;
+
+/**
+ * A {@code <bam>.rni} sidecar holding a bloom filter over read name hashes, then the sorted
+ * 64-bit name hashes and the virtual file offsets of their records.
+ */
+public class ReadNameIndex {
+
+  /**
+   * A sorted run of name hashes and record offsets spilled to disk, read back one entry at a
+   * time.
+   */
+  private static final class Run implements Closeable {
+
+    private final DataInputStream in;
+    private long remaining;
+    long hash;
+    long offset;
+
+    Run(File file) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+      this.remaining = file.length() / 16;
+    }
+
+    boolean next() throws IOException {
+      if (0 == remaining) {
+        return false;
+      }
+      --remaining;
+      hash = in.readLong();
+      offset = in.readLong();
+      return true;
+    }
+
+    @Override public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  private static final int BITS_PER_NAME = 10;
+  private static final int BLOOM_FILTER_HASHES = 7;
+  static final int CHUNK_RECORDS = 1 << 22;
+  private static final String EXTENSION = ".rni";
+  private static final int HEADER_SIZE = 16;
+  private static final Logger LOGGER = Logger.getLogger(ReadNameIndex.class.getName());
+  private static final int MAGIC = 0x524e4931;
+  private static final HashFunction NAME_HASH = Hashing.murmur3_128();
+  private static final int SEGMENT_LONGS = 1 << 27;
+
+  public static ReadNameIndex open(File bamFile, SAMFileHeader header) {
+    try {
+      File indexFile = SidecarFiles.locate(bamFile, EXTENSION);
+      if (SidecarFiles.isStale(indexFile, bamFile)) {
+        LOGGER.info(String.format("Building read name index \"%s\"", indexFile));
+        write(bamFile, header, indexFile, CHUNK_RECORDS);
+      }
+      return new ReadNameIndex(bamFile, header, indexFile);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  static long hash(String readName) {
+    return NAME_HASH.hashUnencodedChars(readName).asLong();
+  }
+
+  private static void skipHeader(BlockCompressedInputStream stream) {
+    BinaryCodec codec = new BinaryCodec(stream);
+    codec.readBytes(new byte[4]);
+    codec.readBytes(new byte[codec.readInt()]);
+    for (int references = codec.readInt(); 0 < references; --references) {
+      codec.readBytes(new byte[codec.readInt()]);
+      codec.readInt();
+    }
+  }
+
+  /**
+   * Maps {@code longs} longs from {@code position} on, in as many buffers as it takes.
+   */
+  private static LongBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long position,
+      long longs) throws IOException {
+    LongBuffer[] segments = new LongBuffer[(int) ((longs + SEGMENT_LONGS - 1) / SEGMENT_LONGS)];
+    for (int i = 0; i < segments.length; ++i) {
+      long start = (long) i * SEGMENT_LONGS;
+      segments[i] = channel.map(mode, position + 8 * start,
+          8 * Math.min(SEGMENT_LONGS, longs - start)).asLongBuffer();
+    }
+    return segments;
+  }
+
+  private static long get(LongBuffer[] segments, long index) {
+    return segments[(int) (index / SEGMENT_LONGS)].get((int) (index % SEGMENT_LONGS));
+  }
+
+  private static DataOutputStream openAt(RandomAccessFile file, long position)
+      throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(
+        Channels.newOutputStream(file.getChannel().position(position)), 1 << 16));
+  }
+
+  private static void spill(long[] hashes, long[] offsets, int size, File run)
+      throws IOException {
+    sort(hashes, offsets, size);
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(run), 1 << 16))) {
+      for (int i = 0; i < size; ++i) {
+        out.writeLong(hashes[i]);
+        out.writeLong(offsets[i]);
+      }
+    }
+  }
+
+  /**
+   * Writes the index of a BAM file. The name hashes and record offsets are sorted in chunks of
+   * {@code chunkRecords}, each spilled to a run next to the index, and the runs are merged
+   * straight into it, setting the bloom filter through a mapping of the file, so that memory use
+   * doesn't grow with the BAM file.
+   */
+  static void write(File bamFile, SAMFileHeader header, File indexFile, int chunkRecords)
+      throws IOException {
+    File directory = indexFile.getAbsoluteFile().getParentFile();
+    List<File> runs = new ArrayList<>();
+    try {
+      long[] hashes = new long[Math.min(1024, chunkRecords)];
+      long[] offsets = new long[hashes.length];
+      int count = 0;
+      long size = 0;
+      try (BlockCompressedInputStream stream = new BlockCompressedInputStream(bamFile)) {
+        skipHeader(stream);
+        BAMRecordCodec codec = new BAMRecordCodec(header);
+        codec.setInputStream(stream, bamFile.getPath());
+        for (long offset = stream.getFilePointer(); ; offset = stream.getFilePointer()) {
+          SAMRecord record = codec.decode();
+          if (null == record) {
+            break;
+          }
+          if (count == chunkRecords) {
+            runs.add(File.createTempFile(indexFile.getName(), ".run", directory));
+            spill(hashes, offsets, count, runs.get(runs.size() - 1));
+            count = 0;
+          } else if (count == hashes.length) {
+            int length = (int) Math.min(2L * count, chunkRecords);
+            hashes = Arrays.copyOf(hashes, length);
+            offsets = Arrays.copyOf(offsets, length);
+          }
+          hashes[count] = hash(record.getReadName());
+          offsets[count++] = offset;
+          ++size;
+        }
+      }
+      if (Integer.MAX_VALUE < size) {
+        throw new IOException(
+            String.format("\"%s\" has too many records to index by name", bamFile));
+      }
+      runs.add(File.createTempFile(indexFile.getName(), ".run", directory));
+      spill(hashes, offsets, count, runs.get(runs.size() - 1));
+      hashes = null;
+      offsets = null;
+      File temp = new File(indexFile.getPath() + ".tmp");
+      merge(runs, (int) size, temp);
+      if (!temp.renameTo(indexFile) && !(indexFile.delete() && temp.renameTo(indexFile))) {
+        throw new IOException(String.format("Failed to write \"%s\"", indexFile));
+      }
+    } finally {
+      for (File run : runs) {
+        run.delete();
+      }
+    }
+  }
+
+  private static void merge(List<File> runFiles, int size, File indexFile) throws IOException {
+    long bloomFilterWords = Math.max(1, (long) size * BITS_PER_NAME / 64 + 1);
+    long bits = 64 * bloomFilterWords;
+    long hashesPosition = HEADER_SIZE + 8 * bloomFilterWords;
+    long offsetsPosition = hashesPosition + 8L * size;
+    List<Run> runs = new ArrayList<>();
+    PriorityQueue<Run> queue = new PriorityQueue<>(runFiles.size(), Comparator
+        .comparingLong((Run run) -> run.hash)
+        .thenComparingLong(run -> run.offset));
+    try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+        RandomAccessFile offsetsFile = new RandomAccessFile(indexFile, "rw")) {
+      file.setLength(offsetsPosition + 8L * size);
+      file.writeInt(MAGIC);
+      file.writeInt(size);
+      file.writeInt((int) bloomFilterWords);
+      file.writeInt(BLOOM_FILTER_HASHES);
+      LongBuffer[] bloomFilter =
+          map(file.getChannel(), FileChannel.MapMode.READ_WRITE, HEADER_SIZE, bloomFilterWords);
+      DataOutputStream hashesOut = openAt(file, hashesPosition);
+      DataOutputStream offsetsOut = openAt(offsetsFile, offsetsPosition);
+      for (File runFile : runFiles) {
+        Run run = new Run(runFile);
+        runs.add(run);
+        if (run.next()) {
+          queue.add(run);
+        }
+      }
+      while (!queue.isEmpty()) {
+        Run run = queue.poll();
+        hashesOut.writeLong(run.hash);
+        offsetsOut.writeLong(run.offset);
+        for (int i = 0; i < BLOOM_FILTER_HASHES; ++i) {
+          long bit = Math.floorMod(bloomFilterHash(run.hash, i), bits);
+          LongBuffer segment = bloomFilter[(int) ((bit >>> 6) / SEGMENT_LONGS)];
+          int index = (int) ((bit >>> 6) % SEGMENT_LONGS);
+          segment.put(index, segment.get(index) | 1L << bit);
+        }
+        if (run.next()) {
+          queue.add(run);
+        }
+      }
+      hashesOut.flush();
+      offsetsOut.flush();
+    } finally {
+      for (Run run : runs) {
+        run.close();
+      }
+    }
+  }
+
+  private static long bloomFilterHash(long hash, int i) {
+    return (hash >>> 32) + i * (hash & 0xFFFFFFFFL) + (long) i * i;
+  }
+
+  private static void sort(long[] hashes, long[] offsets, int size) {
+    for (int i = size / 2 - 1; 0 <= i; --i) {
+      siftDown(hashes, offsets, i, size);
+    }
+    for (int end = size - 1; 0 < end; --end) {
+      swap(hashes, offsets, 0, end);
+      siftDown(hashes, offsets, 0, end);
+    }
+  }
+
+  private static void siftDown(long[] hashes, long[] offsets, int root, int size) {
+    for (int child = 2 * root + 1; child < size; root = child, child = 2 * root + 1) {
+      if (child + 1 < size && compare(hashes, offsets, child, child + 1) < 0) {
+        ++child;
+      }
+      if (compare(hashes, offsets, root, child) >= 0) {
+        return;
+      }
+      swap(hashes, offsets, root, child);
+    }
+  }
+
+  private static int compare(long[] hashes, long[] offsets, int i, int j) {
+    int comparison = Long.compare(hashes[i], hashes[j]);
+    return 0 == comparison ? Long.compare(offsets[i], offsets[j]) : comparison;
+  }
+
+  private static void swap(long[] hashes, long[] offsets, int i, int j) {
+    long hash = hashes[i];
+    hashes[i] = hashes[j];
+    hashes[j] = hash;
+    long offset = offsets[i];
+    offsets[i] = offsets[j];
+    offsets[j] = offset;
+  }
+
+  private final File bamFile;
+  private final LongBuffer[] bloomFilter;
+  private final int bloomFilterHashes;
+  private final long bloomFilterWords;
+  private final LongBuffer[] hashes;
+  private final SAMFileHeader header;
+  private final LongBuffer[] offsets;
+  private final int size;
+
+  private ReadNameIndex(File bamFile, SAMFileHeader header, File indexFile) throws IOException {
+    this.bamFile = bamFile;
+    this.header = header;
+    try (RandomAccessFile file = new RandomAccessFile(indexFile, "r")) {
+      FileChannel channel = file.getChannel();
+      ByteBuffer fileHeader = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+      if (MAGIC != fileHeader.getInt()) {
+        throw new IOException(String.format("\"%s\" is not a read name index", indexFile));
+      }
+      size = fileHeader.getInt();
+      bloomFilterWords = fileHeader.getInt();
+      bloomFilterHashes = fileHeader.getInt();
+      long position = HEADER_SIZE;
+      bloomFilter = map(channel, FileChannel.MapMode.READ_ONLY, position, bloomFilterWords);
+      position += 8L * bloomFilterWords;
+      hashes = map(channel, FileChannel.MapMode.READ_ONLY, position, size);
+      position += 8L * size;
+      offsets = map(channel, FileChannel.MapMode.READ_ONLY, position, size);
+    }
+  }
+
+  private boolean mightContain(long hash) {
+    long bits = 64 * bloomFilterWords;
+    for (int i = 0; i < bloomFilterHashes; ++i) {
+      long bit = Math.floorMod(bloomFilterHash(hash, i), bits);
+      if (0 == (get(bloomFilter, bit >>> 6) & 1L << bit)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int lowerBound(long hash) {
+    int low = 0;
+    for (int high = size; low < high;) {
+      int middle = (low + high) >>> 1;
+      if (get(hashes, middle) < hash) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  public List<SAMRecord> find(String readName) {
+    long hash = hash(readName);
+    List<SAMRecord> records = new ArrayList<>();
+    if (mightContain(hash)) {
+      int i = lowerBound(hash);
+      if (i < size && hash == get(hashes, i)) {
+        try (BlockCompressedInputStream stream = new BlockCompressedInputStream(bamFile)) {
+          BAMRecordCodec codec = new BAMRecordCodec(header);
+          codec.setInputStream(stream, bamFile.getPath());
+          for (; i < size && hash == get(hashes, i); ++i) {
+            stream.seek(get(offsets, i));
+            SAMRecord record = codec.decode();
+            if (null != record && readName.equals(record.getReadName())) {
+              records.add(record);
+            }
+          }
+        } catch (IOException e) {
+          throw Throwables.propagate(e);
+        }
+      }
+    }
+    return records;
+  }
+
+  public int size() {
+    return size;
+  }
+}
@@ -15,15 +15,16 @@ limitations under the License.
 */
 package com.google.cloud.genomics.localrepo;
 
+import com.google.cloud.genomics.localrepo.dto.ReadBatch;
 import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
 
-import java.util.List;
-
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -41,13 +42,42 @@ public class Reads extends BaseResource {
     this.backend = backend;
   }
 
+  @GET
+  @Path("/{readId}")
+  public Response get(@PathParam("readId") String readId) {
+    return toResponse(backend.getRead(readId));
+  }
+
+  @GET
+  @Path("/{readId}/mate")
+  public Response getMate(@PathParam("readId") String readId) {
+    return toResponse(backend.getMate(readId));
+  }
+
+  private static boolean isValid(SearchReadsRequest request) {
+    Double downsampleFraction = request.getDownsampleFraction();
+    Long downsampleCount = request.getDownsampleCount();
+    return (request.getDatasetIds().isEmpty() || request.getReadsetIds().isEmpty())
+        && (null == downsampleFraction || 0 < downsampleFraction && downsampleFraction <= 1)
+        && (null == downsampleCount || 0 < downsampleCount);
+  }
+
   @POST
   @Path("/search")
+  @Compress(level = Compress.Level.FASTEST)
   public Response search(final SearchReadsRequest request) {
-    List<String> datasetIds = request.getDatasetIds();
-    List<String> readsetIds = request.getReadsetIds();
-    return datasetIds.isEmpty() || readsetIds.isEmpty()
-        ? Response.ok(backend.searchReads(request)).build()
+    return isValid(request)
+        ? Response.ok(backend.searchReads(request), MediaType.APPLICATION_JSON).build()
+        : BAD_REQUEST;
+  }
+
+  @POST
+  @Path("/search")
+  @Produces(ReadBatch.MEDIA_TYPE + "; qs=0.5")
+  @Compress(level = Compress.Level.FASTEST)
+  public Response searchBatch(final SearchReadsRequest request) {
+    return isValid(request)
+        ? Response.ok(backend.searchReadsBatch(request), ReadBatch.MEDIA_TYPE).build()
         : BAD_REQUEST;
   }
 }
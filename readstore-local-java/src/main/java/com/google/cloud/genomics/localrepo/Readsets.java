@@ -16,9 +16,6 @@ limitations under the License.
 package com.google.cloud.genomics.localrepo;
 
 import com.google.cloud.genomics.localrepo.dto.SearchReadsetsRequest;
-import com.google.cloud.genomics.localrepo.dto.SearchReadsetsResponse;
-
-import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -28,12 +25,15 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 @Path("/readsets")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
+@Compress
 @Singleton
 public class Readsets extends BaseResource {
 
@@ -46,15 +46,20 @@ public class Readsets extends BaseResource {
 
   @GET
   @Path("/{readsetId}")
-  public Response get(@PathParam("readsetId") String readsetId) {
-    return toResponse(backend.getReadset(readsetId));
+  public Response get(@PathParam("readsetId") String readsetId, @Context HttpHeaders headers) {
+    return toResponse(headers, backend.getReadset(readsetId));
   }
 
   @POST
   @Path("/search")
-  public SearchReadsetsResponse search(SearchReadsetsRequest request) {
-    return SearchReadsetsResponse.create(
-        backend.searchReadsets(request.getDatasetIds()).collect(Collectors.toList()),
-        null);
+  public Response search(SearchReadsetsRequest request, @Context HttpHeaders headers) {
+    Long maxResults = request.getMaxResults();
+    String view = request.getView();
+    return (null == maxResults || 0 < maxResults)
+        && (null == view
+            || SearchReadsetsRequest.FULL_VIEW.equals(view)
+            || SearchReadsetsRequest.SUMMARY_VIEW.equals(view))
+        ? toResponse(headers, backend.searchReadsets(request), BAD_REQUEST)
+        : BAD_REQUEST;
   }
 }
@@ -0,0 +1,151 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.codehaus.jackson.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+
+/**
+ * Writes every matched request to a file as a line of JSON, for replaying later: the time it
+ * arrived in microseconds since the epoch, its method, resource path template, path and query
+ * relative to the server's root, the headers in {@code RECORDED_HEADERS} that it sent, and body.
+ * The file is gzipped if its name ends in {@code .gz}. Records are flushed to the file every
+ * {@code FLUSH_SECONDS}, so that a log of a server that is still running, or that died, can be
+ * replayed up to then.
+ */
+final class RequestLog implements ContainerRequestFilter, Closeable {
+
+  private static final int BUFFER_SIZE = 64 << 10;
+
+  private static final int FLUSH_SECONDS = 1;
+
+  private static final Logger LOGGER = Logger.getLogger(RequestLog.class.getName());
+
+  /**
+   * The headers that change what a response holds or how it is encoded.
+   */
+  private static final List<String> RECORDED_HEADERS = Arrays.asList(
+      HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.IF_NONE_MATCH);
+
+  static RequestLog create(Path file) throws IOException {
+    OutputStream out = Files.newOutputStream(file);
+    return new RequestLog(file.getFileName().toString().endsWith(".gz")
+        ? new GZIPOutputStream(out, BUFFER_SIZE, true)
+        : new BufferedOutputStream(out, BUFFER_SIZE));
+  }
+
+  private final ScheduledExecutorService flusher;
+  private final OutputStream out;
+  @Context private ResourceInfo resourceInfo;
+  private final long startMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+  private final long startNanos = System.nanoTime();
+
+  private RequestLog(OutputStream out) {
+    this.out = out;
+    this.flusher = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("request-log-flusher-%d").build());
+    flusher.scheduleWithFixedDelay(this::flush, FLUSH_SECONDS, FLUSH_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @Override public void close() throws IOException {
+    flusher.shutdown();
+    synchronized (out) {
+      out.close();
+    }
+  }
+
+  private void flush() {
+    try {
+      synchronized (out) {
+        out.flush();
+      }
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to flush the request log", e);
+    }
+  }
+
+  @Override public void filter(ContainerRequestContext request) throws IOException {
+    long time = startMicros + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    Method method = resourceInfo.getResourceMethod();
+    byte[] body = null;
+    if (request.hasEntity()) {
+      body = ByteStreams.toByteArray(request.getEntityStream());
+      request.setEntityStream(new ByteArrayInputStream(body));
+    }
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    try (JsonGenerator generator =
+        DataTransferObject.OBJECT_MAPPER.getJsonFactory().createJsonGenerator(line)) {
+      generator.writeStartObject();
+      generator.writeNumberField("time", time);
+      generator.writeStringField("method", request.getMethod());
+      if (null != method) {
+        generator.writeStringField("endpoint",
+            RequestMetrics.path(resourceInfo.getResourceClass()) + RequestMetrics.path(method));
+      }
+      generator.writeStringField("path", request.getUriInfo().getBaseUri()
+          .relativize(request.getUriInfo().getRequestUri()).toString());
+      boolean headers = false;
+      for (String header : RECORDED_HEADERS) {
+        String value = request.getHeaderString(header);
+        if (null != value) {
+          if (!headers) {
+            generator.writeObjectFieldStart("headers");
+            headers = true;
+          }
+          generator.writeStringField(header, value);
+        }
+      }
+      if (headers) {
+        generator.writeEndObject();
+      }
+      if (null != body) {
+        generator.writeStringField("body", new String(body, StandardCharsets.UTF_8));
+      }
+      generator.writeEndObject();
+    }
+    line.write('\n');
+    synchronized (out) {
+      line.writeTo(out);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.cloud.genomics.localrepo.util.MetricRegistry;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.Optional;
+
+import javax.ws.rs.Path;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+
+/**
+ * Records the latency of every request, labelled by method, resource path template and status.
+ */
+@PreMatching
+final class RequestMetrics implements ContainerRequestFilter, ContainerResponseFilter {
+
+  private static final MetricRegistry.Family<MetricRegistry.Histogram> DURATION =
+      MetricRegistry.timer("readstore_http_request_duration_seconds",
+          "Time taken to handle an HTTP request, up to writing the response body.",
+          "method", "path", "status");
+
+  private static final String START = RequestMetrics.class.getName() + ".start";
+
+  static String path(AnnotatedElement element) {
+    return Optional.ofNullable(element.getAnnotation(Path.class)).map(Path::value).orElse("");
+  }
+
+  @Context private ResourceInfo resourceInfo;
+
+  @Override public void filter(ContainerRequestContext request) {
+    request.setProperty(START, System.nanoTime());
+  }
+
+  @Override public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+    Object start = request.getProperty(START);
+    if (null != start) {
+      Method method = resourceInfo.getResourceMethod();
+      DURATION.labels(
+          request.getMethod(),
+          null == method ? "unmatched" : path(resourceInfo.getResourceClass()) + path(method),
+          Integer.toString(response.getStatus()))
+          .recordSince((Long) start);
+    }
+  }
+}
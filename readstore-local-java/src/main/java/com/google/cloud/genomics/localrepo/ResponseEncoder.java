@@ -0,0 +1,66 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A content coding that {@link Server} can negotiate through {@code Accept-Encoding}.
+ */
+public interface ResponseEncoder {
+
+  ResponseEncoder GZIP = new ResponseEncoder() {
+
+    @Override public OutputStream encode(OutputStream out, Compress.Level level)
+        throws IOException {
+      return new GZIPOutputStream(out, 8192) {
+        {
+          def.setLevel(level == Compress.Level.FASTEST ? Deflater.BEST_SPEED
+              : level == Compress.Level.BEST ? Deflater.BEST_COMPRESSION
+              : Deflater.DEFAULT_COMPRESSION);
+        }
+      };
+    }
+
+    @Override public String getEncoding() {
+      return "gzip";
+    }
+  };
+
+  ResponseEncoder ZSTD = new ResponseEncoder() {
+
+    @Override public OutputStream encode(OutputStream out, Compress.Level level)
+        throws IOException {
+      return new ZstdOutputStream(out, level == Compress.Level.FASTEST ? 1
+          : level == Compress.Level.BEST ? 19
+          : Zstd.defaultCompressionLevel());
+    }
+
+    @Override public String getEncoding() {
+      return "zstd";
+    }
+  };
+
+  OutputStream encode(OutputStream out, Compress.Level level) throws IOException;
+
+  String getEncoding();
+}
@@ -0,0 +1,89 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import javax.ws.rs.core.EntityTag;
+
+public final class SerializedEntity {
+
+  private static final byte[] EMPTY = new byte[0];
+  private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+
+  public static SerializedEntity create(byte[] bytes) {
+    return new SerializedEntity(bytes, Collections.<SerializedEntity>emptyList(), EMPTY,
+        Hashing.murmur3_128().hashBytes(bytes).toString());
+  }
+
+  public static SerializedEntity serialize(Object entity) {
+    try {
+      return create(DataTransferObject.OBJECT_MAPPER.writeValueAsBytes(entity));
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public static SerializedEntity join(String prefix, List<SerializedEntity> elements,
+      String suffix) {
+    byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+    byte[] suffixBytes = suffix.getBytes(StandardCharsets.UTF_8);
+    Hasher hasher = Hashing.murmur3_128().newHasher().putBytes(prefixBytes);
+    for (SerializedEntity element : elements) {
+      hasher.putString(element.entityTag.getValue(), StandardCharsets.UTF_8);
+    }
+    return new SerializedEntity(prefixBytes, elements, suffixBytes,
+        hasher.putBytes(suffixBytes).hash().toString());
+  }
+
+  private final List<SerializedEntity> elements;
+  private final EntityTag entityTag;
+  private final byte[] prefix;
+  private final byte[] suffix;
+
+  private SerializedEntity(byte[] prefix, List<SerializedEntity> elements, byte[] suffix,
+      String entityTag) {
+    this.prefix = prefix;
+    this.elements = elements;
+    this.suffix = suffix;
+    this.entityTag = new EntityTag(entityTag);
+  }
+
+  public EntityTag getEntityTag() {
+    return entityTag;
+  }
+
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(prefix);
+    boolean first = true;
+    for (SerializedEntity element : elements) {
+      if (!first) {
+        out.write(SEPARATOR);
+      }
+      element.writeTo(out);
+      first = false;
+    }
+    out.write(suffix);
+  }
+}
@@ -15,6 +15,9 @@ limitations under the License.
 */
 package com.google.cloud.genomics.localrepo;
 
+import com.google.cloud.genomics.localrepo.dto.ReadBatch;
+import com.google.common.base.Throwables;
+
 import org.codehaus.jackson.jaxrs.JacksonJaxbJsonProvider;
 import org.glassfish.grizzly.http.server.HttpServer;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
@@ -23,31 +26,45 @@ import org.glassfish.jersey.server.ResourceConfig;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
 public final class Server {
 
   public static final class Builder {
 
+    private static final long DEFAULT_CACHE_SIZE = 64 << 20;
     private static final int DEFAULT_PAGE_SIZE = 256;
     private static final String DEFAULT_PATH = "";
     private static final int DEFAULT_PORT = 5000;
     private static final Collection<DatasetDirectory> DEFAULT_DATASETS = Collections.emptyList();
+    private static final List<ResponseEncoder> DEFAULT_ENCODERS =
+        Arrays.asList(ResponseEncoder.ZSTD, ResponseEncoder.GZIP);
+    private static final Optional<Path> DEFAULT_REQUEST_LOG = Optional.empty();
 
+    private long cacheSize = DEFAULT_CACHE_SIZE;
     private int pageSize = DEFAULT_PAGE_SIZE;
     private String path = DEFAULT_PATH;
     private int port = DEFAULT_PORT;
     private Collection<DatasetDirectory> datasets = DEFAULT_DATASETS;
+    private List<ResponseEncoder> encoders = DEFAULT_ENCODERS;
+    private Optional<Path> requestLog = DEFAULT_REQUEST_LOG;
 
     private Builder() {}
 
     public Server build() {
-      return new Server(port, path, datasets, pageSize);
+      return new Server(port, path, datasets, pageSize, cacheSize, encoders, requestLog);
     }
 
     @Override
@@ -57,14 +74,22 @@ public final class Server {
         return Objects.equals(path, rhs.path)
             && port == rhs.port
             && datasets.equals(rhs.datasets)
-            && pageSize == rhs.pageSize;
+            && pageSize == rhs.pageSize
+            && cacheSize == rhs.cacheSize
+            && encoders.equals(rhs.encoders)
+            && requestLog.equals(rhs.requestLog);
       }
       return false;
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(port, path, datasets, pageSize);
+      return Objects.hash(port, path, datasets, pageSize, cacheSize, encoders, requestLog);
+    }
+
+    public Builder setCacheSize(long cacheSize) {
+      this.cacheSize = cacheSize;
+      return this;
     }
 
     public Builder setDatasets(DatasetDirectory... datasets) {
@@ -76,6 +101,15 @@ public final class Server {
       return this;
     }
 
+    public Builder setEncoders(ResponseEncoder... encoders) {
+      return setEncoders(Arrays.asList(encoders));
+    }
+
+    public Builder setEncoders(List<ResponseEncoder> encoders) {
+      this.encoders = encoders;
+      return this;
+    }
+
     public Builder setPageSize(int pageSize) {
       this.pageSize = pageSize;
       return this;
@@ -91,12 +125,26 @@ public final class Server {
       return this;
     }
 
+    public Builder setRequestLog(Path requestLog) {
+      this.requestLog = Optional.of(requestLog);
+      return this;
+    }
+
     @Override
     public String toString() {
       return String.format("path = \"%s\", port = %d", path, port);
     }
   }
 
+  @Produces({ MediaType.APPLICATION_JSON, ReadBatch.MEDIA_TYPE })
+  @Consumes(MediaType.APPLICATION_JSON)
+  private static final class JsonProvider extends JacksonJaxbJsonProvider {
+
+    JsonProvider() {
+      setMapper(DataTransferObject.OBJECT_MAPPER);
+    }
+  }
+
   public static Builder builder() {
     return new Builder();
   }
@@ -104,15 +152,22 @@ public final class Server {
   public static void main(String[] args) throws Exception {
     CommandLineArguments cmdLine = CommandLineArguments.parse(args);
     Optional<Integer> port = cmdLine.getPort();
+    Optional<String> requestLog = cmdLine.getRequestLog();
     Builder builder = builder();
-    (port.isPresent() ? builder.setPort(port.get()) : builder)
+    if (requestLog.isPresent()) {
+      builder.setRequestLog(Paths.get(requestLog.get()));
+    }
+    Server server = (port.isPresent() ? builder.setPort(port.get()) : builder)
         .setDatasets(
             cmdLine.getDatasets().entrySet().stream()
                 .map(entry -> DatasetDirectory.create(entry.getKey(), entry.getValue()))
                 .collect(Collectors.toList())).build().start();
+    Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
     Thread.currentThread().join();
   }
 
+  private final Backend backend;
+  private final Optional<RequestLog> requestLog;
   private final HttpServer server;
   private final URI uri;
 
@@ -120,24 +175,39 @@ public final class Server {
       int port,
       String path,
       final Collection<DatasetDirectory> datasets,
-      final int pageSize) {
+      final int pageSize,
+      final long cacheSize,
+      List<ResponseEncoder> encoders,
+      Optional<Path> requestLog) {
+    this.backend = Backend.create(datasets, pageSize, cacheSize);
+    ResourceConfig config = new ResourceConfig()
+        .register(Callsets.class)
+        .register(Datasets.class)
+        .register(Genotypes.class)
+        .register(Metrics.class)
+        .register(Reads.class)
+        .register(Readsets.class)
+        .register(Stats.class)
+        .register(Variants.class)
+        .register(
+            new AbstractBinder() {
+              @Override protected void configure() {
+                bind(backend);
+              }
+            })
+        .register(new JsonProvider())
+        .register(new CompressionInterceptor(encoders))
+        .register(new RequestMetrics());
+    this.requestLog = requestLog.map(file -> {
+      try {
+        return RequestLog.create(file);
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    });
+    this.requestLog.ifPresent(config::register);
     server = GrizzlyHttpServerFactory.createHttpServer(
-        uri = URI.create(String.format("http://localhost:%d/%s", port, path)),
-        new ResourceConfig()
-            .register(Datasets.class)
-            .register(Reads.class)
-            .register(Readsets.class)
-            .register(
-                new AbstractBinder() {
-                  @Override protected void configure() {
-                    bind(Backend.create(datasets, pageSize));
-                  }
-                })
-            .register(
-                new JacksonJaxbJsonProvider() {{
-                  setMapper(DataTransferObject.OBJECT_MAPPER);
-                }}),
-        false);
+        uri = URI.create(String.format("http://localhost:%d/%s", port, path)), config, false);
   }
 
   @Override
@@ -166,6 +236,14 @@ public final class Server {
 
   public Server stop() {
     server.shutdownNow();
+    backend.close();
+    if (requestLog.isPresent()) {
+      try {
+        requestLog.get().close();
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
     return this;
   }
 
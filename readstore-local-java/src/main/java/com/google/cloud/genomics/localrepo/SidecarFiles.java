@@ -0,0 +1,55 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Locates the files the server derives from a data file, such as a BAM file's read name index.
+ * One is kept next to its data file, or, if that directory isn't writable, in a cache directory
+ * keyed by the data file's absolute path, so that it survives restarts. The cache directory is
+ * {@code ~/.cache/readstore} unless the {@code readstore.cacheDirectory} system property says
+ * otherwise.
+ */
+final class SidecarFiles {
+
+  private static final String CACHE_DIRECTORY_PROPERTY = "readstore.cacheDirectory";
+
+  static File locate(File dataFile, String extension) throws IOException {
+    File sibling = new File(dataFile.getPath() + extension);
+    if (!isStale(sibling, dataFile) || dataFile.getAbsoluteFile().getParentFile().canWrite()) {
+      return sibling;
+    }
+    File directory = new File(System.getProperty(CACHE_DIRECTORY_PROPERTY,
+        Paths.get(System.getProperty("user.home"), ".cache", "readstore").toString()));
+    Files.createDirectories(directory.toPath());
+    return new File(directory, String.format("%s-%s%s",
+        Hashing.murmur3_128().hashString(dataFile.getAbsolutePath(), StandardCharsets.UTF_8),
+        dataFile.getName(), extension));
+  }
+
+  static boolean isStale(File sidecar, File dataFile) {
+    return !sidecar.isFile() || sidecar.lastModified() < dataFile.lastModified();
+  }
+
+  private SidecarFiles() {}
+}
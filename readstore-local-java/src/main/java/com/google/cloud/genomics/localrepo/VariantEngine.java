@@ -0,0 +1,541 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.cloud.genomics.localrepo.QueryEngine.QueryDescriptor;
+import com.google.cloud.genomics.localrepo.dto.Call;
+import com.google.cloud.genomics.localrepo.dto.GenotypeBatch;
+import com.google.cloud.genomics.localrepo.dto.SearchGenotypesRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchGenotypesResponse;
+import com.google.cloud.genomics.localrepo.dto.SearchVariantsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchVariantsResponse;
+import com.google.cloud.genomics.localrepo.dto.Variant;
+import com.google.cloud.genomics.localrepo.util.MetricRegistry;
+import com.google.common.base.Throwables;
+
+import org.broad.tribble.readers.TabixReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Searches the VCF files of a dataset for variants in a region of one contig. Files are read
+ * in step, ordered by position, and records from different files at the same position with the
+ * same alleles are returned as one variant carrying all of their calls. Page tokens record where
+ * each file left off, as {@link QueryEngine} does for reads.
+ *
+ * <p>Genotype searches read each file's {@link GenotypeStore} instead, returning a columnar
+ * batch per file.
+ */
+class VariantEngine {
+
+  /**
+   * A VCF file open for one search, positioned at its next record.
+   */
+  private static final class Cursor {
+
+    private final List<VcfFilesCallset> callsets;
+    private final int[] columns;
+    private int consumed;
+    private final File file;
+    private final TabixReader.Iterator iterator;
+    private VcfRecord next;
+    private int position;
+    private final String variantName;
+
+    Cursor(File file, TabixReader.Iterator iterator, int[] columns,
+        List<VcfFilesCallset> callsets, String variantName) {
+      this.file = file;
+      this.iterator = iterator;
+      this.columns = columns;
+      this.callsets = callsets;
+      this.variantName = variantName;
+    }
+
+    /**
+     * Skips records before {@code start}, and the first {@code skip} records at {@code start},
+     * which earlier pages returned.
+     */
+    Cursor seek(int start, int skip) {
+      while (null != peek() && next.getPosition() < start) {
+        next = null;
+      }
+      position = start;
+      consumed = 0;
+      while (consumed < skip && null != peek() && start == next.getPosition()) {
+        take();
+      }
+      return this;
+    }
+
+    VcfRecord peek() {
+      try {
+        for (String line; null == next && null != (line = iterator.next());) {
+          RECORDS_SCANNED.increment();
+          VcfRecord record = new VcfRecord(line);
+          if (null == variantName || isNamed(record, variantName)) {
+            next = record;
+          }
+        }
+        return next;
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+
+    VcfRecord take() {
+      VcfRecord record = peek();
+      next = null;
+      int recordPosition = record.getPosition();
+      consumed = recordPosition == position ? consumed + 1 : 1;
+      position = recordPosition;
+      return record;
+    }
+
+    /**
+     * Returns where the next page should resume this file, or null if the file is exhausted.
+     */
+    QueryDescriptor.Start resume(String contig) {
+      VcfRecord record = peek();
+      if (null == record) {
+        return null;
+      }
+      int recordPosition = record.getPosition();
+      return QueryDescriptor.Start.create(contig, recordPosition,
+          recordPosition == position ? consumed : 0);
+    }
+  }
+
+  private static final MetricRegistry.Histogram SEARCH_DURATION = MetricRegistry.timer(
+      "readstore_search_variants_duration_seconds", "Time taken to answer a variant search.");
+
+  private static final MetricRegistry.Counter RECORDS_SCANNED = MetricRegistry.counter(
+      "readstore_search_variants_scanned_total", "VCF records read by variant searches.");
+
+  private static final MetricRegistry.Counter VARIANTS_EMITTED = MetricRegistry.counter(
+      "readstore_search_variants_emitted_total", "Variants returned by variant searches.");
+
+  private static final MetricRegistry.Histogram GENOTYPE_SEARCH_DURATION = MetricRegistry.timer(
+      "readstore_search_genotypes_duration_seconds", "Time taken to answer a genotype search.");
+
+  private static final MetricRegistry.Counter GENOTYPES_EMITTED = MetricRegistry.counter(
+      "readstore_search_genotypes_emitted_total", "Genotypes returned by genotype searches.");
+
+  private static final Logger LOGGER = Logger.getLogger(VariantEngine.class.getName());
+
+  private static final int MAX_PAGE_GENOTYPES = 1 << 24;
+
+  private static final String MISSING = ".";
+
+  static VariantEngine create(Map<String, DatasetDirectory> datasets, int pageSize) {
+    return new VariantEngine(datasets, pageSize);
+  }
+
+  private static boolean isNamed(VcfRecord record, String variantName) {
+    return Arrays.asList(record.get(VcfRecord.ID).split(";")).contains(variantName);
+  }
+
+  private static List<String> split(String value, String separator) {
+    return null == value || MISSING.equals(value)
+        ? Collections.<String>emptyList()
+        : Arrays.asList(value.split(separator));
+  }
+
+  private static Map<String, List<String>> parseInfo(String info) {
+    Map<String, List<String>> map = new LinkedHashMap<>();
+    for (String entry : split(info, ";")) {
+      int equals = entry.indexOf('=');
+      if (-1 == equals) {
+        map.put(entry, Collections.<String>emptyList());
+      } else {
+        map.put(entry.substring(0, equals), split(entry.substring(equals + 1), ","));
+      }
+    }
+    return map;
+  }
+
+  private static Call parseCall(VcfFilesCallset callset, String format, String sample) {
+    List<Long> genotype = Collections.emptyList();
+    List<Double> genotypeLikelihood = Collections.emptyList();
+    String phaseset = null;
+    Map<String, List<String>> info = new LinkedHashMap<>();
+    List<String> keys = split(format, ":");
+    List<String> values = split(sample, ":");
+    for (int i = 0; i < keys.size() && i < values.size(); ++i) {
+      String key = keys.get(i);
+      String value = values.get(i);
+      switch (key) {
+        case "GT":
+          genotype = Arrays.stream(value.split("[/|]"))
+              .map(allele -> MISSING.equals(allele) ? -1L : Long.parseLong(allele))
+              .collect(Collectors.toList());
+          phaseset = -1 == value.indexOf('|') ? null : "*";
+          break;
+        case "GL":
+          genotypeLikelihood = split(value, ",").stream()
+              .map(Double::valueOf)
+              .collect(Collectors.toList());
+          break;
+        default:
+          info.put(key, split(value, ","));
+      }
+    }
+    return Call.create(callset.getCallsetId(), callset.getSample(), genotype, genotypeLikelihood,
+        phaseset, info);
+  }
+
+  private static Optional<Map<File, QueryDescriptor.Start>> parsePageToken(String pageToken) {
+    try {
+      @SuppressWarnings("unchecked")
+      Map<File, QueryDescriptor.Start> starts = (Map<File, QueryDescriptor.Start>)
+          new ObjectInputStream(new ByteArrayInputStream(
+              DatatypeConverter.parseBase64Binary(pageToken))).readObject();
+      return Optional.of(starts);
+    } catch (Exception e) {
+      return Optional.empty();
+    }
+  }
+
+  private static String pageToken(HashMap<File, QueryDescriptor.Start> starts) {
+    try {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      new ObjectOutputStream(buffer).writeObject(starts);
+      return DatatypeConverter.printBase64Binary(buffer.toByteArray());
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static int toInt(Long l, int defaultValue) {
+    return null == l ? defaultValue : (int) Math.min(l, Integer.MAX_VALUE);
+  }
+
+  private final Map<String, DatasetDirectory> datasets;
+  private final int pageSize;
+
+  private VariantEngine(Map<String, DatasetDirectory> datasets, int pageSize) {
+    this.datasets = datasets;
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Returns the ordinals of the selected callsets, or of all of the dataset's if none are
+   * selected.
+   */
+  private static BitSet getCallsets(DatasetDirectory dataset, List<String> callsetIds,
+      List<String> callsetNames, byte[] callsetOrdinals) {
+    List<VcfFilesCallset> callsets = dataset.getCallsetsByOrdinal();
+    BitSet selected = new BitSet(callsets.size());
+    if (null != callsetOrdinals) {
+      selected.or(BitSet.valueOf(callsetOrdinals));
+    } else if (!callsetIds.isEmpty()) {
+      Map<String, VcfFilesCallset> byId = dataset.getCallsets();
+      callsetIds.stream()
+          .map(byId::get)
+          .filter(callset -> null != callset)
+          .forEach(callset -> selected.set(callset.getOrdinal()));
+    } else if (!callsetNames.isEmpty()) {
+      Set<String> names = new HashSet<>(callsetNames);
+      callsets.stream()
+          .filter(callset -> names.contains(callset.getSample()))
+          .forEach(callset -> selected.set(callset.getOrdinal()));
+    } else {
+      selected.set(0, callsets.size());
+    }
+    return selected;
+  }
+
+  private static boolean isFiltered(List<String> callsetIds, List<String> callsetNames,
+      byte[] callsetOrdinals) {
+    return null != callsetOrdinals || !callsetIds.isEmpty() || !callsetNames.isEmpty();
+  }
+
+  /**
+   * Returns the columns of a VCF file's selected callsets, in column order.
+   */
+  private static Map<Integer, VcfFilesCallset> getColumns(DatasetDirectory dataset,
+      VcfFile vcfFile, BitSet selected) {
+    Map<Integer, VcfFilesCallset> columns = new LinkedHashMap<>();
+    int[] ordinals = dataset.getColumnOrdinals(vcfFile);
+    for (int column = 0; column < ordinals.length; ++column) {
+      if (selected.get(ordinals[column])) {
+        columns.put(column, dataset.getCallsetsByOrdinal().get(ordinals[column]));
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Returns the dataset's VCF files, leaving out those without any of the selected callsets if
+   * the request selects some.
+   */
+  private static Map<File, VcfFile> getFiles(DatasetDirectory dataset, BitSet selected,
+      boolean filtered) {
+    Map<File, VcfFile> files = new LinkedHashMap<>();
+    for (VcfFile vcfFile : dataset.getVcfFiles()) {
+      if (!filtered
+          || Arrays.stream(dataset.getColumnOrdinals(vcfFile)).anyMatch(selected::get)) {
+        files.put(vcfFile.getFile(), vcfFile);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Returns where each file's search resumes: at {@code start} without a page token, or where
+   * the token says. Tokens naming other files or another contig are rejected.
+   */
+  private static Optional<Map<File, QueryDescriptor.Start>> getStarts(String pageToken,
+      Set<File> files, String contig, int start) {
+    if (null == pageToken) {
+      return Optional.of(files.stream().collect(Collectors.toMap(Function.identity(),
+          file -> QueryDescriptor.Start.create(contig, start, 0))));
+    }
+    return parsePageToken(pageToken).filter(starts -> files.containsAll(starts.keySet())
+        && starts.values().stream().allMatch(s -> contig.equals(s.getSequence())));
+  }
+
+  /**
+   * Opens the genotype store of every VCF file on {@code executor}, transcoding those that are
+   * missing or stale. A genotype search that needs a store first builds it, or waits for it,
+   * itself.
+   */
+  void loadGenotypeStores(Executor executor) {
+    datasets.values()
+        .stream()
+        .flatMap(dataset -> dataset.getVcfFiles().stream())
+        .distinct()
+        .forEach(vcfFile -> executor.execute(() -> {
+          try {
+            vcfFile.getGenotypeStore();
+          } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, String.format("Failed to transcode \"%s\"", vcfFile), e);
+          }
+        }));
+  }
+
+  Optional<SearchGenotypesResponse> searchGenotypes(SearchGenotypesRequest request) {
+    DatasetDirectory dataset = datasets.get(request.getDatasetId());
+    if (null == dataset) {
+      return Optional.empty();
+    }
+    String contig = request.getContig();
+    int start = Math.max(1, toInt(request.getStartPosition(), 1));
+    int end = toInt(request.getEndPosition(), Integer.MAX_VALUE);
+    BitSet callsets = getCallsets(dataset, request.getCallsetIds(), request.getCallsetNames(),
+        request.getCallsetOrdinals());
+    Map<File, VcfFile> files = getFiles(dataset, callsets, true);
+    Optional<Map<File, QueryDescriptor.Start>> starts =
+        getStarts(request.getPageToken(), files.keySet(), contig, start);
+    if (!starts.isPresent()) {
+      return Optional.empty();
+    }
+    long begin = System.nanoTime();
+    long remainingVariants = null == request.getMaxResults()
+        ? Long.MAX_VALUE : request.getMaxResults();
+    long remainingGenotypes = MAX_PAGE_GENOTYPES;
+    List<GenotypeBatch> batches = new ArrayList<>();
+    HashMap<File, QueryDescriptor.Start> next = new HashMap<>();
+    for (Map.Entry<File, VcfFile> entry : files.entrySet()) {
+      QueryDescriptor.Start fileStart = starts.get().get(entry.getKey());
+      if (null == fileStart) {
+        continue;
+      }
+      GenotypeStore store = entry.getValue().getGenotypeStore();
+      int to = store.upperBound(contig, end);
+      int from = Math.min(to,
+          store.lowerBound(contig, fileStart.getStart()) + fileStart.getSkip());
+      Map<Integer, VcfFilesCallset> columns = getColumns(dataset, entry.getValue(), callsets);
+      long budget = Math.min(remainingVariants, remainingGenotypes / columns.size());
+      int count = (int) Math.min(to - from, batches.isEmpty() ? Math.max(1, budget) : budget);
+      if (0 < count) {
+        batches.add(createBatch(store, columns, from, count));
+        remainingVariants -= count;
+        remainingGenotypes -= (long) count * columns.size();
+        GENOTYPES_EMITTED.add((long) count * columns.size());
+      }
+      if (from + count < to) {
+        int position = store.getPosition(from + count);
+        next.put(entry.getKey(), QueryDescriptor.Start.create(contig, position,
+            from + count - store.lowerBound(contig, position)));
+      }
+    }
+    GENOTYPE_SEARCH_DURATION.recordSince(begin);
+    return Optional.of(SearchGenotypesResponse.create(batches,
+        next.isEmpty() ? null : pageToken(next)));
+  }
+
+  private static GenotypeBatch createBatch(GenotypeStore store,
+      Map<Integer, VcfFilesCallset> columns, int from, int count) {
+    int[] positions = new int[count];
+    List<String> referenceBases = new ArrayList<>(count);
+    List<String> alternateBases = new ArrayList<>(count);
+    for (int i = 0; i < count; ++i) {
+      positions[i] = store.getPosition(from + i);
+      referenceBases.add(store.getReferenceBases(from + i));
+      alternateBases.add(store.getAlternateBases(from + i));
+    }
+    int rowBytes = (count + 3) / 4;
+    byte[] genotypes = new byte[rowBytes * columns.size()];
+    int row = 0;
+    for (int column : columns.keySet()) {
+      store.getGenotypes(column, from, count, genotypes, rowBytes * row++);
+    }
+    return GenotypeBatch.create(
+        columns.values().stream().map(VcfFilesCallset::getCallsetId).collect(Collectors.toList()),
+        positions, referenceBases, alternateBases, genotypes);
+  }
+
+  Optional<SearchVariantsResponse> searchVariants(SearchVariantsRequest request) {
+    DatasetDirectory dataset = datasets.get(request.getDatasetId());
+    if (null == dataset) {
+      return Optional.empty();
+    }
+    String contig = request.getContig();
+    int start = Math.max(1, toInt(request.getStartPosition(), 1));
+    int end = toInt(request.getEndPosition(), Integer.MAX_VALUE);
+    BitSet callsets = getCallsets(dataset, request.getCallsetIds(), request.getCallsetNames(),
+        request.getCallsetOrdinals());
+    Map<File, VcfFile> files = getFiles(dataset, callsets, isFiltered(request.getCallsetIds(),
+        request.getCallsetNames(), request.getCallsetOrdinals()));
+    Optional<Map<File, QueryDescriptor.Start>> starts =
+        getStarts(request.getPageToken(), files.keySet(), contig, start);
+    if (!starts.isPresent()) {
+      return Optional.empty();
+    }
+    long begin = System.nanoTime();
+    List<Cursor> cursors = new ArrayList<>();
+    List<TabixReader> readers = new ArrayList<>();
+    try {
+      for (Map.Entry<File, VcfFile> entry : files.entrySet()) {
+        QueryDescriptor.Start fileStart = starts.get().get(entry.getKey());
+        if (null == fileStart || end < fileStart.getStart()) {
+          continue;
+        }
+        VcfFile vcfFile = entry.getValue();
+        TabixReader reader = vcfFile.open();
+        readers.add(reader);
+        Integer tid = reader.mChr2tid.get(contig);
+        if (null == tid) {
+          continue;
+        }
+        Map<Integer, VcfFilesCallset> columns = getColumns(dataset, vcfFile, callsets);
+        Cursor cursor = new Cursor(entry.getKey(),
+            reader.query(tid, fileStart.getStart() - 1, end),
+            columns.keySet().stream().mapToInt(Integer::intValue).toArray(),
+            new ArrayList<>(columns.values()), request.getVariantName());
+        cursors.add(null == request.getPageToken()
+            ? cursor
+            : cursor.seek(fileStart.getStart(), fileStart.getSkip()));
+      }
+      int maxResults = (int) Math.min(pageSize, toInt(request.getMaxResults(), pageSize));
+      List<Variant> variants = new ArrayList<>();
+      while (variants.size() < maxResults) {
+        Cursor first = null;
+        for (Cursor cursor : cursors) {
+          if (null != cursor.peek() && (null == first
+              || cursor.peek().getPosition() < first.peek().getPosition())) {
+            first = cursor;
+          }
+        }
+        if (null == first) {
+          break;
+        }
+        variants.add(nextVariant(dataset, contig, first, cursors));
+      }
+      HashMap<File, QueryDescriptor.Start> next = new HashMap<>();
+      for (Cursor cursor : cursors) {
+        QueryDescriptor.Start resume = cursor.resume(contig);
+        if (null != resume) {
+          next.put(cursor.file, resume);
+        }
+      }
+      VARIANTS_EMITTED.add(variants.size());
+      return Optional.of(SearchVariantsResponse.create(variants,
+          next.isEmpty() ? null : pageToken(next)));
+    } finally {
+      readers.forEach(TabixReader::close);
+      SEARCH_DURATION.recordSince(begin);
+    }
+  }
+
+  /**
+   * Takes the next record from {@code first}, and the next record of each later file at the
+   * same position with the same alleles, and returns them as one variant.
+   */
+  private Variant nextVariant(DatasetDirectory dataset, String contig, Cursor first,
+      List<Cursor> cursors) {
+    VcfRecord record = first.peek();
+    int position = record.getPosition();
+    String referenceBases = record.get(VcfRecord.REF);
+    String alternateBases = record.get(VcfRecord.ALT);
+    Set<String> names = new LinkedHashSet<>();
+    Map<String, List<String>> info = new LinkedHashMap<>();
+    List<Call> calls = new ArrayList<>();
+    for (Cursor cursor : cursors.subList(cursors.indexOf(first), cursors.size())) {
+      VcfRecord candidate = cursor.peek();
+      if (null == candidate
+          || position != candidate.getPosition()
+          || !referenceBases.equals(candidate.get(VcfRecord.REF))
+          || !alternateBases.equals(candidate.get(VcfRecord.ALT))) {
+        continue;
+      }
+      cursor.take();
+      names.addAll(split(candidate.get(VcfRecord.ID), ";"));
+      parseInfo(candidate.get(VcfRecord.INFO)).forEach(info::putIfAbsent);
+      String format = candidate.get(VcfRecord.FORMAT);
+      for (int i = 0; i < cursor.columns.length; ++i) {
+        calls.add(parseCall(cursor.callsets.get(i), format,
+            candidate.getSample(cursor.columns[i])));
+      }
+    }
+    String datasetId = dataset.getDataset().getId();
+    return Variant.create(
+        String.format("%s:%s:%d:%s:%s", datasetId, contig, position, referenceBases,
+            alternateBases),
+        datasetId,
+        new ArrayList<>(names),
+        contig,
+        (long) position,
+        referenceBases,
+        split(alternateBases, ","),
+        info,
+        calls);
+  }
+}
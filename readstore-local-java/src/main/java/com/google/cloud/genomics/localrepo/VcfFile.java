@@ -0,0 +1,137 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.cloud.genomics.localrepo.util.MetricRegistry;
+import com.google.cloud.genomics.localrepo.util.Suppliers;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+
+import org.broad.tribble.readers.TabixReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * A bgzipped VCF file with a tabix index alongside it. Only the header's sample names are read
+ * up front; records are read with {@link VcfRecord}, which splits out only the columns asked for.
+ */
+public class VcfFile {
+
+  static final int FIRST_SAMPLE_COLUMN = 9;
+
+  private static final String HEADER_PREFIX = "#CHROM";
+
+  private static final Logger LOGGER = Logger.getLogger(VcfFile.class.getName());
+
+  private static final MetricRegistry.Histogram OPEN_DURATION = MetricRegistry.timer(
+      "readstore_vcf_open_duration_seconds", "Time taken to open a VCF file and its index.");
+
+  public static Optional<VcfFile> create(File file) {
+    if (!isReadableFile(file) || !file.getName().endsWith(".vcf.gz")) {
+      return Optional.absent();
+    }
+    File index = new File(String.format("%s.tbi", file.getAbsolutePath()));
+    if (isReadableFile(index)) {
+      return Optional.of(new VcfFile(file));
+    }
+    LOGGER.warning(String.format("VCF file \"%s\" has no tabix index", file.getAbsolutePath()));
+    return Optional.absent();
+  }
+
+  private static boolean isReadableFile(File file) {
+    return file.isFile() && file.canRead();
+  }
+
+  private final File file;
+
+  private final Supplier<GenotypeStore> genotypeStore =
+      Suppliers.memoize(() -> GenotypeStore.open(getFile()));
+
+  private final Supplier<List<String>> samples = Suppliers.memoize(() -> {
+    TabixReader reader = open();
+    try {
+      for (String line = reader.readLine(); null != line && line.startsWith("#");
+          line = reader.readLine()) {
+        if (line.startsWith(HEADER_PREFIX)) {
+          List<String> columns = Arrays.asList(line.split("\t"));
+          return FIRST_SAMPLE_COLUMN < columns.size()
+              ? Collections.unmodifiableList(columns.subList(FIRST_SAMPLE_COLUMN, columns.size()))
+              : Collections.<String>emptyList();
+        }
+      }
+      return Collections.<String>emptyList();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      reader.close();
+    }
+  });
+
+  private VcfFile(File file) {
+    this.file = file;
+  }
+
+  @Override public boolean equals(Object obj) {
+    return null != obj
+        && VcfFile.class == obj.getClass()
+        && Objects.equals(getFile(), ((VcfFile) obj).getFile());
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Returns the file's genotypes in columns, transcoding the file on first use. The server does
+   * that for every file in the background when it loads the catalog.
+   */
+  public GenotypeStore getGenotypeStore() {
+    return genotypeStore.get();
+  }
+
+  /**
+   * Returns the names of the samples in the file, in column order.
+   */
+  public List<String> getSamples() {
+    return samples.get();
+  }
+
+  @Override public int hashCode() {
+    return getFile().hashCode();
+  }
+
+  TabixReader open() {
+    long start = System.nanoTime();
+    try {
+      return new TabixReader(file.getAbsolutePath());
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      OPEN_DURATION.recordSince(start);
+    }
+  }
+
+  @Override public String toString() {
+    return getFile().toString();
+  }
+}
@@ -0,0 +1,106 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import com.google.cloud.genomics.localrepo.dto.Callset;
+
+import java.util.Objects;
+import java.util.Set;
+
+public class VcfFilesCallset {
+
+  public static VcfFilesCallset create(
+      String callsetId,
+      int ordinal,
+      String sample,
+      String datasetId,
+      Set<VcfFile> vcfFiles) {
+    return new VcfFilesCallset(callsetId, ordinal, sample, datasetId, vcfFiles);
+  }
+
+  private final String callsetId;
+  private final String datasetId;
+  private final int ordinal;
+  private final String sample;
+  private final Set<VcfFile> vcfFiles;
+
+  private VcfFilesCallset(String callsetId, int ordinal, String sample, String datasetId,
+      Set<VcfFile> vcfFiles) {
+    this.callsetId = callsetId;
+    this.ordinal = ordinal;
+    this.sample = sample;
+    this.datasetId = datasetId;
+    this.vcfFiles = vcfFiles;
+  }
+
+  @Override public boolean equals(Object obj) {
+    if (null != obj && VcfFilesCallset.class == obj.getClass()) {
+      VcfFilesCallset rhs = (VcfFilesCallset) obj;
+      return Objects.equals(getCallsetId(), rhs.getCallsetId())
+          && getOrdinal() == rhs.getOrdinal()
+          && Objects.equals(getSample(), rhs.getSample())
+          && Objects.equals(getDatasetId(), rhs.getDatasetId())
+          && Objects.equals(getVcfFiles(), rhs.getVcfFiles());
+    }
+    return false;
+  }
+
+  public Callset getCallset() {
+    return Callset.create(getCallsetId(), getSample(), getDatasetId(), getOrdinal());
+  }
+
+  public String getCallsetId() {
+    return callsetId;
+  }
+
+  public String getDatasetId() {
+    return datasetId;
+  }
+
+  /**
+   * Returns the callset's position among its dataset's callsets, ordered by sample.
+   */
+  public int getOrdinal() {
+    return ordinal;
+  }
+
+  public String getSample() {
+    return sample;
+  }
+
+  public Set<VcfFile> getVcfFiles() {
+    return vcfFiles;
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(
+        getCallsetId(),
+        getOrdinal(),
+        getSample(),
+        getDatasetId(),
+        getVcfFiles());
+  }
+
+  @Override public String toString() {
+    return String.format(
+        "callsetId: %s ordinal: %d sample: %s datasetId: %s vcfFiles: %s",
+        getCallsetId(),
+        getOrdinal(),
+        getSample(),
+        getDatasetId(),
+        getVcfFiles());
+  }
+}
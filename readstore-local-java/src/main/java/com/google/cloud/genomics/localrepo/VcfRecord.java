@@ -0,0 +1,72 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import java.util.Arrays;
+
+/**
+ * A line of a VCF file, split into columns lazily. Finding a column only scans the line as far
+ * as that column, so records can be filtered on their position and alleles, and individual
+ * samples' columns picked out, without splitting or decoding the rest.
+ */
+final class VcfRecord {
+
+  static final int CHROM = 0;
+  static final int POS = 1;
+  static final int ID = 2;
+  static final int REF = 3;
+  static final int ALT = 4;
+  static final int INFO = 7;
+  static final int FORMAT = 8;
+
+  private final String line;
+  private int[] starts = new int[VcfFile.FIRST_SAMPLE_COLUMN + 1];
+  private int columns = 1;
+  private int position = -1;
+
+  VcfRecord(String line) {
+    this.line = line;
+  }
+
+  /**
+   * Returns a column, or null if the line doesn't have it.
+   */
+  String get(int column) {
+    while (columns <= column) {
+      int tab = line.indexOf('\t', starts[columns - 1]);
+      if (-1 == tab) {
+        return null;
+      }
+      if (starts.length == columns) {
+        starts = Arrays.copyOf(starts, 2 * columns);
+      }
+      starts[columns++] = tab + 1;
+    }
+    int end = line.indexOf('\t', starts[column]);
+    return line.substring(starts[column], -1 == end ? line.length() : end);
+  }
+
+  int getPosition() {
+    if (-1 == position) {
+      position = Integer.parseInt(get(POS));
+    }
+    return position;
+  }
+
+  String getSample(int sample) {
+    return get(VcfFile.FIRST_SAMPLE_COLUMN + sample);
+  }
+}
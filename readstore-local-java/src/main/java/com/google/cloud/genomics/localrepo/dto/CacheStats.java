@@ -0,0 +1,83 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo.dto;
+
+import com.google.cloud.genomics.localrepo.DataTransferObject;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+public class CacheStats extends DataTransferObject {
+
+  private static final HashCodeAndEquals<CacheStats> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(CacheStats.class);
+
+  @JsonCreator public static CacheStats create(
+      @JsonProperty("hitCount") long hitCount,
+      @JsonProperty("missCount") long missCount,
+      @JsonProperty("hitRate") double hitRate,
+      @JsonProperty("evictionCount") long evictionCount,
+      @JsonProperty("size") long size) {
+    return new CacheStats(hitCount, missCount, hitRate, evictionCount, size);
+  }
+
+  private final long evictionCount;
+  private final long hitCount;
+  private final double hitRate;
+  private final long missCount;
+  private final long size;
+
+  private CacheStats(
+      long hitCount,
+      long missCount,
+      double hitRate,
+      long evictionCount,
+      long size) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.hitRate = hitRate;
+    this.evictionCount = evictionCount;
+    this.size = size;
+  }
+
+  @Override public boolean equals(Object obj) {
+    return HASH_CODE_AND_EQUALS.equals(this, obj);
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public double getHitRate() {
+    return hitRate;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  @Override public int hashCode() {
+    return HASH_CODE_AND_EQUALS.hashCode(this);
+  }
+}
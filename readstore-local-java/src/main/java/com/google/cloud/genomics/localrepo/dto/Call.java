@@ -0,0 +1,100 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo.dto;
+
+import com.google.cloud.genomics.localrepo.DataTransferObject;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+public class Call extends DataTransferObject {
+
+  private static final HashCodeAndEquals<Call> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(Call.class);
+
+  @JsonCreator public static Call create(
+      @JsonProperty("callsetId") String callsetId,
+      @JsonProperty("callsetName") String callsetName,
+      @JsonProperty("genotype") List<Long> genotype,
+      @JsonProperty("genotypeLikelihood") List<Double> genotypeLikelihood,
+      @JsonProperty("phaseset") String phaseset,
+      @JsonProperty("info") Map<String, List<String>> info) {
+    return new Call(
+        callsetId,
+        callsetName,
+        genotype,
+        genotypeLikelihood,
+        phaseset,
+        info);
+  }
+
+  private final String callsetId;
+  private final String callsetName;
+  private final List<Long> genotype;
+  private final List<Double> genotypeLikelihood;
+  private final Map<String, List<String>> info;
+  private final String phaseset;
+
+  private Call(
+      String callsetId,
+      String callsetName,
+      List<Long> genotype,
+      List<Double> genotypeLikelihood,
+      String phaseset,
+      Map<String, List<String>> info) {
+    this.callsetId = callsetId;
+    this.callsetName = callsetName;
+    this.genotype = genotype;
+    this.genotypeLikelihood = genotypeLikelihood;
+    this.phaseset = phaseset;
+    this.info = info;
+  }
+
+  @Override public boolean equals(Object obj) {
+    return HASH_CODE_AND_EQUALS.equals(this, obj);
+  }
+
+  public String getCallsetId() {
+    return callsetId;
+  }
+
+  public String getCallsetName() {
+    return callsetName;
+  }
+
+  public List<Long> getGenotype() {
+    return genotype;
+  }
+
+  public List<Double> getGenotypeLikelihood() {
+    return genotypeLikelihood;
+  }
+
+  public Map<String, List<String>> getInfo() {
+    return info;
+  }
+
+  public String getPhaseset() {
+    return phaseset;
+  }
+
+  @Override public int hashCode() {
+    return HASH_CODE_AND_EQUALS.hashCode(this);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo.dto;
+
+import com.google.cloud.genomics.localrepo.DataTransferObject;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+/**
+ * A VCF sample. Its {@code ordinal} numbers it densely among its dataset's callsets, in name
+ * order, for selecting callsets with a bitset.
+ */
+public class Callset extends DataTransferObject {
+
+  private static final HashCodeAndEquals<Callset> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(Callset.class);
+
+  @JsonCreator public static Callset create(
+      @JsonProperty("id") String id,
+      @JsonProperty("name") String name,
+      @JsonProperty("datasetId") String datasetId,
+      @JsonProperty("ordinal") Integer ordinal) {
+    return new Callset(
+        id,
+        name,
+        datasetId,
+        ordinal);
+  }
+
+  private final String datasetId;
+  private final String id;
+  private final String name;
+  private final Integer ordinal;
+
+  private Callset(
+      String id,
+      String name,
+      String datasetId,
+      Integer ordinal) {
+    this.id = id;
+    this.name = name;
+    this.datasetId = datasetId;
+    this.ordinal = ordinal;
+  }
+
+  @Override public boolean equals(Object obj) {
+    return HASH_CODE_AND_EQUALS.equals(this, obj);
+  }
+
+  public String getDatasetId() {
+    return datasetId;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Integer getOrdinal() {
+    return ordinal;
+  }
+
+  @Override public int hashCode() {
+    return HASH_CODE_AND_EQUALS.hashCode(this);
+  }
+}
@@ -22,8 +22,8 @@ import org.codehaus.jackson.annotate.JsonProperty;
 
 public class Dataset extends DataTransferObject {
 
-  private static final ReflectiveHashCodeAndEquals<Dataset> HASH_CODE_AND_EQUALS =
-      ReflectiveHashCodeAndEquals.create(Dataset.class);
+  private static final HashCodeAndEquals<Dataset> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(Dataset.class);
 
   @JsonCreator public static Dataset create(
       @JsonProperty("id") String id,
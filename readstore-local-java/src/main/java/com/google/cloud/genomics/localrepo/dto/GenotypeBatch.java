@@ -0,0 +1,97 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo.dto;
+
+import com.google.cloud.genomics.localrepo.DataTransferObject;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.List;
+
+/**
+ * The genotypes of some of a VCF file's callsets at consecutive variants, laid out column by
+ * column. {@code alternateBases} are comma separated. {@code genotypes} holds one row per
+ * callset, in {@code callsetIds} order, of {@code ceil(positions.length / 4)} bytes, each
+ * genotype packed into two bits, low bits first, as its number of alternate alleles, or
+ * {@code 3} where it is missing.
+ */
+public class GenotypeBatch extends DataTransferObject {
+
+  private static final HashCodeAndEquals<GenotypeBatch> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(GenotypeBatch.class);
+
+  @JsonCreator public static GenotypeBatch create(
+      @JsonProperty("callsetIds") List<String> callsetIds,
+      @JsonProperty("positions") int[] positions,
+      @JsonProperty("referenceBases") List<String> referenceBases,
+      @JsonProperty("alternateBases") List<String> alternateBases,
+      @JsonProperty("genotypes") byte[] genotypes) {
+    return new GenotypeBatch(
+        callsetIds,
+        positions,
+        referenceBases,
+        alternateBases,
+        genotypes);
+  }
+
+  private final List<String> alternateBases;
+  private final List<String> callsetIds;
+  private final byte[] genotypes;
+  private final int[] positions;
+  private final List<String> referenceBases;
+
+  private GenotypeBatch(
+      List<String> callsetIds,
+      int[] positions,
+      List<String> referenceBases,
+      List<String> alternateBases,
+      byte[] genotypes) {
+    this.callsetIds = callsetIds;
+    this.positions = positions;
+    this.referenceBases = referenceBases;
+    this.alternateBases = alternateBases;
+    this.genotypes = genotypes;
+  }
+
+  @Override public boolean equals(Object obj) {
+    return HASH_CODE_AND_EQUALS.equals(this, obj);
+  }
+
+  public List<String> getAlternateBases() {
+    return alternateBases;
+  }
+
+  public List<String> getCallsetIds() {
+    return callsetIds;
+  }
+
+  public byte[] getGenotypes() {
+    return genotypes;
+  }
+
+  public int[] getPositions() {
+    return positions;
+  }
+
+  public List<String> getReferenceBases() {
+    return referenceBases;
+  }
+
+  @Override public int hashCode() {
+    return HASH_CODE_AND_EQUALS.hashCode(this);
+  }
+}
@@ -24,8 +24,8 @@ import java.util.List;
 
 public class ListDatasetsResponse extends DataTransferObject {
 
-  private static final ReflectiveHashCodeAndEquals<ListDatasetsResponse> HASH_CODE_AND_EQUALS =
-      ReflectiveHashCodeAndEquals.create(ListDatasetsResponse.class);
+  private static final HashCodeAndEquals<ListDatasetsResponse> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(ListDatasetsResponse.class);
 
   @JsonCreator public static ListDatasetsResponse create(
       @JsonProperty("datasets") List<Dataset> datasets,
@@ -24,8 +24,8 @@ import java.util.Map;
 
 public class Read extends DataTransferObject {
 
-  private static final ReflectiveHashCodeAndEquals<Read> HASH_CODE_AND_EQUALS =
-      ReflectiveHashCodeAndEquals.create(Read.class);
+  private static final HashCodeAndEquals<Read> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(Read.class);
 
   @JsonCreator public static Read create(
       @JsonProperty("id") String id,
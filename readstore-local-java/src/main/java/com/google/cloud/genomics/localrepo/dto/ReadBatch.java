@@ -0,0 +1,262 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo.dto;
+
+import com.google.cloud.genomics.localrepo.DataTransferObject;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.List;
+
+/**
+ * A page of reads laid out column by column. Indexes into the dictionary columns are {@code -1}
+ * where a read has no value. Bases are packed four to a byte, low bits first, with {@code A=0},
+ * {@code C=1}, {@code G=2} and {@code T=3}; any other base is packed as {@code A} and listed in
+ * {@code ambiguousBaseOffsets} and {@code ambiguousBases}. Base qualities are raw Phred scores,
+ * {@code 0xFF} where the read has none.
+ */
+public class ReadBatch extends DataTransferObject {
+
+  public static class TagColumn extends DataTransferObject {
+
+    private static final HashCodeAndEquals<TagColumn> HASH_CODE_AND_EQUALS =
+        HashCodeAndEquals.create(TagColumn.class);
+
+    @JsonCreator public static TagColumn create(
+        @JsonProperty("tag") String tag,
+        @JsonProperty("values") List<String> values,
+        @JsonProperty("indexes") int[] indexes) {
+      return new TagColumn(tag, values, indexes);
+    }
+
+    private final int[] indexes;
+    private final String tag;
+    private final List<String> values;
+
+    private TagColumn(
+        String tag,
+        List<String> values,
+        int[] indexes) {
+      this.tag = tag;
+      this.values = values;
+      this.indexes = indexes;
+    }
+
+    @Override public boolean equals(Object obj) {
+      return HASH_CODE_AND_EQUALS.equals(this, obj);
+    }
+
+    public int[] getIndexes() {
+      return indexes;
+    }
+
+    public String getTag() {
+      return tag;
+    }
+
+    public List<String> getValues() {
+      return values;
+    }
+
+    @Override public int hashCode() {
+      return HASH_CODE_AND_EQUALS.hashCode(this);
+    }
+  }
+
+  public static final String MEDIA_TYPE = "application/vnd.google.genomics.readbatch+json";
+
+  private static final HashCodeAndEquals<ReadBatch> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(ReadBatch.class);
+
+  @JsonCreator public static ReadBatch create(
+      @JsonProperty("names") List<String> names,
+      @JsonProperty("readsetIds") List<String> readsetIds,
+      @JsonProperty("readsetIndexes") int[] readsetIndexes,
+      @JsonProperty("referenceSequenceNames") List<String> referenceSequenceNames,
+      @JsonProperty("referenceSequenceIndexes") int[] referenceSequenceIndexes,
+      @JsonProperty("positions") int[] positions,
+      @JsonProperty("flags") short[] flags,
+      @JsonProperty("mappingQualities") short[] mappingQualities,
+      @JsonProperty("cigars") List<String> cigars,
+      @JsonProperty("mateReferenceSequenceIndexes") int[] mateReferenceSequenceIndexes,
+      @JsonProperty("matePositions") int[] matePositions,
+      @JsonProperty("templateLengths") int[] templateLengths,
+      @JsonProperty("lengths") int[] lengths,
+      @JsonProperty("bases") byte[] bases,
+      @JsonProperty("ambiguousBaseOffsets") int[] ambiguousBaseOffsets,
+      @JsonProperty("ambiguousBases") String ambiguousBases,
+      @JsonProperty("baseQualities") byte[] baseQualities,
+      @JsonProperty("tags") List<TagColumn> tags) {
+    return new ReadBatch(
+        names,
+        readsetIds,
+        readsetIndexes,
+        referenceSequenceNames,
+        referenceSequenceIndexes,
+        positions,
+        flags,
+        mappingQualities,
+        cigars,
+        mateReferenceSequenceIndexes,
+        matePositions,
+        templateLengths,
+        lengths,
+        bases,
+        ambiguousBaseOffsets,
+        ambiguousBases,
+        baseQualities,
+        tags);
+  }
+
+  private final int[] ambiguousBaseOffsets;
+  private final String ambiguousBases;
+  private final byte[] baseQualities;
+  private final byte[] bases;
+  private final List<String> cigars;
+  private final short[] flags;
+  private final int[] lengths;
+  private final short[] mappingQualities;
+  private final int[] matePositions;
+  private final int[] mateReferenceSequenceIndexes;
+  private final List<String> names;
+  private final int[] positions;
+  private final List<String> readsetIds;
+  private final int[] readsetIndexes;
+  private final int[] referenceSequenceIndexes;
+  private final List<String> referenceSequenceNames;
+  private final List<TagColumn> tags;
+  private final int[] templateLengths;
+
+  private ReadBatch(
+      List<String> names,
+      List<String> readsetIds,
+      int[] readsetIndexes,
+      List<String> referenceSequenceNames,
+      int[] referenceSequenceIndexes,
+      int[] positions,
+      short[] flags,
+      short[] mappingQualities,
+      List<String> cigars,
+      int[] mateReferenceSequenceIndexes,
+      int[] matePositions,
+      int[] templateLengths,
+      int[] lengths,
+      byte[] bases,
+      int[] ambiguousBaseOffsets,
+      String ambiguousBases,
+      byte[] baseQualities,
+      List<TagColumn> tags) {
+    this.names = names;
+    this.readsetIds = readsetIds;
+    this.readsetIndexes = readsetIndexes;
+    this.referenceSequenceNames = referenceSequenceNames;
+    this.referenceSequenceIndexes = referenceSequenceIndexes;
+    this.positions = positions;
+    this.flags = flags;
+    this.mappingQualities = mappingQualities;
+    this.cigars = cigars;
+    this.mateReferenceSequenceIndexes = mateReferenceSequenceIndexes;
+    this.matePositions = matePositions;
+    this.templateLengths = templateLengths;
+    this.lengths = lengths;
+    this.bases = bases;
+    this.ambiguousBaseOffsets = ambiguousBaseOffsets;
+    this.ambiguousBases = ambiguousBases;
+    this.baseQualities = baseQualities;
+    this.tags = tags;
+  }
+
+  @Override public boolean equals(Object obj) {
+    return HASH_CODE_AND_EQUALS.equals(this, obj);
+  }
+
+  public int[] getAmbiguousBaseOffsets() {
+    return ambiguousBaseOffsets;
+  }
+
+  public String getAmbiguousBases() {
+    return ambiguousBases;
+  }
+
+  public byte[] getBaseQualities() {
+    return baseQualities;
+  }
+
+  public byte[] getBases() {
+    return bases;
+  }
+
+  public List<String> getCigars() {
+    return cigars;
+  }
+
+  public short[] getFlags() {
+    return flags;
+  }
+
+  public int[] getLengths() {
+    return lengths;
+  }
+
+  public short[] getMappingQualities() {
+    return mappingQualities;
+  }
+
+  public int[] getMatePositions() {
+    return matePositions;
+  }
+
+  public int[] getMateReferenceSequenceIndexes() {
+    return mateReferenceSequenceIndexes;
+  }
+
+  public List<String> getNames() {
+    return names;
+  }
+
+  public int[] getPositions() {
+    return positions;
+  }
+
+  public List<String> getReadsetIds() {
+    return readsetIds;
+  }
+
+  public int[] getReadsetIndexes() {
+    return readsetIndexes;
+  }
+
+  public int[] getReferenceSequenceIndexes() {
+    return referenceSequenceIndexes;
+  }
+
+  public List<String> getReferenceSequenceNames() {
+    return referenceSequenceNames;
+  }
+
+  public List<TagColumn> getTags() {
+    return tags;
+  }
+
+  public int[] getTemplateLengths() {
+    return templateLengths;
+  }
+
+  @Override public int hashCode() {
+    return HASH_CODE_AND_EQUALS.hashCode(this);
+  }
+}
@@ -29,8 +29,8 @@ public class Readset extends DataTransferObject {
 
     public static class Header extends DataTransferObject {
 
-      private static final ReflectiveHashCodeAndEquals<Header> HASH_CODE_AND_EQUALS =
-          ReflectiveHashCodeAndEquals.create(Header.class);
+      private static final HashCodeAndEquals<Header> HASH_CODE_AND_EQUALS =
+          HashCodeAndEquals.create(Header.class);
 
       @JsonCreator public static Header create(
           @JsonProperty("version") String version,
@@ -67,8 +67,8 @@ public class Readset extends DataTransferObject {
 
     public static class Program extends DataTransferObject {
 
-      private static final ReflectiveHashCodeAndEquals<Program> HASH_CODE_AND_EQUALS =
-          ReflectiveHashCodeAndEquals.create(Program.class);
+      private static final HashCodeAndEquals<Program> HASH_CODE_AND_EQUALS =
+          HashCodeAndEquals.create(Program.class);
 
       @JsonCreator public static Program create(
           @JsonProperty("id") String id,
@@ -136,8 +136,8 @@ public class Readset extends DataTransferObject {
             }
           };
 
-      private static final ReflectiveHashCodeAndEquals<ReadGroup> HASH_CODE_AND_EQUALS =
-          ReflectiveHashCodeAndEquals.create(ReadGroup.class);
+      private static final HashCodeAndEquals<ReadGroup> HASH_CODE_AND_EQUALS =
+          HashCodeAndEquals.create(ReadGroup.class);
 
       @JsonCreator public static ReadGroup create(
           @JsonProperty("id") String id,
@@ -266,8 +266,8 @@ public class Readset extends DataTransferObject {
 
     public static class RefSequence extends DataTransferObject {
 
-      private static final ReflectiveHashCodeAndEquals<RefSequence> HASH_CODE_AND_EQUALS =
-          ReflectiveHashCodeAndEquals.create(RefSequence.class);
+      private static final HashCodeAndEquals<RefSequence> HASH_CODE_AND_EQUALS =
+          HashCodeAndEquals.create(RefSequence.class);
 
       @JsonCreator public static RefSequence create(
           @JsonProperty("name") String name,
@@ -334,8 +334,8 @@ public class Readset extends DataTransferObject {
       }
     }
 
-    private static final ReflectiveHashCodeAndEquals<FileData> HASH_CODE_AND_EQUALS =
-        ReflectiveHashCodeAndEquals.create(FileData.class);
+    private static final HashCodeAndEquals<FileData> HASH_CODE_AND_EQUALS =
+        HashCodeAndEquals.create(FileData.class);
 
     @JsonCreator public static FileData create(
         @JsonProperty("fileUri") String fileUri,
@@ -402,8 +402,8 @@ public class Readset extends DataTransferObject {
     }
   }
 
-  private static final ReflectiveHashCodeAndEquals<Readset> HASH_CODE_AND_EQUALS =
-      ReflectiveHashCodeAndEquals.create(Readset.class);
+  private static final HashCodeAndEquals<Readset> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(Readset.class);
 
   @JsonCreator public static Readset create(
       @JsonProperty("id") String id,
@@ -0,0 +1,97 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo.dto;
+
+import com.google.cloud.genomics.localrepo.DataTransferObject;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Selects callsets whose name contains {@code name}, or is one of {@code callsetNames}.
+ */
+public class SearchCallsetsRequest extends DataTransferObject {
+
+  private static final HashCodeAndEquals<SearchCallsetsRequest> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(SearchCallsetsRequest.class);
+
+  public static SearchCallsetsRequest create(List<String> datasetIds, String pageToken) {
+    return create(datasetIds, null, null, null, pageToken);
+  }
+
+  @JsonCreator public static SearchCallsetsRequest create(
+      @JsonProperty("datasetIds") List<String> datasetIds,
+      @JsonProperty("name") String name,
+      @JsonProperty("callsetNames") List<String> callsetNames,
+      @JsonProperty("maxResults") Long maxResults,
+      @JsonProperty("pageToken") String pageToken) {
+    return new SearchCallsetsRequest(
+        datasetIds,
+        name,
+        callsetNames,
+        maxResults,
+        pageToken);
+  }
+
+  private final List<String> callsetNames;
+  private final List<String> datasetIds;
+  private final Long maxResults;
+  private final String name;
+  private final String pageToken;
+
+  private SearchCallsetsRequest(
+      List<String> datasetIds,
+      String name,
+      List<String> callsetNames,
+      Long maxResults,
+      String pageToken) {
+    this.datasetIds = datasetIds;
+    this.name = name;
+    this.callsetNames = callsetNames;
+    this.maxResults = maxResults;
+    this.pageToken = pageToken;
+  }
+
+  @Override public boolean equals(Object obj) {
+    return HASH_CODE_AND_EQUALS.equals(this, obj);
+  }
+
+  public List<String> getCallsetNames() {
+    return callsetNames;
+  }
+
+  public List<String> getDatasetIds() {
+    return datasetIds;
+  }
+
+  public Long getMaxResults() {
+    return maxResults;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getPageToken() {
+    return pageToken;
+  }
+
+  @Override public int hashCode() {
+    return HASH_CODE_AND_EQUALS.hashCode(this);
+  }
+}
@@ -0,0 +1,64 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo.dto;
+
+import com.google.cloud.genomics.localrepo.DataTransferObject;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+public class SearchReadsBatchResponse extends DataTransferObject {
+
+  private static final HashCodeAndEquals<SearchReadsBatchResponse> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(SearchReadsBatchResponse.class);
+
+  @JsonCreator public static SearchReadsBatchResponse create(
+      @JsonProperty("reads") ReadBatch reads,
+      @JsonProperty("nextPageToken") String nextPageToken,
+      @JsonProperty("mates") ReadBatch mates) {
+    return new SearchReadsBatchResponse(reads, nextPageToken, mates);
+  }
+
+  private final ReadBatch mates;
+  private final String nextPageToken;
+  private final ReadBatch reads;
+
+  private SearchReadsBatchResponse(ReadBatch reads, String nextPageToken, ReadBatch mates) {
+    this.reads = reads;
+    this.nextPageToken = nextPageToken;
+    this.mates = mates;
+  }
+
+  @Override public boolean equals(Object obj) {
+    return HASH_CODE_AND_EQUALS.equals(this, obj);
+  }
+
+  public ReadBatch getMates() {
+    return mates;
+  }
+
+  public String getNextPageToken() {
+    return nextPageToken;
+  }
+
+  public ReadBatch getReads() {
+    return reads;
+  }
+
+  @Override public int hashCode() {
+    return HASH_CODE_AND_EQUALS.hashCode(this);
+  }
+}
@@ -24,8 +24,27 @@ import java.util.List;
 
 public class SearchReadsRequest extends DataTransferObject {
 
-  private static final ReflectiveHashCodeAndEquals<SearchReadsRequest> HASH_CODE_AND_EQUALS =
-      ReflectiveHashCodeAndEquals.create(SearchReadsRequest.class);
+  private static final HashCodeAndEquals<SearchReadsRequest> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(SearchReadsRequest.class);
+
+  public static SearchReadsRequest create(
+      List<String> datasetIds,
+      List<String> readsetIds,
+      String sequenceName,
+      Long sequenceStart,
+      Long sequenceEnd,
+      String pageToken) {
+    return create(
+        datasetIds,
+        readsetIds,
+        sequenceName,
+        sequenceStart,
+        sequenceEnd,
+        pageToken,
+        null,
+        null,
+        null);
+  }
 
   @JsonCreator public static SearchReadsRequest create(
       @JsonProperty("datasetIds") List<String> datasetIds,
@@ -33,17 +52,26 @@ public class SearchReadsRequest extends DataTransferObject {
       @JsonProperty("sequenceName") String sequenceName,
       @JsonProperty("sequenceStart") Long sequenceStart,
       @JsonProperty("sequenceEnd") Long sequenceEnd,
-      @JsonProperty("pageToken") String pageToken) {
+      @JsonProperty("pageToken") String pageToken,
+      @JsonProperty("downsampleFraction") Double downsampleFraction,
+      @JsonProperty("downsampleCount") Long downsampleCount,
+      @JsonProperty("includeMates") Boolean includeMates) {
     return new SearchReadsRequest(
         datasetIds,
         readsetIds,
         sequenceName,
         sequenceStart,
         sequenceEnd,
-        pageToken);
+        pageToken,
+        downsampleFraction,
+        downsampleCount,
+        includeMates);
   }
 
   private final List<String> datasetIds;
+  private final Long downsampleCount;
+  private final Double downsampleFraction;
+  private final Boolean includeMates;
   private final String pageToken;
   private final List<String> readsetIds;
   private final Long sequenceEnd;
@@ -56,13 +84,19 @@ public class SearchReadsRequest extends DataTransferObject {
       String sequenceName,
       Long sequenceStart,
       Long sequenceEnd,
-      String pageToken) {
+      String pageToken,
+      Double downsampleFraction,
+      Long downsampleCount,
+      Boolean includeMates) {
     this.datasetIds = datasetIds;
     this.readsetIds = readsetIds;
     this.sequenceName = sequenceName;
     this.sequenceStart = sequenceStart;
     this.sequenceEnd = sequenceEnd;
     this.pageToken = pageToken;
+    this.downsampleFraction = downsampleFraction;
+    this.downsampleCount = downsampleCount;
+    this.includeMates = includeMates;
   }
 
   @Override public boolean equals(Object obj) {
@@ -73,6 +107,18 @@ public class SearchReadsRequest extends DataTransferObject {
     return datasetIds;
   }
 
+  public Long getDownsampleCount() {
+    return downsampleCount;
+  }
+
+  public Double getDownsampleFraction() {
+    return downsampleFraction;
+  }
+
+  public Boolean getIncludeMates() {
+    return includeMates;
+  }
+
   public String getPageToken() {
     return pageToken;
   }
@@ -24,27 +24,38 @@ import java.util.List;
 
 public class SearchReadsResponse extends DataTransferObject {
 
-  private static final ReflectiveHashCodeAndEquals<SearchReadsResponse> HASH_CODE_AND_EQUALS =
-      ReflectiveHashCodeAndEquals.create(SearchReadsResponse.class);
+  private static final HashCodeAndEquals<SearchReadsResponse> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(SearchReadsResponse.class);
+
+  public static SearchReadsResponse create(List<Read> reads, String nextPageToken) {
+    return create(reads, nextPageToken, null);
+  }
 
   @JsonCreator public static SearchReadsResponse create(
       @JsonProperty("reads") List<Read> reads,
-      @JsonProperty("nextPageToken") String nextPageToken) {
-    return new SearchReadsResponse(reads, nextPageToken);
+      @JsonProperty("nextPageToken") String nextPageToken,
+      @JsonProperty("mates") List<Read> mates) {
+    return new SearchReadsResponse(reads, nextPageToken, mates);
   }
 
+  private final List<Read> mates;
   private final String nextPageToken;
   private final List<Read> reads;
 
-  private SearchReadsResponse(List<Read> reads, String nextPageToken) {
+  private SearchReadsResponse(List<Read> reads, String nextPageToken, List<Read> mates) {
     this.reads = reads;
     this.nextPageToken = nextPageToken;
+    this.mates = mates;
   }
 
   @Override public boolean equals(Object obj) {
     return HASH_CODE_AND_EQUALS.equals(this, obj);
   }
 
+  public List<Read> getMates() {
+    return mates;
+  }
+
   public String getNextPageToken() {
     return nextPageToken;
   }
@@ -24,23 +24,38 @@ import java.util.List;
 
 public class SearchReadsetsRequest extends DataTransferObject {
 
-  private static final ReflectiveHashCodeAndEquals<SearchReadsetsRequest> HASH_CODE_AND_EQUALS =
-      ReflectiveHashCodeAndEquals.create(SearchReadsetsRequest.class);
+  public static final String FULL_VIEW = "FULL";
+  public static final String SUMMARY_VIEW = "SUMMARY";
+
+  private static final HashCodeAndEquals<SearchReadsetsRequest> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(SearchReadsetsRequest.class);
+
+  public static SearchReadsetsRequest create(List<String> datasetIds, String pageToken) {
+    return create(datasetIds, pageToken, null, null);
+  }
 
   @JsonCreator public static SearchReadsetsRequest create(
       @JsonProperty("datasetIds") List<String> datasetIds,
-      @JsonProperty("pageToken") String pageToken) {
-    return new SearchReadsetsRequest(datasetIds, pageToken);
+      @JsonProperty("pageToken") String pageToken,
+      @JsonProperty("maxResults") Long maxResults,
+      @JsonProperty("view") String view) {
+    return new SearchReadsetsRequest(datasetIds, pageToken, maxResults, view);
   }
 
   private final List<String> datasetIds;
+  private final Long maxResults;
   private final String pageToken;
+  private final String view;
 
   private SearchReadsetsRequest(
       List<String> datasetIds,
-      String pageToken) {
+      String pageToken,
+      Long maxResults,
+      String view) {
     this.datasetIds = datasetIds;
     this.pageToken = pageToken;
+    this.maxResults = maxResults;
+    this.view = view;
   }
 
   @Override public boolean equals(Object obj) {
@@ -51,10 +66,18 @@ public class SearchReadsetsRequest extends DataTransferObject {
     return datasetIds;
   }
 
+  public Long getMaxResults() {
+    return maxResults;
+  }
+
   public String getPageToken() {
     return pageToken;
   }
 
+  public String getView() {
+    return view;
+  }
+
   @Override public int hashCode() {
     return HASH_CODE_AND_EQUALS.hashCode(this);
   }
@@ -24,8 +24,8 @@ import java.util.List;
 
 public class SearchReadsetsResponse extends DataTransferObject {
 
-  private static final ReflectiveHashCodeAndEquals<SearchReadsetsResponse> HASH_CODE_AND_EQUALS =
-      ReflectiveHashCodeAndEquals.create(SearchReadsetsResponse.class);
+  private static final HashCodeAndEquals<SearchReadsetsResponse> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(SearchReadsetsResponse.class);
 
   @JsonCreator public static SearchReadsetsResponse create(
       @JsonProperty("readsets") List<Readset> readsets,
@@ -0,0 +1,159 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo.dto;
+
+import com.google.cloud.genomics.localrepo.DataTransferObject;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.List;
+
+/**
+ * At most one of {@code callsetIds}, {@code callsetNames} and {@code callsetOrdinals} selects
+ * callsets. {@code callsetOrdinals} is a bitset over the dataset's callset ordinals, in the byte
+ * order of {@link java.util.BitSet#toByteArray}.
+ */
+public class SearchVariantsRequest extends DataTransferObject {
+
+  private static final HashCodeAndEquals<SearchVariantsRequest> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(SearchVariantsRequest.class);
+
+  public static SearchVariantsRequest create(
+      String datasetId,
+      String contig,
+      Long startPosition,
+      Long endPosition,
+      String pageToken) {
+    return create(
+        datasetId,
+        contig,
+        startPosition,
+        endPosition,
+        null,
+        null,
+        null,
+        null,
+        null,
+        pageToken);
+  }
+
+  @JsonCreator public static SearchVariantsRequest create(
+      @JsonProperty("datasetId") String datasetId,
+      @JsonProperty("contig") String contig,
+      @JsonProperty("startPosition") Long startPosition,
+      @JsonProperty("endPosition") Long endPosition,
+      @JsonProperty("callsetIds") List<String> callsetIds,
+      @JsonProperty("callsetNames") List<String> callsetNames,
+      @JsonProperty("callsetOrdinals") byte[] callsetOrdinals,
+      @JsonProperty("variantName") String variantName,
+      @JsonProperty("maxResults") Long maxResults,
+      @JsonProperty("pageToken") String pageToken) {
+    return new SearchVariantsRequest(
+        datasetId,
+        contig,
+        startPosition,
+        endPosition,
+        callsetIds,
+        callsetNames,
+        callsetOrdinals,
+        variantName,
+        maxResults,
+        pageToken);
+  }
+
+  private final List<String> callsetIds;
+  private final List<String> callsetNames;
+  private final byte[] callsetOrdinals;
+  private final String contig;
+  private final String datasetId;
+  private final Long endPosition;
+  private final Long maxResults;
+  private final String pageToken;
+  private final Long startPosition;
+  private final String variantName;
+
+  private SearchVariantsRequest(
+      String datasetId,
+      String contig,
+      Long startPosition,
+      Long endPosition,
+      List<String> callsetIds,
+      List<String> callsetNames,
+      byte[] callsetOrdinals,
+      String variantName,
+      Long maxResults,
+      String pageToken) {
+    this.datasetId = datasetId;
+    this.contig = contig;
+    this.startPosition = startPosition;
+    this.endPosition = endPosition;
+    this.callsetIds = callsetIds;
+    this.callsetNames = callsetNames;
+    this.callsetOrdinals = callsetOrdinals;
+    this.variantName = variantName;
+    this.maxResults = maxResults;
+    this.pageToken = pageToken;
+  }
+
+  @Override public boolean equals(Object obj) {
+    return HASH_CODE_AND_EQUALS.equals(this, obj);
+  }
+
+  public List<String> getCallsetIds() {
+    return callsetIds;
+  }
+
+  public List<String> getCallsetNames() {
+    return callsetNames;
+  }
+
+  public byte[] getCallsetOrdinals() {
+    return callsetOrdinals;
+  }
+
+  public String getContig() {
+    return contig;
+  }
+
+  public String getDatasetId() {
+    return datasetId;
+  }
+
+  public Long getEndPosition() {
+    return endPosition;
+  }
+
+  public Long getMaxResults() {
+    return maxResults;
+  }
+
+  public String getPageToken() {
+    return pageToken;
+  }
+
+  public Long getStartPosition() {
+    return startPosition;
+  }
+
+  public String getVariantName() {
+    return variantName;
+  }
+
+  @Override public int hashCode() {
+    return HASH_CODE_AND_EQUALS.hashCode(this);
+  }
+}
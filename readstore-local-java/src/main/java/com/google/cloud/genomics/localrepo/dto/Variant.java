@@ -0,0 +1,127 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo.dto;
+
+import com.google.cloud.genomics.localrepo.DataTransferObject;
+
+import org.codehaus.jackson.annotate.JsonCreator;
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+public class Variant extends DataTransferObject {
+
+  private static final HashCodeAndEquals<Variant> HASH_CODE_AND_EQUALS =
+      HashCodeAndEquals.create(Variant.class);
+
+  @JsonCreator public static Variant create(
+      @JsonProperty("id") String id,
+      @JsonProperty("datasetId") String datasetId,
+      @JsonProperty("names") List<String> names,
+      @JsonProperty("contig") String contig,
+      @JsonProperty("position") Long position,
+      @JsonProperty("referenceBases") String referenceBases,
+      @JsonProperty("alternateBases") List<String> alternateBases,
+      @JsonProperty("info") Map<String, List<String>> info,
+      @JsonProperty("calls") List<Call> calls) {
+    return new Variant(
+        id,
+        datasetId,
+        names,
+        contig,
+        position,
+        referenceBases,
+        alternateBases,
+        info,
+        calls);
+  }
+
+  private final List<String> alternateBases;
+  private final List<Call> calls;
+  private final String contig;
+  private final String datasetId;
+  private final String id;
+  private final Map<String, List<String>> info;
+  private final List<String> names;
+  private final Long position;
+  private final String referenceBases;
+
+  private Variant(
+      String id,
+      String datasetId,
+      List<String> names,
+      String contig,
+      Long position,
+      String referenceBases,
+      List<String> alternateBases,
+      Map<String, List<String>> info,
+      List<Call> calls) {
+    this.id = id;
+    this.datasetId = datasetId;
+    this.names = names;
+    this.contig = contig;
+    this.position = position;
+    this.referenceBases = referenceBases;
+    this.alternateBases = alternateBases;
+    this.info = info;
+    this.calls = calls;
+  }
+
+  @Override public boolean equals(Object obj) {
+    return HASH_CODE_AND_EQUALS.equals(this, obj);
+  }
+
+  public List<String> getAlternateBases() {
+    return alternateBases;
+  }
+
+  public List<Call> getCalls() {
+    return calls;
+  }
+
+  public String getContig() {
+    return contig;
+  }
+
+  public String getDatasetId() {
+    return datasetId;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public Map<String, List<String>> getInfo() {
+    return info;
+  }
+
+  public List<String> getNames() {
+    return names;
+  }
+
+  public Long getPosition() {
+    return position;
+  }
+
+  public String getReferenceBases() {
+    return referenceBases;
+  }
+
+  @Override public int hashCode() {
+    return HASH_CODE_AND_EQUALS.hashCode(this);
+  }
+}
@@ -0,0 +1,226 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+/**
+ * A process-wide registry of counters and histograms, written out in the Prometheus text
+ * exposition format. Updates only touch {@link LongAdder}s, so instrumenting hot paths is cheap.
+ */
+public final class MetricRegistry {
+
+  public static final class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    private Counter() {}
+
+    public void add(long delta) {
+      value.add(delta);
+    }
+
+    public void increment() {
+      value.increment();
+    }
+
+    private void write(StringBuilder out, String name, String labels) {
+      sample(out, name, labels, "", value.sum());
+    }
+  }
+
+  public static final class Family<M> {
+
+    private final ConcurrentMap<String, M> children = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<List<String>, M> childrenByLabelValues =
+        new ConcurrentHashMap<>();
+    private final Supplier<M> create;
+    private final String help;
+    private final String[] labelNames;
+    private final String name;
+    private final String type;
+
+    private Family(String name, String help, String type, String[] labelNames, Supplier<M> create) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+      this.labelNames = labelNames;
+      this.create = create;
+    }
+
+    /**
+     * Returns the child with the given label values. The exposition string of a child's labels
+     * is built once, when the child is created.
+     */
+    public M labels(String... labelValues) {
+      M child = childrenByLabelValues.get(Arrays.asList(labelValues));
+      return null == child ? createChild(labelValues.clone()) : child;
+    }
+
+    private M createChild(String[] labelValues) {
+      if (labelNames.length != labelValues.length) {
+        throw new IllegalArgumentException(String.format("%s expects labels %s", name,
+            Arrays.toString(labelNames)));
+      }
+      StringBuilder labels = new StringBuilder();
+      for (int i = 0; i < labelNames.length; ++i) {
+        labels.append(0 == i ? "" : ",").append(labelNames[i]).append("=\"")
+            .append(labelValues[i]
+                .replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n"))
+            .append('"');
+      }
+      M child = children.computeIfAbsent(labels.toString(), key -> create.get());
+      childrenByLabelValues.putIfAbsent(Arrays.asList(labelValues), child);
+      return child;
+    }
+
+    private void write(StringBuilder out) {
+      out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+          .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+      for (Map.Entry<String, M> entry : children.entrySet()) {
+        M metric = entry.getValue();
+        if (metric instanceof Counter) {
+          ((Counter) metric).write(out, name, entry.getKey());
+        } else {
+          ((Histogram) metric).write(out, name, entry.getKey());
+        }
+      }
+    }
+  }
+
+  /**
+   * A histogram over log-linear buckets, in the manner of HdrHistogram: every power of two is
+   * split into {@code SUB_BUCKETS} equal buckets, so relative error is bounded across the range.
+   */
+  public static final class Histogram {
+
+    private static final int SUB_BUCKETS = 8;
+
+    private static long[] upperBounds(int lowestExponent, int highestExponent) {
+      return LongStream.concat(
+          LongStream.of(1L << lowestExponent),
+          LongStream.range(lowestExponent, highestExponent).flatMap(exponent -> LongStream
+              .rangeClosed(1, SUB_BUCKETS)
+              .map(subBucket -> (1L << exponent) + (subBucket << exponent) / SUB_BUCKETS)))
+          .distinct()
+          .toArray();
+    }
+
+    private final LongAdder[] buckets;
+    private final double scale;
+    private final LongAdder sum = new LongAdder();
+    private final long[] upperBounds;
+
+    private Histogram(int lowestExponent, int highestExponent, double scale) {
+      this.upperBounds = upperBounds(lowestExponent, highestExponent);
+      this.scale = scale;
+      this.buckets = new LongAdder[upperBounds.length + 1];
+      Arrays.setAll(buckets, i -> new LongAdder());
+    }
+
+    public void record(long value) {
+      int index = Arrays.binarySearch(upperBounds, value);
+      buckets[0 > index ? -index - 1 : index].increment();
+      sum.add(value);
+    }
+
+    /**
+     * Records the time elapsed since {@code start}, a {@link System#nanoTime} reading.
+     */
+    public void recordSince(long start) {
+      record(System.nanoTime() - start);
+    }
+
+    private void write(StringBuilder out, String name, String labels) {
+      String separator = labels.isEmpty() ? "" : ",";
+      long count = 0;
+      for (int i = 0; i < buckets.length; ++i) {
+        count += buckets[i].sum();
+        sample(out, name + "_bucket", labels, separator + "le=\""
+            + (i < upperBounds.length ? Double.toString(upperBounds[i] * scale) : "+Inf") + "\"",
+            count);
+      }
+      sample(out, name + "_sum", labels, "", sum.sum() * scale);
+      sample(out, name + "_count", labels, "", count);
+    }
+  }
+
+  private static final ConcurrentMap<String, Family<?>> FAMILIES = new ConcurrentSkipListMap<>();
+
+  public static Counter counter(String name, String help) {
+    return counter(name, help, new String[0]).labels();
+  }
+
+  public static Family<Counter> counter(String name, String help, String... labelNames) {
+    return register(new Family<>(name, help, "counter", labelNames, Counter::new));
+  }
+
+  /**
+   * Returns a histogram of plain values, such as counts per request, from 1 up to 2<sup>20</sup>.
+   */
+  public static Histogram histogram(String name, String help) {
+    return register(new Family<>(name, help, "histogram", new String[0],
+        () -> new Histogram(0, 20, 1))).labels();
+  }
+
+  private static <M> Family<M> register(Family<M> family) {
+    @SuppressWarnings("unchecked")
+    Family<M> registered = (Family<M>) FAMILIES.putIfAbsent(family.name, family);
+    return null == registered ? family : registered;
+  }
+
+  private static void sample(StringBuilder out, String name, String labels, String extraLabels,
+      Object value) {
+    out.append(name);
+    if (!labels.isEmpty() || !extraLabels.isEmpty()) {
+      out.append('{').append(labels).append(extraLabels).append('}');
+    }
+    out.append(' ').append(value).append('\n');
+  }
+
+  /**
+   * Returns a histogram of {@link System#nanoTime} durations from about a microsecond to a minute,
+   * exposed in seconds.
+   */
+  public static Histogram timer(String name, String help) {
+    return timer(name, help, new String[0]).labels();
+  }
+
+  public static Family<Histogram> timer(String name, String help, String... labelNames) {
+    return register(new Family<>(name, help, "histogram", labelNames,
+        () -> new Histogram(10, 36, 1e-9)));
+  }
+
+  public static String write() {
+    StringBuilder out = new StringBuilder();
+    for (Family<?> family : FAMILIES.values()) {
+      family.write(out);
+    }
+    return out.toString();
+  }
+
+  private MetricRegistry() {}
+}
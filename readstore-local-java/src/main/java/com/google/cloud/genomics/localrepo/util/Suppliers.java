@@ -15,6 +15,10 @@ limitations under the License.
 */
 package com.google.cloud.genomics.localrepo.util;
 
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -28,5 +32,37 @@ public final class Suppliers {
     return com.google.common.base.Suppliers.memoize(supplier::get)::get;
   }
 
+  /**
+   * Returns a supplier that caches the value of {@code supplier}, and computes it again whenever
+   * {@code key} supplies a different key.
+   */
+  public static <K, X> Supplier<X> memoizeByKey(final Supplier<K> key,
+      final Supplier<X> supplier) {
+    return new Supplier<X>() {
+
+      private volatile Map.Entry<K, X> memo;
+
+      @Override public X get() {
+        K currentKey = key.get();
+        Map.Entry<K, X> entry = memo;
+        if (null == entry || !Objects.equals(currentKey, entry.getKey())) {
+          synchronized (this) {
+            entry = memo;
+            if (null == entry || !Objects.equals(currentKey, entry.getKey())) {
+              memo = entry = new AbstractMap.SimpleImmutableEntry<>(currentKey, supplier.get());
+            }
+          }
+        }
+        return entry.getValue();
+      }
+    };
+  }
+
+  public static <X> Supplier<X> memoizeWithExpiration(final Supplier<X> supplier, long duration,
+      TimeUnit unit) {
+    return com.google.common.base.Suppliers.memoizeWithExpiration(supplier::get, duration, unit)
+        ::get;
+  }
+
   private Suppliers() {}
 }
@@ -0,0 +1,135 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.cloud.genomics.localrepo.dto.Call;
+import com.google.cloud.genomics.localrepo.dto.Callset;
+import com.google.cloud.genomics.localrepo.dto.SearchCallsetsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchCallsetsResponse;
+import com.google.cloud.genomics.localrepo.dto.SearchGenotypesRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchGenotypesResponse;
+import com.google.cloud.genomics.localrepo.dto.SearchVariantsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchVariantsResponse;
+import com.google.cloud.genomics.localrepo.dto.Variant;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+
+@RunWith(JUnit4.class)
+public class CallsetsTest extends BaseTest {
+
+  @ClassRule
+  public static final WebTarget TARGET =
+      WebTarget.create(Server.builder().setDatasets(DATASET_DIR).build());
+
+  private static SearchCallsetsResponse search(SearchCallsetsRequest request) {
+    return TARGET.path("/callsets/search").request()
+        .post(Entity.json(request), SearchCallsetsResponse.class);
+  }
+
+  private static List<String> names(List<Callset> callsets) {
+    return callsets.stream().map(Callset::getName).collect(Collectors.toList());
+  }
+
+  private static byte[] ordinals(int... ordinals) {
+    BitSet bitSet = new BitSet();
+    Arrays.stream(ordinals).forEach(bitSet::set);
+    return bitSet.toByteArray();
+  }
+
+  @Test
+  public void testSearchCallsets() {
+    SearchCallsetsResponse response = search(SearchCallsetsRequest.create(null, null));
+    assertEquals(Arrays.asList("sample1", "sample2", "sample3"), names(response.getCallsets()));
+    assertEquals(Arrays.asList(0, 1, 2), response.getCallsets().stream()
+        .map(Callset::getOrdinal)
+        .collect(Collectors.toList()));
+    assertNull(response.getNextPageToken());
+    for (Callset callset : response.getCallsets()) {
+      assertEquals(DATASET_ID, callset.getDatasetId());
+      assertEquals(callset,
+          TARGET.path("/callsets/" + callset.getId()).request().get(Callset.class));
+    }
+    assertEquals(Response.Status.NOT_FOUND.getStatusCode(),
+        TARGET.path("/callsets/unknown").request().get().getStatus());
+  }
+
+  @Test
+  public void testSearchCallsetsFilters() {
+    assertEquals(Collections.singletonList("sample3"), names(search(SearchCallsetsRequest.create(
+        null, "3", null, null, null)).getCallsets()));
+    assertEquals(Arrays.asList("sample1", "sample3"), names(search(SearchCallsetsRequest.create(
+        null, null, Arrays.asList("sample3", "sample1"), null, null)).getCallsets()));
+    assertEquals(Collections.emptyList(), search(SearchCallsetsRequest.create(
+        Collections.singletonList("unknown"), null)).getCallsets());
+  }
+
+  @Test
+  public void testSearchCallsetsPaging() {
+    List<Callset> callsets = new ArrayList<>();
+    SearchCallsetsResponse response = null;
+    do {
+      response = search(SearchCallsetsRequest.create(null, null, null, 2L,
+          null == response ? null : response.getNextPageToken()));
+      callsets.addAll(response.getCallsets());
+    } while (null != response.getNextPageToken());
+    assertEquals(Arrays.asList("sample1", "sample2", "sample3"), names(callsets));
+    assertEquals(Response.Status.BAD_REQUEST.getStatusCode(),
+        TARGET.path("/callsets/search").request()
+            .post(Entity.json(SearchCallsetsRequest.create(null, "garbage")))
+            .getStatus());
+  }
+
+  @Test
+  public void testSearchByCallsetOrdinals() {
+    SearchVariantsResponse variants = TARGET.path("/variants/search").request()
+        .post(Entity.json(SearchVariantsRequest.create(DATASET_ID, "reference", null, null, null,
+            null, ordinals(2), null, null, null)), SearchVariantsResponse.class);
+    assertEquals(Arrays.asList(2L, 9L), variants.getVariants().stream()
+        .map(Variant::getPosition)
+        .collect(Collectors.toList()));
+    for (Variant variant : variants.getVariants()) {
+      assertEquals(Collections.singletonList("sample3"), variant.getCalls().stream()
+          .map(Call::getCallsetName)
+          .collect(Collectors.toList()));
+    }
+    SearchGenotypesResponse genotypes = TARGET.path("/genotypes/search").request()
+        .post(Entity.json(SearchGenotypesRequest.create(DATASET_ID, "reference", null, null,
+            null, null, ordinals(0, 1), null, null)), SearchGenotypesResponse.class);
+    assertEquals(1, genotypes.getBatches().size());
+    assertEquals(2, genotypes.getBatches().get(0).getCallsetIds().size());
+    assertEquals(Response.Status.BAD_REQUEST.getStatusCode(),
+        TARGET.path("/variants/search").request()
+            .post(Entity.json(SearchVariantsRequest.create(DATASET_ID, "reference", null, null,
+                null, Collections.singletonList("sample1"), ordinals(0), null, null, null)))
+            .getStatus());
+  }
+}
@@ -0,0 +1,174 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.genomics.localrepo.dto.CacheStats;
+import com.google.cloud.genomics.localrepo.dto.Dataset;
+import com.google.cloud.genomics.localrepo.dto.Read;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsResponse;
+
+import net.sf.samtools.BAMIndexer;
+import net.sf.samtools.SAMFileHeader;
+import net.sf.samtools.SAMFileReader;
+import net.sf.samtools.SAMFileWriter;
+import net.sf.samtools.SAMFileWriterFactory;
+import net.sf.samtools.SAMReadGroupRecord;
+import net.sf.samtools.SAMRecord;
+import net.sf.samtools.SAMSequenceRecord;
+import net.sf.samtools.SAMTag;
+
+import org.glassfish.jersey.jackson.JacksonFeature;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+@RunWith(JUnit4.class)
+public class CatalogRefreshTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private static CacheStats search(WebTarget target, Entity<SearchReadsRequest> request) {
+    target.path("/reads/search").request().post(request, SearchReadsResponse.class);
+    return target.path("/stats/cache").request().get(CacheStats.class);
+  }
+
+  private static int getStatus(WebTarget target, String readId) {
+    Response response = target.path("/reads/" + readId).request().get();
+    try {
+      return response.getStatus();
+    } finally {
+      response.close();
+    }
+  }
+
+  private static void writeBam(File bam, String readName) {
+    SAMFileHeader header = new SAMFileHeader();
+    header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+    header.addSequence(new SAMSequenceRecord("chr1", 10000));
+    SAMReadGroupRecord readGroup = new SAMReadGroupRecord("readgroup");
+    readGroup.setSample("sample");
+    header.addReadGroup(readGroup);
+    SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(header, true, bam);
+    try {
+      SAMRecord record = new SAMRecord(header);
+      record.setReadName(readName);
+      record.setReferenceName("chr1");
+      record.setAlignmentStart(100);
+      record.setCigarString("4M");
+      record.setReadString("ACGT");
+      record.setBaseQualityString("IIII");
+      record.setAttribute(SAMTag.RG.name(), "readgroup");
+      writer.addAlignment(record);
+    } finally {
+      writer.close();
+    }
+    SAMFileReader reader = new SAMFileReader(bam);
+    try {
+      reader.enableFileSource(true);
+      BAMIndexer indexer =
+          new BAMIndexer(new File(bam.getPath() + ".bai"), reader.getFileHeader());
+      for (SAMRecord indexed : reader) {
+        indexer.processAlignment(indexed);
+      }
+      indexer.finish();
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testReplacedBamFileIsReindexed() throws Exception {
+    File bam = new File(folder.getRoot(), "replaced.bam");
+    writeBam(bam, "before");
+    Server server = Server.builder()
+        .setPort(5003)
+        .setDatasets(DatasetDirectory.create(
+            Dataset.create("replaced", 0L, true), folder.getRoot().toPath()))
+        .build()
+        .start();
+    try {
+      WebTarget target = ClientBuilder.newBuilder()
+          .register(JacksonFeature.class)
+          .build()
+          .target(server.getURI());
+      assertEquals("before", target.path("/reads/before").request().get(Read.class).getName());
+      long lastModified = bam.lastModified();
+      writeBam(bam, "after");
+      assertTrue(bam.setLastModified(lastModified + 10000));
+      long deadline = System.currentTimeMillis() + 10000;
+      while (Response.Status.OK.getStatusCode() != getStatus(target, "after")
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(100);
+      }
+      assertEquals("after", target.path("/reads/after").request().get(Read.class).getName());
+      assertEquals(Response.Status.NOT_FOUND.getStatusCode(), getStatus(target, "before"));
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testModifiedBamFileInvalidatesSearchCache() throws Exception {
+    File bam = new File(folder.getRoot(), "bam1.bam");
+    Files.copy(new File("testdata/bam1.bam").toPath(), bam.toPath());
+    Files.copy(new File("testdata/bam1.bam.bai").toPath(),
+        new File(folder.getRoot(), "bam1.bam.bai").toPath());
+    Server server = Server.builder()
+        .setPort(5003)
+        .setDatasets(DatasetDirectory.create(
+            Dataset.create("refresh", 0L, true), folder.getRoot().toPath()))
+        .build()
+        .start();
+    try {
+      WebTarget target = ClientBuilder.newBuilder()
+          .register(JacksonFeature.class)
+          .build()
+          .target(server.getURI());
+      Entity<SearchReadsRequest> request = Entity.json(SearchReadsRequest.create(
+          Collections.singletonList("refresh"), null, "reference", null, null, null));
+      long misses = search(target, request).getMissCount();
+      assertEquals(misses, search(target, request).getMissCount());
+      assertTrue(bam.setLastModified(bam.lastModified() + 10000));
+      long deadline = System.currentTimeMillis() + 10000;
+      while (misses == search(target, request).getMissCount()
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(100);
+      }
+      assertEquals(misses + 1, target.path("/stats/cache")
+          .request()
+          .get(CacheStats.class)
+          .getMissCount());
+    } finally {
+      server.stop();
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.genomics.localrepo.dto.Dataset;
+import com.google.cloud.genomics.localrepo.dto.GenotypeBatch;
+import com.google.cloud.genomics.localrepo.dto.SearchGenotypesRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchGenotypesResponse;
+
+import net.sf.samtools.util.BlockCompressedOutputStream;
+
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.client.Entity;
+
+@RunWith(JUnit4.class)
+public class GenotypesTest extends BaseTest {
+
+  @ClassRule
+  public static final WebTarget TARGET =
+      WebTarget.create(Server.builder().setDatasets(DATASET_DIR).build());
+
+  private static final String[] GENOTYPES = { "0/0", "0/1", "1|1", "./." };
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private static SearchGenotypesResponse search(SearchGenotypesRequest request) {
+    return TARGET.path("/genotypes/search").request()
+        .post(Entity.json(request), SearchGenotypesResponse.class);
+  }
+
+  private static List<String> callsetNames(GenotypeBatch batch) {
+    return batch.getCallsetIds().stream()
+        .map(callsetId -> DATASET_DIR.getCallsets().get(callsetId).getSample())
+        .collect(Collectors.toList());
+  }
+
+  private static List<Integer> positions(List<GenotypeBatch> batches) {
+    List<Integer> positions = new ArrayList<>();
+    for (GenotypeBatch batch : batches) {
+      Arrays.stream(batch.getPositions()).forEach(positions::add);
+    }
+    return positions;
+  }
+
+  @Test
+  public void testEncode() {
+    assertEquals(0, GenotypeStore.encode("0/0"));
+    assertEquals(1, GenotypeStore.encode("0|1:12"));
+    assertEquals(2, GenotypeStore.encode("1/2"));
+    assertEquals(1, GenotypeStore.encode("10/0"));
+    assertEquals(1, GenotypeStore.encode("1"));
+    assertEquals(GenotypeStore.MISSING, GenotypeStore.encode("./."));
+    assertEquals(GenotypeStore.MISSING, GenotypeStore.encode("0/1/1"));
+    assertEquals(GenotypeStore.MISSING, GenotypeStore.encode(""));
+  }
+
+  @Test
+  public void testSearchGenotypes() {
+    SearchGenotypesResponse response =
+        search(SearchGenotypesRequest.create(DATASET_ID, "reference", null, null, null));
+    assertNull(response.getNextPageToken());
+    assertEquals(2, response.getBatches().size());
+    GenotypeBatch first = response.getBatches().get(0);
+    assertEquals(Arrays.asList("sample1", "sample2"), callsetNames(first));
+    assertArrayEquals(new int[] { 2, 4, 4, 7 }, first.getPositions());
+    assertEquals(Arrays.asList("A", "AC", "A", "T"), first.getReferenceBases());
+    assertEquals(Arrays.asList("G", "A", "T,C", "C"), first.getAlternateBases());
+    // sample1: 1, 1, 2, 0; sample2: 2, 0, 3, 1
+    assertArrayEquals(new byte[] { 1 | 1 << 2 | 2 << 4, 2 | 3 << 4 | 1 << 6 },
+        first.getGenotypes());
+    GenotypeBatch second = response.getBatches().get(1);
+    assertEquals(Collections.singletonList("sample3"), callsetNames(second));
+    assertArrayEquals(new int[] { 2, 9 }, second.getPositions());
+    assertArrayEquals(new byte[] { 2 << 2 }, second.getGenotypes());
+  }
+
+  @Test
+  public void testSearchGenotypesByCallset() {
+    SearchGenotypesResponse response = search(SearchGenotypesRequest.create(DATASET_ID,
+        "reference", 3L, 7L, null, Collections.singletonList("sample2"), null, null, null));
+    assertEquals(1, response.getBatches().size());
+    GenotypeBatch batch = response.getBatches().get(0);
+    assertEquals(Collections.singletonList("sample2"), callsetNames(batch));
+    assertArrayEquals(new int[] { 4, 4, 7 }, batch.getPositions());
+    assertArrayEquals(new byte[] { 0 | 3 << 2 | 1 << 4 }, batch.getGenotypes());
+  }
+
+  @Test
+  public void testSearchGenotypesPaging() {
+    List<GenotypeBatch> batches = new ArrayList<>();
+    SearchGenotypesResponse response = null;
+    do {
+      response = search(SearchGenotypesRequest.create(DATASET_ID, "reference", null, null, null,
+          null, null, 3L, null == response ? null : response.getNextPageToken()));
+      assertEquals(3, positions(response.getBatches()).size());
+      batches.addAll(response.getBatches());
+    } while (null != response.getNextPageToken());
+    assertEquals(Arrays.asList(2, 4, 4, 7, 2, 9), positions(batches));
+  }
+
+  @Test
+  public void testGenotypeStoreBuiltAtStartup() throws Exception {
+    for (String name : Arrays.asList("variants1.vcf.gz", "variants1.vcf.gz.tbi")) {
+      Files.copy(new File("testdata", name).toPath(), new File(folder.getRoot(), name).toPath());
+    }
+    File storeFile = new File(folder.getRoot(), "variants1.vcf.gz.gts");
+    try (Backend backend = Backend.create(
+        Collections.singletonList(DatasetDirectory.create(
+            Dataset.create("startup", 0L, true), folder.getRoot().toPath())),
+        100, 0)) {
+      long deadline = System.currentTimeMillis() + 10000;
+      while (!storeFile.isFile() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(100);
+      }
+      assertTrue(storeFile.isFile());
+    }
+  }
+
+  @Test
+  public void testGenotypeStoreChunks() throws IOException {
+    int samples = 3;
+    int variants = GenotypeStore.CHUNK_VARIANTS + 1000;
+    File vcfFile = folder.newFile("chunks.vcf.gz");
+    try (Writer out = new OutputStreamWriter(
+        new BlockCompressedOutputStream(vcfFile), StandardCharsets.UTF_8)) {
+      out.write("##fileformat=VCFv4.1\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT"
+          + "\ts0\ts1\ts2\n");
+      for (int variant = 0; variant < variants; ++variant) {
+        out.write(String.format("chr1\t%d\t.\tA\tG\t.\t.\t.\tGT:DP", variant + 1));
+        for (int sample = 0; sample < samples; ++sample) {
+          out.write("\t" + GENOTYPES[genotype(sample, variant)] + ":5");
+        }
+        out.write("\n");
+      }
+    }
+    GenotypeStore store = GenotypeStore.open(vcfFile);
+    assertEquals(samples, store.getSamples());
+    assertEquals(variants, store.getVariants());
+    assertEquals(100, store.lowerBound("chr1", 101));
+    assertEquals(101, store.upperBound("chr1", 101));
+    assertEquals(0, store.lowerBound("chr2", 1));
+    for (int sample = 0; sample < samples; ++sample) {
+      for (int variant = 0; variant < variants; ++variant) {
+        long word = store.getGenotypes(sample, variant);
+        for (int i = 0; i < 32 && variant + i < variants; ++i) {
+          assertEquals(genotype(sample, variant + i), (int) (word >>> 2 * i & 3));
+        }
+      }
+    }
+    byte[] packed = new byte[10];
+    store.getGenotypes(1, GenotypeStore.CHUNK_VARIANTS - 17, 37, packed, 0);
+    for (int i = 0; i < 40; ++i) {
+      assertEquals(i < 37 ? genotype(1, GenotypeStore.CHUNK_VARIANTS - 17 + i) : 0,
+          packed[i / 4] >>> 2 * (i % 4) & 3);
+    }
+  }
+
+  private static int genotype(int sample, int variant) {
+    return (7 * variant + 3 * sample + variant / 5) % 4;
+  }
+}
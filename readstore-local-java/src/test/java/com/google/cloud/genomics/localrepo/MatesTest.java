@@ -0,0 +1,215 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.genomics.localrepo.dto.Dataset;
+import com.google.cloud.genomics.localrepo.dto.Read;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsResponse;
+
+import net.sf.samtools.BAMIndexer;
+import net.sf.samtools.SAMFileHeader;
+import net.sf.samtools.SAMFileReader;
+import net.sf.samtools.SAMFileWriter;
+import net.sf.samtools.SAMFileWriterFactory;
+import net.sf.samtools.SAMReadGroupRecord;
+import net.sf.samtools.SAMRecord;
+import net.sf.samtools.SAMSequenceRecord;
+import net.sf.samtools.SAMTag;
+
+import org.glassfish.jersey.jackson.JacksonFeature;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+/**
+ * Serves a BAM file of paired reads whose mates mostly lie outside the queried window: two close
+ * enough together to be fetched in one coalesced query, one too far away to be, and one on
+ * another sequence. A secondary alignment shares a mate's name and position, and must not be
+ * taken for it.
+ */
+@RunWith(JUnit4.class)
+public class MatesTest {
+
+  private static final String DATASET_ID = "mates";
+  private static final int READ_LENGTH = 10;
+
+  @ClassRule
+  public static final TemporaryFolder FOLDER = new TemporaryFolder();
+
+  private static Server server;
+  private static WebTarget target;
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    File bam = new File(FOLDER.getRoot(), "mates.bam");
+    writeBam(bam);
+    server = Server.builder()
+        .setPort(5002)
+        .setDatasets(DatasetDirectory.create(
+            Dataset.create(DATASET_ID, 0L, true), FOLDER.getRoot().toPath()))
+        .build()
+        .start();
+    target = ClientBuilder.newBuilder()
+        .register(JacksonFeature.class)
+        .build()
+        .target(server.getURI());
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    server.stop();
+  }
+
+  private static void writeBam(File bam) {
+    SAMFileHeader header = new SAMFileHeader();
+    header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+    header.addSequence(new SAMSequenceRecord("chr1", 100000));
+    header.addSequence(new SAMSequenceRecord("chr2", 10000));
+    SAMReadGroupRecord readGroup = new SAMReadGroupRecord("readgroup");
+    readGroup.setSample("sample");
+    header.addReadGroup(readGroup);
+    SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(header, true, bam);
+    try {
+      for (SAMRecord record : Arrays.asList(
+          createRecord(header, "pair1", 99, "chr1", 100, "chr1", 50000),
+          createRecord(header, "pair2", 99, "chr1", 200, "chr1", 51000),
+          createRecord(header, "pair3", 99, "chr1", 300, "chr1", 90000),
+          createRecord(header, "pair4", 99, "chr1", 400, "chr1", 500),
+          createRecord(header, "pair4", 147, "chr1", 500, "chr1", 400),
+          createRecord(header, "pair5", 97, "chr1", 600, "chr2", 1000),
+          createRecord(header, "pair1", 403, "chr1", 50000, "chr1", 100),
+          createRecord(header, "pair1", 147, "chr1", 50000, "chr1", 100),
+          createRecord(header, "pair2", 147, "chr1", 51000, "chr1", 200),
+          createRecord(header, "pair3", 147, "chr1", 90000, "chr1", 300),
+          createRecord(header, "pair5", 145, "chr2", 1000, "chr1", 600))) {
+        writer.addAlignment(record);
+      }
+    } finally {
+      writer.close();
+    }
+    SAMFileReader reader = new SAMFileReader(bam);
+    try {
+      reader.enableFileSource(true);
+      BAMIndexer indexer =
+          new BAMIndexer(new File(bam.getPath() + ".bai"), reader.getFileHeader());
+      for (SAMRecord record : reader) {
+        indexer.processAlignment(record);
+      }
+      indexer.finish();
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static SAMRecord createRecord(SAMFileHeader header, String name, int flags,
+      String sequence, int position, String mateSequence, int matePosition) {
+    SAMRecord record = new SAMRecord(header);
+    record.setReadName(name);
+    record.setFlags(flags);
+    record.setReferenceName(sequence);
+    record.setAlignmentStart(position);
+    record.setMappingQuality(60);
+    record.setCigarString(READ_LENGTH + "M");
+    record.setMateReferenceName(mateSequence);
+    record.setMateAlignmentStart(matePosition);
+    record.setReadString("ACGTACGTAC");
+    record.setBaseQualityString("IIIIIIIIII");
+    record.setAttribute(SAMTag.RG.name(), "readgroup");
+    return record;
+  }
+
+  private static List<String> describe(List<Read> reads) {
+    return reads.stream().map(MatesTest::describe).collect(Collectors.toList());
+  }
+
+  private static String describe(Read read) {
+    return String.format("%s %d %s:%d", read.getName(), read.getFlags(),
+        read.getReferenceSequenceName(), read.getPosition());
+  }
+
+  @Test
+  public void testGetMate() {
+    assertEquals("pair1 147 chr1:50000",
+        describe(target.path("/reads/pair1/mate").request().get(Read.class)));
+    assertEquals("pair4 147 chr1:500",
+        describe(target.path("/reads/pair4/mate").request().get(Read.class)));
+    assertEquals("pair5 145 chr2:1000",
+        describe(target.path("/reads/pair5/mate").request().get(Read.class)));
+    assertEquals("pair5 97 chr1:600",
+        describe(target.path("/reads/pair5").request().get(Read.class)));
+    Response response = target.path("/reads/unknown/mate").request().get();
+    try {
+      assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+    } finally {
+      response.close();
+    }
+    assertTrue(new File(FOLDER.getRoot(), "mates.bam.rni").isFile());
+  }
+
+  @Test
+  public void testSearchReadsIncludeMates() {
+    SearchReadsResponse response = target.path("/reads/search")
+        .request()
+        .post(
+            Entity.json(SearchReadsRequest.create(
+                Collections.singletonList(DATASET_ID),
+                null,
+                "chr1",
+                1L,
+                1000L,
+                null,
+                null,
+                null,
+                true)),
+            SearchReadsResponse.class);
+    assertEquals(
+        Arrays.asList(
+            "pair1 99 chr1:100",
+            "pair2 99 chr1:200",
+            "pair3 99 chr1:300",
+            "pair4 99 chr1:400",
+            "pair4 147 chr1:500",
+            "pair5 97 chr1:600"),
+        describe(response.getReads()));
+    assertEquals(
+        Arrays.asList(
+            "pair1 147 chr1:50000",
+            "pair2 147 chr1:51000",
+            "pair3 147 chr1:90000",
+            "pair5 145 chr2:1000"),
+        describe(response.getMates()));
+  }
+}
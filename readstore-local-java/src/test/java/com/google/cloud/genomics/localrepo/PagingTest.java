@@ -32,10 +32,17 @@ import javax.ws.rs.client.Entity;
 
 public class PagingTest extends BaseTest {
 
+  private static final List<String> SAMPLED_AT_HALF =
+      Arrays.asList("read1", "read5", "read2", "read6", "read4", "read8");
+
   @ClassRule
   public static final WebTarget
       TARGET = WebTarget.create(Server.builder().setDatasets(DATASET_DIR).setPageSize(1).build());
 
+  @ClassRule
+  public static final WebTarget LARGE_PAGE_TARGET = WebTarget.create(
+      Server.builder().setDatasets(DATASET_DIR).setPageSize(3).setPort(5004).build());
+
   @Test
   public void testSearchReadsPaging() {
     List<String> names = new ArrayList<>();
@@ -61,6 +68,42 @@ public class PagingTest extends BaseTest {
     assertNull(response8.getNextPageToken());
   }
 
+  @Test
+  public void testSearchReadsDownsamplingPaging() {
+    for (WebTarget target : Arrays.asList(TARGET, LARGE_PAGE_TARGET)) {
+      assertEquals(SAMPLED_AT_HALF, searchReadsDownsampled(target, 0.5, null));
+      assertEquals(SAMPLED_AT_HALF, searchReadsDownsampled(target, null, 4L));
+    }
+  }
+
+  @Test
+  public void testSearchReadsDownsamplingPageTokenKeepsFraction() {
+    List<String> names = new ArrayList<>();
+    SearchReadsResponse response = createSearchReadsResponse(TARGET, SearchReadsRequest.create(
+        null, null, "reference", null, null, null, null, 4L, null), names);
+    assertEquals(0.5,
+        QueryEngine.QueryDescriptor.fromPageToken(response.getNextPageToken()).getSampleFraction(),
+        0);
+    // Later pages ask for no downsampling at all, so only the token's fraction can apply.
+    while (null != response.getNextPageToken()) {
+      response = createSearchReadsResponse(TARGET, SearchReadsRequest.create(null, null,
+          "reference", null, null, response.getNextPageToken(), null, null, null), names);
+    }
+    assertEquals(SAMPLED_AT_HALF, names);
+  }
+
+  private static List<String> searchReadsDownsampled(WebTarget target, Double fraction,
+      Long count) {
+    List<String> names = new ArrayList<>();
+    SearchReadsResponse response = null;
+    do {
+      response = createSearchReadsResponse(target, SearchReadsRequest.create(null, null,
+          "reference", null, null, null == response ? null : response.getNextPageToken(),
+          fraction, count, null), names);
+    } while (null != response.getNextPageToken());
+    return names;
+  }
+
   private static SearchReadsRequest createSearchReadsRequest(SearchReadsResponse response) {
     return SearchReadsRequest.create(null, null, "reference", null, null,
         null == response ? null : response.getNextPageToken());
@@ -68,8 +111,13 @@ public class PagingTest extends BaseTest {
 
   private static SearchReadsResponse createSearchReadsResponse(SearchReadsRequest request,
       List<String> names) {
+    return createSearchReadsResponse(TARGET, request, names);
+  }
+
+  private static SearchReadsResponse createSearchReadsResponse(WebTarget target,
+      SearchReadsRequest request, List<String> names) {
     SearchReadsResponse response =
-        TARGET.path("/reads/search").request()
+        target.path("/reads/search").request()
             .post(Entity.json(request), SearchReadsResponse.class);
     response.getReads().stream().map(read -> read.getName()).forEach(names::add);
     return response;
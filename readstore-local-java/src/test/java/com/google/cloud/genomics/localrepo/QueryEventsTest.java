@@ -0,0 +1,86 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
+import com.google.common.collect.ImmutableMap;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+@RunWith(JUnit4.class)
+public class QueryEventsTest extends BaseTest {
+
+  private static final String PREFIX = "com.google.cloud.genomics.localrepo.";
+
+  @Test
+  public void testSearchReadsEvents() throws Exception {
+    QueryEngine queryEngine = QueryEngine.create(
+        ImmutableMap.of(DATASET_ID, DATASET_DIR), DATASET_DIR.getReadsets(), 2);
+    Path dump = Files.createTempFile("QueryEventsTest", ".jfr");
+    try (Recording recording = new Recording()) {
+      for (Class<?> event : QueryEvents.class.getDeclaredClasses()) {
+        if (!Modifier.isAbstract(event.getModifiers())) {
+          recording.enable(event.asSubclass(Event.class)).withoutThreshold();
+        }
+      }
+      recording.start();
+      queryEngine.searchReads(SearchReadsRequest.create(
+          Collections.<String>emptyList(), Collections.singletonList("1"), "reference", 1L, 10L,
+          null));
+      recording.stop();
+      recording.dump(dump);
+    }
+    try {
+      Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(dump)
+          .stream()
+          .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+      RecordedEvent plan = events.get(PREFIX + "Plan").get(0);
+      RecordedEvent seek = events.get(PREFIX + "Seek").get(0);
+      RecordedEvent merge = events.get(PREFIX + "Merge").get(0);
+      RecordedEvent serialize = events.get(PREFIX + "Serialize").get(0);
+      assertEquals(2, plan.getInt("files"));
+      assertEquals("reference", seek.getString("sequence"));
+      assertEquals(1, seek.getInt("start"));
+      assertEquals(10, seek.getInt("end"));
+      assertEquals(2, merge.getInt("files"));
+      assertEquals(2, merge.getInt("emitted"));
+      assertEquals("dto", serialize.getString("format"));
+      assertEquals(2, serialize.getInt("records"));
+      assertTrue(events.get(PREFIX + "OpenReader").stream()
+          .allMatch(event -> event.getString("file").endsWith(".bam")));
+    } finally {
+      Files.delete(dump);
+    }
+  }
+}
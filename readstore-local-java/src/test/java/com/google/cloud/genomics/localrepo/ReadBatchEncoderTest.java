@@ -0,0 +1,76 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.google.cloud.genomics.localrepo.dto.ReadBatch;
+
+import net.sf.samtools.SAMFileHeader;
+import net.sf.samtools.SAMRecord;
+import net.sf.samtools.SAMSequenceDictionary;
+import net.sf.samtools.SAMSequenceRecord;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ReadBatchEncoderTest {
+
+  private static SAMRecord createRecord(SAMFileHeader header, String name, int position,
+      String bases, String qualities) {
+    SAMRecord record = new SAMRecord(header);
+    record.setReadName(name);
+    record.setReferenceName("chr1");
+    record.setAlignmentStart(position);
+    record.setMappingQuality(60);
+    record.setCigarString(bases.length() + "M");
+    record.setReadString(bases);
+    record.setBaseQualityString(qualities);
+    return record;
+  }
+
+  @Test
+  public void testEncode() {
+    SAMFileHeader header = new SAMFileHeader();
+    header.setSequenceDictionary(new SAMSequenceDictionary(
+        Collections.singletonList(new SAMSequenceRecord("chr1", 1000))));
+    SAMRecord first = createRecord(header, "first", 10, "ACGTN", "!#%')");
+    first.setAttribute("NM", 1);
+    SAMRecord second = createRecord(header, "second", 20, "TTG", "*");
+    ReadBatch batch = ReadBatchEncoder.encode(Arrays.asList(first, second), record -> "readset");
+    assertEquals(Arrays.asList("first", "second"), batch.getNames());
+    assertEquals(Collections.singletonList("readset"), batch.getReadsetIds());
+    assertArrayEquals(new int[] { 0, 0 }, batch.getReadsetIndexes());
+    assertEquals(Collections.singletonList("chr1"), batch.getReferenceSequenceNames());
+    assertArrayEquals(new int[] { 0, 0 }, batch.getReferenceSequenceIndexes());
+    assertArrayEquals(new int[] { -1, -1 }, batch.getMateReferenceSequenceIndexes());
+    assertArrayEquals(new int[] { 10, 20 }, batch.getPositions());
+    assertArrayEquals(new short[] { 60, 60 }, batch.getMappingQualities());
+    assertArrayEquals(new int[] { 5, 3 }, batch.getLengths());
+    // A C G T | N(as A) T T G
+    assertArrayEquals(new byte[] { (byte) 0b11100100, (byte) 0b10111100 }, batch.getBases());
+    assertArrayEquals(new int[] { 4 }, batch.getAmbiguousBaseOffsets());
+    assertEquals("N", batch.getAmbiguousBases());
+    assertArrayEquals(new byte[] { 0, 2, 4, 6, 8, -1, -1, -1 }, batch.getBaseQualities());
+    assertEquals(
+        Collections.singletonList(
+            ReadBatch.TagColumn.create("NM", Collections.singletonList("1"), new int[] { 0, -1 })),
+        batch.getTags());
+  }
+}
@@ -0,0 +1,77 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.cloud.genomics.localrepo.dto.Read;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsResponse;
+import com.google.common.collect.ImmutableMap;
+
+import net.sf.samtools.SAMFileHeader;
+import net.sf.samtools.SAMRecord;
+import net.sf.samtools.SAMSequenceDictionary;
+import net.sf.samtools.SAMSequenceRecord;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ReadJsonWriterTest {
+
+  @Test
+  public void testWriteSearchReadsResponse() throws IOException {
+    SAMFileHeader header = new SAMFileHeader();
+    header.setSequenceDictionary(new SAMSequenceDictionary(Arrays.asList(
+        new SAMSequenceRecord("chr1", 1000), new SAMSequenceRecord("chr2", 1000))));
+    SAMRecord mapped = new SAMRecord(header);
+    mapped.setReadName("mapped");
+    mapped.setFlags(0x41);
+    mapped.setReferenceName("chr1");
+    mapped.setAlignmentStart(10);
+    mapped.setMappingQuality(60);
+    mapped.setCigarString("4M");
+    mapped.setMateReferenceName("chr2");
+    mapped.setMateAlignmentStart(500);
+    mapped.setReadString("ACGT");
+    mapped.setBaseQualityString("\"\\#I");
+    mapped.setAttribute("NM", 0);
+    SAMRecord unmapped = new SAMRecord(header);
+    unmapped.setReadName("unmapped");
+    unmapped.setReadUnmappedFlag(true);
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    try (JsonGenerator generator = DataTransferObject.OBJECT_MAPPER.getJsonFactory()
+        .createJsonGenerator(buffer, JsonEncoding.UTF8)) {
+      new ReadJsonWriter(record -> "readset").writeSearchReadsResponse(
+          generator, Arrays.asList(mapped, unmapped), "token", null);
+    }
+    assertEquals(
+        SearchReadsResponse.create(
+            Arrays.asList(
+                Read.create("mapped", "mapped", "readset", 0x41, "chr1", 10, 60, "4M", "chr2", 500,
+                    null, "ACGT", null, "\"\\#I", ImmutableMap.of("NM", "0")),
+                Read.create("unmapped", "unmapped", "readset", 0x4, null, null, 0, null, null,
+                    null, null, null, null, null, Collections.<String, String>emptyMap())),
+            "token"),
+        new ObjectMapper().readValue(buffer.toByteArray(), SearchReadsResponse.class));
+  }
+}
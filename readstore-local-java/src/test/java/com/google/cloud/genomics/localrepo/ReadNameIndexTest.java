@@ -0,0 +1,95 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.samtools.SAMFileHeader;
+import net.sf.samtools.SAMFileWriter;
+import net.sf.samtools.SAMFileWriterFactory;
+import net.sf.samtools.SAMRecord;
+import net.sf.samtools.SAMSequenceRecord;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(JUnit4.class)
+public class ReadNameIndexTest {
+
+  private static final int NAMES = 50;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private static SAMFileHeader writeBam(File bam) {
+    SAMFileHeader header = new SAMFileHeader();
+    header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+    header.addSequence(new SAMSequenceRecord("chr1", 10000));
+    SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(header, false, bam);
+    try {
+      for (int i = 0; i < NAMES; ++i) {
+        for (int position : new int[] { 1 + i, 1001 + i }) {
+          SAMRecord record = new SAMRecord(header);
+          record.setReadName("read" + i);
+          record.setReferenceName("chr1");
+          record.setAlignmentStart(position);
+          record.setCigarString("4M");
+          record.setReadString("ACGT");
+          record.setBaseQualityString("IIII");
+          writer.addAlignment(record);
+        }
+      }
+    } finally {
+      writer.close();
+    }
+    return header;
+  }
+
+  @Test
+  public void testFindAcrossSpilledRuns() throws IOException {
+    File bam = folder.newFile("reads.bam");
+    SAMFileHeader header = writeBam(bam);
+    File merged = new File(bam.getPath() + ".rni");
+    File whole = folder.newFile("whole.rni");
+    ReadNameIndex.write(bam, header, merged, 7);
+    ReadNameIndex.write(bam, header, whole, ReadNameIndex.CHUNK_RECORDS);
+    assertArrayEquals(Files.readAllBytes(whole.toPath()), Files.readAllBytes(merged.toPath()));
+    ReadNameIndex index = ReadNameIndex.open(bam, header);
+    assertEquals(2 * NAMES, index.size());
+    for (int i = 0; i < NAMES; ++i) {
+      String name = "read" + i;
+      List<SAMRecord> records = index.find(name);
+      assertEquals(Arrays.asList(1 + i, 1001 + i), records.stream()
+          .map(SAMRecord::getAlignmentStart)
+          .sorted()
+          .collect(Collectors.toList()));
+      assertTrue(records.stream().allMatch(record -> name.equals(record.getReadName())));
+    }
+    assertTrue(index.find("missing").isEmpty());
+  }
+}
@@ -0,0 +1,165 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsResponse;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.glassfish.jersey.jackson.JacksonFeature;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+@RunWith(JUnit4.class)
+public class RequestLogTest extends BaseTest {
+
+  /**
+   * Reads the records in a gzipped log, which may end without a trailer if the server that writes
+   * it is still running.
+   */
+  private static List<JsonNode> readLog(Path log) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(log))) {
+      byte[] buffer = new byte[4096];
+      for (int read = in.read(buffer); -1 != read; read = in.read(buffer)) {
+        bytes.write(buffer, 0, read);
+      }
+    } catch (EOFException e) {
+      // The rest of the log hasn't been flushed yet.
+    }
+    ObjectMapper mapper = new ObjectMapper();
+    List<JsonNode> lines = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+        new ByteArrayInputStream(bytes.toByteArray()), StandardCharsets.UTF_8))) {
+      for (String line = reader.readLine(); null != line; line = reader.readLine()) {
+        lines.add(mapper.readTree(line));
+      }
+    }
+    return lines;
+  }
+
+  @Test
+  public void testRequestLog() throws Exception {
+    Path log = Files.createTempFile("RequestLogTest", ".jsonl.gz");
+    try {
+      Server server = Server.builder()
+          .setPort(5001)
+          .setDatasets(DATASET_DIR)
+          .setRequestLog(log)
+          .build()
+          .start();
+      SearchReadsRequest request = SearchReadsRequest.create(
+          Collections.<String>emptyList(), Collections.singletonList("1"), "reference", 1L, 10L,
+          null);
+      try {
+        WebTarget target = ClientBuilder.newBuilder()
+            .register(JacksonFeature.class)
+            .build()
+            .target(server.getURI());
+        target.path("/datasets/" + DATASET_ID).request().get().close();
+        assertEquals(3, target.path("/reads/search").request(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.ACCEPT_ENCODING, "identity")
+            .post(Entity.json(request), SearchReadsResponse.class).getReads().size());
+        target.path("/nonexistent").request().get().close();
+      } finally {
+        server.stop();
+      }
+      List<JsonNode> lines = readLog(log);
+      assertEquals(2, lines.size());
+      JsonNode get = lines.get(0);
+      JsonNode post = lines.get(1);
+      assertEquals("GET", get.get("method").getTextValue());
+      assertEquals("/datasets/{datasetId}", get.get("endpoint").getTextValue());
+      assertEquals("datasets/" + DATASET_ID, get.get("path").getTextValue());
+      assertFalse(get.has("body"));
+      assertEquals("identity",
+          post.get("headers").get(HttpHeaders.ACCEPT_ENCODING).getTextValue());
+      assertEquals(MediaType.APPLICATION_JSON,
+          post.get("headers").get(HttpHeaders.ACCEPT).getTextValue());
+      assertFalse(post.get("headers").has(HttpHeaders.IF_NONE_MATCH));
+      assertEquals("POST", post.get("method").getTextValue());
+      assertEquals("/reads/search", post.get("endpoint").getTextValue());
+      assertEquals("reads/search", post.get("path").getTextValue());
+      assertEquals(request,
+          new ObjectMapper().readValue(post.get("body").getTextValue(), SearchReadsRequest.class));
+      assertTrue(get.get("time").getLongValue() <= post.get("time").getLongValue());
+    } finally {
+      Files.delete(log);
+    }
+  }
+
+  @Test
+  public void testRequestLogFlushedWhileRunning() throws Exception {
+    Path log = Files.createTempFile("RequestLogTest", ".jsonl.gz");
+    try {
+      Server server = Server.builder()
+          .setPort(5001)
+          .setDatasets(DATASET_DIR)
+          .setRequestLog(log)
+          .build()
+          .start();
+      try {
+        ClientBuilder.newBuilder()
+            .register(JacksonFeature.class)
+            .build()
+            .target(server.getURI())
+            .path("/datasets/" + DATASET_ID)
+            .request()
+            .get()
+            .close();
+        long deadline = System.currentTimeMillis() + 10000;
+        List<JsonNode> lines = readLog(log);
+        while (lines.isEmpty() && System.currentTimeMillis() < deadline) {
+          Thread.sleep(100);
+          lines = readLog(log);
+        }
+        assertEquals(1, lines.size());
+        assertEquals("datasets/" + DATASET_ID, lines.get(0).get("path").getTextValue());
+      } finally {
+        server.stop();
+      }
+    } finally {
+      Files.delete(log);
+    }
+  }
+}
@@ -15,12 +15,19 @@ limitations under the License.
 */
 package com.google.cloud.genomics.localrepo;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import com.github.luben.zstd.ZstdInputStream;
+import com.google.cloud.genomics.localrepo.dto.CacheStats;
 import com.google.cloud.genomics.localrepo.dto.Dataset;
 import com.google.cloud.genomics.localrepo.dto.ListDatasetsResponse;
 import com.google.cloud.genomics.localrepo.dto.Read;
+import com.google.cloud.genomics.localrepo.dto.ReadBatch;
 import com.google.cloud.genomics.localrepo.dto.Readset;
+import com.google.cloud.genomics.localrepo.dto.SearchReadsBatchResponse;
 import com.google.cloud.genomics.localrepo.dto.SearchReadsRequest;
 import com.google.cloud.genomics.localrepo.dto.SearchReadsResponse;
 import com.google.cloud.genomics.localrepo.dto.SearchReadsetsRequest;
@@ -28,6 +35,7 @@ import com.google.cloud.genomics.localrepo.dto.SearchReadsetsResponse;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
+import org.codehaus.jackson.map.ObjectMapper;
 import org.joda.time.DateTimeUtils;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
@@ -35,12 +43,22 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
 
 @RunWith(JUnit4.class)
 public class ServerTest extends BaseTest {
@@ -129,6 +147,32 @@ public class ServerTest extends BaseTest {
     }
   }
 
+  @Test
+  public void testGetRead() {
+    assertEquals(
+        createRead("read3", "2", 0, "reference", 5, "2M", "readgroup3"),
+        TARGET.path("/reads/read3").request().get(Read.class));
+    assertEquals(
+        Response.Status.NOT_FOUND.getStatusCode(),
+        TARGET.path("/reads/read9").request().get().getStatus());
+  }
+
+  @Test
+  public void testGetReadsetNotModified() {
+    for (Readset readset : READSETS) {
+      String path = String.format("/readsets/%s", readset.getId());
+      EntityTag entityTag = TARGET.path(path).request().get().getEntityTag();
+      assertEquals(
+          Response.Status.NOT_MODIFIED.getStatusCode(),
+          TARGET.path(path).request().header(HttpHeaders.IF_NONE_MATCH, entityTag).get()
+              .getStatus());
+      assertEquals(
+          Response.Status.OK.getStatusCode(),
+          TARGET.path(path).request().header(HttpHeaders.IF_NONE_MATCH, "\"stale\"").get()
+              .getStatus());
+    }
+  }
+
   @Test
   public void testListDatasets() {
     assertEquals(
@@ -139,6 +183,29 @@ public class ServerTest extends BaseTest {
             .get(ListDatasetsResponse.class));
   }
 
+  @Test
+  public void testMetrics() {
+    TARGET.path("/reads/search")
+        .request()
+        .post(Entity.json(SearchReadsRequest.create(
+            null, Collections.singletonList("3"), "reference", null, null, null)));
+    Response response = TARGET.path("/metrics").request().get();
+    assertEquals(Metrics.MEDIA_TYPE, response.getMediaType().toString());
+    List<String> lines = Arrays.asList(response.readEntity(String.class).split("\n"));
+    assertTrue(lines.contains("# TYPE readstore_http_request_duration_seconds histogram"));
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith(
+        "readstore_http_request_duration_seconds_count"
+            + "{method=\"POST\",path=\"/reads/search\",status=\"200\"} ")));
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith(
+        "readstore_search_reads_files_bucket{le=\"+Inf\"} ")));
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith(
+        "readstore_search_reads_files_bucket{le=\"18.0\"} ")));
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith(
+        "readstore_search_cache_requests_total{result=\"miss\"} ")));
+    assertTrue(lines.stream().anyMatch(line -> line.startsWith("readstore_bam_read_bytes_total ")
+        && 0 < Long.parseLong(line.substring(line.indexOf(' ') + 1))));
+  }
+
   @Test
   public void testSearchReads() {
     for (Map.Entry<Readset, SearchReadsResponse> entry : SEARCH_READS_RESPONSES.entrySet()) {
@@ -158,6 +225,82 @@ public class ServerTest extends BaseTest {
     }
   }
 
+  @Test
+  public void testSearchReadsIncludeMates() {
+    for (Map.Entry<Readset, SearchReadsResponse> entry : SEARCH_READS_RESPONSES.entrySet()) {
+      assertEquals(
+          SearchReadsResponse.create(
+              entry.getValue().getReads(),
+              null,
+              Collections.<Read>emptyList()),
+          TARGET.path("/reads/search")
+              .request()
+              .post(
+                  Entity.json(SearchReadsRequest.create(
+                      null,
+                      Collections.singletonList(entry.getKey().getId()),
+                      "reference",
+                      null,
+                      null,
+                      null,
+                      null,
+                      null,
+                      true)),
+                  SearchReadsResponse.class));
+    }
+  }
+
+  @Test
+  public void testSearchReadsBatch() throws IOException {
+    for (Map.Entry<Readset, SearchReadsResponse> entry : SEARCH_READS_RESPONSES.entrySet()) {
+      List<Read> reads = entry.getValue().getReads();
+      Response httpResponse = TARGET.path("/reads/search")
+          .request(ReadBatch.MEDIA_TYPE)
+          .post(
+              Entity.json(SearchReadsRequest.create(
+                  null,
+                  Collections.singletonList(entry.getKey().getId()),
+                  "reference",
+                  null,
+                  null,
+                  null)));
+      assertEquals(ReadBatch.MEDIA_TYPE, httpResponse.getMediaType().toString());
+      SearchReadsBatchResponse response = new ObjectMapper()
+          .readValue(httpResponse.readEntity(String.class), SearchReadsBatchResponse.class);
+      ReadBatch batch = response.getReads();
+      assertEquals(reads.stream().map(Read::getName).collect(Collectors.toList()),
+          batch.getNames());
+      assertEquals(Collections.singletonList(entry.getKey().getId()), batch.getReadsetIds());
+      assertArrayEquals(reads.stream().mapToInt(Read::getPosition).toArray(),
+          batch.getPositions());
+      assertEquals(reads.stream().map(Read::getCigar).collect(Collectors.toList()),
+          batch.getCigars());
+      assertEquals(1, batch.getTags().size());
+      ReadBatch.TagColumn readGroups = batch.getTags().get(0);
+      assertEquals("RG", readGroups.getTag());
+      assertEquals(reads.stream().map(read -> read.getTags().get("RG")).collect(Collectors.toList()),
+          Arrays.stream(readGroups.getIndexes())
+              .mapToObj(readGroups.getValues()::get)
+              .collect(Collectors.toList()));
+      assertNull(response.getNextPageToken());
+    }
+  }
+
+  @Test
+  public void testSearchReadsCache() {
+    Entity<SearchReadsRequest> request = Entity.json(SearchReadsRequest.create(
+        null, Collections.singletonList("1"), "reference", 2L, 3L, null));
+    CacheStats before = TARGET.path("/stats/cache").request().get(CacheStats.class);
+    SearchReadsResponse miss =
+        TARGET.path("/reads/search").request().post(request, SearchReadsResponse.class);
+    SearchReadsResponse hit =
+        TARGET.path("/reads/search").request().post(request, SearchReadsResponse.class);
+    CacheStats after = TARGET.path("/stats/cache").request().get(CacheStats.class);
+    assertEquals(miss, hit);
+    assertEquals(before.getMissCount() + 1, after.getMissCount());
+    assertEquals(before.getHitCount() + 1, after.getHitCount());
+  }
+
   @Test
   public void testSearchReadsets() {
     assertEquals(
@@ -169,6 +312,75 @@ public class ServerTest extends BaseTest {
                 SearchReadsetsResponse.class));
   }
 
+  @Test
+  public void testSearchReadsetsCompressed() throws IOException {
+    Map<String, EntityTag> entityTags = new HashMap<>();
+    entityTags.put(null, TARGET.path("/readsets/search")
+        .request()
+        .post(Entity.json(SearchReadsetsRequest.create(Arrays.<String>asList(), null)))
+        .getEntityTag());
+    for (String acceptEncoding : Arrays.asList("gzip", "zstd", "gzip;q=0.5, zstd", "*")) {
+      Response httpResponse = TARGET.path("/readsets/search")
+          .request()
+          .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding)
+          .post(Entity.json(SearchReadsetsRequest.create(Arrays.<String>asList(), null)));
+      String contentEncoding = httpResponse.getHeaderString(HttpHeaders.CONTENT_ENCODING);
+      entityTags.put(contentEncoding, httpResponse.getEntityTag());
+      InputStream in = httpResponse.readEntity(InputStream.class);
+      assertEquals(
+          SearchReadsetsResponse.create(READSETS, null),
+          new ObjectMapper().readValue(
+              "gzip".equals(contentEncoding) ? new GZIPInputStream(in) : new ZstdInputStream(in),
+              SearchReadsetsResponse.class));
+      assertEquals("gzip".equals(acceptEncoding) ? "gzip" : "zstd", contentEncoding);
+    }
+    assertEquals(3, entityTags.size());
+    assertEquals(3, new HashSet<>(entityTags.values()).size());
+    assertEquals(
+        Response.Status.NOT_MODIFIED.getStatusCode(),
+        TARGET.path("/readsets/search")
+            .request()
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .header(HttpHeaders.IF_NONE_MATCH, entityTags.get("gzip"))
+            .post(Entity.json(SearchReadsetsRequest.create(Arrays.<String>asList(), null)))
+            .getStatus());
+    assertNull(TARGET.path("/readsets/search")
+        .request()
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+        .post(Entity.json(SearchReadsetsRequest.create(
+            Arrays.<String>asList(), null, 1L, SearchReadsetsRequest.SUMMARY_VIEW)))
+        .getHeaderString(HttpHeaders.CONTENT_ENCODING));
+  }
+
+  @Test
+  public void testSearchReadsetsPaging() {
+    List<Readset> readsets = new ArrayList<>();
+    String pageToken = null;
+    do {
+      SearchReadsetsResponse response = TARGET.path("/readsets/search")
+          .request()
+          .post(
+              Entity.json(SearchReadsetsRequest.create(
+                  Arrays.<String>asList(), pageToken, 2L, SearchReadsetsRequest.SUMMARY_VIEW)),
+              SearchReadsetsResponse.class);
+      readsets.addAll(response.getReadsets());
+      pageToken = response.getNextPageToken();
+    } while (null != pageToken);
+    assertEquals(
+        READSETS.stream()
+            .map(readset -> Readset.create(
+                readset.getId(), readset.getName(), readset.getDatasetId(), NOW, null))
+            .collect(Collectors.toList()),
+        readsets);
+    assertEquals(
+        Response.Status.BAD_REQUEST.getStatusCode(),
+        TARGET.path("/readsets/search")
+            .request()
+            .post(Entity.json(SearchReadsetsRequest.create(
+                Arrays.<String>asList(), "not a token", null, null)))
+            .getStatus());
+  }
+
   private static Readset createReadset(String id, String sample) {
     return Readset.create(id, sample, DATASET_ID, NOW, FILE_DATA);
   }
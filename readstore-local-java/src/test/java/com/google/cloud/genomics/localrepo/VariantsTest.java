@@ -0,0 +1,160 @@
+/*
+Copyright 2014 Google Inc. All rights reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.google.cloud.genomics.localrepo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.cloud.genomics.localrepo.dto.Call;
+import com.google.cloud.genomics.localrepo.dto.SearchVariantsRequest;
+import com.google.cloud.genomics.localrepo.dto.SearchVariantsResponse;
+import com.google.cloud.genomics.localrepo.dto.Variant;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+
+@RunWith(JUnit4.class)
+public class VariantsTest extends BaseTest {
+
+  @ClassRule
+  public static final WebTarget TARGET =
+      WebTarget.create(Server.builder().setDatasets(DATASET_DIR).build());
+
+  private static SearchVariantsResponse search(SearchVariantsRequest request) {
+    return TARGET.path("/variants/search").request()
+        .post(Entity.json(request), SearchVariantsResponse.class);
+  }
+
+  private static int status(SearchVariantsRequest request) {
+    return TARGET.path("/variants/search").request().post(Entity.json(request)).getStatus();
+  }
+
+  private static List<String> ids(List<Variant> variants) {
+    return variants.stream().map(Variant::getId).collect(Collectors.toList());
+  }
+
+  private static List<String> callsetNames(Variant variant) {
+    return variant.getCalls().stream().map(Call::getCallsetName).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testSearchVariants() {
+    SearchVariantsResponse response =
+        search(SearchVariantsRequest.create(DATASET_ID, "reference", null, null, null));
+    assertEquals(
+        Arrays.asList(
+            "datasetId:reference:2:A:G",
+            "datasetId:reference:4:AC:A",
+            "datasetId:reference:4:A:T,C",
+            "datasetId:reference:7:T:C",
+            "datasetId:reference:9:G:T"),
+        ids(response.getVariants()));
+    assertNull(response.getNextPageToken());
+
+    Variant merged = response.getVariants().get(0);
+    assertEquals(Collections.singletonList("rs1"), merged.getNames());
+    assertEquals(Arrays.asList("sample1", "sample2", "sample3"), callsetNames(merged));
+    assertEquals(
+        Arrays.asList(Arrays.asList(0L, 1L), Arrays.asList(1L, 1L), Arrays.asList(0L, 0L)),
+        merged.getCalls().stream().map(Call::getGenotype).collect(Collectors.toList()));
+    assertEquals(Collections.singletonList("4"), merged.getCalls().get(0).getInfo().get("DP"));
+
+    Variant deletion = response.getVariants().get(1);
+    Map<String, List<String>> info = new LinkedHashMap<>();
+    info.put("DP", Collections.singletonList("8"));
+    info.put("DB", Collections.<String>emptyList());
+    assertEquals(info, deletion.getInfo());
+    Call phased = deletion.getCalls().get(0);
+    assertEquals(Arrays.asList(0L, 1L), phased.getGenotype());
+    assertEquals(Arrays.asList(-1.0, -0.5, -2.0), phased.getGenotypeLikelihood());
+    assertEquals("*", phased.getPhaseset());
+
+    Variant multiallelic = response.getVariants().get(2);
+    assertEquals(Arrays.asList("T", "C"), multiallelic.getAlternateBases());
+    assertEquals(Arrays.asList(-1L, -1L), multiallelic.getCalls().get(1).getGenotype());
+    assertNull(multiallelic.getCalls().get(1).getPhaseset());
+
+    assertEquals(Arrays.asList("rs7", "rs8"), response.getVariants().get(3).getNames());
+  }
+
+  @Test
+  public void testSearchVariantsOverlapping() {
+    assertEquals(
+        Collections.singletonList("datasetId:reference:4:AC:A"),
+        ids(search(SearchVariantsRequest.create(DATASET_ID, "reference", 5L, 5L, null))
+            .getVariants()));
+  }
+
+  @Test
+  public void testSearchVariantsByCallset() {
+    List<Variant> variants = search(SearchVariantsRequest.create(DATASET_ID, "reference", null,
+        null, null, Collections.singletonList("sample3"), null, null, null, null)).getVariants();
+    assertEquals(
+        Arrays.asList("datasetId:reference:2:A:G", "datasetId:reference:9:G:T"), ids(variants));
+    for (Variant variant : variants) {
+      assertEquals(Collections.singletonList("sample3"), callsetNames(variant));
+    }
+  }
+
+  @Test
+  public void testSearchVariantsByName() {
+    assertEquals(
+        Collections.singletonList("datasetId:reference:7:T:C"),
+        ids(search(SearchVariantsRequest.create(DATASET_ID, "reference", null, null, null, null,
+            null, "rs8", null, null)).getVariants()));
+  }
+
+  @Test
+  public void testSearchVariantsPaging() {
+    List<Variant> variants = new ArrayList<>();
+    SearchVariantsResponse response = null;
+    do {
+      response = search(SearchVariantsRequest.create(DATASET_ID, "reference", null, null, null,
+          null, null, null, 1L, null == response ? null : response.getNextPageToken()));
+      assertEquals(1, response.getVariants().size());
+      variants.addAll(response.getVariants());
+    } while (null != response.getNextPageToken());
+    assertEquals(
+        ids(search(SearchVariantsRequest.create(DATASET_ID, "reference", null, null, null))
+            .getVariants()),
+        ids(variants));
+  }
+
+  @Test
+  public void testSearchVariantsInvalid() {
+    assertEquals(Response.Status.BAD_REQUEST.getStatusCode(),
+        status(SearchVariantsRequest.create(DATASET_ID, "reference", null, null, "garbage")));
+    assertEquals(Response.Status.BAD_REQUEST.getStatusCode(),
+        status(SearchVariantsRequest.create(DATASET_ID, "reference", 5L, 4L, null)));
+    assertEquals(Response.Status.BAD_REQUEST.getStatusCode(),
+        status(SearchVariantsRequest.create(DATASET_ID, null, null, null, null)));
+    assertEquals(Response.Status.NOT_FOUND.getStatusCode(),
+        status(SearchVariantsRequest.create("unknown", "reference", null, null, null)));
+  }
+}